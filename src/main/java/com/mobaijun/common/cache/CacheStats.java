@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.cache;
+
+/**
+ * Description: [本地缓存统计快照]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param hitCount         命中次数
+ * @param missCount        未命中次数
+ * @param loadSuccessCount 加载成功次数
+ * @param loadFailureCount 加载失败（抛出异常或返回 null）次数
+ * @param totalLoadTime    加载总耗时，纳秒
+ * @param evictionCount    因容量或过期被淘汰的条目数
+ * @param evictionWeight   被淘汰条目的总权重
+ */
+public record CacheStats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount,
+                         long totalLoadTime, long evictionCount, long evictionWeight) {
+
+    /**
+     * 请求次数
+     *
+     * @return 命中与未命中次数之和
+     */
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * 命中率
+     *
+     * @return 命中率，没有请求时为 1
+     */
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * 未命中率
+     *
+     * @return 未命中率，没有请求时为 0
+     */
+    public double missRate() {
+        long requests = requestCount();
+        return requests == 0 ? 0.0 : (double) missCount / requests;
+    }
+
+    /**
+     * 平均加载耗时
+     *
+     * @return 平均加载耗时，纳秒
+     */
+    public double averageLoadPenalty() {
+        long loads = loadSuccessCount + loadFailureCount;
+        return loads == 0 ? 0.0 : (double) totalLoadTime / loads;
+    }
+}
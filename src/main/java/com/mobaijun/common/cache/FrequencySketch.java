@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.cache;
+
+/**
+ * Description: [访问频率草图]
+ * <p>
+ * 4 位计数器的 Count-Min Sketch，每个 long 保存 16 个计数器，每个键映射到 4 个计数器，取最小值作为估计频率。
+ * 累计增加次数达到采样数后所有计数器减半，使频率随时间衰减。表的大小按条目个数而不是总权重确定，
+ * 由缓存在条目增多时通过 {@link #ensureCapacity(long)} 逐步扩大。只在淘汰锁内访问，非线程安全。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+final class FrequencySketch {
+
+    /**
+     * 每个计数器最高位清零的掩码，用于减半
+     */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    /**
+     * 每个计数器最低位的掩码，用于统计减半时丢失的奇数
+     */
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    /**
+     * 4 个哈希函数的种子
+     */
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    /**
+     * 表的最小长度
+     */
+    private static final int MINIMUM_LENGTH = 16;
+
+    /**
+     * 表的最大长度
+     */
+    private static final int MAXIMUM_LENGTH = 1 << 26;
+
+    /**
+     * 计数器表
+     */
+    private long[] table;
+
+    /**
+     * 表长减一
+     */
+    private int tableMask;
+
+    /**
+     * 减半前的采样数
+     */
+    private int sampleSize;
+
+    /**
+     * 自上次减半以来的增加次数
+     */
+    private int size;
+
+    /**
+     * 构造草图
+     *
+     * @param expectedSize 预计的条目个数，决定表的初始大小
+     */
+    FrequencySketch(long expectedSize) {
+        this.table = new long[0];
+        ensureCapacity(expectedSize);
+    }
+
+    /**
+     * 按条目个数扩大表，表已足够大时不做任何事。扩大后原有的频率被丢弃
+     *
+     * @param expectedSize 预计的条目个数
+     */
+    void ensureCapacity(long expectedSize) {
+        int capacity = (int) Math.min(Math.max(expectedSize, MINIMUM_LENGTH), MAXIMUM_LENGTH);
+        if (table.length >= capacity) {
+            return;
+        }
+        int length = Integer.highestOneBit(capacity - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = 10 * length;
+        this.size = 0;
+    }
+
+    /**
+     * 表的长度
+     *
+     * @return 表的长度
+     */
+    int capacity() {
+        return table.length;
+    }
+
+    /**
+     * 估计频率
+     *
+     * @param hashCode 键的哈希值
+     * @return 估计频率，最大 15
+     */
+    int frequency(int hashCode) {
+        int item = spread(hashCode);
+        int start = (item & 3) << 2;
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            int offset = (start + i) << 2;
+            frequency = Math.min(frequency, (int) ((table[indexOf(item, i)] >>> offset) & 0xF));
+        }
+        return frequency;
+    }
+
+    /**
+     * 频率加一，4 个计数器中未满的都加一
+     *
+     * @param hashCode 键的哈希值
+     */
+    void increment(int hashCode) {
+        int item = spread(hashCode);
+        int start = (item & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(item, i);
+            int offset = (start + i) << 2;
+            if (((table[index] >>> offset) & 0xF) != 0xF) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (odd >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int item, int i) {
+        long hash = (item + SEEDS[i]) * SEEDS[i];
+        hash += hash >>> 32;
+        return (int) hash & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -0,0 +1,912 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.cache;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Description: [有界并发本地缓存]
+ * <p>
+ * 数据保存在 ConcurrentHashMap 中，淘汰策略为 W-TinyLFU：新条目先进入占容量 1% 的 LRU 窗口，
+ * 窗口溢出的条目作为候选，与主区 LRU 端的条目比较 {@link FrequencySketch} 估计的访问频率，频率高的留下；
+ * 主区分为试用区和占主区 80% 的保护区，试用区的条目再次被访问后晋升到保护区。
+ * <ul>
+ *     <li>读操作只把命中的条目写入按线程分段的有损环形缓冲区，缓冲区满时才尝试获取淘汰锁批量重放，
+ *     缓冲区已满的读记录直接丢弃，读路径不阻塞。</li>
+ *     <li>写操作在淘汰锁内同步完成队列维护、过期清理和淘汰。</li>
+ *     <li>支持写入后过期（TTL）和访问后过期（TTI），读取时精确判断，过期条目在维护时清理。</li>
+ *     <li>{@link #getOrLoad} 对同一个键只有一个线程执行加载，其它线程等待同一个结果。</li>
+ * </ul>
+ * 键和值都不能为 null。通过 {@link #builder()} 创建，按 {@link com.mobaijun.common.enums.cache.CacheType} 使用时见 {@link LocalCacheManager}。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public final class LocalCache<K, V> {
+
+    /**
+     * 窗口占总容量的比例
+     */
+    private static final double WINDOW_RATIO = 0.01;
+
+    /**
+     * 保护区占主区的比例
+     */
+    private static final double PROTECTED_RATIO = 0.8;
+
+    /**
+     * 读缓冲区分段数
+     */
+    private static final int READ_BUFFER_STRIPES =
+            Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors() * 4) - 1) << 1;
+
+    private static final byte WINDOW = 0;
+
+    private static final byte PROBATION = 1;
+
+    private static final byte PROTECTED = 2;
+
+    /**
+     * 数据
+     */
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+
+    /**
+     * 正在加载的键
+     */
+    private final ConcurrentHashMap<K, Loading<V>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * 最大总权重，小于 0 表示不限
+     */
+    private final long maximum;
+
+    /**
+     * 权重函数，为 null 时每个条目权重为 1
+     */
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+
+    /**
+     * 写入后过期时间，纳秒，0 表示不过期
+     */
+    private final long expireAfterWriteNanos;
+
+    /**
+     * 访问后过期时间，纳秒，0 表示不过期
+     */
+    private final long expireAfterAccessNanos;
+
+    /**
+     * 纳秒时钟
+     */
+    private final LongSupplier ticker;
+
+    /**
+     * 淘汰锁，保护以下所有队列、权重和频率草图
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final ReadBuffer<K, V>[] readBuffers;
+
+    private final FrequencySketch sketch;
+
+    private final NodeDeque<K, V> window = new NodeDeque<>(false);
+
+    private final NodeDeque<K, V> probation = new NodeDeque<>(false);
+
+    private final NodeDeque<K, V> protectedQueue = new NodeDeque<>(false);
+
+    private final NodeDeque<K, V> writeOrder = new NodeDeque<>(true);
+
+    private final long windowMaximum;
+
+    private final long protectedMaximum;
+
+    private long windowWeight;
+
+    private long protectedWeight;
+
+    private long weightedSize;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder loadSuccessCount = new LongAdder();
+
+    private final LongAdder loadFailureCount = new LongAdder();
+
+    private final LongAdder totalLoadTime = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder evictionWeight = new LongAdder();
+
+    private LocalCache(Builder<K, V> builder) {
+        this.data = new ConcurrentHashMap<>(builder.initialCapacity);
+        this.maximum = builder.maximum;
+        this.weigher = builder.weigher;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.ticker = builder.ticker;
+        @SuppressWarnings("unchecked")
+        ReadBuffer<K, V>[] readBuffers = (ReadBuffer<K, V>[]) new ReadBuffer<?, ?>[READ_BUFFER_STRIPES];
+        this.readBuffers = readBuffers;
+        for (int i = 0; i < readBuffers.length; i++) {
+            readBuffers[i] = new ReadBuffer<>();
+        }
+        if (maximum >= 0) {
+            // 按权重限制时 maximum 不是条目个数，草图从初始容量开始随条目增多而扩大
+            this.sketch = new FrequencySketch(Math.min(maximum, builder.initialCapacity));
+            this.windowMaximum = Math.max(1, (long) (maximum * WINDOW_RATIO));
+            this.protectedMaximum = (long) ((maximum - windowMaximum) * PROTECTED_RATIO);
+        } else {
+            this.sketch = null;
+            this.windowMaximum = Long.MAX_VALUE;
+            this.protectedMaximum = 0;
+        }
+    }
+
+    /**
+     * 创建构建器
+     *
+     * @param <K> 键类型
+     * @param <V> 值类型
+     * @return 构建器
+     */
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 获取键对应的值
+     *
+     * @param key 键
+     * @return 值，不存在或已过期时返回null
+     */
+    public V get(K key) {
+        Node<K, V> node = data.get(Objects.requireNonNull(key));
+        if (node == null) {
+            missCount.increment();
+            return null;
+        }
+        long now = ticker.getAsLong();
+        if (isExpired(node, now)) {
+            missCount.increment();
+            tryCleanUp();
+            return null;
+        }
+        V value = node.value;
+        if (expireAfterAccessNanos > 0) {
+            node.accessTime = now;
+        }
+        afterRead(node);
+        hitCount.increment();
+        return value;
+    }
+
+    /**
+     * 获取键对应的值，不存在时调用 loader 加载并放入缓存。
+     * 同一个键同时只有一个线程执行加载，其它线程等待并得到同一个结果或同一个异常；loader 返回 null 时不缓存并返回 null。
+     * loader 中不能再加载同一个键，否则抛出 IllegalStateException。
+     *
+     * @param key    键
+     * @param loader 加载函数
+     * @return 值
+     * @throws IllegalStateException loader 递归加载同一个键时抛出
+     */
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+        Objects.requireNonNull(loader);
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        Loading<V> future = new Loading<>(Thread.currentThread());
+        Loading<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) {
+            // 等待本线程自己的加载会永远阻塞
+            if (inFlight.owner == Thread.currentThread()) {
+                throw new IllegalStateException("recursive load");
+            }
+            return await(inFlight);
+        }
+        try {
+            // 其它线程可能在本线程未命中之后刚完成加载
+            value = getQuietly(key);
+            if (value == null) {
+                value = load(key, loader);
+            }
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, future);
+        }
+    }
+
+    /**
+     * 放入键值对，已存在时替换值并重置写入时间
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void put(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        int weight = weigh(key, value);
+        long now = ticker.getAsLong();
+        Node<K, V> node = data.compute(key, (k, existing) -> {
+            if (existing == null) {
+                return new Node<>(k, value, weight, now);
+            }
+            existing.value = value;
+            existing.pendingWeight = weight;
+            existing.writeTime = now;
+            existing.accessTime = now;
+            return existing;
+        });
+        evictionLock.lock();
+        try {
+            sync(node);
+            maintenance(now);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 删除键
+     *
+     * @param key 键
+     */
+    public void invalidate(K key) {
+        Node<K, V> node = data.remove(Objects.requireNonNull(key));
+        if (node != null) {
+            node.retired = true;
+            evictionLock.lock();
+            try {
+                sync(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 删除所有键
+     */
+    public void invalidateAll() {
+        for (K key : data.keySet()) {
+            invalidate(key);
+        }
+    }
+
+    /**
+     * 立即重放读记录、清理过期条目并按容量淘汰
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance(ticker.getAsLong());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 条目个数，可能包含已过期但尚未清理的条目
+     *
+     * @return 条目个数
+     */
+    public long size() {
+        return data.mappingCount();
+    }
+
+    /**
+     * 当前总权重
+     *
+     * @return 总权重
+     */
+    public long weightedSize() {
+        evictionLock.lock();
+        try {
+            return weightedSize;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * 统计快照
+     *
+     * @return 统计
+     */
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), loadSuccessCount.sum(), loadFailureCount.sum(),
+                totalLoadTime.sum(), evictionCount.sum(), evictionWeight.sum());
+    }
+
+    private V getQuietly(K key) {
+        Node<K, V> node = data.get(key);
+        return node == null || isExpired(node, ticker.getAsLong()) ? null : node.value;
+    }
+
+    private V load(K key, Function<? super K, ? extends V> loader) {
+        long start = ticker.getAsLong();
+        V value;
+        try {
+            value = loader.apply(key);
+        } catch (RuntimeException | Error e) {
+            loadFailureCount.increment();
+            totalLoadTime.add(ticker.getAsLong() - start);
+            throw e;
+        }
+        totalLoadTime.add(ticker.getAsLong() - start);
+        if (value == null) {
+            loadFailureCount.increment();
+            return null;
+        }
+        loadSuccessCount.increment();
+        put(key, value);
+        return value;
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 频率草图，仅用于测试
+     *
+     * @return 频率草图，不限容量时为null
+     */
+    FrequencySketch frequencySketch() {
+        return sketch;
+    }
+
+    private int weigh(K key, V value) {
+        if (weigher == null) {
+            return 1;
+        }
+        int weight = weigher.applyAsInt(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight must not be negative: " + weight);
+        }
+        return weight;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    /**
+     * 记录一次读，缓冲区满时尝试重放
+     */
+    private void afterRead(Node<K, V> node) {
+        int h = System.identityHashCode(Thread.currentThread());
+        ReadBuffer<K, V> buffer = readBuffers[(h ^ (h >>> 16)) & (readBuffers.length - 1)];
+        if (!buffer.offer(node)) {
+            tryCleanUp();
+        }
+    }
+
+    private void tryCleanUp() {
+        if (evictionLock.tryLock()) {
+            try {
+                maintenance(ticker.getAsLong());
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 淘汰锁内执行：重放读记录、清理过期条目、按容量淘汰
+     */
+    private void maintenance(long now) {
+        for (ReadBuffer<K, V> buffer : readBuffers) {
+            buffer.drain(this);
+        }
+        expireEntries(now);
+        evictEntries();
+    }
+
+    /**
+     * 淘汰锁内执行：使节点在队列中的状态与其在 map 中的状态一致，可重复调用
+     */
+    private void sync(Node<K, V> node) {
+        if (node.retired) {
+            unlink(node);
+            return;
+        }
+        if (!node.linked) {
+            node.linked = true;
+            node.weight = node.pendingWeight;
+            node.queue = WINDOW;
+            window.addLast(node);
+            windowWeight += node.weight;
+            weightedSize += node.weight;
+            if (expireAfterWriteNanos > 0) {
+                writeOrder.addLast(node);
+            }
+            if (sketch != null) {
+                sketch.ensureCapacity(Math.min(maximum, data.mappingCount()));
+                sketch.increment(node.key.hashCode());
+            }
+            return;
+        }
+        int delta = node.pendingWeight - node.weight;
+        node.weight = node.pendingWeight;
+        weightedSize += delta;
+        if (node.queue == WINDOW) {
+            windowWeight += delta;
+        } else if (node.queue == PROTECTED) {
+            protectedWeight += delta;
+        }
+        if (expireAfterWriteNanos > 0) {
+            writeOrder.moveToBack(node);
+        }
+        onAccess(node);
+    }
+
+    /**
+     * 淘汰锁内执行：重放一次访问
+     */
+    void onAccess(Node<K, V> node) {
+        if (sketch != null) {
+            sketch.increment(node.key.hashCode());
+        }
+        if (!node.linked || node.retired) {
+            return;
+        }
+        switch (node.queue) {
+            case WINDOW -> window.moveToBack(node);
+            case PROBATION -> {
+                probation.unlink(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                protectedWeight += node.weight;
+                // 保护区溢出时把最久未访问的条目降级回试用区
+                Node<K, V> demoted;
+                while (protectedWeight > protectedMaximum && (demoted = protectedQueue.peekFirst()) != null) {
+                    protectedQueue.unlink(demoted);
+                    protectedWeight -= demoted.weight;
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+            }
+            default -> protectedQueue.moveToBack(node);
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (!node.linked) {
+            return;
+        }
+        node.linked = false;
+        switch (node.queue) {
+            case WINDOW -> {
+                window.unlink(node);
+                windowWeight -= node.weight;
+            }
+            case PROBATION -> probation.unlink(node);
+            default -> {
+                protectedQueue.unlink(node);
+                protectedWeight -= node.weight;
+            }
+        }
+        if (expireAfterWriteNanos > 0) {
+            writeOrder.unlink(node);
+        }
+        weightedSize -= node.weight;
+    }
+
+    private void expireEntries(long now) {
+        if (expireAfterAccessNanos > 0) {
+            expireByAccess(window, now);
+            expireByAccess(probation, now);
+            expireByAccess(protectedQueue, now);
+        }
+        if (expireAfterWriteNanos > 0) {
+            Node<K, V> node;
+            while ((node = writeOrder.peekFirst()) != null && now - node.writeTime >= expireAfterWriteNanos) {
+                evict(node);
+            }
+        }
+    }
+
+    private void expireByAccess(NodeDeque<K, V> deque, long now) {
+        Node<K, V> node;
+        while ((node = deque.peekFirst()) != null && now - node.accessTime >= expireAfterAccessNanos) {
+            evict(node);
+        }
+    }
+
+    private void evictEntries() {
+        if (sketch == null) {
+            return;
+        }
+        Node<K, V> candidate;
+        while (windowWeight > windowMaximum && (candidate = window.peekFirst()) != null) {
+            // 窗口 LRU 端的条目进入试用区，总量超限时与主区 LRU 端的条目比较频率
+            window.unlink(candidate);
+            windowWeight -= candidate.weight;
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+            int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+            while (weightedSize > maximum) {
+                Node<K, V> victim = probation.peekFirst();
+                if (victim == candidate) {
+                    victim = protectedQueue.peekFirst();
+                }
+                if (victim == null || candidateFrequency <= sketch.frequency(victim.key.hashCode())) {
+                    evict(candidate);
+                    break;
+                }
+                evict(victim);
+            }
+        }
+        // 权重变化等原因仍然超限时按 LRU 淘汰
+        while (weightedSize > maximum) {
+            Node<K, V> victim = probation.peekFirst();
+            if (victim == null) {
+                victim = protectedQueue.peekFirst();
+            }
+            if (victim == null) {
+                victim = window.peekFirst();
+            }
+            if (victim == null) {
+                break;
+            }
+            evict(victim);
+        }
+    }
+
+    private void evict(Node<K, V> node) {
+        if (data.remove(node.key, node)) {
+            evictionCount.increment();
+            evictionWeight.add(node.weight);
+        }
+        node.retired = true;
+        unlink(node);
+    }
+
+    /**
+     * 缓存节点，队列指针和 weight 只在淘汰锁内访问
+     */
+    static final class Node<K, V> {
+
+        final K key;
+
+        volatile V value;
+
+        volatile int pendingWeight;
+
+        volatile long writeTime;
+
+        volatile long accessTime;
+
+        volatile boolean retired;
+
+        int weight;
+
+        boolean linked;
+
+        byte queue;
+
+        Node<K, V> prev;
+
+        Node<K, V> next;
+
+        Node<K, V> writePrev;
+
+        Node<K, V> writeNext;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.pendingWeight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * 正在进行的加载，记录执行加载的线程以检测递归加载
+     */
+    private static final class Loading<V> extends CompletableFuture<V> {
+
+        final Thread owner;
+
+        Loading(Thread owner) {
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * 侵入式双向链表，按访问顺序或写入顺序串联节点
+     */
+    private static final class NodeDeque<K, V> {
+
+        private final boolean writeOrder;
+
+        private Node<K, V> head;
+
+        private Node<K, V> tail;
+
+        NodeDeque(boolean writeOrder) {
+            this.writeOrder = writeOrder;
+        }
+
+        Node<K, V> peekFirst() {
+            return head;
+        }
+
+        void addLast(Node<K, V> node) {
+            setPrev(node, tail);
+            setNext(node, null);
+            if (tail == null) {
+                head = node;
+            } else {
+                setNext(tail, node);
+            }
+            tail = node;
+        }
+
+        void unlink(Node<K, V> node) {
+            Node<K, V> prev = prev(node);
+            Node<K, V> next = next(node);
+            if (prev == null) {
+                if (head != node) {
+                    return;
+                }
+                head = next;
+            } else {
+                setNext(prev, next);
+            }
+            if (next == null) {
+                tail = prev;
+            } else {
+                setPrev(next, prev);
+            }
+            setPrev(node, null);
+            setNext(node, null);
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (tail != node) {
+                unlink(node);
+                addLast(node);
+            }
+        }
+
+        private Node<K, V> prev(Node<K, V> node) {
+            return writeOrder ? node.writePrev : node.prev;
+        }
+
+        private Node<K, V> next(Node<K, V> node) {
+            return writeOrder ? node.writeNext : node.next;
+        }
+
+        private void setPrev(Node<K, V> node, Node<K, V> prev) {
+            if (writeOrder) {
+                node.writePrev = prev;
+            } else {
+                node.prev = prev;
+            }
+        }
+
+        private void setNext(Node<K, V> node, Node<K, V> next) {
+            if (writeOrder) {
+                node.writeNext = next;
+            } else {
+                node.next = next;
+            }
+        }
+    }
+
+    /**
+     * 有损的单消费者环形缓冲区，多个读线程无锁写入，满时丢弃，淘汰锁内批量消费
+     */
+    private static final class ReadBuffer<K, V> {
+
+        private static final int SIZE = 16;
+
+        private final AtomicReferenceArray<Node<K, V>> buffer = new AtomicReferenceArray<>(SIZE);
+
+        private final AtomicLong writeCounter = new AtomicLong();
+
+        private volatile long readCounter;
+
+        /**
+         * @return 缓冲区已满时返回false
+         */
+        boolean offer(Node<K, V> node) {
+            long tail = writeCounter.get();
+            if (tail - readCounter >= SIZE) {
+                return false;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) tail & (SIZE - 1), node);
+            }
+            return true;
+        }
+
+        void drain(LocalCache<K, V> cache) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            for (; head != tail; head++) {
+                int index = (int) head & (SIZE - 1);
+                Node<K, V> node = buffer.get(index);
+                if (node == null) {
+                    // 写入者已占位但尚未发布，下次再消费
+                    break;
+                }
+                buffer.lazySet(index, null);
+                cache.onAccess(node);
+            }
+            readCounter = head;
+        }
+    }
+
+    /**
+     * 本地缓存构建器
+     *
+     * @param <K> 键类型
+     * @param <V> 值类型
+     */
+    public static final class Builder<K, V> {
+
+        private long maximum = -1;
+
+        private ToIntBiFunction<? super K, ? super V> weigher;
+
+        private long expireAfterWriteNanos;
+
+        private long expireAfterAccessNanos;
+
+        private int initialCapacity = 16;
+
+        private LongSupplier ticker = System::nanoTime;
+
+        private Builder() {
+        }
+
+        /**
+         * 最大条目数
+         *
+         * @param maximumSize 最大条目数
+         * @return 构建器
+         */
+        public Builder<K, V> maximumSize(long maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+            }
+            this.maximum = maximumSize;
+            this.weigher = null;
+            return this;
+        }
+
+        /**
+         * 最大总权重
+         *
+         * @param maximumWeight 最大总权重
+         * @param weigher       计算每个条目权重的函数，权重不能为负
+         * @return 构建器
+         */
+        public Builder<K, V> maximumWeight(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher) {
+            if (maximumWeight < 0) {
+                throw new IllegalArgumentException("maximumWeight must not be negative: " + maximumWeight);
+            }
+            this.maximum = maximumWeight;
+            this.weigher = Objects.requireNonNull(weigher);
+            return this;
+        }
+
+        /**
+         * 写入后经过 duration 过期
+         *
+         * @param duration 过期时间
+         * @return 构建器
+         */
+        public Builder<K, V> expireAfterWrite(Duration duration) {
+            this.expireAfterWriteNanos = positiveNanos(duration);
+            return this;
+        }
+
+        /**
+         * 最后一次读写后经过 duration 过期
+         *
+         * @param duration 过期时间
+         * @return 构建器
+         */
+        public Builder<K, V> expireAfterAccess(Duration duration) {
+            this.expireAfterAccessNanos = positiveNanos(duration);
+            return this;
+        }
+
+        /**
+         * 初始容量
+         *
+         * @param initialCapacity 初始容量
+         * @return 构建器
+         */
+        public Builder<K, V> initialCapacity(int initialCapacity) {
+            if (initialCapacity < 0) {
+                throw new IllegalArgumentException("initialCapacity must not be negative: " + initialCapacity);
+            }
+            this.initialCapacity = initialCapacity;
+            return this;
+        }
+
+        /**
+         * 纳秒时钟，默认 {@link System#nanoTime()}，主要用于测试
+         *
+         * @param ticker 纳秒时钟
+         * @return 构建器
+         */
+        public Builder<K, V> ticker(LongSupplier ticker) {
+            this.ticker = Objects.requireNonNull(ticker);
+            return this;
+        }
+
+        /**
+         * 创建缓存，构建器可以重复使用
+         *
+         * @param <K1> 键类型
+         * @param <V1> 值类型
+         * @return 缓存
+         */
+        @SuppressWarnings("unchecked")
+        public <K1 extends K, V1 extends V> LocalCache<K1, V1> build() {
+            return new LocalCache<>((Builder<K1, V1>) this);
+        }
+
+        private static long positiveNanos(Duration duration) {
+            if (duration.isNegative() || duration.isZero()) {
+                throw new IllegalArgumentException("duration must be positive: " + duration);
+            }
+            return duration.toNanos();
+        }
+    }
+}
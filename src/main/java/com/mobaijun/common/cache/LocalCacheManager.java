@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.cache;
+
+import com.mobaijun.common.enums.cache.CacheType;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description: [按 CacheType 管理本地缓存]
+ * <p>
+ * 每个 {@link CacheType} 对应一个独立的 {@link LocalCache}，各自有容量和过期策略，键为业务键，不需要再拼接类型前缀。
+ * 没有通过 {@link #configure} 指定策略的类型使用默认策略：最多 10000 个条目、写入后 30 分钟过期。
+ * 缓存在第一次使用时创建。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public final class LocalCacheManager {
+
+    /**
+     * 默认最大条目数
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    /**
+     * 默认写入后过期时间
+     */
+    public static final Duration DEFAULT_EXPIRE_AFTER_WRITE = Duration.ofMinutes(30);
+
+    /**
+     * 各类型的缓存策略
+     */
+    private static final Map<CacheType, LocalCache.Builder<String, ?>> POLICIES = new ConcurrentHashMap<>();
+
+    /**
+     * 已创建的缓存
+     */
+    private static final Map<CacheType, LocalCache<String, ?>> CACHES = new ConcurrentHashMap<>();
+
+    private LocalCacheManager() {
+    }
+
+    /**
+     * 指定某个类型的缓存策略，该类型的缓存已创建时会被替换，原有条目丢弃
+     *
+     * @param type   缓存类型
+     * @param policy 缓存策略
+     */
+    public static void configure(CacheType type, LocalCache.Builder<String, ?> policy) {
+        Objects.requireNonNull(type);
+        POLICIES.put(type, Objects.requireNonNull(policy));
+        LocalCache<String, ?> previous = CACHES.remove(type);
+        if (previous != null) {
+            previous.invalidateAll();
+        }
+    }
+
+    /**
+     * 获取某个类型的缓存，不存在时按策略创建
+     *
+     * @param type 缓存类型
+     * @param <V>  值类型，由调用方保证同一类型下一致
+     * @return 缓存
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> LocalCache<String, V> get(CacheType type) {
+        Objects.requireNonNull(type);
+        return (LocalCache<String, V>) CACHES.computeIfAbsent(type, t -> {
+            LocalCache.Builder<String, ?> policy = POLICIES.get(t);
+            return policy != null ? policy.build() : LocalCache.<String, Object>builder()
+                    .maximumSize(DEFAULT_MAXIMUM_SIZE)
+                    .expireAfterWrite(DEFAULT_EXPIRE_AFTER_WRITE)
+                    .build();
+        });
+    }
+}
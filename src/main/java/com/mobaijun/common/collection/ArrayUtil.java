@@ -16,7 +16,6 @@
 package com.mobaijun.common.collection;
 
 import com.mobaijun.common.assertions.Assert;
-import com.mobaijun.common.constant.NumberConstant;
 
 import java.util.Arrays;
 import java.util.List;
@@ -54,46 +53,32 @@ public class ArrayUtil {
     }
 
     /**
-     * 将 long 类型的整数写入字节数组中，共占4个字节，高位字节在前，低位字节在后
+     * 将 long 类型的整数的低32位按小端写入字节数组中，共占4个字节，低位字节在前，高位字节在后
      *
      * @param b      目标字节数组
      * @param offset 开始写入的偏移量
      * @param v      要写入的 long 型整数
+     * @see ByteCodec#putIntLE(byte[], int, int)
      */
     public static void writeIntLong(byte[] b, int offset, long v) {
-        // 写入低位字节
-        b[offset++] = (byte) ((v) & 0xFF);
-        // 写入次低位字节
-        b[offset++] = (byte) ((v >> 8) & 0xFF);
-        // 写入次高位字节
-        b[offset++] = (byte) ((v >> 16) & 0xFF);
-        // 写入高位字节
-        b[offset] = (byte) ((v >> 24) & 0xFF);
+        ByteCodec.putIntLE(b, offset, (int) v);
     }
 
 
     /**
-     * 从字节数组中获取long类型的整数
+     * 从字节数组中按小端读取4个字节，作为无符号整数返回
      *
      * @param b      字节数组
      * @param offset 数组中long类型整数的起始偏移量
      * @return 解析出的long类型整数
+     * @see ByteCodec#getIntLE(byte[], int)
      */
     public static long getIntLong(byte[] b, int offset) {
-        return (
-                // 获取偏移位置对应的字节，无符号右移24位并进行位或操作
-                ((b[offset++] & 0x000000FFL)) |
-                        // 获取偏移位置+1对应的字节，左移8位并进行位或操作
-                        ((b[offset++] << 8) & 0x0000FF00L) |
-                        // 获取偏移位置+2对应的字节，左移16位并进行位或操作
-                        ((b[offset++] << 16) & 0x00FF0000L) |
-                        // 获取偏移位置+3对应的字节，左移24位并进行位或操作
-                        ((b[offset] << 24) & 0xFF000000L)
-        );
+        return ByteCodec.getIntLE(b, offset) & 0xFFFFFFFFL;
     }
 
     /**
-     * 从字节数组中获取3字节的int值
+     * 从字节数组中按小端读取3个字节，作为无符号整数返回
      *
      * @param b      字节数组
      * @param offset 开始位置
@@ -101,30 +86,26 @@ public class ArrayUtil {
      */
     public static int getInt3(byte[] b, int offset) {
         return (
-                // 第1个字节的低8位
+                // 第1个字节为低8位
                 (b[offset++] & 0x000000FF) |
-                        // 第2个字节的低8位
-                        (b[offset++] & 0x0000FF00) |
-                        // 第3个字节的高8位
-                        (b[offset] & 0x00FF0000)
+                        // 第2个字节左移8位
+                        ((b[offset++] << 8) & 0x0000FF00) |
+                        // 第3个字节左移16位
+                        ((b[offset] << 16) & 0x00FF0000)
         );
     }
 
     /**
      * 从字节数组的指定偏移量处读取2个字节，转换为int类型返回。
-     * 字节数组中从偏移量offset开始的两个字节按照大端序解析为一个16位的整数值。
+     * 字节数组中从偏移量offset开始的两个字节按照小端序解析为一个无符号16位整数值。
      *
      * @param b      字节数组
      * @param offset 偏移量
      * @return 16位整数值
+     * @see ByteCodec#getShortLE(byte[], int)
      */
     public static int getInt2(byte[] b, int offset) {
-        return (
-                // 取第一个字节，转为int类型
-                (b[offset++] & 0x000000FF) |
-                        // 取第二个字节，转为int类型
-                        (b[offset] & 0x0000FF00)
-        );
+        return ByteCodec.getShortLE(b, offset) & 0xFFFF;
     }
 
     /**
@@ -144,23 +125,154 @@ public class ArrayUtil {
      * 将 IP 地址转换成对应的 long 类型数值
      *
      * @param ip IP 地址字符串，例如 "192.168.0.1"
-     * @return 转换后的 long 类型数值
+     * @return 转换后的 long 类型数值，格式不正确时返回 0
+     * @see #parseIpv4(CharSequence, int, int)
      */
     public static long ip2long(String ip) {
-        // 将 IP 地址按照 "." 分割为 4 个字符串
-        String[] p = ip.split("\\.");
-        if (p.length != NumberConstant.FOUR) {
-            // 如果分割后字符串数量不为 4，则返回 0 表示转换失败
-            return 0;
+        return Math.max(0, parseIpv4(ip, 0, ip.length()));
+    }
+
+    /**
+     * 解析 IPv4 地址的 [start, end) 部分，逐个字符解析，不创建任何对象。
+     * 必须是4段以 "." 分隔的 0~255 的十进制数，每段1~3位数字。
+     *
+     * @param ip    包含 IP 地址的字符序列
+     * @param start 起始下标（包含）
+     * @param end   结束下标（不包含）
+     * @return 0 ~ 2^32-1 的 long 数值，格式不正确时返回 -1
+     */
+    public static long parseIpv4(CharSequence ip, int start, int end) {
+        long result = 0;
+        int octets = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                if (++digits > 3 || value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && octets < 3) {
+                result = result << 8 | value;
+                octets++;
+                value = 0;
+                digits = 0;
+            } else {
+                return -1;
+            }
         }
+        if (digits == 0 || octets != 3) {
+            return -1;
+        }
+        return result << 8 | value;
+    }
 
-        // 将 4 个字符串转换为对应的整数，左移并位运算得到最终的 long 类型数值
-        int p1 = ((Integer.parseInt(p[0]) << 24) & 0xFF000000);
-        int p2 = ((Integer.parseInt(p[1]) << 16) & 0x00FF0000);
-        int p3 = ((Integer.parseInt(p[2]) << 8) & 0x0000FF00);
-        int p4 = ((Integer.parseInt(p[3])) & 0x000000FF);
+    /**
+     * 解析 IPv6 地址的 [start, end) 部分，支持 "::" 压缩和末尾内嵌的 IPv4（如 "::ffff:1.2.3.4"），不支持区域标识（"%eth0"）。
+     * 128位地址按大端拆为两个 long 写入 out，除 out 外不创建任何对象。
+     *
+     * @param ip    包含 IP 地址的字符序列
+     * @param start 起始下标（包含）
+     * @param end   结束下标（不包含）
+     * @param out   长度不小于2的数组，out[0] 为高64位，out[1] 为低64位，格式不正确时不修改
+     * @return 格式正确时返回true
+     */
+    public static boolean parseIpv6(CharSequence ip, int start, int end, long[] out) {
+        // "::" 之前的分组累加到 head，之后的累加到 tail
+        long headHi = 0;
+        long headLo = 0;
+        long tailHi = 0;
+        long tailLo = 0;
+        int headGroups = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+        int i = start;
+        if (end - start >= 2 && ip.charAt(i) == ':' && ip.charAt(i + 1) == ':') {
+            compressed = true;
+            i += 2;
+        }
+        while (i < end) {
+            int groupStart = i;
+            int value = 0;
+            int digits = 0;
+            int hex;
+            while (i < end && (hex = hexDigit(ip.charAt(i))) >= 0) {
+                value = value << 4 | hex;
+                digits++;
+                i++;
+            }
+            int groups = 1;
+            if (i < end && ip.charAt(i) == '.') {
+                long ipv4 = parseIpv4(ip, groupStart, end);
+                if (ipv4 < 0) {
+                    return false;
+                }
+                value = (int) ipv4;
+                groups = 2;
+                i = end;
+            } else if (digits == 0 || digits > 4) {
+                return false;
+            }
+            int shift = 16 * groups;
+            if (compressed) {
+                tailHi = tailHi << shift | tailLo >>> (64 - shift);
+                tailLo = tailLo << shift | (value & 0xFFFFFFFFL);
+                tailGroups += groups;
+            } else {
+                headHi = headHi << shift | headLo >>> (64 - shift);
+                headLo = headLo << shift | (value & 0xFFFFFFFFL);
+                headGroups += groups;
+            }
+            if (i == end) {
+                break;
+            }
+            if (ip.charAt(i++) != ':' || i == end) {
+                return false;
+            }
+            if (ip.charAt(i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                i++;
+            }
+        }
+        int total = headGroups + tailGroups;
+        if (compressed ? total > 7 : total != 8) {
+            return false;
+        }
+        // head 左移到高位，空出的分组由 tail 填充
+        int shift = 16 * (8 - headGroups);
+        if (shift >= 64) {
+            headHi = shift == 128 ? 0 : headLo << (shift - 64);
+            headLo = 0;
+        } else if (shift > 0) {
+            headHi = headHi << shift | headLo >>> (64 - shift);
+            headLo = headLo << shift;
+        }
+        out[0] = headHi | tailHi;
+        out[1] = headLo | tailLo;
+        return true;
+    }
 
-        return ((p1 | p2 | p3 | p4) & 0xFFFFFFFFL);
+    /**
+     * ASCII 十六进制字符的值
+     *
+     * @param c 字符
+     * @return 0 ~ 15，不是十六进制字符时返回 -1
+     */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
     }
 
     /**
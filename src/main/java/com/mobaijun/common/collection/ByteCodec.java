@@ -0,0 +1,713 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Description: [字节序编解码]
+ * <p>
+ * 基于 {@link MethodHandles#byteArrayViewVarHandle} 的字节数组视图读写 short、int、long、float、double，
+ * 大端（BE）和小端（LE）各一组方法，JIT 会把一次读写编译为一条（必要时加一条字节交换）内存访问指令，
+ * 不再逐字节移位拼装。越界时抛出 {@link IndexOutOfBoundsException}，偏移量不要求对齐。
+ * <ul>
+ *     <li>数组的批量编解码通过 {@link ByteBuffer} 的类型视图完成，由 JDK 整块复制（需要时整块交换字节序）。</li>
+ *     <li>LEB128 变长整数：每个字节低7位为数据，最高位为1表示后面还有字节，小于128的数只占1个字节。</li>
+ *     <li>ZigZag 编码把有符号数映射为无符号数（0, -1, 1, -2 ... 映射为 0, 1, 2, 3 ...），绝对值小的负数也只占很少的字节。</li>
+ * </ul>
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public final class ByteCodec {
+
+    /**
+     * long 的 LEB128 编码最多占用的字节数
+     */
+    public static final int MAX_VAR_LONG_SIZE = 10;
+
+    /**
+     * int 的 LEB128 编码最多占用的字节数
+     */
+    public static final int MAX_VAR_INT_SIZE = 5;
+
+    private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle SHORT_BE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle INT_BE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final VarHandle FLOAT_LE = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle FLOAT_BE = MethodHandles.byteArrayViewVarHandle(float[].class, ByteOrder.BIG_ENDIAN);
+
+    private static final VarHandle DOUBLE_LE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final VarHandle DOUBLE_BE = MethodHandles.byteArrayViewVarHandle(double[].class, ByteOrder.BIG_ENDIAN);
+
+    private ByteCodec() {
+    }
+
+    // ---------------------------------------------------------------- 单值读写
+
+    /**
+     * 按小端读取 short
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return short
+     */
+    public static short getShortLE(byte[] b, int offset) {
+        return (short) SHORT_LE.get(b, offset);
+    }
+
+    /**
+     * 按大端读取 short
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return short
+     */
+    public static short getShortBE(byte[] b, int offset) {
+        return (short) SHORT_BE.get(b, offset);
+    }
+
+    /**
+     * 按小端写入 short
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     */
+    public static void putShortLE(byte[] b, int offset, short v) {
+        SHORT_LE.set(b, offset, v);
+    }
+
+    /**
+     * 按大端写入 short
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     */
+    public static void putShortBE(byte[] b, int offset, short v) {
+        SHORT_BE.set(b, offset, v);
+    }
+
+    /**
+     * 按小端读取 int
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return int
+     */
+    public static int getIntLE(byte[] b, int offset) {
+        return (int) INT_LE.get(b, offset);
+    }
+
+    /**
+     * 按大端读取 int
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return int
+     */
+    public static int getIntBE(byte[] b, int offset) {
+        return (int) INT_BE.get(b, offset);
+    }
+
+    /**
+     * 按小端写入 int
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     */
+    public static void putIntLE(byte[] b, int offset, int v) {
+        INT_LE.set(b, offset, v);
+    }
+
+    /**
+     * 按大端写入 int
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     */
+    public static void putIntBE(byte[] b, int offset, int v) {
+        INT_BE.set(b, offset, v);
+    }
+
+    /**
+     * 按小端读取 long
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return long
+     */
+    public static long getLongLE(byte[] b, int offset) {
+        return (long) LONG_LE.get(b, offset);
+    }
+
+    /**
+     * 按大端读取 long
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return long
+     */
+    public static long getLongBE(byte[] b, int offset) {
+        return (long) LONG_BE.get(b, offset);
+    }
+
+    /**
+     * 按小端写入 long
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     */
+    public static void putLongLE(byte[] b, int offset, long v) {
+        LONG_LE.set(b, offset, v);
+    }
+
+    /**
+     * 按大端写入 long
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     */
+    public static void putLongBE(byte[] b, int offset, long v) {
+        LONG_BE.set(b, offset, v);
+    }
+
+    /**
+     * 按小端读取 float
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return float
+     */
+    public static float getFloatLE(byte[] b, int offset) {
+        return (float) FLOAT_LE.get(b, offset);
+    }
+
+    /**
+     * 按大端读取 float
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return float
+     */
+    public static float getFloatBE(byte[] b, int offset) {
+        return (float) FLOAT_BE.get(b, offset);
+    }
+
+    /**
+     * 按小端写入 float
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     */
+    public static void putFloatLE(byte[] b, int offset, float v) {
+        FLOAT_LE.set(b, offset, v);
+    }
+
+    /**
+     * 按大端写入 float
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     */
+    public static void putFloatBE(byte[] b, int offset, float v) {
+        FLOAT_BE.set(b, offset, v);
+    }
+
+    /**
+     * 按小端读取 double
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return double
+     */
+    public static double getDoubleLE(byte[] b, int offset) {
+        return (double) DOUBLE_LE.get(b, offset);
+    }
+
+    /**
+     * 按大端读取 double
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return double
+     */
+    public static double getDoubleBE(byte[] b, int offset) {
+        return (double) DOUBLE_BE.get(b, offset);
+    }
+
+    /**
+     * 按小端写入 double
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     */
+    public static void putDoubleLE(byte[] b, int offset, double v) {
+        DOUBLE_LE.set(b, offset, v);
+    }
+
+    /**
+     * 按大端写入 double
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     */
+    public static void putDoubleBE(byte[] b, int offset, double v) {
+        DOUBLE_BE.set(b, offset, v);
+    }
+
+    // ---------------------------------------------------------------- 批量编解码
+
+    /**
+     * 把 long 数组编码为字节数组，每个元素8个字节
+     *
+     * @param values 数组
+     * @param order  字节序
+     * @return 字节数组
+     */
+    public static byte[] encode(long[] values, ByteOrder order) {
+        byte[] bytes = new byte[values.length * Long.BYTES];
+        encode(values, 0, values.length, bytes, 0, order);
+        return bytes;
+    }
+
+    /**
+     * 把 long 数组的一段编码写入字节数组
+     *
+     * @param src    数组
+     * @param srcPos 数组起始下标
+     * @param length 元素个数
+     * @param dst    目标字节数组
+     * @param dstPos 目标起始位置
+     * @param order  字节序
+     */
+    public static void encode(long[] src, int srcPos, int length, byte[] dst, int dstPos, ByteOrder order) {
+        ByteBuffer.wrap(dst, dstPos, length * Long.BYTES).order(order).asLongBuffer().put(src, srcPos, length);
+    }
+
+    /**
+     * 把字节数组解码为 long 数组，字节数必须是8的倍数
+     *
+     * @param bytes 字节数组
+     * @param order 字节序
+     * @return long 数组
+     */
+    public static long[] decodeLongs(byte[] bytes, ByteOrder order) {
+        if (bytes.length % Long.BYTES != 0) {
+            throw new IllegalArgumentException("Length " + bytes.length + " is not a multiple of " + Long.BYTES);
+        }
+        long[] values = new long[bytes.length / Long.BYTES];
+        decode(bytes, 0, values, 0, values.length, order);
+        return values;
+    }
+
+    /**
+     * 从字节数组解码 length 个 long 写入数组
+     *
+     * @param src    字节数组
+     * @param srcPos 字节数组起始位置
+     * @param dst    目标数组
+     * @param dstPos 目标起始下标
+     * @param length 元素个数
+     * @param order  字节序
+     */
+    public static void decode(byte[] src, int srcPos, long[] dst, int dstPos, int length, ByteOrder order) {
+        ByteBuffer.wrap(src, srcPos, length * Long.BYTES).order(order).asLongBuffer().get(dst, dstPos, length);
+    }
+
+    /**
+     * 把 int 数组编码为字节数组，每个元素4个字节
+     *
+     * @param values 数组
+     * @param order  字节序
+     * @return 字节数组
+     */
+    public static byte[] encode(int[] values, ByteOrder order) {
+        byte[] bytes = new byte[values.length * Integer.BYTES];
+        encode(values, 0, values.length, bytes, 0, order);
+        return bytes;
+    }
+
+    /**
+     * 把 int 数组的一段编码写入字节数组
+     *
+     * @param src    数组
+     * @param srcPos 数组起始下标
+     * @param length 元素个数
+     * @param dst    目标字节数组
+     * @param dstPos 目标起始位置
+     * @param order  字节序
+     */
+    public static void encode(int[] src, int srcPos, int length, byte[] dst, int dstPos, ByteOrder order) {
+        ByteBuffer.wrap(dst, dstPos, length * Integer.BYTES).order(order).asIntBuffer().put(src, srcPos, length);
+    }
+
+    /**
+     * 把字节数组解码为 int 数组，字节数必须是4的倍数
+     *
+     * @param bytes 字节数组
+     * @param order 字节序
+     * @return int 数组
+     */
+    public static int[] decodeInts(byte[] bytes, ByteOrder order) {
+        if (bytes.length % Integer.BYTES != 0) {
+            throw new IllegalArgumentException("Length " + bytes.length + " is not a multiple of " + Integer.BYTES);
+        }
+        int[] values = new int[bytes.length / Integer.BYTES];
+        decode(bytes, 0, values, 0, values.length, order);
+        return values;
+    }
+
+    /**
+     * 从字节数组解码 length 个 int 写入数组
+     *
+     * @param src    字节数组
+     * @param srcPos 字节数组起始位置
+     * @param dst    目标数组
+     * @param dstPos 目标起始下标
+     * @param length 元素个数
+     * @param order  字节序
+     */
+    public static void decode(byte[] src, int srcPos, int[] dst, int dstPos, int length, ByteOrder order) {
+        ByteBuffer.wrap(src, srcPos, length * Integer.BYTES).order(order).asIntBuffer().get(dst, dstPos, length);
+    }
+
+    /**
+     * 按缓冲区的字节序把 long 数组写入缓冲区，position 前进 8 * 元素个数
+     *
+     * @param src 数组
+     * @param dst 缓冲区
+     * @throws BufferOverflowException 剩余空间不足
+     */
+    public static void encode(long[] src, ByteBuffer dst) {
+        int bytes = src.length * Long.BYTES;
+        if (dst.remaining() < bytes) {
+            throw new BufferOverflowException();
+        }
+        dst.asLongBuffer().put(src);
+        dst.position(dst.position() + bytes);
+    }
+
+    /**
+     * 按缓冲区的字节序从缓冲区读取 dst.length 个 long，position 前进 8 * 元素个数
+     *
+     * @param src 缓冲区
+     * @param dst 目标数组
+     * @throws BufferUnderflowException 剩余字节不足
+     */
+    public static void decode(ByteBuffer src, long[] dst) {
+        int bytes = dst.length * Long.BYTES;
+        if (src.remaining() < bytes) {
+            throw new BufferUnderflowException();
+        }
+        src.asLongBuffer().get(dst);
+        src.position(src.position() + bytes);
+    }
+
+    /**
+     * 按缓冲区的字节序把 int 数组写入缓冲区，position 前进 4 * 元素个数
+     *
+     * @param src 数组
+     * @param dst 缓冲区
+     * @throws BufferOverflowException 剩余空间不足
+     */
+    public static void encode(int[] src, ByteBuffer dst) {
+        int bytes = src.length * Integer.BYTES;
+        if (dst.remaining() < bytes) {
+            throw new BufferOverflowException();
+        }
+        dst.asIntBuffer().put(src);
+        dst.position(dst.position() + bytes);
+    }
+
+    /**
+     * 按缓冲区的字节序从缓冲区读取 dst.length 个 int，position 前进 4 * 元素个数
+     *
+     * @param src 缓冲区
+     * @param dst 目标数组
+     * @throws BufferUnderflowException 剩余字节不足
+     */
+    public static void decode(ByteBuffer src, int[] dst) {
+        int bytes = dst.length * Integer.BYTES;
+        if (src.remaining() < bytes) {
+            throw new BufferUnderflowException();
+        }
+        src.asIntBuffer().get(dst);
+        src.position(src.position() + bytes);
+    }
+
+    // ---------------------------------------------------------------- LEB128 / ZigZag
+
+    /**
+     * ZigZag 编码 int
+     *
+     * @param v 有符号数
+     * @return 无符号编码
+     */
+    public static int zigZagEncode(int v) {
+        return (v << 1) ^ (v >> 31);
+    }
+
+    /**
+     * ZigZag 解码 int
+     *
+     * @param v 无符号编码
+     * @return 有符号数
+     */
+    public static int zigZagDecode(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * ZigZag 编码 long
+     *
+     * @param v 有符号数
+     * @return 无符号编码
+     */
+    public static long zigZagEncode(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    /**
+     * ZigZag 解码 long
+     *
+     * @param v 无符号编码
+     * @return 有符号数
+     */
+    public static long zigZagDecode(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * int 按无符号数做 LEB128 编码后的字节数，1 ~ 5
+     *
+     * @param v 值
+     * @return 字节数
+     */
+    public static int varIntSize(int v) {
+        // 等价于 max(1, ceil(有效位数 / 7))
+        return (352 - Integer.numberOfLeadingZeros(v) * 9) >>> 6;
+    }
+
+    /**
+     * long 按无符号数做 LEB128 编码后的字节数，1 ~ 10
+     *
+     * @param v 值
+     * @return 字节数
+     */
+    public static int varLongSize(long v) {
+        return (640 - Long.numberOfLeadingZeros(v) * 9) >>> 6;
+    }
+
+    /**
+     * 把 int 按无符号数做 LEB128 编码写入字节数组，负数固定占5个字节，有符号数应先做 {@link #zigZagEncode(int)}
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     * @return 写入后的位置
+     */
+    public static int putVarInt(byte[] b, int offset, int v) {
+        if ((v & ~0x7F) == 0) {
+            b[offset] = (byte) v;
+            return offset + 1;
+        }
+        if ((v & ~0x3FFF) == 0) {
+            b[offset] = (byte) (v | 0x80);
+            b[offset + 1] = (byte) (v >>> 7);
+            return offset + 2;
+        }
+        while ((v & ~0x7F) != 0) {
+            b[offset++] = (byte) (v | 0x80);
+            v >>>= 7;
+        }
+        b[offset++] = (byte) v;
+        return offset;
+    }
+
+    /**
+     * 把 long 按无符号数做 LEB128 编码写入字节数组，负数固定占10个字节，有符号数应先做 {@link #zigZagEncode(long)}
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @param v      值
+     * @return 写入后的位置
+     */
+    public static int putVarLong(byte[] b, int offset, long v) {
+        if ((v & ~0x7FL) == 0) {
+            b[offset] = (byte) v;
+            return offset + 1;
+        }
+        if ((v & ~0x3FFFL) == 0) {
+            b[offset] = (byte) (v | 0x80);
+            b[offset + 1] = (byte) (v >>> 7);
+            return offset + 2;
+        }
+        while ((v & ~0x7FL) != 0) {
+            b[offset++] = (byte) (v | 0x80);
+            v >>>= 7;
+        }
+        b[offset++] = (byte) v;
+        return offset;
+    }
+
+    /**
+     * 读取一个 LEB128 编码的 int，对于 {@link #putVarInt} 写入的编码，读取的字节数为 {@link #varIntSize(int)}（返回值）
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return 值
+     * @throws IllegalArgumentException 编码超过5个字节
+     */
+    public static int getVarInt(byte[] b, int offset) {
+        int v = b[offset];
+        if (v >= 0) {
+            return v;
+        }
+        int next = b[offset + 1];
+        if (next >= 0) {
+            return (v & 0x7F) | next << 7;
+        }
+        v = (v & 0x7F) | (next & 0x7F) << 7;
+        for (int shift = 14; shift < 35; shift += 7) {
+            next = b[offset + shift / 7];
+            v |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at offset " + offset);
+    }
+
+    /**
+     * 读取一个 LEB128 编码的 long，对于 {@link #putVarLong} 写入的编码，读取的字节数为 {@link #varLongSize(long)}（返回值）
+     *
+     * @param b      字节数组
+     * @param offset 起始位置
+     * @return 值
+     * @throws IllegalArgumentException 编码超过10个字节
+     */
+    public static long getVarLong(byte[] b, int offset) {
+        long v = b[offset];
+        if (v >= 0) {
+            return v;
+        }
+        long next = b[offset + 1];
+        if (next >= 0) {
+            return (v & 0x7F) | next << 7;
+        }
+        v = (v & 0x7F) | (next & 0x7F) << 7;
+        for (int shift = 14; shift < 70; shift += 7) {
+            next = b[offset + shift / 7];
+            v |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at offset " + offset);
+    }
+
+    /**
+     * 把 long 按无符号数做 LEB128 编码写入缓冲区，position 前进编码的字节数
+     *
+     * @param buffer 缓冲区
+     * @param v      值
+     */
+    public static void putVarLong(ByteBuffer buffer, long v) {
+        while ((v & ~0x7FL) != 0) {
+            buffer.put((byte) (v | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    /**
+     * 从缓冲区读取一个 LEB128 编码的 long，position 前进编码的字节数
+     *
+     * @param buffer 缓冲区
+     * @return 值
+     * @throws IllegalArgumentException 编码超过10个字节
+     */
+    public static long getVarLong(ByteBuffer buffer) {
+        long v = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            long next = buffer.get();
+            v |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at position " + (buffer.position() - MAX_VAR_LONG_SIZE));
+    }
+
+    /**
+     * 把 int 按无符号数做 LEB128 编码写入缓冲区，position 前进编码的字节数
+     *
+     * @param buffer 缓冲区
+     * @param v      值
+     */
+    public static void putVarInt(ByteBuffer buffer, int v) {
+        while ((v & ~0x7F) != 0) {
+            buffer.put((byte) (v | 0x80));
+            v >>>= 7;
+        }
+        buffer.put((byte) v);
+    }
+
+    /**
+     * 从缓冲区读取一个 LEB128 编码的 int，position 前进编码的字节数
+     *
+     * @param buffer 缓冲区
+     * @return 值
+     * @throws IllegalArgumentException 编码超过5个字节
+     */
+    public static int getVarInt(ByteBuffer buffer) {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int next = buffer.get();
+            v |= (next & 0x7F) << shift;
+            if (next >= 0) {
+                return v;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint at position " + (buffer.position() - MAX_VAR_INT_SIZE));
+    }
+}
@@ -0,0 +1,746 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection;
+
+import com.mobaijun.common.exception.UtilException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Description: [深拷贝引擎]
+ * <p>
+ * 每个类第一次拷贝时生成一份拷贝计划并缓存（{@link ClassValue}），之后的拷贝只执行计划：
+ * 字段通过 {@link MethodHandle} 读写，基本类型和不可变类型的字段直接复制，其余字段递归拷贝；
+ * 字符串、包装类型、枚举、java.time 等不可变对象直接共享引用；基本类型数组整体复制；
+ * List、Set、Map 新建同类型的集合后逐个拷贝元素；record 通过规范构造器重建。
+ * 同一次拷贝中通过身份映射记录已拷贝的对象，共享引用和循环引用在副本中保持相同的结构。
+ * 普通对象通过无参构造器创建；没有无参构造器的类型和无法访问内部字段的 JDK 类型退化为序列化拷贝，
+ * 要求实现 {@link Serializable}，否则拷贝时抛出 {@link UtilException}。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public final class DeepCloner {
+
+    /**
+     * 可以直接共享引用的不可变类型
+     */
+    private static final Set<Class<?>> IMMUTABLE_TYPES = Set.of(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class,
+            Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class,
+            URI.class, Locale.class, Currency.class, Pattern.class, Class.class, Object.class);
+
+    /**
+     * 每个类的拷贝计划
+     */
+    private static final ClassValue<Plan> PLANS = new ClassValue<>() {
+        @Override
+        protected Plan computeValue(Class<?> type) {
+            return createPlan(type);
+        }
+    };
+
+    /**
+     * 用于读写字段的 Lookup
+     */
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    /**
+     * (Object, Object)void，拷贝一个字段
+     */
+    private static final MethodType FIELD_COPIER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private DeepCloner() {
+    }
+
+    /**
+     * 深拷贝一个对象
+     *
+     * @param obj 要拷贝的对象
+     * @param <T> 对象类型
+     * @return 拷贝后的对象，obj为null时返回null
+     * @throws UtilException 对象中包含无法拷贝的类型时抛出
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T clone(T obj) {
+        return (T) new Context().copy(obj);
+    }
+
+    /**
+     * 判断类型是否不可变，不可变类型的对象在拷贝时直接共享引用
+     *
+     * @param type 类型
+     * @return 不可变时返回true
+     */
+    static boolean isImmutable(Class<?> type) {
+        return type.isPrimitive()
+                || type.isEnum()
+                || IMMUTABLE_TYPES.contains(type)
+                || Enum.class.isAssignableFrom(type)
+                || type.isHidden()
+                || type.getName().startsWith("java.time.")
+                || Thread.class.isAssignableFrom(type)
+                || ClassLoader.class.isAssignableFrom(type);
+    }
+
+    /**
+     * 判断声明类型的值是否一定不可变，字段或数组元素声明为该类型时可以直接复制引用
+     *
+     * @param type 声明类型
+     * @return 一定不可变时返回true
+     */
+    private static boolean isImmutableDeclaredType(Class<?> type) {
+        return type.isPrimitive() || type.isEnum()
+                || (Modifier.isFinal(type.getModifiers()) && isImmutable(type));
+    }
+
+    /**
+     * 为类型生成拷贝计划
+     *
+     * @param type 类型
+     * @return 拷贝计划
+     */
+    private static Plan createPlan(Class<?> type) {
+        if (isImmutable(type)) {
+            return (src, context) -> src;
+        }
+        if (type.isArray()) {
+            return type.getComponentType().isPrimitive() ? DeepCloner::copyPrimitiveArray : DeepCloner::copyArray;
+        }
+        if (EnumSet.class.isAssignableFrom(type)) {
+            return (src, context) -> context.register(src, ((EnumSet<?>) src).clone());
+        }
+        if (EnumMap.class.isAssignableFrom(type)) {
+            return DeepCloner::copyEnumMap;
+        }
+        if (type.isRecord()) {
+            return recordPlan(type);
+        }
+        boolean jdkType = type.getName().startsWith("java.") || type.getName().startsWith("javax.");
+        if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+            Plan plan = containerPlan(type);
+            if (plan != null) {
+                return plan;
+            }
+            if (jdkType) {
+                // 不可变集合、Arrays.asList、包装器、视图等没有公开构造器的 JDK 集合
+                return DeepCloner::copyJdkContainer;
+            }
+        }
+        if (jdkType) {
+            return jdkPlan(type);
+        }
+        try {
+            return beanPlan(type);
+        } catch (NoSuchMethodException e) {
+            // 没有无参构造器时可序列化的类型按序列化拷贝（由序列化机制创建实例），否则明确失败
+            return Serializable.class.isAssignableFrom(type) ? DeepCloner::copyBySerialization
+                    : unsupported(type, "没有无参构造器");
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // 模块未开放等原因无法访问字段时退化为序列化拷贝
+            return Serializable.class.isAssignableFrom(type) ? DeepCloner::copyBySerialization : unsupported(type);
+        }
+    }
+
+    /**
+     * 其他 JDK 类型的拷贝计划：Date、Calendar 等提供公开 clone 方法的类型调用 clone，否则退化为序列化拷贝
+     *
+     * @param type JDK 类型
+     * @return 拷贝计划
+     */
+    private static Plan jdkPlan(Class<?> type) {
+        if (Cloneable.class.isAssignableFrom(type)) {
+            try {
+                MethodHandle cloneMethod = LOOKUP.findVirtual(type, "clone", MethodType.methodType(Object.class))
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                return (src, context) -> {
+                    try {
+                        return context.register(src, (Object) cloneMethod.invokeExact(src));
+                    } catch (RuntimeException | Error e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        throw new UtilException("深拷贝失败: " + type.getName(), e);
+                    }
+                };
+            } catch (ReflectiveOperationException ignored) {
+                // 没有公开的 clone 方法
+            }
+        }
+        return Serializable.class.isAssignableFrom(type) ? DeepCloner::copyBySerialization : unsupported(type);
+    }
+
+    /**
+     * 普通对象的拷贝计划：通过无参构造器创建实例，再逐个拷贝所有实例字段
+     *
+     * @param type 类型
+     * @return 拷贝计划
+     * @throws ReflectiveOperationException 没有无参构造器或无法访问字段、构造器
+     */
+    private static Plan beanPlan(Class<?> type) throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, LOOKUP);
+        MethodHandle instantiator = instantiator(type, lookup);
+
+        List<MethodHandle> direct = new ArrayList<>();
+        List<MethodHandle[]> deep = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            MethodHandles.Lookup fieldLookup = c == type ? lookup : MethodHandles.privateLookupIn(c, LOOKUP);
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                MethodHandle getter = fieldLookup.unreflectGetter(field);
+                MethodHandle setter = fieldLookup.unreflectSetter(field);
+                Class<?> fieldType = field.getType();
+                if (isImmutableDeclaredType(fieldType)) {
+                    // setter(target, getter(src))，基本类型字段不会装箱
+                    MethodHandle copier = MethodHandles.collectArguments(
+                            setter.asType(MethodType.methodType(void.class, Object.class, fieldType)), 1,
+                            getter.asType(MethodType.methodType(fieldType, Object.class)));
+                    direct.add(copier.asType(FIELD_COPIER));
+                } else {
+                    deep.add(new MethodHandle[]{
+                            getter.asType(MethodType.methodType(Object.class, Object.class)),
+                            setter.asType(MethodType.methodType(void.class, Object.class, Object.class))});
+                }
+            }
+        }
+        MethodHandle[] directCopiers = direct.toArray(new MethodHandle[0]);
+        MethodHandle[][] deepCopiers = deep.toArray(new MethodHandle[0][]);
+
+        return (src, context) -> {
+            Object target;
+            try {
+                target = instantiator.invokeExact();
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UtilException("深拷贝失败，无法通过构造器创建实例: " + type.getName(), e);
+            }
+            try {
+                context.register(src, target);
+                for (MethodHandle copier : directCopiers) {
+                    copier.invokeExact(target, src);
+                }
+                for (MethodHandle[] copier : deepCopiers) {
+                    Object value = (Object) copier[0].invokeExact(src);
+                    copier[1].invokeExact(target, context.copy(value));
+                }
+                return target;
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UtilException("深拷贝失败: " + type.getName(), e);
+            }
+        };
+    }
+
+    /**
+     * 创建实例的 MethodHandle，类型为 ()Object，只使用无参构造器，不会以伪造的参数调用其他构造器
+     *
+     * @param type   类型
+     * @param lookup 有私有访问权限的 Lookup
+     * @return 创建实例的 MethodHandle
+     * @throws NoSuchMethodException        没有无参构造器
+     * @throws ReflectiveOperationException 无参构造器不可访问
+     */
+    private static MethodHandle instantiator(Class<?> type, MethodHandles.Lookup lookup)
+            throws ReflectiveOperationException {
+        return lookup.findConstructor(type, MethodType.methodType(void.class))
+                .asType(MethodType.methodType(Object.class));
+    }
+
+    /**
+     * record 的拷贝计划：逐个拷贝组件后调用规范构造器
+     *
+     * @param type record 类型
+     * @return 拷贝计划
+     */
+    private static Plan recordPlan(Class<?> type) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, LOOKUP);
+            RecordComponent[] components = type.getRecordComponents();
+            MethodHandle[] accessors = new MethodHandle[components.length];
+            Class<?>[] parameterTypes = new Class<?>[components.length];
+            for (int i = 0; i < components.length; i++) {
+                accessors[i] = lookup.unreflect(components[i].getAccessor())
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                parameterTypes[i] = components[i].getType();
+            }
+            MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asSpreader(Object[].class, components.length)
+                    .asType(MethodType.methodType(Object.class, Object[].class));
+            return (src, context) -> {
+                try {
+                    Object[] args = new Object[accessors.length];
+                    for (int i = 0; i < accessors.length; i++) {
+                        args[i] = context.copy((Object) accessors[i].invokeExact(src));
+                    }
+                    return context.register(src, (Object) constructor.invokeExact(args));
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new UtilException("深拷贝失败: " + type.getName(), e);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return unsupported(type);
+        }
+    }
+
+    /**
+     * 有公开构造器的集合的拷贝计划：新建同类型集合后逐个拷贝元素。
+     * 有序集合和优先队列沿用原来的比较器，LinkedHashMap 保持原来的访问顺序模式
+     *
+     * @param type 集合类型
+     * @return 拷贝计划，没有可用的构造器时返回null
+     */
+    private static Plan containerPlan(Class<?> type) {
+        if (type == LinkedHashMap.class) {
+            // accessOrder 没有公开的读取方法，浅克隆会保留它，清空后即为同样模式的空 LinkedHashMap
+            return (src, context) -> {
+                LinkedHashMap<?, ?> target = (LinkedHashMap<?, ?>) ((LinkedHashMap<?, ?>) src).clone();
+                target.clear();
+                return fill(src, context.register(src, target), context);
+            };
+        }
+        Function<Object, Comparator<?>> comparatorOf = comparatorOf(type);
+        MethodHandle constructor;
+        try {
+            if (comparatorOf == null) {
+                constructor = MethodHandles.dropArguments(LOOKUP.findConstructor(type,
+                        MethodType.methodType(void.class)), 0, Comparator.class);
+            } else if (PriorityBlockingQueue.class.isAssignableFrom(type)) {
+                // PriorityBlockingQueue 只有带初始容量的比较器构造器
+                constructor = MethodHandles.insertArguments(LOOKUP.findConstructor(type,
+                        MethodType.methodType(void.class, int.class, Comparator.class)), 0, 11);
+            } else {
+                constructor = LOOKUP.findConstructor(type, MethodType.methodType(void.class, Comparator.class));
+            }
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+        MethodHandle factory = constructor.asType(MethodType.methodType(Object.class, Comparator.class));
+        return (src, context) -> {
+            Comparator<?> comparator = comparatorOf == null ? null : comparatorOf.apply(src);
+            Object target;
+            try {
+                target = factory.invokeExact(comparator);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new UtilException("深拷贝失败: " + type.getName(), e);
+            }
+            return fill(src, context.register(src, target), context);
+        };
+    }
+
+    /**
+     * 获取有序集合和优先队列的比较器的函数
+     *
+     * @param type 集合类型
+     * @return 获取比较器的函数，不是有序集合时返回null
+     */
+    private static Function<Object, Comparator<?>> comparatorOf(Class<?> type) {
+        if (SortedSet.class.isAssignableFrom(type)) {
+            return src -> ((SortedSet<?>) src).comparator();
+        }
+        if (SortedMap.class.isAssignableFrom(type)) {
+            return src -> ((SortedMap<?, ?>) src).comparator();
+        }
+        if (PriorityQueue.class.isAssignableFrom(type)) {
+            return src -> ((PriorityQueue<?>) src).comparator();
+        }
+        if (PriorityBlockingQueue.class.isAssignableFrom(type)) {
+            return src -> ((PriorityBlockingQueue<?>) src).comparator();
+        }
+        return null;
+    }
+
+    /**
+     * 把原集合的元素逐个拷贝到空的目标集合中
+     *
+     * @param src     原集合
+     * @param target  空的目标集合，已登记
+     * @param context 拷贝上下文
+     * @return 目标集合
+     */
+    @SuppressWarnings("unchecked")
+    private static Object fill(Object src, Object target, Context context) {
+        if (src instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = (Map<Object, Object>) target;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                copy.put(context.copy(entry.getKey()), context.copy(entry.getValue()));
+            }
+        } else {
+            Collection<Object> copy = (Collection<Object>) target;
+            for (Object element : (Collection<?>) src) {
+                copy.add(context.copy(element));
+            }
+        }
+        return target;
+    }
+
+    /**
+     * 得到与原集合结构相同的空集合：把元素替换为 null 后序列化再反序列化，然后清空。
+     * 用于保留包装器及其内部集合等没有公开读取方法的状态，开销较大，只用于没有公开构造器的 JDK 集合
+     *
+     * @param src 原集合，需要实现 {@link Serializable}
+     * @return 同结构的空集合
+     * @throws UtilException 序列化失败时抛出
+     */
+    private static Object emptyShell(Object src) {
+        Set<Object> elements = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (src instanceof Map<?, ?> map) {
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                elements.add(entry.getKey());
+                elements.add(entry.getValue());
+            }
+        } else {
+            elements.addAll((Collection<?>) src);
+        }
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos) {
+                {
+                    enableReplaceObject(true);
+                }
+
+                @Override
+                protected Object replaceObject(Object obj) {
+                    return elements.contains(obj) ? null : obj;
+                }
+            }) {
+                oos.writeObject(src);
+            }
+            Object shell;
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+                shell = ois.readObject();
+            }
+            if (shell instanceof Map<?, ?> map) {
+                map.clear();
+            } else {
+                ((Collection<?>) shell).clear();
+            }
+            return shell;
+        } catch (Exception e) {
+            throw new UtilException("深拷贝失败: " + src.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * 没有公开构造器的 JDK 集合的拷贝，副本与原集合的可修改性相同：
+     * 只读集合拷贝为只读集合；Arrays.asList 在拷贝后的数组上重建；synchronized、checked 包装器等可序列化的集合
+     * 通过 {@link #emptyShell(Object)} 保留包装器和内部集合；其余集合拷贝为可修改的同类接口实现，
+     * 无法序列化的 synchronized 包装器重新包装，无法序列化的 checked 包装器失去类型检查
+     *
+     * @param src     原集合
+     * @param context 拷贝上下文
+     * @return 拷贝后的集合
+     */
+    private static Object copyJdkContainer(Object src, Context context) {
+        String name = src.getClass().getName();
+        if (isUnmodifiable(name)) {
+            return copyUnmodifiable(src, context);
+        }
+        if ("java.util.Arrays$ArrayList".equals(name)) {
+            Object[] array = ((List<?>) src).toArray();
+            Object copy = context.register(src, Arrays.asList(array));
+            for (int i = 0; i < array.length; i++) {
+                array[i] = context.copy(array[i]);
+            }
+            return copy;
+        }
+        if (src instanceof Serializable) {
+            Object shell = null;
+            try {
+                shell = emptyShell(src);
+            } catch (UtilException ignored) {
+                // 内部集合或比较器不可序列化
+            }
+            if (shell != null) {
+                return fill(src, context.register(src, shell), context);
+            }
+        }
+        Object copy = emptyMutable(src);
+        Object result = context.register(src,
+                name.startsWith("java.util.Collections$Synchronized") ? synchronize(src, copy) : copy);
+        fill(src, copy, context);
+        return result;
+    }
+
+    /**
+     * 判断 JDK 集合是否只读
+     *
+     * @param name 集合的类名
+     * @return 只读时返回true
+     */
+    private static boolean isUnmodifiable(String name) {
+        return name.startsWith("java.util.ImmutableCollections$")
+                || name.startsWith("java.util.Collections$Unmodifiable")
+                || name.startsWith("java.util.Collections$Empty")
+                || name.startsWith("java.util.Collections$Singleton")
+                || name.equals("java.util.Collections$CopiesList");
+    }
+
+    /**
+     * 创建与原集合接口相同的可修改空集合，有序集合沿用原来的比较器
+     *
+     * @param src 原集合
+     * @return 空集合
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object emptyMutable(Object src) {
+        if (src instanceof SortedMap<?, ?> map) {
+            return new TreeMap<>((Comparator) map.comparator());
+        }
+        if (src instanceof Map<?, ?> map) {
+            return new LinkedHashMap<>((int) (map.size() / 0.75f) + 1);
+        }
+        if (src instanceof SortedSet<?> set) {
+            return new TreeSet<>((Comparator) set.comparator());
+        }
+        if (src instanceof Set<?> set) {
+            return new LinkedHashSet<>((int) (set.size() / 0.75f) + 1);
+        }
+        if (src instanceof Queue && !(src instanceof List)) {
+            return new LinkedList<>();
+        }
+        return new ArrayList<>(((Collection<?>) src).size());
+    }
+
+    /**
+     * 按原集合的接口用 Collections.synchronizedXxx 包装副本
+     *
+     * @param src  原 synchronized 包装器
+     * @param copy 由 {@link #emptyMutable(Object)} 创建的副本
+     * @return 包装后的副本
+     */
+    @SuppressWarnings("unchecked")
+    private static Object synchronize(Object src, Object copy) {
+        if (src instanceof NavigableMap) {
+            return Collections.synchronizedNavigableMap((NavigableMap<Object, Object>) copy);
+        }
+        if (src instanceof SortedMap) {
+            return Collections.synchronizedSortedMap((SortedMap<Object, Object>) copy);
+        }
+        if (src instanceof Map) {
+            return Collections.synchronizedMap((Map<Object, Object>) copy);
+        }
+        if (src instanceof NavigableSet) {
+            return Collections.synchronizedNavigableSet((NavigableSet<Object>) copy);
+        }
+        if (src instanceof SortedSet) {
+            return Collections.synchronizedSortedSet((SortedSet<Object>) copy);
+        }
+        if (src instanceof Set) {
+            return Collections.synchronizedSet((Set<Object>) copy);
+        }
+        if (src instanceof List) {
+            return Collections.synchronizedList((List<Object>) copy);
+        }
+        return Collections.synchronizedCollection((Collection<Object>) copy);
+    }
+
+    /**
+     * 只读的 JDK 集合拷贝为只读的 List、Set 或 Map，保持元素顺序
+     *
+     * @param src     原集合
+     * @param context 拷贝上下文
+     * @return 拷贝后的集合
+     */
+    @SuppressWarnings("unchecked")
+    private static Object copyUnmodifiable(Object src, Context context) {
+        if (src instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>((int) (map.size() / 0.75f) + 1);
+            Object result = context.register(src, Collections.unmodifiableMap(copy));
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                copy.put(context.copy(entry.getKey()), context.copy(entry.getValue()));
+            }
+            return result;
+        }
+        Collection<?> collection = (Collection<?>) src;
+        Collection<Object> copy = src instanceof Set
+                ? new LinkedHashSet<>((int) (collection.size() / 0.75f) + 1)
+                : new ArrayList<>(collection.size());
+        Object result = context.register(src, copy instanceof Set
+                ? Collections.unmodifiableSet((Set<Object>) copy)
+                : Collections.unmodifiableList((List<Object>) copy));
+        for (Object element : collection) {
+            copy.add(context.copy(element));
+        }
+        return result;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object copyEnumMap(Object src, Context context) {
+        EnumMap map = new EnumMap((EnumMap) src);
+        context.register(src, map);
+        map.replaceAll((key, value) -> context.copy(value));
+        return map;
+    }
+
+    private static Object copyPrimitiveArray(Object src, Context context) {
+        Object copy;
+        if (src instanceof int[] a) {
+            copy = a.clone();
+        } else if (src instanceof long[] a) {
+            copy = a.clone();
+        } else if (src instanceof byte[] a) {
+            copy = a.clone();
+        } else if (src instanceof double[] a) {
+            copy = a.clone();
+        } else if (src instanceof char[] a) {
+            copy = a.clone();
+        } else if (src instanceof boolean[] a) {
+            copy = a.clone();
+        } else if (src instanceof float[] a) {
+            copy = a.clone();
+        } else {
+            copy = ((short[]) src).clone();
+        }
+        return context.register(src, copy);
+    }
+
+    private static Object copyArray(Object src, Context context) {
+        Object[] array = (Object[]) src;
+        Class<?> componentType = src.getClass().getComponentType();
+        if (isImmutableDeclaredType(componentType)) {
+            return context.register(src, array.clone());
+        }
+        Object[] copy = (Object[]) Array.newInstance(componentType, array.length);
+        context.register(src, copy);
+        for (int i = 0; i < array.length; i++) {
+            copy[i] = context.copy(array[i]);
+        }
+        return copy;
+    }
+
+    private static Object copyBySerialization(Object src, Context context) {
+        try {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(src);
+            }
+            try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+                return context.register(src, ois.readObject());
+            }
+        } catch (Exception e) {
+            throw new UtilException("深拷贝失败: " + src.getClass().getName(), e);
+        }
+    }
+
+    private static Plan unsupported(Class<?> type) {
+        return (src, context) -> {
+            throw new UtilException("无法深拷贝类型: %s", type.getName());
+        };
+    }
+
+    private static Plan unsupported(Class<?> type, String reason) {
+        return (src, context) -> {
+            throw new UtilException("无法深拷贝类型: %s，%s", type.getName(), reason);
+        };
+    }
+
+    /**
+     * 一个类的拷贝计划
+     */
+    @FunctionalInterface
+    private interface Plan {
+
+        /**
+         * 拷贝对象
+         *
+         * @param src     原对象，非null
+         * @param context 拷贝上下文
+         * @return 拷贝后的对象
+         */
+        Object copy(Object src, Context context);
+    }
+
+    /**
+     * 一次拷贝的上下文，记录原对象到副本的映射以处理共享引用和循环引用
+     */
+    private static final class Context {
+
+        private final Map<Object, Object> copies = new IdentityHashMap<>();
+
+        Object copy(Object src) {
+            if (src == null) {
+                return null;
+            }
+            Plan plan = PLANS.get(src.getClass());
+            Object copied = copies.get(src);
+            if (copied != null) {
+                return copied;
+            }
+            return plan.copy(src, this);
+        }
+
+        /**
+         * 在拷贝子对象之前登记副本，使循环引用能指向同一个副本
+         *
+         * @param src  原对象
+         * @param copy 副本
+         * @return 副本
+         */
+        Object register(Object src, Object copy) {
+            copies.put(src, copy);
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+/**
+ * Description: [外部归并排序]
+ * <p>
+ * 元素先在内存中攒批，超过 maxInMemory 个时排序后通过 {@link Serializer} 写入临时文件（一个有序段），
+ * 全部写完后对所有有序段做惰性的 k 路归并，内存中同时只保留 maxInMemory 个元素和每个段的一个读取位置。
+ * 元素个数不超过 maxInMemory 时不会写临时文件，直接在内存中排序。
+ * 排序是稳定的：比较结果相等的元素保持原始顺序。
+ * 临时文件只在 {@link #close()} 时删除，不注册 deleteOnExit，使用方必须关闭排序器（try-with-resources），
+ * 一般通过 {@link ListStream#sortExternal} 使用。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public final class ExternalSorter<T> implements AutoCloseable {
+
+    /**
+     * 读写临时文件的缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 比较器
+     */
+    private final Comparator<? super T> comparator;
+
+    /**
+     * 内存中最多保留的元素个数
+     */
+    private final int maxInMemory;
+
+    /**
+     * 元素序列化器
+     */
+    private final Serializer<T> serializer;
+
+    /**
+     * 尚未写出的元素
+     */
+    private final List<T> buffer;
+
+    /**
+     * 已写出的有序段
+     */
+    private final List<Path> runs = new ArrayList<>();
+
+    /**
+     * 已打开的有序段读取器
+     */
+    private final List<DataInputStream> readers = new ArrayList<>();
+
+    /**
+     * 构造外部排序器
+     *
+     * @param comparator  比较器
+     * @param maxInMemory 内存中最多保留的元素个数，超过时写出一个有序段
+     * @param serializer  元素序列化器
+     */
+    public ExternalSorter(Comparator<? super T> comparator, int maxInMemory, Serializer<T> serializer) {
+        if (maxInMemory <= 0) {
+            throw new IllegalArgumentException("maxInMemory must be positive");
+        }
+        this.comparator = Objects.requireNonNull(comparator);
+        this.maxInMemory = maxInMemory;
+        this.serializer = Objects.requireNonNull(serializer);
+        this.buffer = new ArrayList<>(Math.min(maxInMemory, 1 << 16));
+    }
+
+    /**
+     * 添加一个元素，内存中的元素达到上限时排序并写出一个有序段
+     *
+     * @param t 元素
+     */
+    public void add(T t) {
+        buffer.add(t);
+        if (buffer.size() >= maxInMemory) {
+            spill();
+        }
+    }
+
+    /**
+     * 结束添加，返回按比较器排序后的元素。
+     * 没有写出有序段时返回排序结果的副本，{@link #close()} 之后仍然有效；
+     * 有写出的有序段时返回惰性归并的Iterable，每次遍历都会重新打开有序段，在 {@link #close()} 之前可以多次遍历。
+     *
+     * @return 排序后的元素
+     */
+    public Iterable<T> sorted() {
+        if (runs.isEmpty()) {
+            buffer.sort(comparator);
+            // close 会清空 buffer，不能把内部列表交给调用方
+            return new ArrayList<>(buffer);
+        }
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        return MergeIterator::new;
+    }
+
+    /**
+     * 已写出的有序段个数
+     *
+     * @return 有序段个数
+     */
+    public int runCount() {
+        return runs.size();
+    }
+
+    /**
+     * 关闭所有读取器并删除临时文件
+     */
+    @Override
+    public void close() {
+        UncheckedIOException failure = null;
+        for (DataInputStream reader : readers) {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                failure = new UncheckedIOException(e);
+            }
+        }
+        readers.clear();
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                failure = new UncheckedIOException(e);
+            }
+        }
+        runs.clear();
+        buffer.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * 排序内存中的元素并写出为一个有序段，文件头为元素个数
+     */
+    private void spill() {
+        buffer.sort(comparator);
+        try {
+            Path run = Files.createTempFile("list-stream-", ".run");
+            // 写入失败时文件已登记，由 close 删除
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE))) {
+                out.writeInt(buffer.size());
+                for (T t : buffer) {
+                    serializer.write(out, t);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * 元素序列化器，负责把元素写入有序段以及从有序段读回
+     *
+     * @param <T> 元素类型
+     */
+    public interface Serializer<T> {
+
+        /**
+         * 写出一个元素
+         *
+         * @param out   输出
+         * @param value 元素
+         * @throws IOException 写出失败
+         */
+        void write(DataOutput out, T value) throws IOException;
+
+        /**
+         * 读取一个元素
+         *
+         * @param in 输入
+         * @return 元素
+         * @throws IOException 读取失败
+         */
+        T read(DataInput in) throws IOException;
+
+        /**
+         * 字符串序列化器，按长度加UTF-8字节写出，不受 {@link DataOutput#writeUTF} 的长度限制
+         *
+         * @return 字符串序列化器
+         */
+        static Serializer<String> strings() {
+            return new Serializer<>() {
+                @Override
+                public void write(DataOutput out, String value) throws IOException {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+
+                @Override
+                public String read(DataInput in) throws IOException {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+            };
+        }
+
+        /**
+         * 基于JDK序列化的通用序列化器，每个元素独立序列化，较慢，数据量大时建议自行实现序列化器
+         *
+         * @param <T> 元素类型
+         * @return JDK序列化器
+         */
+        static <T extends Serializable> Serializer<T> java() {
+            return new Serializer<>() {
+                @Override
+                public void write(DataOutput out, T value) throws IOException {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                        oos.writeObject(value);
+                    }
+                    out.writeInt(bytes.size());
+                    out.write(bytes.toByteArray());
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public T read(DataInput in) throws IOException {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                        return (T) ois.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException(e);
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * 一个有序段的读取位置
+     */
+    private final class Cursor {
+
+        private final int run;
+
+        private final DataInputStream in;
+
+        private int remaining;
+
+        private T head;
+
+        Cursor(int run, DataInputStream in) throws IOException {
+            this.run = run;
+            this.in = in;
+            this.remaining = in.readInt();
+        }
+
+        /**
+         * 读取下一个元素作为段头
+         *
+         * @return 读到元素返回true，段已读完返回false
+         */
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                in.close();
+                readers.remove(in);
+                return false;
+            }
+            remaining--;
+            head = serializer.read(in);
+            return true;
+        }
+    }
+
+    /**
+     * 对所有有序段做 k 路归并，段头相等时编号小的段优先，保证排序稳定
+     */
+    private final class MergeIterator implements Iterator<T> {
+
+        private final PriorityQueue<Cursor> heap;
+
+        MergeIterator() {
+            heap = new PriorityQueue<>(Math.max(1, runs.size()), (a, b) -> {
+                int c = comparator.compare(a.head, b.head);
+                return c != 0 ? c : Integer.compare(a.run, b.run);
+            });
+            try {
+                for (int i = 0; i < runs.size(); i++) {
+                    DataInputStream in = new DataInputStream(
+                            new BufferedInputStream(Files.newInputStream(runs.get(i)), BUFFER_SIZE));
+                    readers.add(in);
+                    Cursor cursor = new Cursor(i, in);
+                    if (cursor.advance()) {
+                        heap.add(cursor);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            Cursor cursor = heap.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException();
+            }
+            T value = cursor.head;
+            try {
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return value;
+        }
+    }
+}
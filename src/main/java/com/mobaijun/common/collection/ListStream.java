@@ -15,9 +15,16 @@
  */
 package com.mobaijun.common.collection;
 
-import com.mobaijun.common.collection.functional.FlatteningIterable;
+import com.mobaijun.common.collection.functional.Failure;
+import com.mobaijun.common.collection.functional.Success;
+import com.mobaijun.common.collection.functional.Try;
+import com.mobaijun.common.collection.functional.TryModule;
 import com.mobaijun.common.enums.comm.Sort;
+import com.mobaijun.common.thread.ExecutorServiceUtil;
+import java.io.Serial;
+import java.lang.ref.SoftReference;
 import java.math.BigDecimal;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -28,33 +35,103 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.LongSummaryStatistics;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongUnaryOperator;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collector;
 
 /**
  * Description: [list stream 操作]
+ * <p>
+ * filter、map、peek、flatMap、limit、skip、sub、distinct 等中间操作只记录为流水线上的阶段，
+ * 终端操作执行时把所有阶段由后向前包装成一条 {@link Sink} 链，在一次循环中把数据源的元素逐个推送下去，
+ * 不再为每个阶段生成一层 Iterator；limit、findFirst、anyMatch 等操作可以提前终止循环。
  * Author: [mobaijun]
  * Date: [2024/12/3 15:21]
  * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
  */
 public class ListStream<T> {
 
+    /**
+     * 并行模式下单个分片的最小元素个数，小于该值的分片不再继续拆分
+     */
+    private static final int MIN_SPLIT_SIZE = 1024;
+
+    /**
+     * 没有任何中间操作的流水线
+     */
+    private static final Stage[] NO_STAGES = new Stage[0];
+
+    /**
+     * 不改变元素个数（或其上界）的中间操作
+     */
+    private static final LongUnaryOperator SAME_SIZE = LongUnaryOperator.identity();
+
+    /**
+     * 无法推断元素个数的中间操作
+     */
+    private static final LongUnaryOperator UNKNOWN_SIZE = n -> -1;
+
+    /**
+     * 只有元素个数上界时，按上界预分配容量的最大值，避免高选择性的过滤后分配过大的数组
+     */
+    private static final int MAX_BOUND_PRESIZE = 1 << 12;
+
     /**
      * 该类表示一个流，允许对流中的元素进行一系列操作。
      */
-    private final Iterable<T> source;
+    private final Iterable<?> source;
+
+    /**
+     * 按添加顺序记录的中间操作
+     */
+    private final Stage[] stages;
+
+    /**
+     * 是否包含有状态（依赖元素位置或已出现元素）的中间操作，包含时无法按分片并行执行
+     */
+    private final boolean stateful;
+
+    /**
+     * 是否包含可提前终止遍历的中间操作
+     */
+    private final boolean shortCircuit;
+
+    /**
+     * 是否为并行模式
+     */
+    private final boolean parallel;
+
+    /**
+     * 并行模式下终端操作是否需要保持元素的原始顺序
+     */
+    private final boolean ordered;
 
     /**
      * 构造一个ListStream，传入一个Iterable作为数据源
@@ -62,7 +139,27 @@ public class ListStream<T> {
      * @param source 数据源，必须非空
      */
     public ListStream(Iterable<T> source) {
+        this(source, NO_STAGES, false, false, false, true);
+    }
+
+    /**
+     * 以完整的执行状态构造ListStream
+     *
+     * @param source       数据源
+     * @param stages       中间操作
+     * @param stateful     是否包含有状态的中间操作
+     * @param shortCircuit 是否包含可提前终止的中间操作
+     * @param parallel     是否为并行模式
+     * @param ordered      并行时是否保持顺序
+     */
+    private ListStream(Iterable<?> source, Stage[] stages, boolean stateful, boolean shortCircuit,
+                       boolean parallel, boolean ordered) {
         this.source = source;
+        this.stages = stages;
+        this.stateful = stateful;
+        this.shortCircuit = shortCircuit;
+        this.parallel = parallel;
+        this.ordered = ordered;
     }
 
     /**
@@ -76,6 +173,64 @@ public class ListStream<T> {
         return new ListStream<>(Objects.requireNonNull(source));
     }
 
+    /**
+     * 以数组作为数据源创建一个ListStream实例，元素复制到可修改的ArrayList中，并行模式下可直接按下标拆分
+     *
+     * @param elements 数据源数组，必须非空
+     * @param <T>      元素类型
+     * @return ListStream实例
+     */
+    @SafeVarargs
+    public static <T> ListStream<T> of(T... elements) {
+        // 复制到 ArrayList：toList、add、concat 会直接使用数据源，Arrays.asList 不支持 add
+        List<T> list = new ArrayList<>(Objects.requireNonNull(elements).length);
+        for (T element : elements) {
+            list.add(element);
+        }
+        return new ListStream<>(list);
+    }
+
+    /**
+     * 切换为并行模式，终端操作按原始顺序合并结果。
+     * <p>
+     * 仅当数据源为数组或 {@link RandomAccess} 的 {@link List} 时才会真正拆分执行，
+     * 其间的 filter、map、peek、flatMap 会在每个分片上各自执行，传入的函数必须是线程安全的；
+     * 经过 sort、limit、skip 等有状态操作后，若中间结果无法拆分则自动退化为串行执行。
+     *
+     * @return 并行模式的ListStream
+     */
+    public ListStream<T> parallel() {
+        return parallel(true);
+    }
+
+    /**
+     * 切换为并行模式
+     *
+     * @param ordered 是否保持原始顺序，为 false 时 forEach、distinct 不再为顺序付出额外开销
+     * @return 并行模式的ListStream
+     */
+    public ListStream<T> parallel(boolean ordered) {
+        return new ListStream<>(source, stages, stateful, shortCircuit, true, ordered);
+    }
+
+    /**
+     * 切换回串行模式
+     *
+     * @return 串行模式的ListStream
+     */
+    public ListStream<T> sequential() {
+        return new ListStream<>(source, stages, stateful, shortCircuit, false, ordered);
+    }
+
+    /**
+     * 判断当前流是否为并行模式
+     *
+     * @return 如果为并行模式，返回true；否则返回false
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
     /**
      * 向当前流中添加一个元素
      *
@@ -122,7 +277,7 @@ public class ListStream<T> {
     public ListStream<T> concat(List<T> ts) {
         final List<T> list = toList();
         list.addAll(ts);
-        return of(list);
+        return with(list);
     }
 
     /**
@@ -145,8 +300,18 @@ public class ListStream<T> {
      * @return 跳过元素后的新的ListStream
      */
     public ListStream<T> skip(int skipIndex) {
-        AtomicInteger i = new AtomicInteger(1);
-        return of(createFilteredIterable(elem -> i.getAndIncrement() > skipIndex));
+        return chain(true, false, n -> n < 0 ? -1 : Math.max(0, n - skipIndex), true, downstream -> new ChainedSink<T, T>(downstream) {
+            private int skipped = 0;
+
+            @Override
+            public void accept(T t) {
+                if (skipped < skipIndex) {
+                    skipped++;
+                } else {
+                    downstream.accept(t);
+                }
+            }
+        });
     }
 
 
@@ -180,36 +345,14 @@ public class ListStream<T> {
             throw new IllegalArgumentException("subEnd must not be less than subBegin");
         }
 
-        return of(() -> new Iterator<T>() {
-            private final Iterator<T> iterator = source.iterator();
-            private int currentIndex = 0;
-
-            @Override
-            public boolean hasNext() {
-                return currentIndex < subEnd && iterator.hasNext();
-            }
-
-            @Override
-            public T next() {
-                if (!hasNext()) {
-                    throw new NoSuchElementException();
-                }
-                T next = iterator.next();
-                currentIndex++;
-                if (currentIndex <= subBegin) {
-                    // 跳过 subBegin 之前的元素
-                    return this.next();
-                }
-                return next;
-            }
-        });
+        return skip(subBegin).limit(subEnd - subBegin);
     }
 
     public ListStream<T> reversed() {
         // 反转列表
         List<T> list = toList();
         Collections.reverse(list);
-        return of(list);
+        return with(list);
     }
 
     /**
@@ -221,9 +364,7 @@ public class ListStream<T> {
     @SafeVarargs
     @SuppressWarnings("unused")
     public final boolean anyMatch(Predicate<T>... predicates) {
-        Iterable<T> filteredIterable = createFilteredIterable(elem ->
-                Arrays.stream(predicates).anyMatch(predicate -> predicate.test(elem)));
-        return of(filteredIterable).isNotEmpty();
+        return ors(predicates).isNotEmpty();
     }
 
     /**
@@ -235,9 +376,7 @@ public class ListStream<T> {
     @SafeVarargs
     @SuppressWarnings("unused")
     public final boolean noneMatch(Predicate<T>... predicates) {
-        Iterable<T> filteredIterable = createFilteredIterable(elem ->
-                Arrays.stream(predicates).anyMatch(predicate -> predicate.test(elem)));
-        return of(filteredIterable).isEmpty();
+        return ors(predicates).isEmpty();
     }
 
     /**
@@ -246,11 +385,9 @@ public class ListStream<T> {
      * @return 第一个元素，如果流为空，则返回null
      */
     public T findFirst() {
-        Iterator<T> iterator = source.iterator();
-        if (iterator.hasNext()) {
-            return iterator.next();
-        }
-        return null;
+        FirstSink<T> first = new FirstSink<>();
+        drive(first, true);
+        return first.value;
     }
 
     /**
@@ -260,24 +397,20 @@ public class ListStream<T> {
      * @return 限制后的ListStream
      */
     public ListStream<T> limit(int size) {
-        return of(() -> new Iterator<T>() {
-            private final Iterator<T> iterator = source.iterator();
+        return chain(true, true, n -> n < 0 ? size : Math.min(n, size), true, downstream -> new ChainedSink<T, T>(downstream) {
             private int doneSize = 0;
 
             @Override
-            public boolean hasNext() {
-                final boolean hasNext = iterator.hasNext();
-                return hasNext && doneSize < size;
+            public void accept(T t) {
+                if (doneSize < size) {
+                    doneSize++;
+                    downstream.accept(t);
+                }
             }
 
             @Override
-            public T next() {
-                if (!hasNext()) {
-                    throw new NoSuchElementException();
-                }
-                T next = iterator.next();
-                doneSize++;
-                return next;
+            public boolean cancellationRequested() {
+                return doneSize >= size || downstream.cancellationRequested();
             }
         });
     }
@@ -289,8 +422,7 @@ public class ListStream<T> {
      * @return 连接后的字符串
      */
     public String joining(CharSequence symbol) {
-        StringJoiner sb = new StringJoiner(symbol);
-        for (T t : source) {
+        return evaluate(() -> new StringJoiner(symbol), (sb, t) -> {
             if (t instanceof CharSequence) {
                 sb.add((CharSequence) t);
             } else {
@@ -298,8 +430,7 @@ public class ListStream<T> {
                     sb.add(t.toString());
                 }
             }
-        }
-        return sb.toString();
+        }, StringJoiner::merge).toString();
     }
 
     /**
@@ -321,8 +452,7 @@ public class ListStream<T> {
      */
     @SafeVarargs
     public final ListStream<T> ors(Predicate<T>... predicates) {
-        return of(createFilteredIterable(elem ->
-                Arrays.stream(predicates).anyMatch(predicate -> predicate.test(elem))));
+        return filtered(elem -> Arrays.stream(predicates).anyMatch(predicate -> predicate.test(elem)));
     }
 
     /**
@@ -332,7 +462,8 @@ public class ListStream<T> {
      * @return 符合条件的元素组成的ListStream
      */
     public ListStream<T> filter(Predicate<? super T> predicate) {
-        return filters(predicate);
+        Objects.requireNonNull(predicate);
+        return filtered(predicate);
     }
 
     /**
@@ -355,8 +486,7 @@ public class ListStream<T> {
     @SafeVarargs
     public final ListStream<T> filters(Predicate<? super T>... predicates) {
         Objects.requireNonNull(predicates);
-        return of(createFilteredIterable(elem ->
-                Arrays.stream(predicates).allMatch(predicate -> predicate.test(elem))));
+        return filtered(elem -> Arrays.stream(predicates).allMatch(predicate -> predicate.test(elem)));
     }
 
     /**
@@ -433,7 +563,7 @@ public class ListStream<T> {
      */
     @SafeVarargs
     public final ListStream<T> filterNotBlank(Function<T, ?>... functions) {
-        return of(createFilteredIterable(elem -> isNotBlankElement(elem, functions)));
+        return filtered(elem -> isNotBlankElement(elem, functions));
     }
 
     /**
@@ -444,7 +574,7 @@ public class ListStream<T> {
      */
     @SafeVarargs
     public final ListStream<T> filterBlank(Function<T, ?>... functions) {
-        return of(createFilteredIterable(elem -> isBlankElement(elem, functions)));
+        return filtered(elem -> isBlankElement(elem, functions));
     }
 
     /**
@@ -492,12 +622,8 @@ public class ListStream<T> {
         Objects.requireNonNull(valueMapper, "valueMapper cannot be null");
         Objects.requireNonNull(mergeFunction, "mergeFunction cannot be null");
 
-        if (isEmpty()) {
-            return new HashMap<>();
-        }
-
-        Map<K, V> result = new HashMap<>();
-        for (T element : source) {
+        int capacity = hashCapacity(expectedSize());
+        return evaluate(() -> capacity < 0 ? new HashMap<>() : new HashMap<>(capacity), (result, element) -> {
             if (element != null) {
                 K key = keyMapper.apply(element);
                 if (key != null) {
@@ -505,8 +631,11 @@ public class ListStream<T> {
                     result.merge(key, value, mergeFunction);
                 }
             }
-        }
-        return result;
+        }, (left, right) -> {
+            // 右侧分片在原始顺序中位于左侧之后，合并时以右侧作为后出现的值
+            right.forEach((key, value) -> left.merge(key, value, mergeFunction));
+            return left;
+        });
     }
 
     /**
@@ -537,18 +666,19 @@ public class ListStream<T> {
         Objects.requireNonNull(keyMapper, "keyMapper cannot be null");
         Objects.requireNonNull(valueMapper, "valueMapper cannot be null");
 
-        Map<K, List<V>> result = new HashMap<>();
-        if (isEmpty()) {
-            return new MapListStream<>(result);
-        }
-
-        for (T element : source) {
+        Map<K, List<V>> result = evaluate(HashMap::new, (groups, element) -> {
             if (element != null) {
                 K key = keyMapper.apply(element);
                 V value = valueMapper.apply(element);
-                result.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
             }
-        }
+        }, (left, right) -> {
+            right.forEach((key, values) -> left.merge(key, values, (l, r) -> {
+                l.addAll(r);
+                return l;
+            }));
+            return left;
+        });
         return new MapListStream<>(result);
     }
 
@@ -566,24 +696,121 @@ public class ListStream<T> {
             Function<T, S> keyMapper,
             Collector<T, A, V> collector
     ) {
-        // 获取collector的组件
-        Supplier<A> supplier = collector.supplier();
-        BiConsumer<A, T> accumulator = collector.accumulator();
-        Function<A, V> finisher = collector.finisher();
-
         // 同时进行分组和累加，避免两次遍历
-        Map<S, A> accumulatorMap = new HashMap<>();
-        for (T element : source) {
-            S key = keyMapper.apply(element);
-            // 获取或创建累加器
-            A acc = accumulatorMap.computeIfAbsent(key, k -> supplier.get());
-            // 直接累加元素
-            accumulator.accept(acc, element);
-        }
+        return aggregate(keyMapper, collector.supplier(), collector.accumulator(), collector.combiner(),
+                collector.finisher());
+    }
+
+    /**
+     * 按key计数，每个key只保留一个计数器，不会为每个分组创建List
+     *
+     * @param keyMapper 用于生成key的函数
+     * @param <K>       分组后的key类型
+     * @return 每个key对应的元素个数
+     */
+    public <K> MapStream<K, Long> groupCount(Function<T, K> keyMapper) {
+        return aggregate(keyMapper, () -> new long[1], (count, element) -> count[0]++, (left, right) -> {
+            left[0] += right[0];
+            return left;
+        }, count -> count[0]);
+    }
+
+    /**
+     * 按key对long值求和，每个key只保留一个累加器，不会为每个分组创建List
+     *
+     * @param keyMapper   用于生成key的函数
+     * @param valueMapper 用于提取long值的函数
+     * @param <K>         分组后的key类型
+     * @return 每个key对应的和
+     */
+    public <K> MapStream<K, Long> groupSumLong(Function<T, K> keyMapper, ToLongFunction<? super T> valueMapper) {
+        Objects.requireNonNull(valueMapper, "valueMapper cannot be null");
+        return aggregate(keyMapper, () -> new long[1],
+                (sum, element) -> sum[0] += valueMapper.applyAsLong(element), (left, right) -> {
+                    left[0] += right[0];
+                    return left;
+                }, sum -> sum[0]);
+    }
+
+    /**
+     * 按key归约，每个key只保留当前的归约结果
+     *
+     * @param keyMapper   用于生成key的函数
+     * @param valueMapper 用于生成value的函数
+     * @param reducer     合并同一key下两个value的函数，必须满足结合律
+     * @param <K>         分组后的key类型
+     * @param <V>         value的类型
+     * @return 每个key对应的归约结果
+     */
+    public <K, V> MapStream<K, V> groupReduce(
+            Function<T, K> keyMapper,
+            Function<T, V> valueMapper,
+            BinaryOperator<V> reducer) {
+        Objects.requireNonNull(keyMapper, "keyMapper cannot be null");
+        Objects.requireNonNull(valueMapper, "valueMapper cannot be null");
+        Objects.requireNonNull(reducer, "reducer cannot be null");
+
+        return new MapStream<>(evaluate(HashMap::new,
+                (groups, element) -> groups.merge(keyMapper.apply(element), valueMapper.apply(element), reducer),
+                (left, right) -> {
+                    right.forEach((key, value) -> left.merge(key, value, reducer));
+                    return left;
+                }));
+    }
+
+    /**
+     * 按key统计long值的个数、总和、最小值、最大值和平均值
+     *
+     * @param keyMapper   用于生成key的函数
+     * @param valueMapper 用于提取long值的函数
+     * @param <K>         分组后的key类型
+     * @return 每个key对应的统计结果
+     */
+    public <K> MapStream<K, LongSummaryStatistics> groupStats(
+            Function<T, K> keyMapper,
+            ToLongFunction<? super T> valueMapper) {
+        Objects.requireNonNull(valueMapper, "valueMapper cannot be null");
+        return aggregate(keyMapper, LongSummaryStatistics::new,
+                (stats, element) -> stats.accept(valueMapper.applyAsLong(element)), (left, right) -> {
+                    left.combine(right);
+                    return left;
+                }, Function.identity());
+    }
+
+    /**
+     * 分组聚合，每个key只保留一个可变的累加器。
+     * 并行模式下每个分片先在各自的Map中累加，最后按分片顺序合并，累加过程中没有线程间竞争。
+     *
+     * @param keyMapper   用于生成key的函数
+     * @param supplier    创建累加器
+     * @param accumulator 把元素累加到累加器
+     * @param combiner    合并同一key的两个累加器
+     * @param finisher    把累加器转换为最终结果
+     * @param <K>         分组后的key类型
+     * @param <A>         累加器类型
+     * @param <V>         最终结果类型
+     * @return 分组并累加后的MapStream
+     */
+    private <K, A, V> MapStream<K, V> aggregate(
+            Function<T, K> keyMapper,
+            Supplier<A> supplier,
+            BiConsumer<A, ? super T> accumulator,
+            BinaryOperator<A> combiner,
+            Function<A, V> finisher) {
+        Objects.requireNonNull(keyMapper, "keyMapper cannot be null");
+
+        Map<K, A> accumulatorMap = evaluate(HashMap::new, (groups, element) -> {
+            K key = keyMapper.apply(element);
+            // 获取或创建累加器，直接累加元素
+            accumulator.accept(groups.computeIfAbsent(key, k -> supplier.get()), element);
+        }, (left, right) -> {
+            right.forEach((key, acc) -> left.merge(key, acc, combiner));
+            return left;
+        });
 
         // 对每个分组应用finisher得到最终结果
-        Map<S, V> finalResult = new HashMap<>(accumulatorMap.size());
-        for (Map.Entry<S, A> entry : accumulatorMap.entrySet()) {
+        Map<K, V> finalResult = new HashMap<>(accumulatorMap.size());
+        for (Map.Entry<K, A> entry : accumulatorMap.entrySet()) {
             finalResult.put(entry.getKey(), finisher.apply(entry.getValue()));
         }
 
@@ -616,12 +843,9 @@ public class ListStream<T> {
         Objects.requireNonNull(keyMapper, "keyMapper cannot be null");
         Objects.requireNonNull(valueMapper, "valueMapper cannot be null");
 
-        if (isEmpty()) {
-            return new LinkedHashMap<>();
-        }
-
-        Map<K, V> result = new LinkedHashMap<>();
-        for (T element : source) {
+        int capacity = hashCapacity(expectedSize());
+        Map<K, V> result = capacity < 0 ? new LinkedHashMap<>() : new LinkedHashMap<>(capacity);
+        drive(element -> {
             if (element != null) {
                 K key = keyMapper.apply(element);
                 if (key != null) {
@@ -629,7 +853,7 @@ public class ListStream<T> {
                     result.put(key, value);
                 }
             }
-        }
+        }, false);
         return result;
     }
 
@@ -642,17 +866,219 @@ public class ListStream<T> {
      */
     public <R> ListStream<R> map(Function<? super T, ? extends R> mapper) {
         Objects.requireNonNull(mapper);
-        return of(() -> new Iterator<>() {
-            final Iterator<T> iterator = source.iterator();
+        return chain(false, false, SAME_SIZE, true, downstream -> new ChainedSink<T, R>(downstream) {
+            @Override
+            public void accept(T t) {
+                downstream.accept(mapper.apply(t));
+            }
+        });
+    }
 
-            public boolean hasNext() {
-                return iterator.hasNext();
+    /**
+     * 异步映射，结果按数据源顺序排列。
+     *
+     * @param mapper         映射函数，通常是I/O密集型的远程调用，必须是线程安全的
+     * @param maxConcurrency 同时执行的最大调用数
+     * @param <R>            转换后的元素类型
+     * @return 每个元素的映射结果，失败的元素为 {@link Failure}
+     * @see #mapAsync(Function, int, boolean, Executor)
+     */
+    public <R> ListStream<Try<R>> mapAsync(Function<? super T, ? extends R> mapper, int maxConcurrency) {
+        return mapAsync(mapper, maxConcurrency, true, null);
+    }
+
+    /**
+     * 异步映射
+     *
+     * @param mapper         映射函数，必须是线程安全的
+     * @param maxConcurrency 同时执行的最大调用数
+     * @param ordered        为true时结果按数据源顺序排列，为false时按完成顺序排列
+     * @param <R>            转换后的元素类型
+     * @return 每个元素的映射结果，失败的元素为 {@link Failure}
+     * @see #mapAsync(Function, int, boolean, Executor)
+     */
+    public <R> ListStream<Try<R>> mapAsync(Function<? super T, ? extends R> mapper, int maxConcurrency,
+                                           boolean ordered) {
+        return mapAsync(mapper, maxConcurrency, ordered, null);
+    }
+
+    /**
+     * 异步映射，立即执行上游并等待所有调用结束。
+     * <p>
+     * 每个元素的映射在executor中执行，同时执行的调用不超过maxConcurrency个，达到上限时读取上游的线程等待。
+     * executor为null时，JDK 21 上每个调用使用一个虚拟线程，低版本 JDK 上使用maxConcurrency个线程的临时线程池，
+     * 调用结束后关闭。单个元素映射失败不会影响其他元素，失败以 {@link Failure} 返回。
+     *
+     * @param mapper         映射函数，必须是线程安全的
+     * @param maxConcurrency 同时执行的最大调用数
+     * @param ordered        为true时结果按数据源顺序排列，为false时按完成顺序排列
+     * @param executor       执行映射的线程池，为null时使用虚拟线程
+     * @param <R>            转换后的元素类型
+     * @return 每个元素的映射结果，失败的元素为 {@link Failure}
+     */
+    public <R> ListStream<Try<R>> mapAsync(Function<? super T, ? extends R> mapper, int maxConcurrency,
+                                           boolean ordered, Executor executor) {
+        Objects.requireNonNull(mapper, "mapper cannot be null");
+        return with(async(t -> new Success<>(mapper.apply(t)), maxConcurrency, ordered, executor));
+    }
+
+    /**
+     * 异步映射并展平，结果按数据源顺序排列。
+     *
+     * @param mapper         把元素转换为Iterable的函数，必须是线程安全的
+     * @param maxConcurrency 同时执行的最大调用数
+     * @param <R>            转换后的元素类型
+     * @return 展平后的结果，映射失败的元素对应一个 {@link Failure}
+     * @see #flatMapAsync(Function, int, boolean, Executor)
+     */
+    public <R> ListStream<Try<R>> flatMapAsync(Function<? super T, ? extends Iterable<? extends R>> mapper,
+                                               int maxConcurrency) {
+        return flatMapAsync(mapper, maxConcurrency, true, null);
+    }
+
+    /**
+     * 异步映射并展平，执行方式与 {@link #mapAsync(Function, int, boolean, Executor)} 相同。
+     * 每个元素映射得到的Iterable在工作线程中遍历，成功的元素各自对应一个 {@link Success}，
+     * 映射或遍历失败时该元素只对应一个 {@link Failure}。
+     *
+     * @param mapper         把元素转换为Iterable的函数，必须是线程安全的
+     * @param maxConcurrency 同时执行的最大调用数
+     * @param ordered        为true时结果按数据源顺序排列，为false时按完成顺序排列
+     * @param executor       执行映射的线程池，为null时使用虚拟线程
+     * @param <R>            转换后的元素类型
+     * @return 展平后的结果
+     */
+    public <R> ListStream<Try<R>> flatMapAsync(Function<? super T, ? extends Iterable<? extends R>> mapper,
+                                               int maxConcurrency, boolean ordered, Executor executor) {
+        Objects.requireNonNull(mapper, "mapper cannot be null");
+        List<Try<List<R>>> batches = async(t -> {
+            List<R> values = new ArrayList<>();
+            Iterable<? extends R> iterable = mapper.apply(t);
+            if (iterable != null) {
+                iterable.forEach(values::add);
             }
+            return new Success<>(values);
+        }, maxConcurrency, ordered, executor);
 
-            public R next() {
-                return mapper.apply(iterator.next());
+        List<Try<R>> result = new ArrayList<>(batches.size());
+        for (Try<List<R>> batch : batches) {
+            if (batch.isFailure()) {
+                result.add(new Failure<>(batch.getCause()));
+            } else {
+                for (R value : batch.get()) {
+                    result.add(new Success<>(value));
+                }
             }
-        });
+        }
+        return with(result);
+    }
+
+    /**
+     * 在线程池中并发执行任务，通过信号量限制同时执行的任务数
+     *
+     * @param task           对单个元素执行的任务
+     * @param maxConcurrency 同时执行的最大任务数
+     * @param ordered        结果是否按数据源顺序排列
+     * @param executor       线程池，为null时创建虚拟线程池并在结束后关闭
+     * @param <R>            结果类型
+     * @return 每个元素的结果
+     */
+    private <R> List<Try<R>> async(Function<? super T, Try<R>> task, int maxConcurrency, boolean ordered,
+                                   Executor executor) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        ExecutorService owned = executor == null
+                ? ExecutorServiceUtil.newVirtualThreadExecutorService(maxConcurrency) : null;
+        Executor runner = owned != null ? owned : executor;
+
+        Semaphore permits = new Semaphore(maxConcurrency);
+        List<CompletableFuture<Try<R>>> submitted = new ArrayList<>();
+        Queue<CompletableFuture<Try<R>>> completed = new ConcurrentLinkedQueue<>();
+        try {
+            drive(t -> {
+                CompletableFuture<Try<R>> future = new CompletableFuture<>();
+                submitted.add(future);
+                permits.acquireUninterruptibly();
+                Runnable call = () -> {
+                    try {
+                        future.complete(task.apply(t));
+                    } catch (Throwable e) {
+                        if (TryModule.isFatal(e)) {
+                            future.completeExceptionally(e);
+                        } else {
+                            future.complete(new Failure<>(e));
+                        }
+                    } finally {
+                        completed.add(future);
+                        permits.release();
+                    }
+                };
+                try {
+                    runner.execute(call);
+                } catch (RuntimeException e) {
+                    // 线程池拒绝时该元素记为失败
+                    future.complete(new Failure<>(e));
+                    completed.add(future);
+                    permits.release();
+                }
+            }, false);
+            // 等待所有已提交的任务结束
+            permits.acquireUninterruptibly(maxConcurrency);
+            permits.release(maxConcurrency);
+        } finally {
+            if (owned != null) {
+                owned.shutdown();
+            }
+        }
+
+        List<Try<R>> result = new ArrayList<>(submitted.size());
+        for (CompletableFuture<Try<R>> future : ordered ? submitted : completed) {
+            result.add(future.join());
+        }
+        return result;
+    }
+
+    /**
+     * 把元素转换为int，返回由int[]承载的IntListStream，后续的求和、统计、排序等操作不再装箱。
+     *
+     * @param mapper 用于提取int值的函数
+     * @return IntListStream
+     */
+    public IntListStream mapToInt(ToIntFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        int capacity = expectedSize();
+        return evaluate(() -> capacity < 0 ? new IntListStream.Buffer() : new IntListStream.Buffer(capacity),
+                (buffer, t) -> buffer.add(mapper.applyAsInt(t)),
+                IntListStream.Buffer::merge).toStream();
+    }
+
+    /**
+     * 把元素转换为long，返回由long[]承载的LongListStream，后续的求和、统计、排序等操作不再装箱。
+     *
+     * @param mapper 用于提取long值的函数
+     * @return LongListStream
+     */
+    public LongListStream mapToLong(ToLongFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        int capacity = expectedSize();
+        return evaluate(() -> capacity < 0 ? new LongListStream.Buffer() : new LongListStream.Buffer(capacity),
+                (buffer, t) -> buffer.add(mapper.applyAsLong(t)),
+                LongListStream.Buffer::merge).toStream();
+    }
+
+    /**
+     * 把元素转换为double，返回由double[]承载的DoubleListStream，后续的求和、统计、排序等操作不再装箱。
+     *
+     * @param mapper 用于提取double值的函数
+     * @return DoubleListStream
+     */
+    public DoubleListStream mapToDouble(ToDoubleFunction<? super T> mapper) {
+        Objects.requireNonNull(mapper);
+        int capacity = expectedSize();
+        return evaluate(() -> capacity < 0 ? new DoubleListStream.Buffer() : new DoubleListStream.Buffer(capacity),
+                (buffer, t) -> buffer.add(mapper.applyAsDouble(t)),
+                DoubleListStream.Buffer::merge).toStream();
     }
 
     /**
@@ -692,12 +1118,13 @@ public class ListStream<T> {
      * @return 元素之和（BigDecimal类型）
      */
     public BigDecimal sumBigDecimal(Function<T, Number> mapper) {
-        BigDecimal sum = new BigDecimal("0.0");
-        for (T t : source) {
+        return evaluate(() -> new BigDecimal[]{new BigDecimal("0.0")}, (sum, t) -> {
             Number r = mapper.apply(t);
-            sum = sum.add(new BigDecimal(String.valueOf(r)));
-        }
-        return sum;
+            sum[0] = sum[0].add(new BigDecimal(String.valueOf(r)));
+        }, (left, right) -> {
+            left[0] = left[0].add(right[0]);
+            return left;
+        })[0];
     }
 
     /**
@@ -733,15 +1160,12 @@ public class ListStream<T> {
      * @return 元素之和（BigDecimal类型）
      */
     public BigDecimal sumBigDecimal() {
-        BigDecimal sum = new BigDecimal("0.0");
-        for (T t : source) {
-            if (t instanceof Number) {
-                sum = sum.add(new BigDecimal(String.valueOf(t)));
-            } else {
-                throw new IllegalArgumentException("不是数字,不能计算");
+        return sumBigDecimal(t -> {
+            if (t instanceof Number number) {
+                return number;
             }
-        }
-        return sum;
+            throw new IllegalArgumentException("不是数字,不能计算");
+        });
     }
 
     /**
@@ -756,7 +1180,7 @@ public class ListStream<T> {
         List<T> sortedList = toList();
         // 执行排序
         sortedList.sort(comparator);
-        return of(sortedList);
+        return with(sortedList);
     }
 
     /**
@@ -803,7 +1227,7 @@ public class ListStream<T> {
         // 执行排序
         sortedList.sort(comparator);
 
-        return of(sortedList);
+        return with(sortedList);
     }
 
     /**
@@ -834,7 +1258,7 @@ public class ListStream<T> {
         // 执行排序
         sortedList.sort(comparator);
 
-        return of(sortedList);
+        return with(sortedList);
     }
 
     /**
@@ -859,6 +1283,72 @@ public class ListStream<T> {
         return sort(keyExtractor, Sort.Desc, Sort.NullLast);
     }
 
+    /**
+     * 获取按比较器排序后的前n个元素。
+     * <p>
+     * 遍历时只保留一个大小为n的堆，内存占用为O(n)，不会复制整个数据源；比较结果相等时保留先出现的元素。
+     *
+     * @param n          要获取的元素个数
+     * @param comparator 比较器
+     * @return 排序后的前n个元素组成的ListStream
+     */
+    public ListStream<T> topK(int n, Comparator<? super T> comparator) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must be non-negative");
+        }
+        Objects.requireNonNull(comparator, "comparator cannot be null");
+        if (n == 0) {
+            return with(new ArrayList<>());
+        }
+
+        Comparator<Ranked<T>> order = (a, b) -> {
+            int c = comparator.compare(a.value(), b.value());
+            return c != 0 ? c : Long.compare(a.seq(), b.seq());
+        };
+        // 堆顶是当前保留的元素中排在最后的一个
+        PriorityQueue<Ranked<T>> heap = new PriorityQueue<>(Math.min(n, 1 << 16), order.reversed());
+        long[] seq = new long[1];
+        drive(t -> {
+            long index = seq[0]++;
+            if (heap.size() < n) {
+                heap.add(new Ranked<>(t, index));
+            } else if (comparator.compare(t, heap.peek().value()) < 0) {
+                heap.poll();
+                heap.add(new Ranked<>(t, index));
+            }
+        }, false);
+
+        List<Ranked<T>> ranked = new ArrayList<>(heap);
+        ranked.sort(order);
+        List<T> result = new ArrayList<>(ranked.size());
+        for (Ranked<T> r : ranked) {
+            result.add(r.value());
+        }
+        return with(result);
+    }
+
+    /**
+     * 外部归并排序，排序后的流交给action处理。
+     * <p>
+     * 元素个数不超过 maxInMemory 时直接在内存中排序；超过时每 maxInMemory 个元素排序后通过 serializer
+     * 写入一个临时文件，最后对所有临时文件做惰性的 k 路归并，内存中最多保留 maxInMemory 个元素。
+     * 排序后的流只在action执行期间有效，action返回后临时文件即被删除。
+     *
+     * @param comparator  比较器
+     * @param maxInMemory 内存中最多保留的元素个数
+     * @param serializer  写入临时文件时使用的序列化器
+     * @param action      对排序后的流的操作
+     * @see ExternalSorter
+     */
+    public void sortExternal(Comparator<? super T> comparator, int maxInMemory,
+                             ExternalSorter.Serializer<T> serializer, Consumer<ListStream<T>> action) {
+        Objects.requireNonNull(action, "action cannot be null");
+        try (ExternalSorter<T> sorter = new ExternalSorter<>(comparator, maxInMemory, serializer)) {
+            drive(sorter::add, false);
+            action.accept(with(sorter.sorted()));
+        }
+    }
+
     /**
      * 将嵌套的集合展平成单层集合。
      *
@@ -869,11 +1359,24 @@ public class ListStream<T> {
     public <R> ListStream<R> flatMap(Function<? super T, ? extends Iterable<? extends R>> mapper) {
         Objects.requireNonNull(mapper, "mapper cannot be null");
 
-        if (isEmpty()) {
-            return of(new ArrayList<>());
-        }
-
-        return of(new FlatteningIterable<>(source, mapper));
+        return chain(false, false, UNKNOWN_SIZE, false, downstream -> new ChainedSink<T, R>(downstream) {
+            @Override
+            public void accept(T t) {
+                if (t == null) {
+                    return;
+                }
+                Iterable<? extends R> iterable = mapper.apply(t);
+                if (iterable == null) {
+                    return;
+                }
+                for (R r : iterable) {
+                    if (downstream.cancellationRequested()) {
+                        return;
+                    }
+                    downstream.accept(r);
+                }
+            }
+        });
     }
 
     /**
@@ -883,17 +1386,11 @@ public class ListStream<T> {
      * @return 新的ListStream
      */
     public final ListStream<T> peek(Consumer<T> consumer) {
-        return of(() -> new Iterator<>() {
-            final Iterator<T> iterator = source.iterator();
-
-            public boolean hasNext() {
-                return iterator.hasNext();
-            }
-
-            public T next() {
-                final T item = iterator.next();
-                consumer.accept(item);
-                return item;
+        return chain(false, false, SAME_SIZE, true, downstream -> new ChainedSink<T, T>(downstream) {
+            @Override
+            public void accept(T t) {
+                consumer.accept(t);
+                downstream.accept(t);
             }
         });
     }
@@ -905,7 +1402,7 @@ public class ListStream<T> {
      * @return 当前ListStream实例
      */
     public ListStream<T> peekStream(Consumer<ListStream<T>> streamOperation) {
-        streamOperation.accept(of(source));
+        streamOperation.accept(new ListStream<>(source, stages, stateful, shortCircuit, false, true));
         return this;
     }
 
@@ -919,9 +1416,7 @@ public class ListStream<T> {
      */
     public <R> R reduce(Supplier<R> func, BiConsumer<R, T> consumer) {
         R r = func.get();
-        for (T t : source) {
-            consumer.accept(r, t);
-        }
+        drive(t -> consumer.accept(r, t), false);
         return r;
     }
 
@@ -938,44 +1433,117 @@ public class ListStream<T> {
      */
     public <S, E, R> R reduce(Supplier<R> supplier, Function<T, E> func, BiConsumer<R, E> consumer) {
         R r = supplier.get();
-        for (T t : source) {
-            E e = func.apply(t);
-            consumer.accept(r, e);
-        }
+        drive(t -> consumer.accept(r, func.apply(t)), false);
         return r;
     }
 
     /**
      * 对流中的每个元素执行给定的操作。
+     * <p>
+     * 并行且保持顺序时，上游操作在各分片上并行计算，action 仍按原始顺序在当前线程执行；
+     * 并行且不保持顺序时，action 直接在各工作线程上执行，必须是线程安全的。
      *
      * @param action 操作
      */
     public void forEach(Consumer<? super T> action) {
         Objects.requireNonNull(action);
-        source.forEach(action);
+        if (!isSplittable()) {
+            drive(action::accept, false);
+        } else if (ordered) {
+            toList().forEach(action);
+        } else {
+            evaluate(() -> null, (ignored, t) -> action.accept(t), (left, right) -> null);
+        }
     }
 
     /**
      * 将流中的元素分割成多个指定大小的部分，并对每部分执行给定的操作。
+     * <p>
+     * 每凑满一批立即交给 consumer，不会先把全部批次缓存下来，任意时刻最多只持有一批元素；
+     * 每批都是新建的List，consumer可以直接持有或传递给其他线程。
      *
      * @param size     每个部分的大小
      * @param consumer 对每部分的操作
      */
     public void split(int size, Consumer<List<T>> consumer) {
-        List<List<T>> parts = new ArrayList<>();
-        int i = 0;
-        List<T> temp = null;
-        for (T t : source) {
-            if (temp == null || i % size == 0) {
-                temp = new ArrayList<>(size);
-                parts.add(temp);
-            }
-            temp.add(t);
-            ++i;
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
+        }
+        Objects.requireNonNull(consumer);
+        ChunkSink<T> chunks = new ChunkSink<>(size, consumer, () -> false);
+        drive(chunks, false);
+        chunks.flush();
+    }
+
+    /**
+     * 将流中的元素分割成多个指定大小的部分，并在给定的线程池中处理，处理中的批次最多为可用处理器个数。
+     *
+     * @param size     每个部分的大小
+     * @param executor 执行consumer的线程池
+     * @param consumer 对每部分的操作，必须是线程安全的
+     * @see #splitParallel(int, int, Executor, Consumer)
+     */
+    public void splitParallel(int size, Executor executor, Consumer<List<T>> consumer) {
+        splitParallel(size, Runtime.getRuntime().availableProcessors(), executor, consumer);
+    }
+
+    /**
+     * 将流中的元素分割成多个指定大小的部分，并在给定的线程池中处理。
+     * <p>
+     * 读取与处理交错进行：已提交但尚未处理完的批次达到 maxInFlight 时，读取线程会等待，
+     * 因此内存中最多持有 maxInFlight + 1 批元素。某一批处理失败后不再读取新的批次，
+     * 等已提交的批次全部结束后抛出 {@link CompletionException}，其余失败作为 suppressed 异常附加。
+     *
+     * @param size        每个部分的大小
+     * @param maxInFlight 同时处理中的最大批次数
+     * @param executor    执行consumer的线程池
+     * @param consumer    对每部分的操作，必须是线程安全的
+     */
+    public void splitParallel(int size, int maxInFlight, Executor executor, Consumer<List<T>> consumer) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("size must be positive");
         }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive");
+        }
+        Objects.requireNonNull(executor);
+        Objects.requireNonNull(consumer);
+
+        Semaphore permits = new Semaphore(maxInFlight);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Consumer<List<T>> handoff = batch -> {
+            permits.acquireUninterruptibly();
+            try {
+                executor.execute(() -> {
+                    try {
+                        consumer.accept(batch);
+                    } catch (Throwable e) {
+                        if (!failure.compareAndSet(null, e)) {
+                            failure.get().addSuppressed(e);
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        };
 
-        for (List<T> part : parts) {
-            consumer.accept(part);
+        ChunkSink<T> chunks = new ChunkSink<>(size, handoff, () -> failure.get() != null);
+        try {
+            drive(chunks, true);
+            if (failure.get() == null) {
+                chunks.flush();
+            }
+        } finally {
+            // 等待所有已提交的批次处理完毕
+            permits.acquireUninterruptibly(maxInFlight);
+            permits.release(maxInFlight);
+        }
+        if (failure.get() != null) {
+            throw new CompletionException(failure.get());
         }
     }
 
@@ -998,13 +1566,16 @@ public class ListStream<T> {
             return true;
         }
 
-        // 如果是Collection类型，直接使用isEmpty()方法
-        if (source instanceof Collection) {
-            return ((Collection<?>) source).isEmpty();
+        // 元素个数确切时不需要遍历
+        long exactSize = exactSize();
+        if (exactSize >= 0) {
+            return exactSize == 0;
         }
 
-        // 如果是普通Iterable，检查是否有第一个元素
-        return !source.iterator().hasNext();
+        // 如果是普通Iterable或存在中间操作，检查是否有第一个元素
+        FirstSink<T> first = new FirstSink<>();
+        drive(first, true);
+        return !first.found;
     }
 
     /**
@@ -1014,14 +1585,20 @@ public class ListStream<T> {
      * @return 去重后的ListStream
      */
     public ListStream<T> distinct(Function<T, ?> keyExtractor) {
-        Set<Object> seen = ConcurrentHashMap.newKeySet();
-        return of(createFilteredIterable(elem -> {
-            if (seen.contains(keyExtractor.apply(elem))) {
-                return false;
+        if (isSplittable()) {
+            return distinctParallel(keyExtractor);
+        }
+        return chain(true, false, SAME_SIZE, false, downstream -> new ChainedSink<T, T>(downstream) {
+            // 每次遍历使用独立的去重集合，保证 isEmpty、count 等多次遍历的结果一致
+            private final Set<Object> seen = new HashSet<>();
+
+            @Override
+            public void accept(T t) {
+                if (seen.add(keyExtractor.apply(t))) {
+                    downstream.accept(t);
+                }
             }
-            seen.add(keyExtractor.apply(elem));
-            return true;
-        }));
+        });
     }
 
     /**
@@ -1030,14 +1607,70 @@ public class ListStream<T> {
      * @return 去重后的ListStream
      */
     public ListStream<T> distinct() {
-        Set<Object> seen = ConcurrentHashMap.newKeySet();
-        return of(createFilteredIterable(elem -> {
-            if (seen.contains(elem)) {
-                return false;
-            }
-            seen.add(elem);
-            return true;
-        }));
+        return distinct(Function.identity());
+    }
+
+    /**
+     * 缓存当前流的计算结果。第一次执行终端操作时计算一次上游并保存到数组中，之后的终端操作直接遍历该数组，
+     * 上游的map、peek等函数不会被重复执行。
+     *
+     * @return 带缓存的ListStream
+     */
+    public ListStream<T> cache() {
+        return cache(false);
+    }
+
+    /**
+     * 缓存当前流的计算结果。
+     * <p>
+     * soft为true时缓存通过 {@link SoftReference} 持有，内存紧张时可被回收，回收后的下一次终端操作会重新计算上游，
+     * 适合缓存较大但可以重新计算的流水线。
+     *
+     * @param soft 是否使用软引用持有缓存
+     * @return 带缓存的ListStream
+     */
+    public ListStream<T> cache(boolean soft) {
+        return with(new CachedList<>(this, soft));
+    }
+
+    /**
+     * 立即计算当前流并缓存结果，之后的终端操作直接遍历缓存
+     *
+     * @return 带缓存的ListStream
+     */
+    public ListStream<T> materialize() {
+        CachedList<T> cached = new CachedList<>(this, false);
+        cached.values();
+        return with(cached);
+    }
+
+    /**
+     * 并行去重，立即计算出结果。
+     * 保持顺序时各分片先各自去重，再按分片顺序合并并保留首次出现的元素；
+     * 不保持顺序时所有分片共享同一个并发集合。
+     *
+     * @param keyExtractor 用于提取去重依据的函数
+     * @return 去重后的ListStream
+     */
+    private ListStream<T> distinctParallel(Function<? super T, ?> keyExtractor) {
+        if (!ordered) {
+            Set<Object> seen = ConcurrentHashMap.newKeySet();
+            return with(evaluate(ArrayList::new, (result, element) -> {
+                if (seen.add(keyExtractor.apply(element))) {
+                    result.add(element);
+                }
+            }, (left, right) -> {
+                left.addAll(right);
+                return left;
+            }));
+        }
+        Map<Object, T> firstSeen = evaluate(LinkedHashMap::new,
+                (result, element) -> result.putIfAbsent(keyExtractor.apply(element), element),
+                (left, right) -> {
+                    right.forEach(left::putIfAbsent);
+                    return left;
+                });
+        return with(new ArrayList<>(firstSeen.values()));
     }
 
     /**
@@ -1055,19 +1688,19 @@ public class ListStream<T> {
      * @return 流中元素的数量
      */
     public long count() {
-        if (isEmpty()) {
+        if (source == null) {
             return 0;
         }
-        // 如果是Collection类型，直接返回size
-        if (source instanceof Collection) {
-            return ((Collection<?>) source).size();
+        // 元素个数确切时（数据源是Collection，且中间只有map、peek、skip、limit、sub）直接返回
+        long exactSize = exactSize();
+        if (exactSize >= 0) {
+            return exactSize;
         }
         // 否则遍历计数
-        long count = 0;
-        for (T ignored : source) {
-            count++;
-        }
-        return count;
+        return evaluate(() -> new long[1], (count, ignored) -> count[0]++, (left, right) -> {
+            left[0] += right[0];
+            return left;
+        })[0];
     }
 
     /**
@@ -1075,14 +1708,17 @@ public class ListStream<T> {
      *
      * @return 包含所有元素的List
      */
+    @SuppressWarnings("unchecked")
     public List<T> toList() {
-        // 如果是Collection类型，直接返回size
-        if (source instanceof List<T>) {
+        // 如果是List类型，直接返回；缓存是只读的，需要复制
+        if (stages.length == 0 && source instanceof List && !(source instanceof CachedList)) {
             return (List<T>) source;
         }
-        List<T> result = new ArrayList<>();
-        source.forEach(result::add);
-        return result;
+        int capacity = expectedSize();
+        return evaluate(() -> capacity < 0 ? new ArrayList<>() : new ArrayList<>(capacity), List::add, (left, right) -> {
+            left.addAll(right);
+            return left;
+        });
     }
 
     /**
@@ -1090,14 +1726,17 @@ public class ListStream<T> {
      *
      * @return 包含所有元素的Set
      */
+    @SuppressWarnings("unchecked")
     public Set<T> toSet() {
-        // 如果是Collection类型，直接返回size
-        if (source instanceof Set<T>) {
+        // 如果是Set类型，直接返回
+        if (stages.length == 0 && source instanceof Set) {
             return (Set<T>) source;
         }
-        Set<T> result = new HashSet<>();
-        source.forEach(result::add);
-        return result;
+        int capacity = hashCapacity(expectedSize());
+        return evaluate(() -> capacity < 0 ? new HashSet<>() : new HashSet<>(capacity), Set::add, (left, right) -> {
+            left.addAll(right);
+            return left;
+        });
     }
 
     /**
@@ -1161,51 +1800,452 @@ public class ListStream<T> {
     }
 
     /**
-     * 创建一个根据给定过滤条件的可迭代对象
+     * 追加一个过滤阶段
      *
-     * @param filterCondition 过滤条件
-     * @return 过滤后的元素可迭代对象
+     * @param condition 过滤条件
+     * @return 新的ListStream
      */
-    private Iterable<T> createFilteredIterable(Predicate<T> filterCondition) {
-        return () -> new Iterator<>() {
-            final Iterator<T> iterator = source.iterator();
-            T nextElement;
-            boolean hasNextComputed = false;
-            boolean hasNextResult = false;
-
+    private ListStream<T> filtered(Predicate<? super T> condition) {
+        return chain(false, false, SAME_SIZE, false, downstream -> new ChainedSink<T, T>(downstream) {
             @Override
-            public boolean hasNext() {
-                if (!hasNextComputed) {
-                    computeNext(filterCondition);
+            public void accept(T t) {
+                if (condition.test(t)) {
+                    downstream.accept(t);
                 }
-                return hasNextResult;
             }
+        });
+    }
 
-            @Override
-            public T next() {
-                if (!hasNextComputed) {
-                    computeNext(filterCondition);
-                }
-                if (!hasNextResult) {
-                    throw new NoSuchElementException();
-                }
-                hasNextComputed = false;
-                return nextElement;
+    /**
+     * 在当前流水线末尾追加一个中间操作
+     *
+     * @param isStateful     该操作是否依赖元素位置或已出现的元素
+     * @param isShortCircuit 该操作是否可能提前终止遍历
+     * @param sizing         由上游元素个数（未知时为-1）计算该操作后的元素个数或其上界
+     * @param keepsExact     上游元素个数确切时，该操作后的元素个数是否仍然确切
+     * @param wrapper        把下游 Sink 包装为接收当前元素类型的 Sink
+     * @param <R>            操作后的元素类型
+     * @return 新的ListStream
+     */
+    @SuppressWarnings("unchecked")
+    private <R> ListStream<R> chain(boolean isStateful, boolean isShortCircuit, LongUnaryOperator sizing,
+                                    boolean keepsExact, Function<Sink<? super R>, Sink<T>> wrapper) {
+        Stage[] next = Arrays.copyOf(stages, stages.length + 1);
+        next[stages.length] = new Stage(
+                downstream -> (Sink<Object>) (Sink<?>) wrapper.apply((Sink<? super R>) (Sink<?>) downstream),
+                sizing, keepsExact);
+        return new ListStream<>(source, next, stateful || isStateful, shortCircuit || isShortCircuit,
+                parallel, ordered);
+    }
+
+    /**
+     * 以有状态操作的结果作为新的数据源，继承当前的执行模式
+     *
+     * @param newSource 新的数据源
+     * @param <R>       元素类型
+     * @return 新的ListStream
+     */
+    private <R> ListStream<R> with(Iterable<R> newSource) {
+        return new ListStream<>(newSource, NO_STAGES, false, false, parallel, ordered);
+    }
+
+    /**
+     * 计算确切的元素个数，数据源是Collection且所有中间操作都保持个数确切时才能得到
+     *
+     * @return 确切的元素个数，无法确定时返回-1
+     */
+    private long exactSize() {
+        if (!(source instanceof Collection<?> collection)) {
+            return -1;
+        }
+        long size = collection.size();
+        for (Stage stage : stages) {
+            if (!stage.keepsExact()) {
+                return -1;
             }
+            size = stage.sizing().applyAsLong(size);
+        }
+        return size;
+    }
 
-            private void computeNext(Predicate<T> condition) {
-                while (iterator.hasNext()) {
-                    T elem = iterator.next();
-                    if (condition.test(elem)) {
-                        nextElement = elem;
-                        hasNextResult = true;
-                        hasNextComputed = true;
-                        return;
-                    }
+    /**
+     * 计算终端操作预分配的容量。元素个数确切时按确切值分配；只有上界时，上界较小才按上界分配；
+     * 并行拆分执行时每个分片只承载一部分元素，不预分配。
+     *
+     * @return 预分配的容量，不需要预分配时返回-1
+     */
+    private int expectedSize() {
+        if (source == null || isSplittable()) {
+            return -1;
+        }
+        long exactSize = exactSize();
+        if (exactSize >= 0) {
+            return (int) Math.min(exactSize, Integer.MAX_VALUE - 8);
+        }
+        long bound = source instanceof Collection<?> collection ? collection.size() : -1;
+        for (Stage stage : stages) {
+            bound = stage.sizing().applyAsLong(bound);
+        }
+        return bound >= 0 && bound <= MAX_BOUND_PRESIZE ? (int) bound : -1;
+    }
+
+    /**
+     * 计算容纳指定个数元素而不扩容的HashMap初始容量
+     *
+     * @param expectedSize 元素个数，-1表示未知
+     * @return 初始容量，元素个数未知时返回-1
+     */
+    private static int hashCapacity(int expectedSize) {
+        if (expectedSize < 0) {
+            return -1;
+        }
+        return expectedSize < (1 << 29) ? (int) (expectedSize / 0.75f) + 1 : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 判断终端操作是否应当拆分并行执行
+     *
+     * @return 并行模式、数据源可拆分并足够大、且没有有状态的中间操作时返回true
+     */
+    private boolean isSplittable() {
+        return parallel && !stateful && source instanceof List<?> list && source instanceof RandomAccess
+                && list.size() > MIN_SPLIT_SIZE;
+    }
+
+    /**
+     * 把终端 Sink 与所有中间操作由后向前包装成一条 Sink 链
+     *
+     * @param terminal 终端 Sink
+     * @return 接收数据源元素的 Sink
+     */
+    @SuppressWarnings("unchecked")
+    private Sink<Object> wrap(Sink<? super T> terminal) {
+        Sink<Object> sink = (Sink<Object>) terminal;
+        for (int i = stages.length - 1; i >= 0; i--) {
+            sink = stages[i].wrapper().apply(sink);
+        }
+        return sink;
+    }
+
+    /**
+     * 串行执行流水线，把数据源的元素逐个推送给终端 Sink
+     *
+     * @param terminal   终端 Sink
+     * @param cancelable 终端操作自身是否可能提前终止
+     */
+    private void drive(Sink<? super T> terminal, boolean cancelable) {
+        push(source, wrap(terminal), cancelable || shortCircuit);
+    }
+
+    /**
+     * 把一段元素推送给 Sink 链，只有在可能提前终止时才逐个检查终止标记
+     *
+     * @param elements   元素
+     * @param sink       Sink 链
+     * @param cancelable 是否可能提前终止
+     */
+    private static void push(Iterable<?> elements, Sink<Object> sink, boolean cancelable) {
+        if (!cancelable) {
+            elements.forEach(sink);
+            return;
+        }
+        if (elements instanceof List<?> list && elements instanceof RandomAccess) {
+            for (int i = 0, n = list.size(); i < n && !sink.cancellationRequested(); i++) {
+                sink.accept(list.get(i));
+            }
+            return;
+        }
+        Iterator<?> iterator = elements.iterator();
+        while (!sink.cancellationRequested() && iterator.hasNext()) {
+            sink.accept(iterator.next());
+        }
+    }
+
+    /**
+     * 执行终端操作。串行时整个数据源累积到一个容器；并行时每个分片各自累积后再按原始顺序两两合并。
+     *
+     * @param supplier    创建累积容器
+     * @param accumulator 把一个元素累积到容器中
+     * @param combiner    合并相邻两段的容器，左侧参数在原始顺序中位于右侧参数之前
+     * @param <A>         容器类型
+     * @return 累积结果
+     */
+    private <A> A evaluate(Supplier<A> supplier, BiConsumer<A, ? super T> accumulator, BinaryOperator<A> combiner) {
+        if (!isSplittable()) {
+            A container = supplier.get();
+            drive(t -> accumulator.accept(container, t), false);
+            return container;
+        }
+        List<?> list = (List<?>) source;
+        int size = list.size();
+        int threshold = Math.max(MIN_SPLIT_SIZE, size / (ForkJoinPool.getCommonPoolParallelism() << 2));
+        return ForkJoinPool.commonPool().invoke(
+                new SegmentTask<>(this, list, 0, size, threshold, supplier, accumulator, combiner));
+    }
+
+    /**
+     * 接收流水线元素的消费者，是流水线各阶段之间传递元素的统一接口
+     *
+     * @param <T> 元素类型
+     */
+    @FunctionalInterface
+    interface Sink<T> extends Consumer<T> {
+
+        /**
+         * 判断下游是否已经不再需要更多元素
+         *
+         * @return 需要提前终止时返回true
+         */
+        default boolean cancellationRequested() {
+            return false;
+        }
+    }
+
+    /**
+     * 持有下游的 Sink，默认把终止标记向下游传递
+     *
+     * @param <T> 接收的元素类型
+     * @param <R> 向下游发送的元素类型
+     */
+    abstract static class ChainedSink<T, R> implements Sink<T> {
+
+        /**
+         * 下游 Sink
+         */
+        protected final Sink<? super R> downstream;
+
+        ChainedSink(Sink<? super R> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            return downstream.cancellationRequested();
+        }
+    }
+
+    /**
+     * 流水线上记录的一个中间操作
+     *
+     * @param wrapper    为一次终端操作创建该阶段的 Sink
+     * @param sizing     由上游元素个数（未知时为-1）计算该阶段输出的元素个数或其上界
+     * @param keepsExact 上游元素个数确切时，输出的元素个数是否仍然确切
+     */
+    private record Stage(Function<Sink<Object>, Sink<Object>> wrapper, LongUnaryOperator sizing,
+                         boolean keepsExact) {
+    }
+
+    /**
+     * 按固定大小攒批的终端 Sink，每凑满一批立即交给下游
+     *
+     * @param <T> 元素类型
+     */
+    private static final class ChunkSink<T> implements Sink<T> {
+
+        private final int size;
+
+        private final Consumer<List<T>> consumer;
+
+        private final BooleanSupplier stopped;
+
+        private List<T> batch;
+
+        ChunkSink(int size, Consumer<List<T>> consumer, BooleanSupplier stopped) {
+            this.size = size;
+            this.consumer = consumer;
+            this.stopped = stopped;
+        }
+
+        @Override
+        public void accept(T t) {
+            if (batch == null) {
+                batch = new ArrayList<>(size);
+            }
+            batch.add(t);
+            if (batch.size() == size) {
+                flush();
+            }
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            return stopped.getAsBoolean();
+        }
+
+        /**
+         * 把未满的最后一批交给下游
+         */
+        void flush() {
+            if (batch != null) {
+                List<T> full = batch;
+                batch = null;
+                consumer.accept(full);
+            }
+        }
+    }
+
+    /**
+     * 带有出现顺序的元素，用于在比较结果相等时保持稳定
+     *
+     * @param value 元素
+     * @param seq   出现顺序
+     * @param <T>   元素类型
+     */
+    private record Ranked<T>(T value, long seq) {
+    }
+
+    /**
+     * 只读的计算结果缓存，第一次访问时计算上游，可以按下标并行拆分
+     *
+     * @param <T> 元素类型
+     */
+    private static final class CachedList<T> extends AbstractList<T> implements RandomAccess {
+
+        /**
+         * 上游流，软引用被回收后用于重新计算
+         */
+        private final ListStream<T> upstream;
+
+        /**
+         * 是否使用软引用持有结果
+         */
+        private final boolean soft;
+
+        /**
+         * 计算结果，为 Object[] 或指向 Object[] 的 SoftReference
+         */
+        private volatile Object values;
+
+        CachedList(ListStream<T> upstream, boolean soft) {
+            this.upstream = upstream;
+            this.soft = soft;
+        }
+
+        /**
+         * 获取计算结果，尚未计算或已被回收时计算一次上游
+         *
+         * @return 计算结果
+         */
+        Object[] values() {
+            Object[] result = peekValues();
+            if (result != null) {
+                return result;
+            }
+            synchronized (this) {
+                result = peekValues();
+                if (result == null) {
+                    result = upstream.toList().toArray();
+                    values = soft ? new SoftReference<>(result) : result;
                 }
-                hasNextResult = false;
-                hasNextComputed = true;
+                return result;
             }
-        };
+        }
+
+        private Object[] peekValues() {
+            Object current = values;
+            if (current instanceof SoftReference<?> reference) {
+                return (Object[]) reference.get();
+            }
+            return (Object[]) current;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            return (T) values()[index];
+        }
+
+        @Override
+        public int size() {
+            return values().length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Iterator<T> iterator() {
+            // 遍历期间持有同一个数组，软引用被回收也不影响本次遍历
+            return Collections.unmodifiableList(Arrays.asList((T[]) values())).iterator();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(Consumer<? super T> action) {
+            for (Object value : values()) {
+                action.accept((T) value);
+            }
+        }
+    }
+
+    /**
+     * 只接收第一个元素的终端 Sink
+     *
+     * @param <T> 元素类型
+     */
+    private static final class FirstSink<T> implements Sink<T> {
+
+        private boolean found;
+
+        private T value;
+
+        @Override
+        public void accept(T t) {
+            if (!found) {
+                found = true;
+                value = t;
+            }
+        }
+
+        @Override
+        public boolean cancellationRequested() {
+            return found;
+        }
+    }
+
+    /**
+     * 按下标拆分原始数据源的并行任务，每个分片上执行一次完整的 Sink 链并累积结果
+     *
+     * @param <T> 流水线输出的元素类型
+     * @param <A> 累积容器类型
+     */
+    private static final class SegmentTask<T, A> extends RecursiveTask<A> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final ListStream<T> stream;
+        private final List<?> items;
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final Supplier<A> supplier;
+        private final BiConsumer<A, ? super T> accumulator;
+        private final BinaryOperator<A> combiner;
+
+        SegmentTask(ListStream<T> stream, List<?> items, int from, int to, int threshold,
+                    Supplier<A> supplier, BiConsumer<A, ? super T> accumulator, BinaryOperator<A> combiner) {
+            this.stream = stream;
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.supplier = supplier;
+            this.accumulator = accumulator;
+            this.combiner = combiner;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from <= threshold) {
+                A container = supplier.get();
+                push(items.subList(from, to), stream.wrap(t -> accumulator.accept(container, t)), false);
+                return container;
+            }
+            int mid = (from + to) >>> 1;
+            SegmentTask<T, A> left = new SegmentTask<>(stream, items, from, mid, threshold,
+                    supplier, accumulator, combiner);
+            left.fork();
+            A right = new SegmentTask<>(stream, items, mid, to, threshold, supplier, accumulator, combiner).compute();
+            return combiner.apply(left.join(), right);
+        }
     }
-}
\ No newline at end of file
+}
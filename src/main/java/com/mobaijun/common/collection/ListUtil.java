@@ -19,14 +19,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiFunction;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -63,37 +60,37 @@ public class ListUtil {
      * @param combiner   用于组合 T 的实例和 U 的实例，并生成一个新的 R 的组合器。
      *                   在全外连接中，T 或 U 可能为 null，因此组合器需要能够创建一个带有一个参数为 null 的 R。
      * @return 包含全外连接结果的 List<R>，按照原始列表的排序顺序排序。
+     * @see com.mobaijun.common.collection.join.JoinUtil 按键提取函数连接，支持无序输入和一对多匹配
      */
     public static <T, U, R> List<R> fullOuterJoin(
             List<T> left, List<U> right,
             BiFunction<T, U, Integer> comparator, BiFunction<T, U, R> combiner) {
 
-        List<R> result = new LinkedList<>();
-        Iterator<T> leftIterator = left.iterator();
+        List<R> result = new ArrayList<>(left.size() + right.size());
         Iterator<U> rightIterator = right.iterator();
-
-        Supplier<Optional<U>> rightItemSupplier = () -> rightIterator.hasNext() ? Optional.of(rightIterator.next()) : Optional.empty();
-        Optional<U> rightItem = rightItemSupplier.get();
-
-        while (leftIterator.hasNext()) {
-            T leftItem = leftIterator.next();
-
-            while (rightItem.isPresent() && comparator.apply(leftItem, rightItem.get()) > 0) {
-                result.add(combiner.apply(null, rightItem.get()));
-                rightItem = rightItemSupplier.get();
+        boolean hasRight = rightIterator.hasNext();
+        U rightItem = hasRight ? rightIterator.next() : null;
+
+        for (T leftItem : left) {
+            while (hasRight && comparator.apply(leftItem, rightItem) > 0) {
+                result.add(combiner.apply(null, rightItem));
+                hasRight = rightIterator.hasNext();
+                rightItem = hasRight ? rightIterator.next() : null;
             }
 
-            if (rightItem.isPresent() && comparator.apply(leftItem, rightItem.get()) == 0) {
-                result.add(combiner.apply(leftItem, rightItem.get()));
-                rightItem = rightItemSupplier.get();
+            if (hasRight && comparator.apply(leftItem, rightItem) == 0) {
+                result.add(combiner.apply(leftItem, rightItem));
+                hasRight = rightIterator.hasNext();
+                rightItem = hasRight ? rightIterator.next() : null;
             } else {
                 result.add(combiner.apply(leftItem, null));
             }
         }
 
-        while (rightItem.isPresent()) {
-            result.add(combiner.apply(null, rightItem.get()));
-            rightItem = rightItemSupplier.get();
+        while (hasRight) {
+            result.add(combiner.apply(null, rightItem));
+            hasRight = rightIterator.hasNext();
+            rightItem = hasRight ? rightIterator.next() : null;
         }
 
         return result;
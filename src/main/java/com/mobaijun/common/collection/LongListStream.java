@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LongSummaryStatistics;
+import java.util.List;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.OptionalLong;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Description: [long 类型的 list stream 操作]
+ * <p>
+ * 元素保存在 long[] 中，求和、最值、平均值、排序、去重等操作全程不装箱。
+ * 由 {@link ListStream#mapToLong} 或 {@link #of(long...)} 创建。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public final class LongListStream {
+
+    /**
+     * 元素数组，只读取前 size 个
+     */
+    private final long[] values;
+
+    /**
+     * 元素个数
+     */
+    private final int size;
+
+    LongListStream(long[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * 以数组作为数据源创建一个LongListStream实例，数组会被复制
+     *
+     * @param values 数据源数组，必须非空
+     * @return LongListStream实例
+     */
+    public static LongListStream of(long... values) {
+        return new LongListStream(values.clone(), values.length);
+    }
+
+    /**
+     * 过滤符合条件的元素，返回新的LongListStream
+     *
+     * @param predicate 用于判断的条件
+     * @return 符合条件的元素组成的LongListStream
+     */
+    public LongListStream filter(LongPredicate predicate) {
+        Objects.requireNonNull(predicate);
+        long[] result = new long[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (predicate.test(values[i])) {
+                result[n++] = values[i];
+            }
+        }
+        return new LongListStream(result, n);
+    }
+
+    /**
+     * 对流中的元素进行映射操作，返回一个新的LongListStream
+     *
+     * @param mapper 用于转换每个元素的函数
+     * @return 映射后的LongListStream
+     */
+    public LongListStream map(LongUnaryOperator mapper) {
+        Objects.requireNonNull(mapper);
+        long[] result = new long[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = mapper.applyAsLong(values[i]);
+        }
+        return new LongListStream(result, size);
+    }
+
+    /**
+     * 把元素转换为对象，返回ListStream
+     *
+     * @param mapper 用于转换每个元素的函数
+     * @param <R>    转换后的元素类型
+     * @return 转换后的ListStream
+     */
+    public <R> ListStream<R> mapToObj(LongFunction<? extends R> mapper) {
+        Objects.requireNonNull(mapper);
+        List<R> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(mapper.apply(values[i]));
+        }
+        return new ListStream<>(result);
+    }
+
+    /**
+     * 把元素装箱，返回ListStream
+     *
+     * @return 装箱后的ListStream
+     */
+    public ListStream<Long> boxed() {
+        return mapToObj(Long::valueOf);
+    }
+
+    /**
+     * 转换为DoubleListStream
+     *
+     * @return DoubleListStream
+     */
+    public DoubleListStream asDoubleStream() {
+        double[] result = new double[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = values[i];
+        }
+        return new DoubleListStream(result, size);
+    }
+
+    /**
+     * 升序排序，返回新的LongListStream
+     *
+     * @return 排序后的LongListStream
+     */
+    public LongListStream sorted() {
+        long[] result = Arrays.copyOf(values, size);
+        Arrays.sort(result);
+        return new LongListStream(result, size);
+    }
+
+    /**
+     * 去重，保留每个值第一次出现的位置
+     *
+     * @return 去重后的LongListStream
+     */
+    public LongListStream distinct() {
+        // 排序后的唯一值作为索引，标记每个值是否已经出现过
+        long[] unique = Arrays.copyOf(values, size);
+        Arrays.sort(unique);
+        int uniqueSize = 0;
+        for (int i = 0; i < size; i++) {
+            if (uniqueSize == 0 || unique[uniqueSize - 1] != unique[i]) {
+                unique[uniqueSize++] = unique[i];
+            }
+        }
+        if (uniqueSize == size) {
+            return new LongListStream(Arrays.copyOf(values, size), size);
+        }
+        boolean[] seen = new boolean[uniqueSize];
+        long[] result = new long[uniqueSize];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            int index = Arrays.binarySearch(unique, 0, uniqueSize, values[i]);
+            if (!seen[index]) {
+                seen[index] = true;
+                result[n++] = values[i];
+            }
+        }
+        return new LongListStream(result, n);
+    }
+
+    /**
+     * 对流中的每个元素执行给定的操作
+     *
+     * @param action 操作
+     */
+    public void forEach(LongConsumer action) {
+        Objects.requireNonNull(action);
+        for (int i = 0; i < size; i++) {
+            action.accept(values[i]);
+        }
+    }
+
+    /**
+     * 求和
+     *
+     * @return 元素之和
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += values[i];
+        }
+        return sum;
+    }
+
+    /**
+     * 获取最小值
+     *
+     * @return 最小值，流为空时返回空的OptionalLong
+     */
+    public OptionalLong min() {
+        if (size == 0) {
+            return OptionalLong.empty();
+        }
+        long min = values[0];
+        for (int i = 1; i < size; i++) {
+            min = Math.min(min, values[i]);
+        }
+        return OptionalLong.of(min);
+    }
+
+    /**
+     * 获取最大值
+     *
+     * @return 最大值，流为空时返回空的OptionalLong
+     */
+    public OptionalLong max() {
+        if (size == 0) {
+            return OptionalLong.empty();
+        }
+        long max = values[0];
+        for (int i = 1; i < size; i++) {
+            max = Math.max(max, values[i]);
+        }
+        return OptionalLong.of(max);
+    }
+
+    /**
+     * 求平均值
+     *
+     * @return 平均值，流为空时返回空的OptionalDouble
+     */
+    public OptionalDouble average() {
+        return size == 0 ? OptionalDouble.empty() : OptionalDouble.of((double) sum() / size);
+    }
+
+    /**
+     * 一次遍历得到个数、总和、最小值、最大值和平均值
+     *
+     * @return 统计结果
+     */
+    public LongSummaryStatistics summaryStatistics() {
+        LongSummaryStatistics statistics = new LongSummaryStatistics();
+        for (int i = 0; i < size; i++) {
+            statistics.accept(values[i]);
+        }
+        return statistics;
+    }
+
+    /**
+     * 计算流中元素的数量
+     *
+     * @return 流中元素的数量
+     */
+    public long count() {
+        return size;
+    }
+
+    /**
+     * 判断流是否为空
+     *
+     * @return 如果为空，返回true；否则返回false
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 将流中的元素转换成数组
+     *
+     * @return 包含所有元素的新数组
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * 收集 long 元素的可增长缓冲区，用于 {@link ListStream#mapToLong} 的串行和并行累积
+     */
+    static final class Buffer {
+
+        private long[] data;
+
+        private int size;
+
+        Buffer() {
+            this(16);
+        }
+
+        /**
+         * 按已知的元素个数分配，避免逐步扩容
+         *
+         * @param capacity 初始容量
+         */
+        Buffer(int capacity) {
+            this.data = new long[Math.max(capacity, 1)];
+        }
+
+        void add(long value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, data.length << 1);
+            }
+            data[size++] = value;
+        }
+
+        Buffer merge(Buffer other) {
+            if (size + other.size > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length << 1, size + other.size));
+            }
+            System.arraycopy(other.data, 0, data, size, other.size);
+            size += other.size;
+            return this;
+        }
+
+        LongListStream toStream() {
+            return new LongListStream(data, size);
+        }
+    }
+}
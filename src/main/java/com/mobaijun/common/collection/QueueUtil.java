@@ -15,6 +15,9 @@
  */
 package com.mobaijun.common.collection;
 
+import com.mobaijun.common.collection.queue.MpmcRingQueue;
+import com.mobaijun.common.collection.queue.MpscRingQueue;
+import com.mobaijun.common.collection.queue.SpscRingQueue;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.LinkedList;
@@ -38,6 +41,10 @@ public class QueueUtil {
      * 创建一个初始长度为指定值的 ArrayDeque (JDK 无 ArrayQueue)。
      * <p>
      * 数组满时会成倍扩容，默认为 16。
+     *
+     * @param initialSize 初始长度
+     * @param <E>         元素类型
+     * @return 队列
      */
     public static <E> ArrayDeque<E> createArrayDequeWithInitialSize(int initialSize) {
         return new ArrayDeque<>(initialSize);
@@ -45,6 +52,9 @@ public class QueueUtil {
 
     /**
      * 创建一个 LinkedList 实现的双端队列。
+     *
+     * @param <E> 元素类型
+     * @return 队列
      */
     public static <E> LinkedList<E> createLinkedDeque() {
         return new LinkedList<>();
@@ -52,6 +62,9 @@ public class QueueUtil {
 
     /**
      * 创建无阻塞情况下性能最优的并发队列。
+     *
+     * @param <E> 元素类型
+     * @return 队列
      */
     public static <E> ConcurrentLinkedQueue<E> createConcurrentQueue() {
         return new ConcurrentLinkedQueue<>();
@@ -59,6 +72,9 @@ public class QueueUtil {
 
     /**
      * 创建无阻塞情况下性能最优的并发双端队列。
+     *
+     * @param <E> 元素类型
+     * @return 队列
      */
     public static <E> Deque<E> createConcurrentDeque() {
         return new ConcurrentLinkedDeque<>();
@@ -68,6 +84,9 @@ public class QueueUtil {
      * 创建长度不受限的阻塞队列。
      * <p>
      * 生产者不会因为队列满而阻塞，但消费者会因为队列空而阻塞。
+     *
+     * @param <E> 元素类型
+     * @return 队列
      */
     public static <E> LinkedBlockingQueue<E> createUnboundedBlockingQueue() {
         return new LinkedBlockingQueue<>();
@@ -77,6 +96,9 @@ public class QueueUtil {
      * 创建长度不受限的阻塞双端队列。
      * <p>
      * 生产者不会因为队列满而阻塞，但消费者会因为队列空而阻塞。
+     *
+     * @param <E> 元素类型
+     * @return 队列
      */
     public static <E> LinkedBlockingDeque<E> createUnboundedBlockingDeque() {
         return new LinkedBlockingDeque<>();
@@ -84,6 +106,10 @@ public class QueueUtil {
 
     /**
      * 创建长度受限的并发阻塞队列，节约内存但共用一把锁（无双端实现）。
+     *
+     * @param capacity 容量
+     * @param <E>      元素类型
+     * @return 队列
      */
     public static <E> ArrayBlockingQueue<E> createArrayBlockingQueue(int capacity) {
         return new ArrayBlockingQueue<>(capacity);
@@ -91,6 +117,10 @@ public class QueueUtil {
 
     /**
      * 创建长度受限的并发阻塞队列，头队尾各有一把锁，使用更多内存。
+     *
+     * @param capacity 容量
+     * @param <E>      元素类型
+     * @return 队列
      */
     public static <E> LinkedBlockingQueue<E> createLinkedBlockingQueue(int capacity) {
         return new LinkedBlockingQueue<>(capacity);
@@ -98,8 +128,54 @@ public class QueueUtil {
 
     /**
      * 创建长度受限的并发阻塞双端队列，头队尾各有一把锁，使用更多内存。
+     *
+     * @param capacity 容量
+     * @param <E>      元素类型
+     * @return 队列
      */
     public static <E> LinkedBlockingDeque<E> createBlockingDeque(int capacity) {
         return new LinkedBlockingDeque<>(capacity);
     }
-}
\ No newline at end of file
+
+    /**
+     * 创建单生产者单消费者的有界无锁环形队列，容量向上取整到 2 的幂。
+     * <p>
+     * 只能有一个线程写入、一个线程读取，读写都不需要 CAS，不为元素分配节点。
+     *
+     * @param capacity 容量
+     * @param <E>      元素类型
+     * @return 队列
+     * @throws IllegalArgumentException capacity 不在 [2, 2^30] 范围内
+     */
+    public static <E> SpscRingQueue<E> createSpscQueue(int capacity) {
+        return new SpscRingQueue<>(capacity);
+    }
+
+    /**
+     * 创建多生产者单消费者的有界无锁环形队列，容量向上取整到 2 的幂。
+     * <p>
+     * 适合多个业务线程向一个后台线程提交任务，如日志、埋点的异步发送。
+     *
+     * @param capacity 容量
+     * @param <E>      元素类型
+     * @return 队列
+     * @throws IllegalArgumentException capacity 不在 [2, 2^30] 范围内
+     */
+    public static <E> MpscRingQueue<E> createMpscQueue(int capacity) {
+        return new MpscRingQueue<>(capacity);
+    }
+
+    /**
+     * 创建多生产者多消费者的有界无锁环形队列，容量向上取整到 2 的幂。
+     * <p>
+     * 用于替代 ArrayBlockingQueue、LinkedBlockingQueue 的非阻塞场景，满或空时按 WaitStrategy 等待。
+     *
+     * @param capacity 容量
+     * @param <E>      元素类型
+     * @return 队列
+     * @throws IllegalArgumentException capacity 不在 [2, 2^30] 范围内
+     */
+    public static <E> MpmcRingQueue<E> createMpmcQueue(int capacity) {
+        return new MpmcRingQueue<>(capacity);
+    }
+}
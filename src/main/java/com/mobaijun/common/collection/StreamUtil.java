@@ -24,11 +24,6 @@ import com.mobaijun.common.collection.util.Op;
 import com.mobaijun.common.constant.StringConstant;
 import com.mobaijun.common.function.stream.CheckedFunction0;
 import com.mobaijun.common.function.stream.CheckedRunnable;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -37,6 +32,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +44,7 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
 /**
@@ -849,40 +846,278 @@ public class StreamUtil {
     }
 
     /**
-     * 深拷贝一个对象，要求该对象实现 Serializable 接口。
+     * 按key计算两个列表之间的差异，key相同的元素视为同一元素。
+     * 先对新列表建立哈希索引，时间复杂度为 O(n+m)，结果与按key相等比较的 {@link #getDiff(List, List, BiFunction)} 相同。
+     *
+     * @param <T>          待处理列表中元素的类型
+     * @param <K>          key的类型，需要正确实现 equals 和 hashCode
+     * @param oldList      旧的列表数据，不能为 null
+     * @param newList      新的列表数据，不能为 null
+     * @param keyExtractor 提取元素key的函数
+     * @return 包含三个 List 的 Diff 对象，分别表示新增、删除和未变更的元素
+     */
+    public static <T, K> Diff<T> getDiff(List<T> oldList,
+                                         List<T> newList,
+                                         Function<? super T, ? extends K> keyExtractor) {
+        return getDiff(oldList, newList, keyExtractor, false);
+    }
+
+    /**
+     * 按key计算两个列表之间的差异，可选择并行计算，适合数据量很大的列表
+     *
+     * @param <T>          待处理列表中元素的类型
+     * @param <K>          key的类型，需要正确实现 equals 和 hashCode
+     * @param oldList      旧的列表数据，不能为 null
+     * @param newList      新的列表数据，不能为 null
+     * @param keyExtractor 提取元素key的函数，并行时必须是线程安全的
+     * @param parallel     是否并行计算
+     * @return 包含三个 List 的 Diff 对象，分别表示新增、删除和未变更的元素
+     */
+    public static <T, K> Diff<T> getDiff(List<T> oldList,
+                                         List<T> newList,
+                                         Function<? super T, ? extends K> keyExtractor,
+                                         boolean parallel) {
+        return toDiff(getDiff2(oldList, newList, keyExtractor, keyExtractor, parallel));
+    }
+
+    /**
+     * 按key计算两个不同类型列表之间的差异，key相等的元素视为同一元素，时间复杂度为 O(n+m)
+     *
+     * @param <T>             旧列表中元素的类型
+     * @param <R>             新列表中元素的类型
+     * @param <K>             key的类型，需要正确实现 equals 和 hashCode
+     * @param oldList         旧的列表数据，不能为 null
+     * @param newList         新的列表数据，不能为 null
+     * @param oldKeyExtractor 提取旧元素key的函数
+     * @param newKeyExtractor 提取新元素key的函数
+     * @return 包含三个 List 的 Diff2 对象，分别表示新增、删除和未变更的元素
+     */
+    public static <T, R, K> Diff2<T, R> getDiff2(List<T> oldList,
+                                                 List<R> newList,
+                                                 Function<? super T, ? extends K> oldKeyExtractor,
+                                                 Function<? super R, ? extends K> newKeyExtractor) {
+        return getDiff2(oldList, newList, oldKeyExtractor, newKeyExtractor, false);
+    }
+
+    /**
+     * 按key计算两个不同类型列表之间的差异，可选择并行计算。
+     * <p>
+     * 新列表按key建立索引（同一key只保留第一个元素），旧元素的key命中索引时记入updateMap，否则记入delList；
+     * key不在旧列表中的新元素记入addList。各列表保持原始顺序。
+     *
+     * @param <T>             旧列表中元素的类型
+     * @param <R>             新列表中元素的类型
+     * @param <K>             key的类型，需要正确实现 equals 和 hashCode
+     * @param oldList         旧的列表数据，不能为 null
+     * @param newList         新的列表数据，不能为 null
+     * @param oldKeyExtractor 提取旧元素key的函数，并行时必须是线程安全的
+     * @param newKeyExtractor 提取新元素key的函数，并行时必须是线程安全的
+     * @param parallel        是否并行计算
+     * @return 包含三个 List 的 Diff2 对象，分别表示新增、删除和未变更的元素
+     */
+    public static <T, R, K> Diff2<T, R> getDiff2(List<T> oldList,
+                                                 List<R> newList,
+                                                 Function<? super T, ? extends K> oldKeyExtractor,
+                                                 Function<? super R, ? extends K> newKeyExtractor,
+                                                 boolean parallel) {
+        Objects.requireNonNull(oldKeyExtractor, "oldKeyExtractor cannot be null");
+        Objects.requireNonNull(newKeyExtractor, "newKeyExtractor cannot be null");
+
+        // 新列表按key建立索引，同一key只保留第一个元素
+        Map<K, R> newIndex = indexFirst(newList, newKeyExtractor, parallel);
+
+        // 旧列表的key集合，用于计算新增的元素
+        Set<K> oldKeys = parallel
+                ? oldList.parallelStream().map(oldKeyExtractor).collect(Collectors.toSet())
+                : new HashSet<>((int) (oldList.size() / 0.75f) + 1);
+
+        Map<T, R> map = new LinkedHashMap<>();
+        List<T> delList = new ArrayList<>();
+        if (parallel) {
+            // 并行查找每个旧元素在新列表中的匹配，再按原始顺序归类
+            List<Map.Entry<K, T>> keyed = oldList.parallelStream()
+                    .map(t -> new AbstractMap.SimpleImmutableEntry<K, T>(oldKeyExtractor.apply(t), t))
+                    .collect(Collectors.toList());
+            for (Map.Entry<K, T> entry : keyed) {
+                classify(entry.getValue(), entry.getKey(), newIndex, map, delList);
+            }
+        } else {
+            for (T t : oldList) {
+                K key = oldKeyExtractor.apply(t);
+                oldKeys.add(key);
+                classify(t, key, newIndex, map, delList);
+            }
+        }
+
+        // 计算新增的元素（key不在旧列表中）
+        List<R> addList = (parallel ? newList.parallelStream() : newList.stream())
+                .filter(r -> !oldKeys.contains(newKeyExtractor.apply(r)))
+                .collect(Collectors.toCollection(ArrayList::new));
+
+        return new Diff2<T, R>().setAddList(addList).setDelList(delList).setUpdateMap(map);
+    }
+
+    /**
+     * 计算两个已按key升序排列的列表之间的差异，两个列表同时归并扫描一遍，不需要建立索引。
+     * 结果与 {@link #getDiff(List, List, Function)} 相同。
+     *
+     * @param <T>           待处理列表中元素的类型
+     * @param <K>           key的类型
+     * @param oldList       按key升序排列的旧列表，不能为 null
+     * @param newList       按key升序排列的新列表，不能为 null
+     * @param keyExtractor  提取元素key的函数
+     * @param keyComparator key的比较器，必须与列表的排列顺序一致
+     * @return 包含三个 List 的 Diff 对象，分别表示新增、删除和未变更的元素
+     */
+    public static <T, K> Diff<T> getSortedDiff(List<T> oldList,
+                                               List<T> newList,
+                                               Function<? super T, ? extends K> keyExtractor,
+                                               Comparator<? super K> keyComparator) {
+        return toDiff(getSortedDiff2(oldList, newList, keyExtractor, keyExtractor, keyComparator));
+    }
+
+    /**
+     * 计算两个已按key升序排列的不同类型列表之间的差异，两个列表同时归并扫描一遍。
+     * key相等的一组元素中，所有旧元素都对应该组的第一个新元素。
+     *
+     * @param <T>             旧列表中元素的类型
+     * @param <R>             新列表中元素的类型
+     * @param <K>             key的类型
+     * @param oldList         按key升序排列的旧列表，不能为 null
+     * @param newList         按key升序排列的新列表，不能为 null
+     * @param oldKeyExtractor 提取旧元素key的函数
+     * @param newKeyExtractor 提取新元素key的函数
+     * @param keyComparator   key的比较器，必须与列表的排列顺序一致
+     * @return 包含三个 List 的 Diff2 对象，分别表示新增、删除和未变更的元素
+     */
+    public static <T, R, K> Diff2<T, R> getSortedDiff2(List<T> oldList,
+                                                       List<R> newList,
+                                                       Function<? super T, ? extends K> oldKeyExtractor,
+                                                       Function<? super R, ? extends K> newKeyExtractor,
+                                                       Comparator<? super K> keyComparator) {
+        Objects.requireNonNull(keyComparator, "keyComparator cannot be null");
+
+        List<R> addList = new ArrayList<>();
+        List<T> delList = new ArrayList<>();
+        Map<T, R> map = new LinkedHashMap<>();
+
+        Iterator<T> olds = oldList.iterator();
+        Iterator<R> news = newList.iterator();
+        T oldValue = olds.hasNext() ? olds.next() : null;
+        R newValue = news.hasNext() ? news.next() : null;
+        boolean hasOld = !oldList.isEmpty();
+        boolean hasNew = !newList.isEmpty();
+        while (hasOld || hasNew) {
+            int c = !hasOld ? 1 : !hasNew ? -1
+                    : keyComparator.compare(oldKeyExtractor.apply(oldValue), newKeyExtractor.apply(newValue));
+            if (c < 0) {
+                delList.add(oldValue);
+                hasOld = olds.hasNext();
+                oldValue = hasOld ? olds.next() : null;
+            } else if (c > 0) {
+                addList.add(newValue);
+                hasNew = news.hasNext();
+                newValue = hasNew ? news.next() : null;
+            } else {
+                // key相同的一组：旧元素都对应该组的第一个新元素，该组的新元素都不是新增
+                K key = newKeyExtractor.apply(newValue);
+                R first = newValue;
+                do {
+                    map.put(oldValue, first);
+                    hasOld = olds.hasNext();
+                    oldValue = hasOld ? olds.next() : null;
+                } while (hasOld && keyComparator.compare(oldKeyExtractor.apply(oldValue), key) == 0);
+                do {
+                    hasNew = news.hasNext();
+                    newValue = hasNew ? news.next() : null;
+                } while (hasNew && keyComparator.compare(newKeyExtractor.apply(newValue), key) == 0);
+            }
+        }
+        return new Diff2<T, R>().setAddList(addList).setDelList(delList).setUpdateMap(map);
+    }
+
+    /**
+     * 按key建立索引，同一key只保留第一个元素，元素和key都可以为null
+     *
+     * @param list         列表
+     * @param keyExtractor 提取元素key的函数
+     * @param parallel     是否并行计算
+     * @param <E>          元素类型
+     * @param <K>          key的类型
+     * @return key到元素的索引
+     */
+    private static <E, K> Map<K, E> indexFirst(List<E> list, Function<? super E, ? extends K> keyExtractor,
+                                               boolean parallel) {
+        if (parallel) {
+            // 有序流的合并函数中 left 在前，保留 left 中已有的key即保留第一个元素
+            return list.parallelStream().collect(Collector.of(HashMap::new,
+                    (Map<K, E> index, E e) -> putFirst(index, keyExtractor.apply(e), e),
+                    (left, right) -> {
+                        right.forEach((key, e) -> putFirst(left, key, e));
+                        return left;
+                    }));
+        }
+        Map<K, E> index = new HashMap<>((int) (list.size() / 0.75f) + 1);
+        for (E e : list) {
+            putFirst(index, keyExtractor.apply(e), e);
+        }
+        return index;
+    }
+
+    /**
+     * key不存在时放入元素。putIfAbsent 会覆盖值为null的映射，因此用 containsKey 判断
+     */
+    private static <E, K> void putFirst(Map<K, E> index, K key, E e) {
+        if (!index.containsKey(key)) {
+            index.put(key, e);
+        }
+    }
+
+    /**
+     * 根据新列表的索引，把旧元素归入updateMap或delList
+     *
+     * @param t        旧元素
+     * @param key      旧元素的key
+     * @param newIndex 新列表的索引
+     * @param map      已存在的元素对应的新值
+     * @param delList  删除的元素
+     * @param <T>      旧元素类型
+     * @param <R>      新元素类型
+     * @param <K>      key的类型
+     */
+    private static <T, R, K> void classify(T t, K key, Map<K, R> newIndex, Map<T, R> map, List<T> delList) {
+        R r = newIndex.get(key);
+        if (r != null || newIndex.containsKey(key)) {
+            map.put(t, r);
+        } else {
+            delList.add(t);
+        }
+    }
+
+    /**
+     * 把同类型的 Diff2 转换为 Diff
+     *
+     * @param diff2 Diff2
+     * @param <T>   元素类型
+     * @return Diff
+     */
+    private static <T> Diff<T> toDiff(Diff2<T, T> diff2) {
+        return new Diff<T>().setAddList(diff2.getAddList()).setDelList(diff2.getDelList())
+                .setUpdateMap(diff2.getUpdateMap());
+    }
+
+    /**
+     * 深拷贝一个对象，有无参构造器（可以是私有的）的对象不要求实现 Serializable 接口。
+     * <p>
+     * 按类缓存的拷贝计划逐个拷贝字段，共享引用和循环引用保持原有结构，详见 {@link DeepCloner}。
      *
      * @param <T> 对象类型
-     * @param obj 要克隆的对象，必须实现 Serializable 接口
+     * @param obj 要克隆的对象
      * @return 克隆后的对象
-     * @throws RuntimeException 如果对象未实现 Serializable 接口，或克隆过程中发生异常
+     * @throws com.mobaijun.common.exception.UtilException 对象中包含无法拷贝的类型时抛出
      */
-    @SuppressWarnings("all")
     public static <T> T clone(T obj) {
-        // 判断对象是否实现 Serializable 接口
-        if (!(obj instanceof Serializable)) {
-            throw new RuntimeException("对象没有实现 Serializable 接口");
-        }
-        try {
-            // 使用字节流进行深拷贝
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(bos);
-            // 将对象写入字节流
-            oos.writeObject(obj);
-            oos.close();
-
-            // 从字节流中读取对象，进行反序列化
-            ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
-            ObjectInputStream ois = new ObjectInputStream(bis);
-            // 读取对象
-            Object newObj = ois.readObject();
-            ois.close();
-
-            // 返回克隆后的对象
-            return (T) newObj;
-        } catch (Exception e) {
-            // 如果发生异常，则抛出 RuntimeException
-            throw new RuntimeException(e);
-        }
+        return DeepCloner.clone(obj);
     }
 
     /**
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.join;
+
+/**
+ * Description: [连接类型]
+ * <p>
+ * 语义与 SQL 一致：一个键在两侧各有多个元素时，输出它们的笛卡尔积。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public enum JoinType {
+
+    /**
+     * 内连接，只输出两侧都存在的键
+     */
+    INNER,
+
+    /**
+     * 左连接，左侧没有匹配的元素与 null 组合输出
+     */
+    LEFT,
+
+    /**
+     * 右连接，右侧没有匹配的元素与 null 组合输出
+     */
+    RIGHT,
+
+    /**
+     * 全外连接，两侧没有匹配的元素都与 null 组合输出
+     */
+    FULL,
+
+    /**
+     * 半连接，每个有匹配的左侧元素只输出一次，右侧参数为第一个匹配的元素
+     */
+    SEMI,
+
+    /**
+     * 反连接，每个没有匹配的左侧元素输出一次，右侧参数为 null
+     */
+    ANTI;
+
+    /**
+     * 左侧没有匹配的元素是否输出
+     *
+     * @return 是否输出
+     */
+    boolean keepsUnmatchedLeft() {
+        return this == LEFT || this == FULL || this == ANTI;
+    }
+
+    /**
+     * 右侧没有匹配的元素是否输出
+     *
+     * @return 是否输出
+     */
+    boolean keepsUnmatchedRight() {
+        return this == RIGHT || this == FULL;
+    }
+}
@@ -0,0 +1,456 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.join;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Description: [列表连接工具类]
+ * <p>
+ * 支持 {@link JoinType} 中的内连接、左连接、右连接、全外连接、半连接和反连接，连接键由两侧各自的键提取函数给出。
+ * <ul>
+ *     <li>{@link #hashJoin}：适用于无序输入，以一侧建立哈希索引，按另一侧的顺序探测，O(n + m)；
+ *     数据量达到 {@link #PARALLEL_THRESHOLD} 且要求并行时，索引按键的哈希分区并行构建，探测侧分段并行探测。</li>
+ *     <li>{@link #sortMergeJoin}：适用于两侧都已按键排序的输入，一次归并完成，不建索引。</li>
+ * </ul>
+ * 每个元素的键只提取一次，结果写入预分配容量的 ArrayList。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public final class JoinUtil {
+
+    /**
+     * 两侧元素总数达到该值时并行哈希连接才真正并行执行
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * 并行时每段最少的元素个数
+     */
+    private static final int MIN_CHUNK = 1 << 12;
+
+    /**
+     * 计算分区号使用的乘数，取哈希值乘积的高位，避免与 HashMap 使用的低位相关
+     */
+    private static final int PARTITION_MULTIPLIER = 0x9E3779B9;
+
+    private JoinUtil() {
+    }
+
+    /**
+     * 哈希连接，串行执行。
+     * 右连接按右侧顺序输出，其它连接按左侧顺序输出，同一个左侧元素的多个匹配按右侧顺序输出，
+     * 全外连接中右侧没有匹配的元素按右侧顺序追加在最后。键为 null 的元素不与任何元素匹配。
+     *
+     * @param left     左侧列表
+     * @param right    右侧列表
+     * @param leftKey  左侧键提取函数
+     * @param rightKey 右侧键提取函数
+     * @param type     连接类型
+     * @param combiner 组合函数，外连接中没有匹配的一侧参数为 null
+     * @param <L>      左侧元素类型
+     * @param <R>      右侧元素类型
+     * @param <K>      键类型
+     * @param <O>      结果元素类型
+     * @return 连接结果
+     */
+    public static <L, R, K, O> List<O> hashJoin(List<L> left, List<R> right,
+                                                Function<? super L, ? extends K> leftKey,
+                                                Function<? super R, ? extends K> rightKey,
+                                                JoinType type, BiFunction<? super L, ? super R, ? extends O> combiner) {
+        return hashJoin(left, right, leftKey, rightKey, type, combiner, false);
+    }
+
+    /**
+     * 哈希连接，输出顺序与 {@link #hashJoin(List, List, Function, Function, JoinType, BiFunction)} 相同。
+     * parallel 为 true 且两侧元素总数达到 {@link #PARALLEL_THRESHOLD} 时在公共 ForkJoinPool 中并行执行，
+     * 此时键提取函数和组合函数会被多个线程同时调用。
+     *
+     * @param left     左侧列表
+     * @param right    右侧列表
+     * @param leftKey  左侧键提取函数
+     * @param rightKey 右侧键提取函数
+     * @param type     连接类型
+     * @param combiner 组合函数，外连接中没有匹配的一侧参数为 null
+     * @param parallel 是否并行
+     * @param <L>      左侧元素类型
+     * @param <R>      右侧元素类型
+     * @param <K>      键类型
+     * @param <O>      结果元素类型
+     * @return 连接结果
+     */
+    public static <L, R, K, O> List<O> hashJoin(List<L> left, List<R> right,
+                                                Function<? super L, ? extends K> leftKey,
+                                                Function<? super R, ? extends K> rightKey,
+                                                JoinType type, BiFunction<? super L, ? super R, ? extends O> combiner,
+                                                boolean parallel) {
+        Objects.requireNonNull(left);
+        Objects.requireNonNull(right);
+        Objects.requireNonNull(leftKey);
+        Objects.requireNonNull(rightKey);
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(combiner);
+        if (type == JoinType.RIGHT) {
+            // 右连接等价于交换两侧后的左连接
+            BiFunction<R, L, O> swapped = (r, l) -> combiner.apply(l, r);
+            return join(right, left, rightKey, leftKey, JoinType.LEFT, swapped, parallel);
+        }
+        return join(left, right, leftKey, rightKey, type, combiner, parallel);
+    }
+
+    /**
+     * 排序归并连接，两侧列表必须已按 keyComparator 对键升序排序，否则抛出 IllegalArgumentException。
+     * 结果按键的顺序输出，键相同的一组元素按左侧优先的顺序输出它们的笛卡尔积。
+     * 键是否相等由 keyComparator 判断，需要 null 键时由比较器决定其位置，如 {@link Comparator#nullsFirst}。
+     *
+     * @param left          按键排序的左侧列表
+     * @param right         按键排序的右侧列表
+     * @param leftKey       左侧键提取函数
+     * @param rightKey      右侧键提取函数
+     * @param keyComparator 键比较器
+     * @param type          连接类型
+     * @param combiner      组合函数，外连接中没有匹配的一侧参数为 null
+     * @param <L>           左侧元素类型
+     * @param <R>           右侧元素类型
+     * @param <K>           键类型
+     * @param <O>           结果元素类型
+     * @return 连接结果
+     */
+    public static <L, R, K, O> List<O> sortMergeJoin(List<L> left, List<R> right,
+                                                     Function<? super L, ? extends K> leftKey,
+                                                     Function<? super R, ? extends K> rightKey,
+                                                     Comparator<? super K> keyComparator, JoinType type,
+                                                     BiFunction<? super L, ? super R, ? extends O> combiner) {
+        Objects.requireNonNull(leftKey);
+        Objects.requireNonNull(rightKey);
+        Objects.requireNonNull(keyComparator);
+        Objects.requireNonNull(type);
+        Objects.requireNonNull(combiner);
+        List<L> lefts = randomAccess(left);
+        List<R> rights = randomAccess(right);
+        int n = lefts.size();
+        int m = rights.size();
+        List<O> result = new ArrayList<>(capacity(type, n, m));
+        int i = 0;
+        int j = 0;
+        K a = n > 0 ? leftKey.apply(lefts.get(0)) : null;
+        K b = m > 0 ? rightKey.apply(rights.get(0)) : null;
+        while (i < n && j < m) {
+            int c = keyComparator.compare(a, b);
+            if (c < 0) {
+                if (type.keepsUnmatchedLeft()) {
+                    result.add(combiner.apply(lefts.get(i), null));
+                }
+                if (++i < n) {
+                    a = keyAt(lefts, i, leftKey, keyComparator, a, "left");
+                }
+            } else if (c > 0) {
+                if (type.keepsUnmatchedRight()) {
+                    result.add(combiner.apply(null, rights.get(j)));
+                }
+                if (++j < m) {
+                    b = keyAt(rights, j, rightKey, keyComparator, b, "right");
+                }
+            } else {
+                // 找出两侧键相同的一组元素 [i, i2) 和 [j, j2)
+                int i2 = i + 1;
+                K nextA = a;
+                while (i2 < n && keyComparator.compare(a, nextA = keyAt(lefts, i2, leftKey, keyComparator, a, "left")) == 0) {
+                    i2++;
+                }
+                int j2 = j + 1;
+                K nextB = b;
+                while (j2 < m && keyComparator.compare(b, nextB = keyAt(rights, j2, rightKey, keyComparator, b, "right")) == 0) {
+                    j2++;
+                }
+                if (type == JoinType.SEMI) {
+                    for (int x = i; x < i2; x++) {
+                        result.add(combiner.apply(lefts.get(x), rights.get(j)));
+                    }
+                } else if (type != JoinType.ANTI) {
+                    for (int x = i; x < i2; x++) {
+                        L l = lefts.get(x);
+                        for (int y = j; y < j2; y++) {
+                            result.add(combiner.apply(l, rights.get(y)));
+                        }
+                    }
+                }
+                i = i2;
+                j = j2;
+                a = nextA;
+                b = nextB;
+            }
+        }
+        if (type.keepsUnmatchedLeft()) {
+            for (; i < n; i++) {
+                result.add(combiner.apply(lefts.get(i), null));
+            }
+        }
+        if (type.keepsUnmatchedRight()) {
+            for (; j < m; j++) {
+                result.add(combiner.apply(null, rights.get(j)));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 半连接，返回在右侧存在相同键的左侧元素，保持左侧顺序
+     *
+     * @param left     左侧列表
+     * @param right    右侧列表
+     * @param leftKey  左侧键提取函数
+     * @param rightKey 右侧键提取函数
+     * @param <L>      左侧元素类型
+     * @param <R>      右侧元素类型
+     * @param <K>      键类型
+     * @return 有匹配的左侧元素
+     */
+    public static <L, R, K> List<L> semiJoin(List<L> left, List<R> right,
+                                             Function<? super L, ? extends K> leftKey,
+                                             Function<? super R, ? extends K> rightKey) {
+        return hashJoin(left, right, leftKey, rightKey, JoinType.SEMI, (l, r) -> l);
+    }
+
+    /**
+     * 反连接，返回在右侧不存在相同键的左侧元素，保持左侧顺序
+     *
+     * @param left     左侧列表
+     * @param right    右侧列表
+     * @param leftKey  左侧键提取函数
+     * @param rightKey 右侧键提取函数
+     * @param <L>      左侧元素类型
+     * @param <R>      右侧元素类型
+     * @param <K>      键类型
+     * @return 没有匹配的左侧元素
+     */
+    public static <L, R, K> List<L> antiJoin(List<L> left, List<R> right,
+                                             Function<? super L, ? extends K> leftKey,
+                                             Function<? super R, ? extends K> rightKey) {
+        return hashJoin(left, right, leftKey, rightKey, JoinType.ANTI, (l, r) -> l);
+    }
+
+    /**
+     * 以 build 建索引、按 probe 的顺序探测，type 只会是 INNER、LEFT、FULL、SEMI、ANTI 之一
+     */
+    private static <P, B, K, O> List<O> join(List<P> probe, List<B> build,
+                                             Function<? super P, ? extends K> probeKey,
+                                             Function<? super B, ? extends K> buildKey,
+                                             JoinType type, BiFunction<? super P, ? super B, ? extends O> emit,
+                                             boolean parallel) {
+        List<P> probes = randomAccess(probe);
+        List<B> builds = randomAccess(build);
+        int n = probes.size();
+        int m = builds.size();
+        boolean[] matched = type == JoinType.FULL ? new boolean[m] : null;
+        List<O> result;
+        if (parallel && (long) n + m >= PARALLEL_THRESHOLD) {
+            int parallelism = ForkJoinPool.getCommonPoolParallelism();
+            HashIndex index = HashIndex.build(builds, buildKey,
+                    32 - Integer.numberOfLeadingZeros(Math.max(1, parallelism) - 1), true);
+            int chunks = Math.max(1, Math.min(parallelism * 4, n / MIN_CHUNK));
+            List<List<O>> parts = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                parts.add(null);
+            }
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                int from = (int) ((long) n * c / chunks);
+                int to = (int) ((long) n * (c + 1) / chunks);
+                List<O> part = new ArrayList<>(to - from);
+                probe(probes, from, to, probeKey, index, builds, type, matched, emit, part);
+                parts.set(c, part);
+            });
+            int total = 0;
+            for (List<O> part : parts) {
+                total += part.size();
+            }
+            if (matched != null) {
+                for (boolean hit : matched) {
+                    total += hit ? 0 : 1;
+                }
+            }
+            result = new ArrayList<>(total);
+            for (List<O> part : parts) {
+                result.addAll(part);
+            }
+        } else {
+            HashIndex index = HashIndex.build(builds, buildKey, 0, false);
+            result = new ArrayList<>(capacity(type, n, m));
+            probe(probes, 0, n, probeKey, index, builds, type, matched, emit, result);
+        }
+        if (matched != null) {
+            for (int j = 0; j < m; j++) {
+                if (!matched[j]) {
+                    result.add(emit.apply(null, builds.get(j)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 探测 probe 中 [from, to) 的元素，结果追加到 out
+     */
+    private static <P, B, O> void probe(List<P> probe, int from, int to, Function<? super P, ?> probeKey,
+                                        HashIndex index, List<B> build, JoinType type, boolean[] matched,
+                                        BiFunction<? super P, ? super B, ? extends O> emit, List<O> out) {
+        for (int i = from; i < to; i++) {
+            P p = probe.get(i);
+            int j = index.first(probeKey.apply(p));
+            if (j < 0) {
+                if (type.keepsUnmatchedLeft()) {
+                    out.add(emit.apply(p, null));
+                }
+            } else if (type == JoinType.SEMI) {
+                out.add(emit.apply(p, build.get(j)));
+            } else if (type != JoinType.ANTI) {
+                for (; j >= 0; j = index.next(j)) {
+                    if (matched != null) {
+                        matched[j] = true;
+                    }
+                    out.add(emit.apply(p, build.get(j)));
+                }
+            }
+        }
+    }
+
+    /**
+     * 提取第 i 个元素的键，并检查它不小于前一个键
+     */
+    private static <T, K> K keyAt(List<T> list, int i, Function<? super T, ? extends K> key,
+                                  Comparator<? super K> comparator, K previous, String side) {
+        K current = key.apply(list.get(i));
+        if (comparator.compare(previous, current) > 0) {
+            throw new IllegalArgumentException(side + " list is not sorted by key at index " + i);
+        }
+        return current;
+    }
+
+    /**
+     * 估算结果容量：全外连接为两侧之和，其它为探测侧大小
+     */
+    private static int capacity(JoinType type, int left, int right) {
+        long capacity = switch (type) {
+            case FULL -> (long) left + right;
+            case RIGHT -> right;
+            default -> left;
+        };
+        return (int) Math.min(capacity, Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * 按下标访问较慢的列表先复制为 ArrayList
+     */
+    private static <T> List<T> randomAccess(List<T> list) {
+        Objects.requireNonNull(list);
+        return list instanceof RandomAccess ? list : new ArrayList<>(list);
+    }
+
+    /**
+     * 建立在 build 侧上的哈希索引：键映射到第一个元素的下标，相同键的后续元素通过 next 数组按原顺序串联，
+     * 映射中每个不同的键只占一个条目。索引按键的哈希高位分为 2^bits 个分区，各分区可以并行构建，构建完成后只读，可被多线程并发探测。
+     */
+    private static final class HashIndex {
+
+        private final Map<Object, Integer>[] heads;
+
+        private final int[] next;
+
+        private final int bits;
+
+        private HashIndex(int partitions, int size, int bits) {
+            @SuppressWarnings("unchecked")
+            Map<Object, Integer>[] heads = (Map<Object, Integer>[]) new Map<?, ?>[partitions];
+            this.heads = heads;
+            this.next = new int[size];
+            this.bits = bits;
+        }
+
+        static <B> HashIndex build(List<B> build, Function<? super B, ?> buildKey, int bits, boolean parallel) {
+            int m = build.size();
+            int partitions = 1 << bits;
+            HashIndex index = new HashIndex(partitions, m, bits);
+            Object[] keys = new Object[m];
+            int[] partitionOf = new int[m];
+            int chunks = parallel ? Math.max(1, Math.min(partitions * 4, m / MIN_CHUNK)) : 1;
+            IntStream chunkStream = IntStream.range(0, chunks);
+            (parallel ? chunkStream.parallel() : chunkStream).forEach(c -> {
+                int to = (int) ((long) m * (c + 1) / chunks);
+                for (int i = (int) ((long) m * c / chunks); i < to; i++) {
+                    Object key = buildKey.apply(build.get(i));
+                    keys[i] = key;
+                    partitionOf[i] = key == null ? -1 : index.partition(key);
+                }
+            });
+            // 按分区做一次计数排序，分区内保持原顺序
+            int[] start = new int[partitions + 1];
+            for (int p : partitionOf) {
+                if (p >= 0) {
+                    start[p + 1]++;
+                }
+            }
+            for (int p = 0; p < partitions; p++) {
+                start[p + 1] += start[p];
+            }
+            int[] order = new int[start[partitions]];
+            int[] fill = start.clone();
+            for (int i = 0; i < m; i++) {
+                if (partitionOf[i] >= 0) {
+                    order[fill[partitionOf[i]]++] = i;
+                }
+            }
+            IntStream partitionStream = IntStream.range(0, partitions);
+            (parallel ? partitionStream.parallel() : partitionStream).forEach(p -> {
+                Map<Object, Integer> map = new HashMap<>(Math.max(16, (int) ((start[p + 1] - start[p]) / 0.75f) + 1));
+                // 倒序插入，使 next 链按原顺序排列
+                for (int k = start[p + 1] - 1; k >= start[p]; k--) {
+                    int i = order[k];
+                    Integer head = map.put(keys[i], i);
+                    index.next[i] = head == null ? -1 : head;
+                }
+                index.heads[p] = map;
+            });
+            return index;
+        }
+
+        int partition(Object key) {
+            return bits == 0 ? 0 : (key.hashCode() * PARTITION_MULTIPLIER) >>> (32 - bits);
+        }
+
+        int first(Object key) {
+            if (key == null) {
+                return -1;
+            }
+            Integer head = heads[partition(key)].get(key);
+            return head == null ? -1 : head;
+        }
+
+        int next(int i) {
+            return next[i];
+        }
+    }
+}
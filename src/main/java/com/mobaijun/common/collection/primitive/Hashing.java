@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.primitive;
+
+/**
+ * Description: [开放寻址哈希表公共方法]
+ * <p>
+ * 所有哈希表的容量都是 2 的幂，使用线性探测，删除时做反向移位而不留墓碑。
+ * 0 作为空槽标记，键 0 单独存放。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+final class Hashing {
+
+    /**
+     * 默认装载因子
+     */
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    /**
+     * 默认预期元素个数
+     */
+    static final int DEFAULT_EXPECTED_SIZE = 16;
+
+    /**
+     * 最大容量
+     */
+    static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * 黄金分割乘数
+     */
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private Hashing() {
+    }
+
+    /**
+     * 打散 int 键，使低位也受高位影响
+     *
+     * @param key 键
+     * @return 哈希值
+     */
+    static int mix(int key) {
+        int h = key * (int) PHI;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 打散 long 键，使低位也受高位影响
+     *
+     * @param key 键
+     * @return 哈希值
+     */
+    static int mix(long key) {
+        long h = key * PHI;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+
+    /**
+     * 容纳 expected 个元素且不超过装载因子所需的容量
+     *
+     * @param expected   预期元素个数
+     * @param loadFactor 装载因子
+     * @return 2 的幂容量
+     */
+    static int capacity(int expected, float loadFactor) {
+        if (expected < 0) {
+            throw new IllegalArgumentException("expected size must not be negative: " + expected);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("load factor must be in (0, 1): " + loadFactor);
+        }
+        long needed = Math.max(2, (long) Math.ceil(expected / (double) loadFactor));
+        if (needed > MAX_CAPACITY) {
+            throw new IllegalArgumentException("too many elements: " + expected);
+        }
+        return Integer.highestOneBit((int) needed - 1) << 1;
+    }
+
+    /**
+     * 给定容量下触发扩容的元素个数，至少留出一个空槽保证探测能结束
+     *
+     * @param capacity   容量
+     * @param loadFactor 装载因子
+     * @return 扩容阈值
+     */
+    static int maxFill(int capacity, float loadFactor) {
+        return Math.min((int) Math.ceil(capacity * loadFactor), capacity - 1);
+    }
+
+    /**
+     * 线性探测删除时判断 slot 上的元素能否移到空槽 hole：
+     * 元素理想位置 home 不在 (hole, slot] 这段循环区间内时才能前移
+     *
+     * @param home 元素理想位置
+     * @param hole 空槽位置
+     * @param slot 元素当前位置
+     * @return 能否移到空槽
+     */
+    static boolean canShift(int home, int hole, int slot) {
+        return hole <= slot ? home <= hole || home > slot : home <= hole && home > slot;
+    }
+}
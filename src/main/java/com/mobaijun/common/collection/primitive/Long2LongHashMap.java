@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.primitive;
+
+import com.mobaijun.common.collection.LongListStream;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Description: [long 键 long 值开放寻址哈希表]
+ * <p>
+ * 键和值分别保存在两个 long[] 中，线性探测，全程不装箱，适合计数、ID 映射等场景。
+ * 没有该键时 {@link #get}、{@link #put}、{@link #remove} 返回构造时指定的 missingValue，默认 0。非线程安全。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class Long2LongHashMap {
+
+    /**
+     * 装载因子
+     */
+    private final float loadFactor;
+
+    /**
+     * 没有该键时的返回值
+     */
+    private final long missingValue;
+
+    /**
+     * 键槽，0 表示空槽
+     */
+    private long[] keys;
+
+    /**
+     * 值槽，与键槽一一对应
+     */
+    private long[] values;
+
+    /**
+     * 容量减一
+     */
+    private int mask;
+
+    /**
+     * 扩容阈值
+     */
+    private int maxFill;
+
+    /**
+     * 键槽中的键个数，不含 0
+     */
+    private int used;
+
+    /**
+     * 是否包含键 0
+     */
+    private boolean containsZeroKey;
+
+    /**
+     * 键 0 对应的值
+     */
+    private long zeroValue;
+
+    /**
+     * 构造一个空表，missingValue 为 0
+     */
+    public Long2LongHashMap() {
+        this(Hashing.DEFAULT_EXPECTED_SIZE, Hashing.DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    /**
+     * 构造一个能容纳 expectedSize 个键而不扩容的空表，missingValue 为 0
+     *
+     * @param expectedSize 预期键个数
+     */
+    public Long2LongHashMap(int expectedSize) {
+        this(expectedSize, Hashing.DEFAULT_LOAD_FACTOR, 0);
+    }
+
+    /**
+     * 构造一个能容纳 expectedSize 个键而不扩容的空表
+     *
+     * @param expectedSize 预期键个数
+     * @param loadFactor   装载因子，取值 (0, 1)
+     * @param missingValue 没有该键时的返回值
+     */
+    public Long2LongHashMap(int expectedSize, float loadFactor, long missingValue) {
+        int capacity = Hashing.capacity(expectedSize, loadFactor);
+        this.loadFactor = loadFactor;
+        this.missingValue = missingValue;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.mask = capacity - 1;
+        this.maxFill = Hashing.maxFill(capacity, loadFactor);
+    }
+
+    /**
+     * 放入键值对
+     *
+     * @param key   键
+     * @param value 值
+     * @return 原来的值，没有该键时返回 missingValue
+     */
+    public long put(long key, long value) {
+        if (key == 0) {
+            long previous = containsZeroKey ? zeroValue : missingValue;
+            containsZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            long previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        insert(-slot - 1, key, value);
+        return missingValue;
+    }
+
+    /**
+     * 把 delta 加到键对应的值上，没有该键时按 0 计
+     *
+     * @param key   键
+     * @param delta 增量
+     * @return 相加后的值
+     */
+    public long addTo(long key, long delta) {
+        if (key == 0) {
+            zeroValue = containsZeroKey ? zeroValue + delta : delta;
+            containsZeroKey = true;
+            return zeroValue;
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            return values[slot] += delta;
+        }
+        insert(-slot - 1, key, delta);
+        return delta;
+    }
+
+    /**
+     * 获取键对应的值
+     *
+     * @param key 键
+     * @return 值，没有该键时返回 missingValue
+     */
+    public long get(long key) {
+        return getOrDefault(key, missingValue);
+    }
+
+    /**
+     * 获取键对应的值，没有该键时返回默认值
+     *
+     * @param key          键
+     * @param defaultValue 默认值
+     * @return 值
+     */
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == 0) {
+            return containsZeroKey ? zeroValue : defaultValue;
+        }
+        int slot = find(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    /**
+     * 判断是否包含键
+     *
+     * @param key 键
+     * @return 包含时返回true
+     */
+    public boolean containsKey(long key) {
+        return key == 0 ? containsZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * 删除键
+     *
+     * @param key 键
+     * @return 原来的值，没有该键时返回 missingValue
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            long previous = containsZeroKey ? zeroValue : missingValue;
+            containsZeroKey = false;
+            zeroValue = 0;
+            return previous;
+        }
+        int slot = find(key);
+        if (slot < 0) {
+            return missingValue;
+        }
+        long previous = values[slot];
+        removeSlot(slot);
+        return previous;
+    }
+
+    /**
+     * 删除满足条件的键值对，直接扫描键槽，不创建迭代器
+     *
+     * @param filter 条件
+     * @return 有键值对被删除时返回true
+     */
+    public boolean removeIf(EntryPredicate filter) {
+        Objects.requireNonNull(filter);
+        int before = size();
+        if (containsZeroKey && filter.test(0, zeroValue)) {
+            remove(0);
+        }
+        // 从一个空槽之后开始扫描，反向移位只会把尚未扫描的键移到当前位置
+        int start = emptySlot();
+        for (int n = 1; n <= keys.length; n++) {
+            int slot = (start + n) & mask;
+            while (keys[slot] != 0 && filter.test(keys[slot], values[slot])) {
+                removeSlot(slot);
+            }
+        }
+        return size() != before;
+    }
+
+    /**
+     * 对每个键值对执行操作，顺序不确定
+     *
+     * @param action 操作
+     */
+    public void forEach(EntryConsumer action) {
+        Objects.requireNonNull(action);
+        if (containsZeroKey) {
+            action.accept(0, zeroValue);
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                action.accept(keys[slot], values[slot]);
+            }
+        }
+    }
+
+    /**
+     * 键值对个数
+     *
+     * @return 键值对个数
+     */
+    public int size() {
+        return containsZeroKey ? used + 1 : used;
+    }
+
+    /**
+     * 是否为空
+     *
+     * @return 为空时返回true
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 清空，保留容量
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, 0);
+        used = 0;
+        containsZeroKey = false;
+        zeroValue = 0;
+    }
+
+    /**
+     * 所有键组成的LongListStream，顺序不确定
+     *
+     * @return LongListStream
+     */
+    public LongListStream keys() {
+        return collect(true);
+    }
+
+    /**
+     * 所有值组成的LongListStream，顺序与 {@link #keys()} 一致
+     *
+     * @return LongListStream
+     */
+    public LongListStream values() {
+        return collect(false);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+
+    private LongListStream collect(boolean collectKeys) {
+        long[] result = new long[size()];
+        int n = 0;
+        if (containsZeroKey) {
+            result[n++] = collectKeys ? 0 : zeroValue;
+        }
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0) {
+                result[n++] = collectKeys ? keys[slot] : values[slot];
+            }
+        }
+        return LongListStream.of(result);
+    }
+
+    /**
+     * 查找非 0 键所在的槽
+     *
+     * @return 找到时返回槽位置，否则返回 -(可插入位置 + 1)
+     */
+    private int find(long key) {
+        int slot = Hashing.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    private void insert(int slot, long key, long value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++used > maxFill) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    /**
+     * 删除 slot 上的键值对，并把同一探测链上后续的键值对前移填补空位
+     */
+    private void removeSlot(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        long key;
+        while ((key = keys[next]) != 0) {
+            if (Hashing.canShift(Hashing.mix(key) & mask, hole, next)) {
+                keys[hole] = key;
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = 0;
+        values[hole] = 0;
+        used--;
+    }
+
+    private int emptySlot() {
+        int slot = 0;
+        while (keys[slot] != 0) {
+            slot++;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        if (capacity > Hashing.MAX_CAPACITY) {
+            throw new IllegalStateException("Long2LongHashMap is full");
+        }
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        maxFill = Hashing.maxFill(capacity, loadFactor);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int slot = Hashing.mix(key) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * 键值对操作
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        /**
+         * 处理一个键值对
+         *
+         * @param key   键
+         * @param value 值
+         */
+        void accept(long key, long value);
+    }
+
+    /**
+     * 键值对条件
+     */
+    @FunctionalInterface
+    public interface EntryPredicate {
+
+        /**
+         * 判断一个键值对
+         *
+         * @param key   键
+         * @param value 值
+         * @return 满足条件时返回true
+         */
+        boolean test(long key, long value);
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.primitive;
+
+import com.mobaijun.common.collection.ListStream;
+import com.mobaijun.common.collection.LongListStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Description: [long 可增长数组列表]
+ * <p>
+ * 元素连续保存在 long[] 中，每个元素 8 字节，同样的数据用 ArrayList&lt;Long&gt; 保存每个元素需要 24 字节以上。
+ * 容量不足时按 1.5 倍扩容。非线程安全。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class LongArrayList {
+
+    /**
+     * 空数组，延迟分配
+     */
+    private static final long[] EMPTY = new long[0];
+
+    /**
+     * 默认容量
+     */
+    private static final int DEFAULT_CAPACITY = 10;
+
+    /**
+     * 元素数组，只使用前 size 个
+     */
+    private long[] data;
+
+    /**
+     * 元素个数
+     */
+    private int size;
+
+    /**
+     * 构造一个空列表
+     */
+    public LongArrayList() {
+        this.data = EMPTY;
+    }
+
+    /**
+     * 构造一个指定初始容量的空列表
+     *
+     * @param capacity 初始容量
+     */
+    public LongArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        this.data = capacity == 0 ? EMPTY : new long[capacity];
+    }
+
+    /**
+     * 以数组中的元素构造列表，数组会被复制
+     *
+     * @param values 元素
+     * @return 列表
+     */
+    public static LongArrayList of(long... values) {
+        LongArrayList list = new LongArrayList(values.length);
+        list.addAll(values);
+        return list;
+    }
+
+    /**
+     * 追加元素
+     *
+     * @param value 元素
+     */
+    public void add(long value) {
+        if (size == data.length) {
+            grow(size + 1);
+        }
+        data[size++] = value;
+    }
+
+    /**
+     * 在指定位置插入元素
+     *
+     * @param index 位置
+     * @param value 元素
+     */
+    public void add(int index, long value) {
+        Objects.checkIndex(index, size + 1);
+        if (size == data.length) {
+            grow(size + 1);
+        }
+        System.arraycopy(data, index, data, index + 1, size - index);
+        data[index] = value;
+        size++;
+    }
+
+    /**
+     * 追加数组中的所有元素
+     *
+     * @param values 元素
+     */
+    public void addAll(long... values) {
+        ensureCapacity(size + values.length);
+        System.arraycopy(values, 0, data, size, values.length);
+        size += values.length;
+    }
+
+    /**
+     * 追加另一个列表中的所有元素
+     *
+     * @param other 另一个列表
+     */
+    public void addAll(LongArrayList other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.data, 0, data, size, other.size);
+        size += other.size;
+    }
+
+    /**
+     * 获取指定位置的元素
+     *
+     * @param index 位置
+     * @return 元素
+     */
+    public long get(int index) {
+        Objects.checkIndex(index, size);
+        return data[index];
+    }
+
+    /**
+     * 替换指定位置的元素
+     *
+     * @param index 位置
+     * @param value 新元素
+     * @return 原来的元素
+     */
+    public long set(int index, long value) {
+        Objects.checkIndex(index, size);
+        long previous = data[index];
+        data[index] = value;
+        return previous;
+    }
+
+    /**
+     * 删除指定位置的元素
+     *
+     * @param index 位置
+     * @return 被删除的元素
+     */
+    public long removeAt(int index) {
+        Objects.checkIndex(index, size);
+        long previous = data[index];
+        System.arraycopy(data, index + 1, data, index, size - index - 1);
+        size--;
+        return previous;
+    }
+
+    /**
+     * 删除满足条件的元素，一次遍历原地压缩
+     *
+     * @param filter 条件
+     * @return 有元素被删除时返回true
+     */
+    public boolean removeIf(LongPredicate filter) {
+        Objects.requireNonNull(filter);
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(data[i])) {
+                data[n++] = data[i];
+            }
+        }
+        boolean removed = n != size;
+        size = n;
+        return removed;
+    }
+
+    /**
+     * 查找元素第一次出现的位置
+     *
+     * @param value 元素
+     * @return 位置，不存在时返回 -1
+     */
+    public int indexOf(long value) {
+        for (int i = 0; i < size; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 判断是否包含元素
+     *
+     * @param value 元素
+     * @return 包含时返回true
+     */
+    public boolean contains(long value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * 对每个元素执行操作
+     *
+     * @param action 操作
+     */
+    public void forEach(LongConsumer action) {
+        Objects.requireNonNull(action);
+        for (int i = 0; i < size; i++) {
+            action.accept(data[i]);
+        }
+    }
+
+    /**
+     * 升序排序
+     */
+    public void sort() {
+        Arrays.sort(data, 0, size);
+    }
+
+    /**
+     * 元素个数
+     *
+     * @return 元素个数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 是否为空
+     *
+     * @return 为空时返回true
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 清空列表，保留容量
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * 保证容量不小于 capacity
+     *
+     * @param capacity 最小容量
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            grow(capacity);
+        }
+    }
+
+    /**
+     * 把容量缩小到元素个数
+     */
+    public void trimToSize() {
+        if (size < data.length) {
+            data = size == 0 ? EMPTY : Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * 转换为数组
+     *
+     * @return 包含所有元素的新数组
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(data, size);
+    }
+
+    /**
+     * 转换为LongListStream
+     *
+     * @return LongListStream
+     */
+    public LongListStream stream() {
+        return LongListStream.of(toArray());
+    }
+
+    /**
+     * 装箱为ListStream
+     *
+     * @return ListStream
+     */
+    public ListStream<Long> boxed() {
+        return stream().boxed();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof LongArrayList other && Arrays.equals(data, 0, size, other.data, 0, other.size);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + Long.hashCode(data[i]);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            builder.append(i > 0 ? ", " : "").append(data[i]);
+        }
+        return builder.append(']').toString();
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = data.length == 0 ? Math.max(DEFAULT_CAPACITY, minCapacity) : data.length + (data.length >> 1);
+        if (capacity < minCapacity || capacity < 0) {
+            capacity = minCapacity;
+        }
+        data = Arrays.copyOf(data, capacity);
+    }
+}
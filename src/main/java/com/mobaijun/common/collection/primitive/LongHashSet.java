@@ -0,0 +1,380 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.primitive;
+
+import com.mobaijun.common.collection.ListStream;
+import com.mobaijun.common.collection.LongListStream;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Description: [long 开放寻址哈希集合]
+ * <p>
+ * 元素直接保存在 long[] 中，线性探测，不装箱，每个元素约占 8 / 装载因子 字节，
+ * 同样的数据用 HashSet&lt;Long&gt; 保存每个元素需要 40 字节以上。非线程安全。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class LongHashSet {
+
+    /**
+     * 装载因子
+     */
+    private final float loadFactor;
+
+    /**
+     * 哈希槽，0 表示空槽
+     */
+    private long[] keys;
+
+    /**
+     * 容量减一
+     */
+    private int mask;
+
+    /**
+     * 扩容阈值
+     */
+    private int maxFill;
+
+    /**
+     * 哈希槽中的元素个数，不含 0
+     */
+    private int used;
+
+    /**
+     * 是否包含 0
+     */
+    private boolean containsZero;
+
+    /**
+     * 构造一个空集合
+     */
+    public LongHashSet() {
+        this(Hashing.DEFAULT_EXPECTED_SIZE, Hashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * 构造一个能容纳 expectedSize 个元素而不扩容的空集合
+     *
+     * @param expectedSize 预期元素个数
+     */
+    public LongHashSet(int expectedSize) {
+        this(expectedSize, Hashing.DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * 构造一个能容纳 expectedSize 个元素而不扩容的空集合
+     *
+     * @param expectedSize 预期元素个数
+     * @param loadFactor   装载因子，取值 (0, 1)，越大越省内存、探测越长
+     */
+    public LongHashSet(int expectedSize, float loadFactor) {
+        int capacity = Hashing.capacity(expectedSize, loadFactor);
+        this.loadFactor = loadFactor;
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+        this.maxFill = Hashing.maxFill(capacity, loadFactor);
+    }
+
+    /**
+     * 以数组中的元素构造集合
+     *
+     * @param values 元素
+     * @return 集合
+     */
+    public static LongHashSet of(long... values) {
+        LongHashSet set = new LongHashSet(values.length);
+        for (long value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param value 元素
+     * @return 集合中原来没有该元素时返回true
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            boolean added = !containsZero;
+            containsZero = true;
+            return added;
+        }
+        int slot = Hashing.mix(value) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = value;
+        if (++used > maxFill) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    /**
+     * 添加 other 中的所有元素
+     *
+     * @param other 另一个集合
+     * @return 集合有变化时返回true
+     */
+    public boolean addAll(LongHashSet other) {
+        int before = size();
+        other.forEach(this::add);
+        return size() != before;
+    }
+
+    /**
+     * 判断是否包含元素
+     *
+     * @param value 元素
+     * @return 包含时返回true
+     */
+    public boolean contains(long value) {
+        if (value == 0) {
+            return containsZero;
+        }
+        int slot = Hashing.mix(value) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 删除元素
+     *
+     * @param value 元素
+     * @return 集合中有该元素时返回true
+     */
+    public boolean remove(long value) {
+        if (value == 0) {
+            boolean removed = containsZero;
+            containsZero = false;
+            return removed;
+        }
+        int slot = Hashing.mix(value) & mask;
+        long current;
+        while ((current = keys[slot]) != 0) {
+            if (current == value) {
+                removeSlot(slot);
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * 删除满足条件的元素，直接扫描哈希槽，不创建迭代器
+     *
+     * @param filter 条件
+     * @return 有元素被删除时返回true
+     */
+    public boolean removeIf(LongPredicate filter) {
+        Objects.requireNonNull(filter);
+        int before = size();
+        if (containsZero && filter.test(0)) {
+            containsZero = false;
+        }
+        // 从一个空槽之后开始扫描，反向移位只会把尚未扫描的元素移到当前位置
+        int start = emptySlot();
+        for (int n = 1; n <= keys.length; n++) {
+            int slot = (start + n) & mask;
+            while (keys[slot] != 0 && filter.test(keys[slot])) {
+                removeSlot(slot);
+            }
+        }
+        return size() != before;
+    }
+
+    /**
+     * 对每个元素执行操作，顺序不确定
+     *
+     * @param action 操作
+     */
+    public void forEach(LongConsumer action) {
+        Objects.requireNonNull(action);
+        if (containsZero) {
+            action.accept(0);
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                action.accept(key);
+            }
+        }
+    }
+
+    /**
+     * 元素个数
+     *
+     * @return 元素个数
+     */
+    public int size() {
+        return containsZero ? used + 1 : used;
+    }
+
+    /**
+     * 是否为空
+     *
+     * @return 为空时返回true
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * 清空集合，保留容量
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        used = 0;
+        containsZero = false;
+    }
+
+    /**
+     * 转换为数组，顺序不确定
+     *
+     * @return 数组
+     */
+    public long[] toArray() {
+        long[] result = new long[size()];
+        int n = 0;
+        if (containsZero) {
+            result[n++] = 0;
+        }
+        for (long key : keys) {
+            if (key != 0) {
+                result[n++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 转换为LongListStream，顺序不确定
+     *
+     * @return LongListStream
+     */
+    public LongListStream stream() {
+        return LongListStream.of(toArray());
+    }
+
+    /**
+     * 装箱为ListStream，顺序不确定
+     *
+     * @return ListStream
+     */
+    public ListStream<Long> boxed() {
+        return stream().boxed();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LongHashSet other) || other.size() != size() || other.containsZero != containsZero) {
+            return false;
+        }
+        for (long key : keys) {
+            if (key != 0 && !other.contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (long key : keys) {
+            hash += Long.hashCode(key);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        forEach(value -> builder.append(builder.length() > 1 ? ", " : "").append(value));
+        return builder.append(']').toString();
+    }
+
+    /**
+     * 删除 slot 上的元素，并把同一探测链上后续的元素前移填补空位
+     */
+    private void removeSlot(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        long key;
+        while ((key = keys[next]) != 0) {
+            if (Hashing.canShift(Hashing.mix(key) & mask, hole, next)) {
+                keys[hole] = key;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = 0;
+        used--;
+    }
+
+    /**
+     * 任意一个空槽，容量总大于元素个数，一定存在
+     */
+    private int emptySlot() {
+        int slot = 0;
+        while (keys[slot] != 0) {
+            slot++;
+        }
+        return slot;
+    }
+
+    /**
+     * 扩容并重新放置所有元素
+     */
+    private void rehash(int capacity) {
+        if (capacity > Hashing.MAX_CAPACITY) {
+            throw new IllegalStateException("LongHashSet is full");
+        }
+        long[] old = keys;
+        keys = new long[capacity];
+        mask = capacity - 1;
+        maxFill = Hashing.maxFill(capacity, loadFactor);
+        for (long key : old) {
+            if (key != 0) {
+                int slot = Hashing.mix(key) & mask;
+                while (keys[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,536 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.queue;
+
+import com.mobaijun.common.collection.QueueUtil;
+import com.mobaijun.common.thread.ExecutorServiceUtil;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Description: [批量消费者]
+ * <p>
+ * 生产者通过 {@link #submit} 把元素放入队列，后台工作线程从队列中取出元素攒成批次交给处理函数，
+ * 批次达到 maxBatchSize 个元素，或者距批次中第一个元素取出已经过了 maxLatency 时提交，以先到者为准。
+ * <ul>
+ *     <li>队列有界，队列满时 {@link #submit} 阻塞，{@link #offer} 返回false，形成背压。</li>
+ *     <li>可以有多个工作线程，各自独立攒批，同一个批次只由一个线程处理；批次之间的顺序不保证。</li>
+ *     <li>{@link #close()} 后不再接受新元素，工作线程处理完队列中剩余的元素后退出。</li>
+ * </ul>
+ * 队列可以是 {@link QueueUtil} 创建的 BlockingQueue，也可以是 {@link RingQueue}（配合 {@link WaitStrategy}），
+ * 使用 {@link MpscRingQueue} 时只能有一个工作线程。{@link #submit}、{@link #offer} 可以被任意线程调用，
+ * 因此不接受只允许单个生产者的 {@link SpscRingQueue}。
+ * 处理函数抛出的异常交给 errorHandler，默认记录日志后丢弃该批次。处理函数拿到的 List 归其所有，可以保留。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param <E> 元素类型
+ */
+@Slf4j
+public final class BatchingConsumer<E> implements AutoCloseable {
+
+    /**
+     * 每次等待元素的最长时间，决定关闭后工作线程发现关闭的延迟
+     */
+    private static final long IDLE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Channel<E> channel;
+
+    private final Consumer<? super List<E>> handler;
+
+    private final BiConsumer<? super List<E>, ? super Throwable> errorHandler;
+
+    private final int maxBatchSize;
+
+    private final long maxLatencyNanos;
+
+    /**
+     * 所有工作线程退出后归零
+     */
+    private final CountDownLatch terminated;
+
+    /**
+     * 已通过关闭检查、尚未放入队列的提交个数，工作线程在其归零且队列为空后才退出
+     */
+    private final AtomicInteger pendingSubmits = new AtomicInteger();
+
+    private final LongAdder batchCount = new LongAdder();
+
+    private final LongAdder elementCount = new LongAdder();
+
+    private volatile boolean closed;
+
+    private BatchingConsumer(Builder<E> builder) {
+        this.channel = builder.channel != null ? builder.channel
+                : new BlockingChannel<>(QueueUtil.createLinkedBlockingQueue(builder.capacity));
+        this.handler = builder.handler;
+        this.errorHandler = builder.errorHandler;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxLatencyNanos = builder.maxLatency.toNanos();
+        this.terminated = new CountDownLatch(builder.workers);
+        for (int i = 0; i < builder.workers; i++) {
+            builder.threadFactory.newThread(this::work).start();
+        }
+    }
+
+    /**
+     * 创建构建器
+     *
+     * @param handler 批次处理函数
+     * @param <E>     元素类型
+     * @return 构建器
+     */
+    public static <E> Builder<E> builder(Consumer<? super List<E>> handler) {
+        return new Builder<>(handler);
+    }
+
+    /**
+     * 提交元素，队列满时阻塞等待
+     *
+     * @param e 元素
+     * @throws InterruptedException 等待时线程被中断
+     */
+    public void submit(E e) throws InterruptedException {
+        Objects.requireNonNull(e);
+        enter();
+        try {
+            channel.put(e);
+        } finally {
+            pendingSubmits.decrementAndGet();
+        }
+    }
+
+    /**
+     * 提交元素，队列满时立即返回
+     *
+     * @param e 元素
+     * @return 放入队列时返回true
+     */
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        enter();
+        try {
+            return channel.offer(e);
+        } finally {
+            pendingSubmits.decrementAndGet();
+        }
+    }
+
+    /**
+     * 提交元素，队列满时最多等待 timeout
+     *
+     * @param e       元素
+     * @param timeout 最长等待时间
+     * @return 放入队列时返回true
+     * @throws InterruptedException 等待时线程被中断
+     */
+    public boolean offer(E e, Duration timeout) throws InterruptedException {
+        Objects.requireNonNull(e);
+        enter();
+        try {
+            return channel.offer(e, timeout.toNanos());
+        } finally {
+            pendingSubmits.decrementAndGet();
+        }
+    }
+
+    /**
+     * 已提交给处理函数的批次数
+     *
+     * @return 批次数
+     */
+    public long batchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * 已提交给处理函数的元素数
+     *
+     * @return 元素数
+     */
+    public long elementCount() {
+        return elementCount.sum();
+    }
+
+    /**
+     * 是否已关闭
+     *
+     * @return 已关闭时返回true
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 停止接受新元素，最多等待 timeout 让工作线程处理完剩余元素
+     *
+     * @param timeout 最长等待时间
+     * @return 所有工作线程都已退出时返回true
+     * @throws InterruptedException 等待时线程被中断
+     */
+    public boolean close(Duration timeout) throws InterruptedException {
+        closed = true;
+        return terminated.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 停止接受新元素，等待工作线程处理完剩余元素
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            terminated.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enter() {
+        pendingSubmits.incrementAndGet();
+        if (closed) {
+            pendingSubmits.decrementAndGet();
+            throw new IllegalStateException("BatchingConsumer is closed");
+        }
+    }
+
+    /**
+     * 工作线程主循环
+     */
+    private void work() {
+        List<E> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (true) {
+                E first = channel.poll(IDLE_POLL_NANOS);
+                if (first == null) {
+                    if (closed && pendingSubmits.get() == 0 && channel.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (batch.size() < maxBatchSize) {
+                    if (channel.drainTo(batch, maxBatchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    // 关闭后不再等待凑满批次；分段等待，以便在 maxLatency 较长时也能及时发现关闭
+                    long remaining = closed ? 0 : deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    E next = channel.poll(Math.min(remaining, IDLE_POLL_NANOS));
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                flush(batch);
+                batch = new ArrayList<>(maxBatchSize);
+            }
+        } catch (InterruptedException e) {
+            if (!batch.isEmpty()) {
+                flush(batch);
+            }
+            Thread.currentThread().interrupt();
+        } finally {
+            terminated.countDown();
+        }
+    }
+
+    private void flush(List<E> batch) {
+        batchCount.increment();
+        elementCount.add(batch.size());
+        try {
+            handler.accept(batch);
+        } catch (Throwable t) {
+            try {
+                errorHandler.accept(batch, t);
+            } catch (Throwable handlerError) {
+                log.error("Error handler failed for a batch of {} elements", batch.size(), handlerError);
+            }
+        }
+    }
+
+    /**
+     * 工作线程读取、生产者写入的队列
+     */
+    private interface Channel<E> {
+
+        void put(E e) throws InterruptedException;
+
+        boolean offer(E e);
+
+        boolean offer(E e, long nanos) throws InterruptedException;
+
+        E poll(long nanos) throws InterruptedException;
+
+        int drainTo(List<E> batch, int max);
+
+        boolean isEmpty();
+    }
+
+    private record BlockingChannel<E>(BlockingQueue<E> queue) implements Channel<E> {
+
+        @Override
+        public void put(E e) throws InterruptedException {
+            queue.put(e);
+        }
+
+        @Override
+        public boolean offer(E e) {
+            return queue.offer(e);
+        }
+
+        @Override
+        public boolean offer(E e, long nanos) throws InterruptedException {
+            return queue.offer(e, nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public E poll(long nanos) throws InterruptedException {
+            return queue.poll(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int drainTo(List<E> batch, int max) {
+            return queue.drainTo(batch, max);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return queue.isEmpty();
+        }
+    }
+
+    private record RingChannel<E>(RingQueue<E> queue, WaitStrategy waitStrategy) implements Channel<E> {
+
+        @Override
+        public void put(E e) throws InterruptedException {
+            queue.put(e, waitStrategy);
+        }
+
+        @Override
+        public boolean offer(E e) {
+            return queue.offer(e);
+        }
+
+        @Override
+        public boolean offer(E e, long nanos) throws InterruptedException {
+            long deadline = System.nanoTime() + nanos;
+            int attempts = 0;
+            while (!queue.offer(e)) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                waitStrategy.idle(attempts++);
+            }
+            return true;
+        }
+
+        @Override
+        public E poll(long nanos) throws InterruptedException {
+            long deadline = System.nanoTime() + nanos;
+            int attempts = 0;
+            E e;
+            while ((e = queue.poll()) == null) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    return null;
+                }
+                waitStrategy.idle(attempts++);
+            }
+            return e;
+        }
+
+        @Override
+        public int drainTo(List<E> batch, int max) {
+            return queue.drain(batch::add, max);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return queue.isEmpty();
+        }
+    }
+
+    /**
+     * 批量消费者构建器
+     *
+     * @param <E> 元素类型
+     */
+    public static final class Builder<E> {
+
+        private final Consumer<? super List<E>> handler;
+
+        private Channel<E> channel;
+
+        private int capacity = 10_000;
+
+        private int maxBatchSize = 100;
+
+        private Duration maxLatency = Duration.ofMillis(100);
+
+        private int workers = 1;
+
+        private ThreadFactory threadFactory = ExecutorServiceUtil.getDefaultTreadFactory();
+
+        private BiConsumer<? super List<E>, ? super Throwable> errorHandler = (batch, t) ->
+                log.error("Failed to handle a batch of {} elements", batch.size(), t);
+
+        private boolean singleConsumer;
+
+        private Builder(Consumer<? super List<E>> handler) {
+            this.handler = Objects.requireNonNull(handler);
+        }
+
+        /**
+         * 使用默认的 LinkedBlockingQueue 时的队列容量，默认 10000
+         *
+         * @param capacity 队列容量
+         * @return 构建器
+         */
+        public Builder<E> capacity(int capacity) {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("capacity must be positive: " + capacity);
+            }
+            this.capacity = capacity;
+            return this;
+        }
+
+        /**
+         * 使用指定的阻塞队列，如 {@link QueueUtil#createArrayBlockingQueue(int)}
+         *
+         * @param queue 阻塞队列
+         * @return 构建器
+         */
+        public Builder<E> queue(BlockingQueue<E> queue) {
+            this.channel = new BlockingChannel<>(Objects.requireNonNull(queue));
+            this.singleConsumer = false;
+            return this;
+        }
+
+        /**
+         * 使用指定的环形队列，满或空时按 wait 等待
+         *
+         * @param queue 环形队列，不能是 {@link SpscRingQueue}
+         * @param wait  等待策略
+         * @return 构建器
+         * @throws IllegalArgumentException queue 是只允许单个生产者的 {@link SpscRingQueue}
+         */
+        public Builder<E> queue(RingQueue<E> queue, WaitStrategy wait) {
+            if (queue instanceof SpscRingQueue) {
+                throw new IllegalArgumentException("single-producer ring queue cannot be used, submit may be called "
+                        + "from any thread");
+            }
+            this.channel = new RingChannel<>(Objects.requireNonNull(queue), Objects.requireNonNull(wait));
+            this.singleConsumer = !(queue instanceof MpmcRingQueue);
+            return this;
+        }
+
+        /**
+         * 每个批次最多的元素个数，默认 100
+         *
+         * @param maxBatchSize 最多元素个数
+         * @return 构建器
+         */
+        public Builder<E> maxBatchSize(int maxBatchSize) {
+            if (maxBatchSize <= 0) {
+                throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * 批次中第一个元素取出后最多等待多久提交，默认 100 毫秒
+         *
+         * @param maxLatency 最长等待时间
+         * @return 构建器
+         */
+        public Builder<E> maxLatency(Duration maxLatency) {
+            if (maxLatency.isNegative()) {
+                throw new IllegalArgumentException("maxLatency must not be negative: " + maxLatency);
+            }
+            this.maxLatency = maxLatency;
+            return this;
+        }
+
+        /**
+         * 工作线程数，默认 1
+         *
+         * @param workers 工作线程数
+         * @return 构建器
+         */
+        public Builder<E> workers(int workers) {
+            if (workers <= 0) {
+                throw new IllegalArgumentException("workers must be positive: " + workers);
+            }
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * 创建工作线程的线程工厂，默认 {@link ExecutorServiceUtil#getDefaultTreadFactory()}
+         *
+         * @param threadFactory 线程工厂
+         * @return 构建器
+         */
+        public Builder<E> threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = Objects.requireNonNull(threadFactory);
+            return this;
+        }
+
+        /**
+         * 处理函数抛出异常时的回调，默认记录日志
+         *
+         * @param errorHandler 异常回调
+         * @return 构建器
+         */
+        public Builder<E> errorHandler(BiConsumer<? super List<E>, ? super Throwable> errorHandler) {
+            this.errorHandler = Objects.requireNonNull(errorHandler);
+            return this;
+        }
+
+        /**
+         * 创建并启动工作线程
+         *
+         * @return 批量消费者
+         */
+        public BatchingConsumer<E> start() {
+            if (singleConsumer && workers > 1) {
+                throw new IllegalArgumentException("single-consumer ring queue supports only one worker");
+            }
+            return new BatchingConsumer<>(this);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.queue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Description: [多生产者多消费者环形队列]
+ * <p>
+ * 每个槽位带一个序号（Vyukov 有界队列）：序号等于生产者下标时可写，等于生产者下标加一时可读，
+ * 生产者和消费者各自 CAS 自己的下标占用槽位，写入或取出后推进槽位序号。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param <E> 元素类型
+ */
+public class MpmcRingQueue<E> extends RingQueue<E> {
+
+    /**
+     * 序号数组的 VarHandle
+     */
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * 槽位序号
+     */
+    private final long[] sequences;
+
+    /**
+     * 构造队列
+     *
+     * @param capacity 容量，向上取整到 2 的幂
+     */
+    public MpmcRingQueue(int capacity) {
+        super(capacity);
+        this.sequences = new long[capacity()];
+        for (int i = 0; i < sequences.length; i++) {
+            sequences[i] = i;
+        }
+        VarHandle.releaseFence();
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long index = claimProducer();
+        if (index < 0) {
+            return false;
+        }
+        publish(index, e);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        while (true) {
+            long index = consumerIndex;
+            int offset = offset(index);
+            long sequence = (long) SEQUENCES.getAcquire(sequences, offset);
+            long diff = sequence - (index + 1);
+            if (diff == 0) {
+                if (CONSUMER_INDEX.compareAndSet(this, index, index + 1)) {
+                    E e = elementAcquire(offset);
+                    ELEMENTS.set(buffer, offset, null);
+                    SEQUENCES.setRelease(sequences, offset, index + capacity());
+                    return e;
+                }
+            } else if (diff < 0) {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public E peek() {
+        while (true) {
+            long index = consumerIndex;
+            int offset = offset(index);
+            long sequence = (long) SEQUENCES.getAcquire(sequences, offset);
+            if (sequence < index + 1) {
+                return null;
+            }
+            E e = elementAcquire(offset);
+            if (sequence == index + 1 && e != null && index == consumerIndex) {
+                return e;
+            }
+        }
+    }
+
+    /**
+     * 逐个占用槽位后从 supplier 获取元素写入。
+     * 槽位占用后消费者会等待写入，supplier 返回 null 或抛出异常会使该槽位无法再使用，调用方需要保证 supplier 正常返回非 null 元素。
+     *
+     * @param supplier 元素提供函数
+     * @param limit    最多放入的个数
+     * @return 实际放入的个数
+     */
+    @Override
+    public int fill(Supplier<? extends E> supplier, int limit) {
+        Objects.requireNonNull(supplier);
+        int n = 0;
+        long index;
+        while (n < limit && (index = claimProducer()) >= 0) {
+            publish(index, supplier.get());
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * 占用一个可写槽位
+     *
+     * @return 槽位下标，队列满时返回 -1
+     */
+    private long claimProducer() {
+        while (true) {
+            long index = producerIndex;
+            long sequence = (long) SEQUENCES.getAcquire(sequences, offset(index));
+            long diff = sequence - index;
+            if (diff == 0) {
+                if (PRODUCER_INDEX.compareAndSet(this, index, index + 1)) {
+                    return index;
+                }
+            } else if (diff < 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void publish(long index, Object e) {
+        int offset = offset(index);
+        ELEMENTS.set(buffer, offset, e);
+        SEQUENCES.setRelease(sequences, offset, index + 1);
+    }
+}
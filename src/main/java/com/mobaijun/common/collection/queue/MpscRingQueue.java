@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.queue;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Description: [多生产者单消费者环形队列]
+ * <p>
+ * 生产者通过 CAS 生产者下标占用槽位后写入元素，可写上限缓存在生产者一侧，只有达到上限时才读取消费者下标；
+ * 消费者不需要 CAS。只能有一个线程调用 poll/drain/take。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param <E> 元素类型
+ */
+public class MpscRingQueue<E> extends RingQueue<E> {
+
+    /**
+     * 构造队列
+     *
+     * @param capacity 容量，向上取整到 2 的幂
+     */
+    public MpscRingQueue(int capacity) {
+        super(capacity);
+        this.producerLimit = capacity();
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long index = claim(1);
+        if (index < 0) {
+            return false;
+        }
+        elementRelease(offset(index), e);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long index = consumerIndex;
+        int offset = offset(index);
+        E e = elementAcquire(offset);
+        if (e == null) {
+            if (index == producerIndex) {
+                return null;
+            }
+            // 槽位已被生产者占用但元素尚未写入，等待写入完成
+            do {
+                Thread.onSpinWait();
+                e = elementAcquire(offset);
+            } while (e == null);
+        }
+        elementRelease(offset, null);
+        CONSUMER_INDEX.setRelease(this, index + 1);
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        long index = consumerIndex;
+        int offset = offset(index);
+        E e = elementAcquire(offset);
+        if (e == null && index != producerIndex) {
+            do {
+                Thread.onSpinWait();
+                e = elementAcquire(offset);
+            } while (e == null);
+        }
+        return e;
+    }
+
+    /**
+     * 一次 CAS 占用最多 limit 个槽位后逐个写入。
+     * 槽位占用后消费者会等待写入，supplier 返回 null 或抛出异常会使消费者一直等待，调用方需要保证 supplier 正常返回非 null 元素。
+     *
+     * @param supplier 元素提供函数
+     * @param limit    最多放入的个数
+     * @return 实际放入的个数
+     */
+    @Override
+    public int fill(Supplier<? extends E> supplier, int limit) {
+        Objects.requireNonNull(supplier);
+        if (limit <= 0) {
+            return 0;
+        }
+        long start;
+        long end;
+        do {
+            start = producerIndex;
+            long available = producerLimit - start;
+            if (available <= 0) {
+                long limitIndex = consumerIndex + capacity();
+                available = limitIndex - start;
+                if (available <= 0) {
+                    return 0;
+                }
+                PRODUCER_LIMIT.setRelease(this, limitIndex);
+            }
+            end = start + Math.min(available, limit);
+        } while (!PRODUCER_INDEX.compareAndSet(this, start, end));
+        for (long index = start; index < end; index++) {
+            elementRelease(offset(index), supplier.get());
+        }
+        return (int) (end - start);
+    }
+
+    /**
+     * 占用 count 个槽位
+     *
+     * @return 第一个槽位的下标，队列满时返回 -1
+     */
+    private long claim(int count) {
+        long index;
+        do {
+            index = producerIndex;
+            if (index + count > producerLimit) {
+                long limit = consumerIndex + capacity();
+                if (index + count > limit) {
+                    return -1;
+                }
+                PRODUCER_LIMIT.setRelease(this, limit);
+            }
+        } while (!PRODUCER_INDEX.compareAndSet(this, index, index + count));
+        return index;
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.queue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Description: [有界无锁环形队列基类]
+ * <p>
+ * 元素保存在容量为 2 的幂的数组中，生产者下标和消费者下标各自占用独立的缓存行，避免伪共享。
+ * 不允许 null 元素，{@link #size()} 只是近似值。迭代器是弱一致的：只读取创建时 [消费者下标, 生产者下标) 范围内的槽位，
+ * 跳过已被取走的元素，可能看到之后写入的元素，不支持 {@link Iterator#remove()}。
+ * 满或空时 {@link #offer}、{@link #poll} 立即返回，需要等待时使用 {@link #put}、{@link #take} 并指定 {@link WaitStrategy}。
+ * 具体实现见 {@link SpscRingQueue}、{@link MpscRingQueue}、{@link MpmcRingQueue}，一般通过
+ * {@link com.mobaijun.common.collection.QueueUtil} 创建。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param <E> 元素类型
+ */
+public abstract class RingQueue<E> extends RingQueuePad2<E> {
+
+    /**
+     * 最大容量
+     */
+    public static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * 数组元素的 VarHandle，用于带内存屏障的读写
+     */
+    static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    /**
+     * 元素数组
+     */
+    final Object[] buffer;
+
+    /**
+     * 容量减一
+     */
+    final int mask;
+
+    RingQueue(int capacity) {
+        int actual = roundToPowerOfTwo(capacity);
+        this.buffer = new Object[actual];
+        this.mask = actual - 1;
+    }
+
+    /**
+     * 向上取整到 2 的幂
+     *
+     * @param capacity 期望容量
+     * @return 实际容量
+     */
+    static int roundToPowerOfTwo(int capacity) {
+        if (capacity < 2 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be in [2, 2^30]: " + capacity);
+        }
+        return Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    /**
+     * 容量
+     *
+     * @return 容量
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 取出最多 limit 个元素交给 consumer，不等待
+     *
+     * @param consumer 元素处理函数
+     * @param limit    最多取出的个数
+     * @return 实际取出的个数
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        Objects.requireNonNull(consumer);
+        int n = 0;
+        E e;
+        while (n < limit && (e = poll()) != null) {
+            consumer.accept(e);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * 取出当前所有元素交给 consumer，最多取出一个容量的元素
+     *
+     * @param consumer 元素处理函数
+     * @return 实际取出的个数
+     */
+    public int drain(Consumer<? super E> consumer) {
+        return drain(consumer, capacity());
+    }
+
+    /**
+     * 有空位时从 supplier 获取元素放入，最多放入 limit 个，不等待。
+     * 只有确认有空位后才调用 supplier，supplier 不能返回 null。
+     *
+     * @param supplier 元素提供函数
+     * @param limit    最多放入的个数
+     * @return 实际放入的个数
+     */
+    public abstract int fill(Supplier<? extends E> supplier, int limit);
+
+    /**
+     * 放入元素，队列满时按等待策略等待
+     *
+     * @param e    元素
+     * @param wait 等待策略
+     * @throws InterruptedException 等待时线程被中断
+     */
+    public void put(E e, WaitStrategy wait) throws InterruptedException {
+        Objects.requireNonNull(e);
+        int attempts = 0;
+        while (!offer(e)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            wait.idle(attempts++);
+        }
+    }
+
+    /**
+     * 取出元素，队列空时按等待策略等待
+     *
+     * @param wait 等待策略
+     * @return 元素
+     * @throws InterruptedException 等待时线程被中断
+     */
+    public E take(WaitStrategy wait) throws InterruptedException {
+        int attempts = 0;
+        E e;
+        while ((e = poll()) == null) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            wait.idle(attempts++);
+        }
+        return e;
+    }
+
+    /**
+     * 近似元素个数
+     *
+     * @return 元素个数
+     */
+    @Override
+    public int size() {
+        long after = consumerIndex;
+        while (true) {
+            long before = after;
+            long producer = producerIndex;
+            after = consumerIndex;
+            if (before == after) {
+                return (int) Math.max(0, Math.min(producer - after, capacity()));
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return consumerIndex >= producerIndex;
+    }
+
+    /**
+     * 弱一致的迭代器，不会抛出 ConcurrentModificationException，不支持删除
+     *
+     * @return 迭代器
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new WeakIterator();
+    }
+
+    final int offset(long index) {
+        return (int) index & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    final E elementAcquire(int offset) {
+        return (E) ELEMENTS.getAcquire(buffer, offset);
+    }
+
+    final void elementRelease(int offset, Object value) {
+        ELEMENTS.setRelease(buffer, offset, value);
+    }
+
+    /**
+     * 遍历创建时下标范围内的槽位，空槽位表示元素已被取走或尚未发布，直接跳过
+     */
+    private final class WeakIterator implements Iterator<E> {
+
+        private final long end;
+
+        private long index;
+
+        private E next;
+
+        WeakIterator() {
+            // 先读消费者下标，范围不会超过一个容量
+            this.index = consumerIndex;
+            this.end = producerIndex;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public E next() {
+            E e = next;
+            if (e == null) {
+                throw new NoSuchElementException();
+            }
+            advance();
+            return e;
+        }
+
+        private void advance() {
+            next = null;
+            while (index < end) {
+                E e = elementAcquire(offset(index++));
+                if (e != null) {
+                    next = e;
+                    return;
+                }
+            }
+        }
+    }
+}
+
+/**
+ * 头部填充
+ */
+abstract class RingQueuePad0<E> extends AbstractQueue<E> {
+
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+/**
+ * 生产者字段
+ */
+abstract class RingQueueProducerIndex<E> extends RingQueuePad0<E> {
+
+    static final VarHandle PRODUCER_INDEX;
+
+    static final VarHandle PRODUCER_LIMIT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            PRODUCER_INDEX = lookup.findVarHandle(RingQueueProducerIndex.class, "producerIndex", long.class);
+            PRODUCER_LIMIT = lookup.findVarHandle(RingQueueProducerIndex.class, "producerLimit", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * 下一个写入位置
+     */
+    volatile long producerIndex;
+
+    /**
+     * 生产者缓存的可写上限，减少对消费者下标的读取
+     */
+    volatile long producerLimit;
+}
+
+/**
+ * 生产者与消费者之间的填充
+ */
+abstract class RingQueuePad1<E> extends RingQueueProducerIndex<E> {
+
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+/**
+ * 消费者字段
+ */
+abstract class RingQueueConsumerIndex<E> extends RingQueuePad1<E> {
+
+    static final VarHandle CONSUMER_INDEX;
+
+    static {
+        try {
+            CONSUMER_INDEX = MethodHandles.lookup()
+                    .findVarHandle(RingQueueConsumerIndex.class, "consumerIndex", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * 下一个读取位置
+     */
+    volatile long consumerIndex;
+}
+
+/**
+ * 消费者字段之后的填充
+ */
+abstract class RingQueuePad2<E> extends RingQueueConsumerIndex<E> {
+
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
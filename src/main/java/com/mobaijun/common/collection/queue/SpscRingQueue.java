@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.queue;
+
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Description: [单生产者单消费者环形队列]
+ * <p>
+ * 槽位是否为 null 表示是否可读写，生产者和消费者都不需要 CAS。
+ * 生产者每次向前探测一段距离，探测位置为空时这一段都可以直接写入，减少对共享槽位的读取。
+ * 只能有一个线程调用 offer/fill/put，一个线程调用 poll/drain/take。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param <E> 元素类型
+ */
+public class SpscRingQueue<E> extends RingQueue<E> {
+
+    /**
+     * 生产者向前探测的最大距离
+     */
+    private static final int MAX_LOOK_AHEAD_STEP = 4096;
+
+    /**
+     * 生产者向前探测的距离
+     */
+    private final int lookAheadStep;
+
+    /**
+     * 构造队列
+     *
+     * @param capacity 容量，向上取整到 2 的幂
+     */
+    public SpscRingQueue(int capacity) {
+        super(capacity);
+        this.lookAheadStep = Math.max(1, Math.min(capacity() / 4, MAX_LOOK_AHEAD_STEP));
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        long index = producerIndex;
+        if (!hasRoom(index)) {
+            return false;
+        }
+        elementRelease(offset(index), e);
+        PRODUCER_INDEX.setRelease(this, index + 1);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long index = consumerIndex;
+        int offset = offset(index);
+        E e = elementAcquire(offset);
+        if (e == null) {
+            return null;
+        }
+        elementRelease(offset, null);
+        CONSUMER_INDEX.setRelease(this, index + 1);
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        return elementAcquire(offset(consumerIndex));
+    }
+
+    @Override
+    public int drain(Consumer<? super E> consumer, int limit) {
+        Objects.requireNonNull(consumer);
+        long index = consumerIndex;
+        int n = 0;
+        for (; n < limit; n++) {
+            int offset = offset(index);
+            E e = elementAcquire(offset);
+            if (e == null) {
+                break;
+            }
+            elementRelease(offset, null);
+            CONSUMER_INDEX.setRelease(this, ++index);
+            consumer.accept(e);
+        }
+        return n;
+    }
+
+    @Override
+    public int fill(Supplier<? extends E> supplier, int limit) {
+        Objects.requireNonNull(supplier);
+        long index = producerIndex;
+        int n = 0;
+        for (; n < limit && hasRoom(index); n++) {
+            elementRelease(offset(index), Objects.requireNonNull(supplier.get()));
+            PRODUCER_INDEX.setRelease(this, ++index);
+        }
+        return n;
+    }
+
+    /**
+     * 生产者判断 index 位置是否可写
+     */
+    private boolean hasRoom(long index) {
+        if (index < producerLimit) {
+            return true;
+        }
+        long lookAhead = index + lookAheadStep;
+        if (elementAcquire(offset(lookAhead)) == null) {
+            // 消费者按顺序清空槽位，探测位置为空说明 [index, lookAhead) 都已清空
+            PRODUCER_LIMIT.setRelease(this, lookAhead);
+            return true;
+        }
+        return elementAcquire(offset(index)) == null;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.queue;
+
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Description: [等待策略]
+ * <p>
+ * 环形队列满或空时的等待方式，{@link #idle(int)} 在每次尝试失败后调用，attempts 为连续失败次数，成功后重新从 0 计数。
+ * 自旋延迟最低但独占一个 CPU 核心，让出和挂起依次以延迟换取 CPU。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    /**
+     * 先自旋的次数
+     */
+    int SPIN_TRIES = 100;
+
+    /**
+     * 自旋之后让出 CPU 的次数
+     */
+    int YIELD_TRIES = 100;
+
+    /**
+     * 一次尝试失败后等待
+     *
+     * @param attempts 连续失败次数，从 0 开始
+     */
+    void idle(int attempts);
+
+    /**
+     * 忙等，每次调用 {@link Thread#onSpinWait()}
+     *
+     * @return 等待策略
+     */
+    static WaitStrategy spin() {
+        return attempts -> Thread.onSpinWait();
+    }
+
+    /**
+     * 先自旋 {@link #SPIN_TRIES} 次，之后每次 {@link Thread#yield()}
+     *
+     * @return 等待策略
+     */
+    static WaitStrategy yielding() {
+        return attempts -> {
+            if (attempts < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        };
+    }
+
+    /**
+     * 先自旋、再让出 CPU，之后每次挂起 parkTime
+     *
+     * @param parkTime 每次挂起的时间
+     * @return 等待策略
+     */
+    static WaitStrategy parking(Duration parkTime) {
+        long parkNanos = parkTime.toNanos();
+        if (parkNanos <= 0) {
+            throw new IllegalArgumentException("parkTime must be positive: " + parkTime);
+        }
+        return attempts -> {
+            if (attempts < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (attempts < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+            }
+        };
+    }
+}
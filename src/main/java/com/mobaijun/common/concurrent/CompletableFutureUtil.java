@@ -15,10 +15,19 @@
  */
 package com.mobaijun.common.concurrent;
 
+import com.mobaijun.common.thread.ExecutorServiceUtil;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -29,6 +38,11 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * Description: [CompletableFuture的工具类，用于在并发环境中简化CompletableFuture的使用。]
+ * <p>
+ * 所有异步阶段都在实例的执行器上执行，未指定时使用 {@link #getDefaultExecutor()}：JDK 21 上每个任务一个虚拟线程，
+ * 低版本 JDK 上为有界的守护线程池，可通过 {@link #setDefaultExecutor(Executor)} 替换。
+ * 静态方法提供按顺序返回结果列表的 {@link #allOf}、取第一个成功结果并取消其余任务的 {@link #anyOf}、
+ * 以及限制并发数的扇出/扇入 {@link #fanOut}。注意取消 CompletableFuture 不会中断正在执行的任务线程。
  * Author: [mobaijun]
  * Date: [2024/2/1 11:03]
  * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
@@ -38,6 +52,16 @@ import lombok.extern.slf4j.Slf4j;
 @AllArgsConstructor
 public class CompletableFutureUtil<T> {
 
+    /**
+     * 不支持虚拟线程时默认线程池的线程数
+     */
+    private static final int DEFAULT_FALLBACK_THREADS = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+
+    /**
+     * 默认执行器，第一次使用时创建
+     */
+    private static volatile Executor defaultExecutor;
+
     /**
      * 由该工具类封装的CompletableFuture实例。
      */
@@ -50,40 +74,79 @@ public class CompletableFutureUtil<T> {
     private final Executor executor = CompletableFutureUtil.getDefaultExecutor();
 
     /**
-     * 使用由给定的Supplier提供的CompletableFuture创建一个新的CompletableFutureUtil实例。
+     * 使用由给定的Supplier提供的CompletableFuture创建一个新的CompletableFutureUtil实例，在默认执行器上执行。
      *
      * @param supplier 用于生成初始结果的供应商函数。
      * @param <T>      结果的类型。
      * @return 一个CompletableFutureUtil实例。
      */
     public static <T> CompletableFutureUtil<T> supplyAsync(Supplier<T> supplier) {
+        return supplyAsync(supplier, getDefaultExecutor());
+    }
+
+    /**
+     * 在指定执行器上执行Supplier，后续的异步阶段也使用该执行器。
+     *
+     * @param supplier 用于生成初始结果的供应商函数。
+     * @param executor 执行器。
+     * @param <T>      结果的类型。
+     * @return 一个CompletableFutureUtil实例。
+     */
+    public static <T> CompletableFutureUtil<T> supplyAsync(Supplier<T> supplier, Executor executor) {
         return CompletableFutureUtil.<T>builder()
-                .future(CompletableFuture.supplyAsync(supplier))
+                .future(CompletableFuture.supplyAsync(supplier, executor))
+                .executor(executor)
                 .build();
     }
 
     /**
-     * 检索该工具类使用的默认执行器。
-     * 如果需要，自定义默认执行器。
+     * 检索该工具类使用的默认执行器：JDK 21 上每个任务一个虚拟线程，低版本 JDK 上为有界的守护线程池。
      *
      * @return 默认执行器。
      */
-    private static Executor getDefaultExecutor() {
-        // 如果需要，自定义默认执行器
-        return CompletableFuture.delayedExecutor(0, TimeUnit.MILLISECONDS, Runnable::run);
+    public static Executor getDefaultExecutor() {
+        Executor executor = defaultExecutor;
+        if (executor == null) {
+            synchronized (CompletableFutureUtil.class) {
+                executor = defaultExecutor;
+                if (executor == null) {
+                    executor = ExecutorServiceUtil.newVirtualThreadExecutorService(DEFAULT_FALLBACK_THREADS);
+                    defaultExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * 替换默认执行器，只影响之后创建的实例，原执行器不会被关闭。
+     *
+     * @param executor 新的默认执行器。
+     */
+    public static void setDefaultExecutor(Executor executor) {
+        defaultExecutor = Objects.requireNonNull(executor, "executor");
     }
 
     /**
      * 异步应用给定的函数到当前CompletableFutureUtil的结果。
      *
      * @param function 要应用的函数。
+     * @param <R>      新结果的类型。
      * @return 具有应用函数的新CompletableFutureUtil实例。
      */
-    public CompletableFutureUtil<T> thenApply(Function<T, T> function) {
-        return CompletableFutureUtil.<T>builder()
-                .future(future.thenApplyAsync(function, executor))
-                .executor(executor)
-                .build();
+    public <R> CompletableFutureUtil<R> thenApply(Function<? super T, ? extends R> function) {
+        return next(future.thenApplyAsync(function, executor));
+    }
+
+    /**
+     * 异步地用当前结果发起下一个异步调用，并以其结果作为新的结果。
+     *
+     * @param function 返回下一个异步阶段的函数。
+     * @param <R>      新结果的类型。
+     * @return 新的CompletableFutureUtil实例。
+     */
+    public <R> CompletableFutureUtil<R> thenCompose(Function<? super T, ? extends CompletionStage<R>> function) {
+        return next(future.thenComposeAsync(function, executor));
     }
 
     /**
@@ -93,10 +156,47 @@ public class CompletableFutureUtil<T> {
      * @return 具有应用操作的新CompletableFutureUtil实例。
      */
     public CompletableFutureUtil<Void> thenAcceptAsync(Consumer<T> consumer) {
-        return CompletableFutureUtil.<Void>builder()
-                .future(future.thenAcceptAsync(consumer, executor))
-                .executor(executor)
-                .build();
+        return next(future.thenAcceptAsync(consumer, executor));
+    }
+
+    /**
+     * 当前阶段异常完成时用给定函数计算替代结果。
+     *
+     * @param function 根据异常计算替代结果的函数，参数已去掉 CompletionException 包装。
+     * @return 新的CompletableFutureUtil实例。
+     */
+    public CompletableFutureUtil<T> recover(Function<Throwable, ? extends T> function) {
+        return next(future.exceptionally(e -> function.apply(unwrap(e))));
+    }
+
+    /**
+     * 为当前阶段设置超时，超时后以 TimeoutException 异常完成。
+     *
+     * @param timeout 超时时间。
+     * @return 新的CompletableFutureUtil实例。
+     */
+    public CompletableFutureUtil<T> orTimeout(Duration timeout) {
+        return next(withTimeout(future, timeout));
+    }
+
+    /**
+     * 为当前阶段设置超时，超时后以给定值正常完成。
+     *
+     * @param value   超时时使用的值。
+     * @param timeout 超时时间。
+     * @return 新的CompletableFutureUtil实例。
+     */
+    public CompletableFutureUtil<T> completeOnTimeout(T value, Duration timeout) {
+        return next(copy(future).completeOnTimeout(value, timeout.toNanos(), TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * 获取封装的CompletableFuture。
+     *
+     * @return CompletableFuture。
+     */
+    public CompletableFuture<T> toCompletableFuture() {
+        return future;
     }
 
     /**
@@ -123,4 +223,272 @@ public class CompletableFutureUtil<T> {
             throw new CompletionException(e);
         }
     }
+
+    private <R> CompletableFutureUtil<R> next(CompletableFuture<R> stage) {
+        return CompletableFutureUtil.<R>builder()
+                .future(stage)
+                .executor(executor)
+                .build();
+    }
+
+    // ------------------------------------------------------------------------------------------------ 组合
+
+    /**
+     * 为单个阶段设置超时，返回的新阶段超时后以 TimeoutException 异常完成，原阶段不受影响。
+     *
+     * @param future  原阶段
+     * @param timeout 超时时间
+     * @param <T>     结果的类型
+     * @return 带超时的新阶段
+     */
+    public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, Duration timeout) {
+        return copy(future).orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 等待所有阶段完成，按输入顺序返回结果列表。任一阶段失败时立即以该异常完成并取消其余阶段；
+     * 返回的阶段被取消时同样取消所有输入阶段。
+     *
+     * @param futures 阶段列表
+     * @param <T>     结果的类型
+     * @return 按输入顺序排列的结果列表
+     */
+    public static <T> CompletableFuture<List<T>> allOf(List<? extends CompletableFuture<? extends T>> futures) {
+        int n = futures.size();
+        CompletableFuture<List<T>> result = new CompletableFuture<>();
+        if (n == 0) {
+            result.complete(new ArrayList<>());
+            return result;
+        }
+        Object[] values = new Object[n];
+        AtomicInteger remaining = new AtomicInteger(n);
+        for (int i = 0; i < n; i++) {
+            int index = i;
+            futures.get(i).whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(unwrap(error));
+                } else {
+                    values[index] = value;
+                    if (remaining.decrementAndGet() == 0) {
+                        result.complete(toList(values));
+                    }
+                }
+            });
+        }
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                cancelAll(futures);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 取第一个成功完成的结果，并取消其余阶段；全部失败时以最后一个异常完成。
+     * 返回的阶段被取消时同样取消所有输入阶段。
+     *
+     * @param futures 阶段列表
+     * @param <T>     结果的类型
+     * @return 第一个成功的结果
+     * @throws IllegalArgumentException 阶段列表为空
+     */
+    public static <T> CompletableFuture<T> anyOf(List<? extends CompletableFuture<? extends T>> futures) {
+        if (futures.isEmpty()) {
+            throw new IllegalArgumentException("futures must not be empty");
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(futures.size());
+        for (CompletableFuture<? extends T> future : futures) {
+            future.whenComplete((value, error) -> {
+                if (error == null) {
+                    result.complete(value);
+                } else if (remaining.decrementAndGet() == 0) {
+                    result.completeExceptionally(unwrap(error));
+                }
+            });
+        }
+        result.whenComplete((value, error) -> cancelAll(futures));
+        return result;
+    }
+
+    /**
+     * 扇出/扇入：在执行器上对每个输入执行同步调用，同一时刻最多 maxConcurrency 个调用在执行，按输入顺序汇总结果。
+     *
+     * @param inputs         输入列表
+     * @param call           对单个输入的同步调用
+     * @param maxConcurrency 最大并发数
+     * @param perCallTimeout 单个调用的超时时间，为 null 表示不限
+     * @param executor       执行器
+     * @param <I>            输入的类型
+     * @param <R>            结果的类型
+     * @return 按输入顺序排列的结果列表，语义同 {@link #fanOutAsync}
+     */
+    public static <I, R> CompletableFuture<List<R>> fanOut(List<? extends I> inputs,
+                                                           Function<? super I, ? extends R> call,
+                                                           int maxConcurrency, Duration perCallTimeout,
+                                                           Executor executor) {
+        Objects.requireNonNull(executor, "executor");
+        return fanOutAsync(inputs, input -> CompletableFuture.supplyAsync(() -> call.apply(input), executor),
+                maxConcurrency, perCallTimeout);
+    }
+
+    /**
+     * 扇出/扇入：在默认执行器上对每个输入执行同步调用，同一时刻最多 maxConcurrency 个调用在执行，按输入顺序汇总结果。
+     *
+     * @param inputs         输入列表
+     * @param call           对单个输入的同步调用
+     * @param maxConcurrency 最大并发数
+     * @param perCallTimeout 单个调用的超时时间，为 null 表示不限
+     * @param <I>            输入的类型
+     * @param <R>            结果的类型
+     * @return 按输入顺序排列的结果列表，语义同 {@link #fanOutAsync}
+     */
+    public static <I, R> CompletableFuture<List<R>> fanOut(List<? extends I> inputs,
+                                                           Function<? super I, ? extends R> call,
+                                                           int maxConcurrency, Duration perCallTimeout) {
+        return fanOut(inputs, call, maxConcurrency, perCallTimeout, getDefaultExecutor());
+    }
+
+    /**
+     * 扇出/扇入：对每个输入发起异步调用，同一时刻最多 maxConcurrency 个调用未完成，一个调用完成后才发起下一个，
+     * 按输入顺序汇总结果。任一调用失败或超时时立即以该异常完成，不再发起新的调用并取消未完成的调用；
+     * 返回的阶段被取消时同样停止。调用同步完成时不会递归，输入再多也不会栈溢出。
+     *
+     * @param inputs         输入列表
+     * @param call           对单个输入发起异步调用的函数
+     * @param maxConcurrency 最大并发数
+     * @param perCallTimeout 单个调用的超时时间，为 null 表示不限
+     * @param <I>            输入的类型
+     * @param <R>            结果的类型
+     * @return 按输入顺序排列的结果列表
+     * @throws IllegalArgumentException maxConcurrency 不是正数
+     */
+    public static <I, R> CompletableFuture<List<R>> fanOutAsync(List<? extends I> inputs,
+                                                                Function<? super I, ? extends CompletableFuture<? extends R>> call,
+                                                                int maxConcurrency, Duration perCallTimeout) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        FanOut<I, R> fanOut = new FanOut<>(new ArrayList<>(inputs), call, maxConcurrency, perCallTimeout);
+        fanOut.drain();
+        return fanOut.result;
+    }
+
+    private static <T> CompletableFuture<T> copy(CompletableFuture<T> future) {
+        return future.thenApply(Function.identity());
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> toList(Object[] values) {
+        return new ArrayList<>((List<T>) Arrays.asList(values));
+    }
+
+    private static void cancelAll(List<? extends CompletableFuture<?>> futures) {
+        for (CompletableFuture<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * 限制并发数的扇出状态，drain 使用 wip 计数做蹦床，同步完成的调用不会引起递归
+     */
+    private static final class FanOut<I, R> {
+
+        final CompletableFuture<List<R>> result = new CompletableFuture<>();
+
+        private final List<? extends I> inputs;
+
+        private final Function<? super I, ? extends CompletableFuture<? extends R>> call;
+
+        private final Duration perCallTimeout;
+
+        private final Object[] values;
+
+        private final AtomicReferenceArray<CompletableFuture<?>> inflight;
+
+        private final AtomicInteger permits;
+
+        private final AtomicInteger remaining;
+
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private int next;
+
+        FanOut(List<? extends I> inputs, Function<? super I, ? extends CompletableFuture<? extends R>> call,
+               int maxConcurrency, Duration perCallTimeout) {
+            this.inputs = inputs;
+            this.call = call;
+            this.perCallTimeout = perCallTimeout;
+            this.values = new Object[inputs.size()];
+            this.inflight = new AtomicReferenceArray<>(inputs.size());
+            this.permits = new AtomicInteger(maxConcurrency);
+            this.remaining = new AtomicInteger(inputs.size());
+            if (inputs.isEmpty()) {
+                result.complete(new ArrayList<>());
+            }
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    for (int i = 0; i < inflight.length(); i++) {
+                        CompletableFuture<?> future = inflight.get(i);
+                        if (future != null) {
+                            future.cancel(true);
+                        }
+                    }
+                }
+            });
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (next < inputs.size() && !result.isDone() && permits.get() > 0) {
+                    permits.decrementAndGet();
+                    start(next++);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void start(int index) {
+            CompletableFuture<? extends R> future;
+            try {
+                future = Objects.requireNonNull(call.apply(inputs.get(index)), "call returned null");
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            // 记录原始阶段，取消时作用在调用本身而不是超时副本上
+            inflight.set(index, future);
+            if (result.isDone()) {
+                future.cancel(true);
+            }
+            CompletableFuture<? extends R> original = future;
+            if (perCallTimeout != null) {
+                future = withTimeout(future, perCallTimeout);
+            }
+            future.whenComplete((value, error) -> {
+                if (error != null) {
+                    // 超时副本失败时原始调用仍在进行，清除记录之前先取消它
+                    original.cancel(true);
+                    inflight.set(index, null);
+                    result.completeExceptionally(unwrap(error));
+                    return;
+                }
+                inflight.set(index, null);
+                values[index] = value;
+                if (remaining.decrementAndGet() == 0) {
+                    result.complete(toList(values));
+                    return;
+                }
+                permits.incrementAndGet();
+                drain();
+            });
+        }
+    }
 }
@@ -15,6 +15,8 @@
  */
 package com.mobaijun.common.enums.cache;
 
+import com.mobaijun.common.cache.LocalCache;
+import com.mobaijun.common.cache.LocalCacheManager;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
@@ -77,4 +79,14 @@ public enum CacheType {
      * 缓存值
      */
     private final String value;
+
+    /**
+     * 获取该类型对应的本地缓存，策略通过 {@link LocalCacheManager#configure} 指定
+     *
+     * @param <V> 值类型
+     * @return 本地缓存
+     */
+    public <V> LocalCache<String, V> localCache() {
+        return LocalCacheManager.get(this);
+    }
 }
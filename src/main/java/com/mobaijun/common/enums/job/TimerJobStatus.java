@@ -37,7 +37,17 @@ public enum TimerJobStatus {
     /**
      * 停止状态
      */
-    STOP(2);
+    STOP(2),
+
+    /**
+     * 等待状态，已调度、尚未到期
+     */
+    WAITING(3),
+
+    /**
+     * 取消状态，到期前被取消
+     */
+    CANCELLED(4);
 
     /**
      * 状态码
@@ -0,0 +1,463 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.network;
+
+import com.mobaijun.common.collection.ArrayUtil;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Description: [IPv4 / IPv6 前缀树（Patricia 树）]
+ * <p>
+ * 保存 CIDR 前缀（如 "10.0.0.0/8"、"2001:db8::/32"）及其对应的值，按最长前缀匹配查找 IP 所属的前缀，
+ * 适合黑白名单、路由表等大量 CIDR 的匹配：
+ * <ul>
+ *     <li>路径压缩的二叉树，只有一个子节点且没有值的节点被省略，节点数不超过前缀数的两倍。</li>
+ *     <li>节点数据交错存放在一个 long[] 中，IPv6 地址用高低两个 long 表示，IPv4 地址放在高位 long 的高32位，两者各有一个根节点。</li>
+ *     <li>查找沿树向下最多经过 地址位数 个节点，每个节点一次掩码比较，{@link #matchIpv4} 和 {@link #matchIpv6} 不创建任何对象。</li>
+ * </ul>
+ * 写入不是线程安全的，构建完成并安全发布后可以被多个线程同时查找。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param <V> 值类型
+ */
+public final class CidrTrie<V> {
+
+    private static final int IPV4_ROOT = 0;
+
+    private static final int IPV6_ROOT = 1;
+
+    private static final int IPV4_BITS = 32;
+
+    private static final int IPV6_BITS = 128;
+
+    private static final int NONE = -1;
+
+    private static final int NODE_STRIDE = 4;
+
+    private static final long HAS_VALUE = 1L << 8;
+
+    private static final long NO_CHILDREN = -1L;
+
+    private static final int MAX_NODES = (Integer.MAX_VALUE - 8) / NODE_STRIDE;
+
+    /**
+     * 跳转表按地址最高的 TABLE_BITS 位索引
+     */
+    private static final int TABLE_BITS = 16;
+
+    /**
+     * 节点数达到该值后才使用跳转表
+     */
+    private static final int TABLE_THRESHOLD = 4096;
+
+    /**
+     * 每个节点占 NODE_STRIDE 个 long：前缀高64位、前缀低64位（前缀之后的位为0）、
+     * 前缀长度（低8位）及是否有值的标记、左右子节点下标（高32位为左，低32位为右），
+     * 一个节点的数据在数组中连续存放
+     */
+    private long[] nodes;
+
+    /**
+     * 节点的值，为null表示中间节点，只在查找结束时读取
+     */
+    private Object[] values;
+
+    /**
+     * IPv4 和 IPv6 的跳转表：按地址最高16位记录前16层中最长的匹配前缀（高32位）和继续查找的节点（低32位），
+     * 写入时置为null，查找时按需重建
+     */
+    private volatile long[] ipv4Table;
+
+    private volatile long[] ipv6Table;
+
+    private int nodeCount;
+
+    private int size;
+
+    /**
+     * 创建空的前缀树
+     */
+    public CidrTrie() {
+        this(16);
+    }
+
+    /**
+     * 创建空的前缀树，预先分配 expectedPrefixes 个前缀所需的节点空间
+     *
+     * @param expectedPrefixes 预计的前缀个数
+     */
+    public CidrTrie(int expectedPrefixes) {
+        if (expectedPrefixes < 0) {
+            throw new IllegalArgumentException("expectedPrefixes must not be negative");
+        }
+        int capacity = (int) Math.min(MAX_NODES, 2L * expectedPrefixes + 2);
+        nodes = new long[capacity * NODE_STRIDE];
+        values = new Object[capacity];
+        newNode(0, 0, 0, null);
+        newNode(0, 0, 0, null);
+    }
+
+    /**
+     * 由 CIDR 列表批量构建，所有前缀对应同一个值
+     *
+     * @param cidrs CIDR 列表，如 "10.0.0.0/8"、"2001:db8::/32"，没有 "/" 时为单个地址
+     * @param value 值
+     * @param <V>   值类型
+     * @return 前缀树
+     * @throws IllegalArgumentException CIDR 格式不正确
+     */
+    public static <V> CidrTrie<V> of(Collection<? extends CharSequence> cidrs, V value) {
+        CidrTrie<V> trie = new CidrTrie<>(cidrs.size());
+        for (CharSequence cidr : cidrs) {
+            trie.put(cidr, value);
+        }
+        return trie;
+    }
+
+    /**
+     * 添加一个 CIDR 前缀，前缀之后的主机位被忽略
+     *
+     * @param cidr  CIDR，如 "10.0.0.0/8"、"2001:db8::/32"，没有 "/" 时为单个地址
+     * @param value 值
+     * @return 该前缀原来的值，没有时返回null
+     * @throws IllegalArgumentException CIDR 格式不正确
+     */
+    public V put(CharSequence cidr, V value) {
+        int length = cidr.length();
+        int slash = indexOf(cidr, '/');
+        int addressEnd = slash < 0 ? length : slash;
+        boolean ipv6 = indexOf(cidr, ':') >= 0;
+        int bits = ipv6 ? IPV6_BITS : IPV4_BITS;
+        int prefixLength = bits;
+        if (slash >= 0) {
+            prefixLength = parsePrefixLength(cidr, slash + 1, length);
+            if (prefixLength < 0 || prefixLength > bits) {
+                throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+            }
+        }
+        if (ipv6) {
+            long[] address = new long[2];
+            if (!ArrayUtil.parseIpv6(cidr, 0, addressEnd, address)) {
+                throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+            }
+            return putIpv6(address[0], address[1], prefixLength, value);
+        }
+        long ip = ArrayUtil.parseIpv4(cidr, 0, addressEnd);
+        if (ip < 0) {
+            throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+        }
+        return putIpv4(ip, prefixLength, value);
+    }
+
+    /**
+     * 添加一个 IPv4 前缀
+     *
+     * @param ip           {@link ArrayUtil#ip2long} 格式的地址
+     * @param prefixLength 前缀长度，0 ~ 32
+     * @param value        值
+     * @return 该前缀原来的值，没有时返回null
+     */
+    public V putIpv4(long ip, int prefixLength, V value) {
+        if ((ip & ~0xFFFFFFFFL) != 0 || prefixLength < 0 || prefixLength > IPV4_BITS) {
+            throw new IllegalArgumentException("Invalid IPv4 prefix: " + ip + "/" + prefixLength);
+        }
+        return insert(IPV4_ROOT, ip << 32, 0, prefixLength, value);
+    }
+
+    /**
+     * 添加一个 IPv6 前缀
+     *
+     * @param hi           地址的高64位
+     * @param lo           地址的低64位
+     * @param prefixLength 前缀长度，0 ~ 128
+     * @param value        值
+     * @return 该前缀原来的值，没有时返回null
+     */
+    public V putIpv6(long hi, long lo, int prefixLength, V value) {
+        if (prefixLength < 0 || prefixLength > IPV6_BITS) {
+            throw new IllegalArgumentException("Invalid IPv6 prefix length: " + prefixLength);
+        }
+        return insert(IPV6_ROOT, hi, lo, prefixLength, value);
+    }
+
+    /**
+     * 按最长前缀匹配查找 IP 所属前缀的值，IPv4 地址不创建任何对象，
+     * IPv6 地址解析时会创建一个长度为2的数组，热点路径上可以先解析再调用 {@link #matchIpv6}
+     *
+     * @param ip IPv4 或 IPv6 地址
+     * @return 最长匹配前缀的值，没有匹配或地址格式不正确时返回null
+     */
+    public V match(CharSequence ip) {
+        int length = ip.length();
+        if (indexOf(ip, ':') < 0) {
+            long ipv4 = ArrayUtil.parseIpv4(ip, 0, length);
+            return ipv4 < 0 ? null : matchIpv4(ipv4);
+        }
+        long[] address = new long[2];
+        return ArrayUtil.parseIpv6(ip, 0, length, address) ? matchIpv6(address[0], address[1]) : null;
+    }
+
+    /**
+     * 按最长前缀匹配查找 IPv4 地址所属前缀的值，不创建任何对象
+     *
+     * @param ip {@link ArrayUtil#ip2long} 格式的地址
+     * @return 最长匹配前缀的值，没有匹配时返回null
+     */
+    public V matchIpv4(long ip) {
+        if ((ip & ~0xFFFFFFFFL) != 0) {
+            return null;
+        }
+        return find(IPV4_ROOT, ip << 32, 0, IPV4_BITS);
+    }
+
+    /**
+     * 按最长前缀匹配查找 IPv6 地址所属前缀的值，不创建任何对象
+     *
+     * @param hi 地址的高64位
+     * @param lo 地址的低64位
+     * @return 最长匹配前缀的值，没有匹配时返回null
+     */
+    public V matchIpv6(long hi, long lo) {
+        return find(IPV6_ROOT, hi, lo, IPV6_BITS);
+    }
+
+    /**
+     * 是否有前缀包含该 IP
+     *
+     * @param ip IPv4 或 IPv6 地址
+     * @return 包含时返回true
+     */
+    public boolean contains(CharSequence ip) {
+        return match(ip) != null;
+    }
+
+    /**
+     * 前缀个数
+     *
+     * @return 前缀个数
+     */
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V find(int root, long hi, long lo, int bits) {
+        int best = NONE;
+        int node = root;
+        if (nodeCount >= TABLE_THRESHOLD) {
+            long[] table = root == IPV4_ROOT ? ipv4Table : ipv6Table;
+            if (table == null) {
+                table = buildTable(root);
+            }
+            long entry = table[(int) (hi >>> (64 - TABLE_BITS))];
+            best = (int) (entry >> 32);
+            node = (int) entry;
+        }
+        while (node != NONE) {
+            int base = node * NODE_STRIDE;
+            long meta = nodes[base + 2];
+            int length = (int) meta & 0xFF;
+            if (commonPrefix(nodes[base], nodes[base + 1], hi, lo, length) < length) {
+                break;
+            }
+            if ((meta & HAS_VALUE) != 0) {
+                best = node;
+            }
+            if (length == bits) {
+                break;
+            }
+            node = child(node, bit(hi, lo, length) != 0);
+        }
+        return best == NONE ? null : (V) values[best];
+    }
+
+    /**
+     * 对最高16位的每个取值，从根节点走到第一个前缀长度不小于16的节点，记录途中最长的匹配前缀
+     *
+     * @param root 根节点
+     * @return 跳转表
+     */
+    private long[] buildTable(int root) {
+        long[] table = new long[1 << TABLE_BITS];
+        for (int prefix = 0; prefix < table.length; prefix++) {
+            long key = (long) prefix << (64 - TABLE_BITS);
+            int best = NONE;
+            int next = NONE;
+            int node = root;
+            while (node != NONE) {
+                int length = length(node);
+                if (length >= TABLE_BITS) {
+                    next = node;
+                    break;
+                }
+                if (commonPrefix(nodes[node * NODE_STRIDE], 0, key, 0, length) < length) {
+                    break;
+                }
+                if (values[node] != null) {
+                    best = node;
+                }
+                node = child(node, bit(key, 0, length) != 0);
+            }
+            table[prefix] = (long) best << 32 | (next & 0xFFFFFFFFL);
+        }
+        if (root == IPV4_ROOT) {
+            ipv4Table = table;
+        } else {
+            ipv6Table = table;
+        }
+        return table;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V insert(int root, long hi, long lo, int length, V value) {
+        Objects.requireNonNull(value);
+        if (root == IPV4_ROOT) {
+            ipv4Table = null;
+        } else {
+            ipv6Table = null;
+        }
+        hi &= maskHi(length);
+        lo &= maskLo(length);
+        int node = root;
+        while (true) {
+            // 不变式：node 的前缀是新前缀的前缀
+            int nodeLength = length(node);
+            if (nodeLength == length) {
+                Object previous = values[node];
+                values[node] = value;
+                nodes[node * NODE_STRIDE + 2] |= HAS_VALUE;
+                if (previous == null) {
+                    size++;
+                }
+                return (V) previous;
+            }
+            boolean right = bit(hi, lo, nodeLength) != 0;
+            int child = child(node, right);
+            if (child == NONE) {
+                setChild(node, right, newNode(hi, lo, length, value));
+                size++;
+                return null;
+            }
+            int childLength = length(child);
+            long childHi = nodes[child * NODE_STRIDE];
+            long childLo = nodes[child * NODE_STRIDE + 1];
+            int common = commonPrefix(childHi, childLo, hi, lo, Math.min(childLength, length));
+            if (common == childLength) {
+                node = child;
+                continue;
+            }
+            // 新前缀与子节点在 common 位分叉，或者新前缀是子节点的前缀
+            int split;
+            if (common == length) {
+                split = newNode(hi, lo, length, value);
+            } else {
+                split = newNode(hi & maskHi(common), lo & maskLo(common), common, null);
+                setChild(split, bit(hi, lo, common) != 0, newNode(hi, lo, length, value));
+            }
+            setChild(split, bit(childHi, childLo, common) != 0, child);
+            setChild(node, right, split);
+            size++;
+            return null;
+        }
+    }
+
+    private int newNode(long hi, long lo, int length, Object value) {
+        if (nodeCount == values.length) {
+            if (nodeCount == MAX_NODES) {
+                throw new IllegalStateException("CidrTrie is full");
+            }
+            int capacity = (int) Math.min(MAX_NODES, values.length * 2L);
+            nodes = Arrays.copyOf(nodes, capacity * NODE_STRIDE);
+            values = Arrays.copyOf(values, capacity);
+        }
+        int node = nodeCount++;
+        int base = node * NODE_STRIDE;
+        nodes[base] = hi;
+        nodes[base + 1] = lo;
+        nodes[base + 2] = length | (value != null ? HAS_VALUE : 0);
+        nodes[base + 3] = NO_CHILDREN;
+        values[node] = value;
+        return node;
+    }
+
+    private int length(int node) {
+        return (int) nodes[node * NODE_STRIDE + 2] & 0xFF;
+    }
+
+    private int child(int node, boolean right) {
+        long children = nodes[node * NODE_STRIDE + 3];
+        return right ? (int) children : (int) (children >>> 32);
+    }
+
+    private void setChild(int node, boolean right, int child) {
+        int index = node * NODE_STRIDE + 3;
+        long children = nodes[index];
+        nodes[index] = right ? (children & 0xFFFFFFFF00000000L) | (child & 0xFFFFFFFFL)
+                : (children & 0xFFFFFFFFL) | ((long) child << 32);
+    }
+
+    /**
+     * 第 index 位（从最高位数起，从0开始）
+     */
+    private static int bit(long hi, long lo, int index) {
+        return index < 64 ? (int) (hi >>> (63 - index)) & 1 : (int) (lo >>> (127 - index)) & 1;
+    }
+
+    /**
+     * 两个地址的公共前缀长度，不超过 max
+     */
+    private static int commonPrefix(long hi1, long lo1, long hi2, long lo2, int max) {
+        long diff = hi1 ^ hi2;
+        int common = diff != 0 ? Long.numberOfLeadingZeros(diff) : 64 + Long.numberOfLeadingZeros(lo1 ^ lo2);
+        return Math.min(common, max);
+    }
+
+    private static long maskHi(int length) {
+        return length == 0 ? 0 : length >= 64 ? -1L : -1L << (64 - length);
+    }
+
+    private static long maskLo(int length) {
+        return length <= 64 ? 0 : -1L << (128 - length);
+    }
+
+    private static int indexOf(CharSequence s, char c) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int parsePrefixLength(CharSequence s, int start, int end) {
+        if (start == end || end - start > 3) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
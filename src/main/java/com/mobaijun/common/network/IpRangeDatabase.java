@@ -0,0 +1,402 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.network;
+
+import com.mobaijun.common.collection.ArrayUtil;
+import com.mobaijun.common.collection.ByteCodec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Description: [IPv4 地址段数据库]
+ * <p>
+ * 从一个紧凑的二进制文件中加载 (startIp, endIp, payload) 记录，按 IP 查找所在的地址段及其附加数据（如地区信息）。
+ * 文件通过 {@link FileChannel#map} 映射到内存，附加数据一直留在映射区中；
+ * 起止 IP 和附加数据偏移量读入三个并列的 int[] 列（每条记录12个字节），查找时先按 IP 第一段定位范围，
+ * 再在列上二分查找，{@link #find} 不创建任何对象。
+ * <p>
+ * 文件格式（大端）：
+ * <pre>
+ * magic(4) version(4) recordCount(4) payloadSize(4)
+ * startIp[recordCount] endIp[recordCount] payloadOffset[recordCount]    各4字节
+ * payload 区：每条附加数据为 length(2) + UTF-8 字节，相同的附加数据只存一份
+ * </pre>
+ * 记录按 startIp 升序排列且互不重叠，地址段之间可以有空隙。文件由 {@link Builder#write(Path)} 生成。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public final class IpRangeDatabase {
+
+    /**
+     * 文件头魔数 "IPRD"
+     */
+    private static final int MAGIC = 0x49505244;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+
+    /**
+     * 附加数据的最大字节数
+     */
+    private static final int MAX_PAYLOAD_BYTES = 0xFFFF;
+
+    /**
+     * 起始 IP，与 Integer.MIN_VALUE 异或后存放，以便按有符号数比较
+     */
+    private final int[] starts;
+
+    /**
+     * 结束 IP（包含），存放方式同 starts
+     */
+    private final int[] ends;
+
+    /**
+     * 附加数据在 payload 区中的偏移量
+     */
+    private final int[] payloadOffsets;
+
+    /**
+     * prefix[o] 为第一条结束 IP 的第一段不小于 o 的记录下标，prefix[256] 为记录数
+     */
+    private final int[] prefix = new int[257];
+
+    /**
+     * 映射区中的 payload 区
+     */
+    private final ByteBuffer payloads;
+
+    /**
+     * 已解码的附加数据，按记录下标缓存
+     */
+    private final String[] decoded;
+
+    private IpRangeDatabase(int[] starts, int[] ends, int[] payloadOffsets, ByteBuffer payloads) {
+        this.starts = starts;
+        this.ends = ends;
+        this.payloadOffsets = payloadOffsets;
+        this.payloads = payloads;
+        this.decoded = new String[starts.length];
+        int record = 0;
+        for (int octet = 0; octet < 256; octet++) {
+            int first = (octet << 24) ^ Integer.MIN_VALUE;
+            while (record < ends.length && ends[record] < first) {
+                record++;
+            }
+            prefix[octet] = record;
+        }
+        prefix[256] = starts.length;
+    }
+
+    /**
+     * 映射并加载数据库文件
+     *
+     * @param path 文件路径
+     * @return 数据库
+     * @throws IOException 读取失败或文件格式不正确
+     */
+    public static IpRangeDatabase open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid IP range database size: " + channel.size());
+            }
+            // 通道关闭后映射仍然有效
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an IP range database: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported IP range database version: " + buffer.getInt(4));
+        }
+        int count = buffer.getInt(8);
+        int payloadSize = buffer.getInt(12);
+        long expected = HEADER_SIZE + 12L * count + payloadSize;
+        if (count < 0 || payloadSize < 0 || expected != buffer.capacity()) {
+            throw new IOException("Corrupted IP range database: " + path);
+        }
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int[] offsets = new int[count];
+        buffer.position(HEADER_SIZE);
+        ByteCodec.decode(buffer, starts);
+        ByteCodec.decode(buffer, ends);
+        ByteCodec.decode(buffer, offsets);
+        ByteBuffer payloads = buffer.slice().asReadOnlyBuffer();
+        for (int i = 0; i < count; i++) {
+            starts[i] ^= Integer.MIN_VALUE;
+            ends[i] ^= Integer.MIN_VALUE;
+            boolean ordered = starts[i] <= ends[i] && (i == 0 || ends[i - 1] < starts[i]);
+            boolean inPayload = offsets[i] >= 0 && offsets[i] <= payloadSize - 2
+                    && offsets[i] + 2 + (payloads.getShort(offsets[i]) & 0xFFFF) <= payloadSize;
+            if (!ordered || !inPayload) {
+                throw new IOException("Corrupted IP range database record " + i + ": " + path);
+            }
+        }
+        return new IpRangeDatabase(starts, ends, offsets, payloads);
+    }
+
+    /**
+     * 创建数据库文件构建器
+     *
+     * @return 构建器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 记录数
+     *
+     * @return 记录数
+     */
+    public int size() {
+        return starts.length;
+    }
+
+    /**
+     * 查找 IP 所在的记录，不创建任何对象
+     *
+     * @param ip {@link ArrayUtil#ip2long} 格式的 IP
+     * @return 记录下标，不在任何地址段内时返回 -1
+     */
+    public int find(long ip) {
+        if ((ip & ~0xFFFFFFFFL) != 0) {
+            return -1;
+        }
+        int octet = (int) (ip >>> 24);
+        int lo = prefix[octet];
+        // 跨越下一段边界的记录正好位于 prefix[octet + 1]
+        int hi = Math.min(prefix[octet + 1], starts.length - 1);
+        int key = (int) ip ^ Integer.MIN_VALUE;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] <= key) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found >= 0 && ends[found] >= key ? found : -1;
+    }
+
+    /**
+     * 查找 IP 所在的记录，不创建任何对象
+     *
+     * @param ip IP 地址，例如 "192.168.0.1"
+     * @return 记录下标，IP 格式不正确或不在任何地址段内时返回 -1
+     */
+    public int find(CharSequence ip) {
+        long value = ArrayUtil.parseIpv4(ip, 0, ip.length());
+        return value < 0 ? -1 : find(value);
+    }
+
+    /**
+     * 查找 IP 所在地址段的附加数据，每条记录的附加数据只在第一次查到时解码
+     *
+     * @param ip IP 地址，例如 "192.168.0.1"
+     * @return 附加数据，IP 格式不正确或不在任何地址段内时返回null
+     */
+    public String lookup(CharSequence ip) {
+        int record = find(ip);
+        return record < 0 ? null : payload(record);
+    }
+
+    /**
+     * 查找 IP 所在地址段的附加数据
+     *
+     * @param ip {@link ArrayUtil#ip2long} 格式的 IP
+     * @return 附加数据，不在任何地址段内时返回null
+     */
+    public String lookup(long ip) {
+        int record = find(ip);
+        return record < 0 ? null : payload(record);
+    }
+
+    /**
+     * 记录的起始 IP
+     *
+     * @param record 记录下标
+     * @return 起始 IP
+     */
+    public long startIp(int record) {
+        return (starts[record] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * 记录的结束 IP（包含）
+     *
+     * @param record 记录下标
+     * @return 结束 IP
+     */
+    public long endIp(int record) {
+        return (ends[record] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * 记录的附加数据
+     *
+     * @param record 记录下标
+     * @return 附加数据
+     */
+    public String payload(int record) {
+        String value = decoded[record];
+        if (value == null) {
+            int offset = payloadOffsets[record];
+            byte[] bytes = new byte[payloads.getShort(offset) & 0xFFFF];
+            payloads.get(offset + 2, bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            // String 不可变，并发时重复解码不影响正确性
+            decoded[record] = value;
+        }
+        return value;
+    }
+
+    /**
+     * 记录的附加数据在 {@link #payloads()} 中的偏移量，该位置为2字节长度，之后是 UTF-8 字节，
+     * 需要自行解码附加数据时使用
+     *
+     * @param record 记录下标
+     * @return 偏移量
+     */
+    public int payloadOffset(int record) {
+        return payloadOffsets[record];
+    }
+
+    /**
+     * 映射区中 payload 区的只读视图
+     *
+     * @return payload 区
+     */
+    public ByteBuffer payloads() {
+        return payloads.duplicate();
+    }
+
+    /**
+     * 数据库文件构建器
+     */
+    public static final class Builder {
+
+        private final List<long[]> ranges = new ArrayList<>();
+
+        private final List<String> values = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * 添加一个地址段
+         *
+         * @param startIp 起始 IP
+         * @param endIp   结束 IP（包含）
+         * @param payload 附加数据，UTF-8 编码后不超过 65535 字节
+         * @return 构建器
+         */
+        public Builder add(String startIp, String endIp, String payload) {
+            return add(parse(startIp), parse(endIp), payload);
+        }
+
+        /**
+         * 添加一个地址段
+         *
+         * @param startIp 起始 IP
+         * @param endIp   结束 IP（包含）
+         * @param payload 附加数据，UTF-8 编码后不超过 65535 字节
+         * @return 构建器
+         */
+        public Builder add(long startIp, long endIp, String payload) {
+            if ((startIp & ~0xFFFFFFFFL) != 0 || (endIp & ~0xFFFFFFFFL) != 0 || startIp > endIp) {
+                throw new IllegalArgumentException("Invalid IP range: " + startIp + " - " + endIp);
+            }
+            ranges.add(new long[]{startIp, endIp, values.size()});
+            values.add(Objects.requireNonNull(payload));
+            return this;
+        }
+
+        /**
+         * 按起始 IP 排序后写出数据库文件
+         *
+         * @param path 文件路径
+         * @throws IOException              写出失败
+         * @throws IllegalArgumentException 地址段重叠或附加数据过长
+         */
+        public void write(Path path) throws IOException {
+            List<long[]> sorted = new ArrayList<>(ranges);
+            sorted.sort(Comparator.comparingLong(range -> range[0]));
+            int count = sorted.size();
+            int[] starts = new int[count];
+            int[] ends = new int[count];
+            int[] offsets = new int[count];
+            Map<String, Integer> payloadOffsets = new HashMap<>();
+            List<byte[]> payloadBytes = new ArrayList<>();
+            int payloadSize = 0;
+            for (int i = 0; i < count; i++) {
+                long[] range = sorted.get(i);
+                if (i > 0 && range[0] <= sorted.get(i - 1)[1]) {
+                    throw new IllegalArgumentException("Overlapping IP ranges: " + ArrayUtil.long2ip(range[0]));
+                }
+                starts[i] = (int) range[0];
+                ends[i] = (int) range[1];
+                String value = values.get((int) range[2]);
+                Integer offset = payloadOffsets.get(value);
+                if (offset == null) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    if (bytes.length > MAX_PAYLOAD_BYTES) {
+                        throw new IllegalArgumentException("Payload too long: " + bytes.length + " bytes");
+                    }
+                    offset = payloadSize;
+                    payloadOffsets.put(value, offset);
+                    payloadBytes.add(bytes);
+                    payloadSize += 2 + bytes.length;
+                }
+                offsets[i] = offset;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(HEADER_SIZE + 12L * count + payloadSize));
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(payloadSize);
+            ByteCodec.encode(starts, buffer);
+            ByteCodec.encode(ends, buffer);
+            ByteCodec.encode(offsets, buffer);
+            for (byte[] bytes : payloadBytes) {
+                buffer.putShort((short) bytes.length).put(bytes);
+            }
+            Files.write(path, buffer.array());
+        }
+
+        private static long parse(String ip) {
+            long value = ArrayUtil.parseIpv4(ip, 0, ip.length());
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid IPv4 address: " + ip);
+            }
+            return value;
+        }
+    }
+}
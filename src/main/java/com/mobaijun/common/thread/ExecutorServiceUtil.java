@@ -15,6 +15,9 @@
  */
 package com.mobaijun.common.thread;
 
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -50,6 +53,11 @@ public class ExecutorServiceUtil {
      */
     private static final int SCHEDULED_EXECUTOR_POOL_SIZE = 8;
 
+    /**
+     * JDK 21 的 Executors.newVirtualThreadPerTaskExecutor，低版本 JDK 上为 null
+     */
+    private static final Method VIRTUAL_THREAD_EXECUTOR = findVirtualThreadExecutor();
+
     /**
      * 线程工厂，用于创建线程池中的线程。
      */
@@ -89,6 +97,24 @@ public class ExecutorServiceUtil {
         return new ScheduledThreadPoolExecutor(1, THREAD_FACTORY);
     }
 
+    /**
+     * 创建一个分层时间轮定时器，适合大量超时任务，到期任务在 executor 上执行。
+     * 用完后需要调用 {@link HashedWheelTimer#stop()} 关闭。
+     *
+     * @param tick      定时精度
+     * @param wheelSize 每层时间轮的槽数
+     * @param executor  执行到期任务的执行器
+     * @return HashedWheelTimer
+     */
+    static public HashedWheelTimer newHashedWheelTimer(Duration tick, int wheelSize, Executor executor) {
+        return HashedWheelTimer.builder()
+                .tick(tick)
+                .wheelSize(wheelSize)
+                .executor(executor)
+                .threadFactory(THREAD_FACTORY)
+                .build();
+    }
+
     /**
      * 创建单例线程池
      *
@@ -110,6 +136,33 @@ public class ExecutorServiceUtil {
                 THREAD_FACTORY);
     }
 
+    /**
+     * 判断当前 JDK 是否支持虚拟线程
+     *
+     * @return 支持时返回true
+     */
+    static public boolean isVirtualThreadSupported() {
+        return VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * 创建适合 I/O 密集型任务的线程池：JDK 21 上每个任务一个虚拟线程，低版本 JDK 上退化为固定大小的守护线程池。
+     * 用完后需要调用 {@link #shutdown(ExecutorService)} 或 {@link ExecutorService#shutdown()} 关闭。
+     *
+     * @param fallbackThreads 不支持虚拟线程时的线程数
+     * @return executor service
+     */
+    static public ExecutorService newVirtualThreadExecutorService(int fallbackThreads) {
+        if (VIRTUAL_THREAD_EXECUTOR != null) {
+            try {
+                return (ExecutorService) VIRTUAL_THREAD_EXECUTOR.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+                // 预览版 JDK 未开启虚拟线程时退化为普通线程池
+            }
+        }
+        return Executors.newFixedThreadPool(fallbackThreads, THREAD_FACTORY);
+    }
+
     /**
      * 关闭一个线程连接池
      *
@@ -119,6 +172,19 @@ public class ExecutorServiceUtil {
         executorService.shutdownNow();
     }
 
+    /**
+     * 查找 JDK 21 的虚拟线程池工厂方法
+     *
+     * @return 工厂方法，不存在时返回null
+     */
+    private static Method findVirtualThreadExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
     /**
      * 获取默认的线程工厂
      *
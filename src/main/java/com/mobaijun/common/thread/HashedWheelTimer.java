@@ -0,0 +1,632 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.thread;
+
+import com.mobaijun.common.enums.job.TimerJobStatus;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Description: [分层时间轮定时器]
+ * <p>
+ * 适合大量、精度要求不高的超时任务（会话过期、验证码失效、防重复提交令牌等）。
+ * 与 {@link java.util.concurrent.ScheduledThreadPoolExecutor} 的堆不同，调度和取消都是 O(1)：
+ * <ul>
+ *     <li>时间被切分为固定长度的 tick，每层时间轮有 wheelSize 个槽，第 n 层一个槽覆盖 wheelSize^n 个 tick。</li>
+ *     <li>任务按到期 tick 放入能容纳它的最低一层，高层的槽转到时整体下沉到低层，最低层的槽转到时整槽到期。</li>
+ *     <li>超出最高层范围的任务先放在最高层最远的槽，下沉时重新计算位置。</li>
+ * </ul>
+ * 所有槽只由一个后台线程访问：调度和取消只是把任务放入无锁队列，由后台线程在每个 tick 开始时批量处理。
+ * 到期的任务交给 executor 执行，默认在后台线程上直接执行，任务耗时较长时应指定单独的线程池，否则会推迟后续 tick。
+ * 任务的实际执行时间不早于到期时间，最多晚一个 tick（加上执行器的排队时间）。
+ * 任务状态依次为 {@link TimerJobStatus#WAITING}、{@link TimerJobStatus#RUNNING}、{@link TimerJobStatus#STOP}，
+ * 到期前取消时变为 {@link TimerJobStatus#CANCELLED}。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+@Slf4j
+public final class HashedWheelTimer implements AutoCloseable {
+
+    /**
+     * 每个 tick 最多从调度队列中转移的任务数，避免大量调度时推迟到期处理
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100_000;
+
+    /**
+     * {@link Timeout} 状态的 VarHandle，用于到期与取消之间的 CAS
+     */
+    private static final VarHandle STATUS;
+
+    static {
+        try {
+            STATUS = MethodHandles.lookup().findVarHandle(Timeout.class, "status", TimerJobStatus.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long tickNanos;
+
+    private final int wheelBits;
+
+    private final int mask;
+
+    private final Bucket[][] wheels;
+
+    private final Executor executor;
+
+    private final long maxPending;
+
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private final List<Timeout> unprocessed = new ArrayList<>();
+
+    private final Thread worker;
+
+    private final long startTime;
+
+    /**
+     * 下一个要处理的 tick，只由后台线程读写
+     */
+    private long tick;
+
+    private volatile TimerJobStatus status = TimerJobStatus.RUNNING;
+
+    private HashedWheelTimer(Builder builder) {
+        this.tickNanos = builder.tick.toNanos();
+        this.wheelBits = Integer.numberOfTrailingZeros(builder.wheelSize);
+        this.mask = builder.wheelSize - 1;
+        this.wheels = new Bucket[builder.levels][builder.wheelSize];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheel.length; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        this.executor = builder.executor;
+        this.maxPending = builder.maxPending;
+        this.startTime = System.nanoTime();
+        this.worker = builder.threadFactory.newThread(this::work);
+        this.worker.start();
+    }
+
+    /**
+     * 创建构建器
+     *
+     * @return 构建器
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 调度一个任务，delay 之后执行
+     *
+     * @param task  任务
+     * @param delay 延迟时间
+     * @return 任务句柄，可用于取消
+     * @throws IllegalStateException      定时器已停止
+     * @throws RejectedExecutionException 等待中的任务数已达上限
+     */
+    public Timeout newTimeout(Runnable task, Duration delay) {
+        return newTimeout(task, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 调度一个任务，delay 之后执行
+     *
+     * @param task  任务
+     * @param delay 延迟时间
+     * @param unit  时间单位
+     * @return 任务句柄，可用于取消
+     * @throws IllegalStateException      定时器已停止
+     * @throws RejectedExecutionException 等待中的任务数已达上限
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        Objects.requireNonNull(task);
+        Objects.requireNonNull(unit);
+        if (status != TimerJobStatus.RUNNING) {
+            throw new IllegalStateException("HashedWheelTimer is stopped");
+        }
+        long count = pending.incrementAndGet();
+        if (maxPending > 0 && count > maxPending) {
+            pending.decrementAndGet();
+            throw new RejectedExecutionException("Number of pending timeouts (" + count
+                    + ") is greater than maxPending (" + maxPending + ")");
+        }
+        long deadline = System.nanoTime() - startTime + Math.max(0, unit.toNanos(delay));
+        // 溢出时按最远的时间处理
+        if (deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        Timeout timeout = new Timeout(task, deadline);
+        scheduled.add(timeout);
+        // 与 stop 竞争时，后台线程可能已收集完未处理的任务，新任务既不会执行也不会被 stop 返回；
+        // 能从队列中移除说明后台线程未取到该任务，否则它已进入时间轮或未处理列表，按正常调度返回
+        if (status != TimerJobStatus.RUNNING && scheduled.remove(timeout)) {
+            timeout.cancel();
+            throw new IllegalStateException("HashedWheelTimer is stopped");
+        }
+        return timeout;
+    }
+
+    /**
+     * 等待中（已调度、尚未到期且未取消）的任务数
+     *
+     * @return 任务数
+     */
+    public long pendingTimeouts() {
+        return pending.get();
+    }
+
+    /**
+     * 定时器状态，{@link TimerJobStatus#RUNNING} 或 {@link TimerJobStatus#STOP}
+     *
+     * @return 状态
+     */
+    public TimerJobStatus status() {
+        return status;
+    }
+
+    /**
+     * 停止定时器并等待后台线程退出，不能在到期任务中调用
+     *
+     * @return 尚未到期且未取消的任务
+     * @throws IllegalStateException 在后台线程中调用
+     */
+    public List<Timeout> stop() {
+        if (Thread.currentThread() == worker) {
+            throw new IllegalStateException("HashedWheelTimer.stop() cannot be called from a timer task");
+        }
+        status = TimerJobStatus.STOP;
+        LockSupport.unpark(worker);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                terminated.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (unprocessed) {
+            List<Timeout> result = new ArrayList<>(unprocessed);
+            unprocessed.clear();
+            return result;
+        }
+    }
+
+    /**
+     * 停止定时器，丢弃尚未到期的任务
+     */
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * 后台线程主循环
+     */
+    private void work() {
+        try {
+            while (status == TimerJobStatus.RUNNING) {
+                long sleep = startTime + tick * tickNanos - System.nanoTime();
+                if (sleep > 0) {
+                    LockSupport.parkNanos(this, sleep);
+                    continue;
+                }
+                transferScheduled();
+                removeCancelled();
+                cascade();
+                expire(wheels[0][(int) (tick & mask)]);
+                tick++;
+            }
+        } finally {
+            collectUnprocessed();
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * 把新调度的任务放入时间轮
+     */
+    private void transferScheduled() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Timeout timeout = scheduled.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.status == TimerJobStatus.WAITING) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * 当前 tick 是第 n 层一个槽的起点时，把该槽中的任务下沉到低层，从高层到低层依次处理
+     */
+    private void cascade() {
+        for (int level = wheels.length - 1; level > 0; level--) {
+            int shift = wheelBits * level;
+            if ((tick & ((1L << shift) - 1)) != 0) {
+                continue;
+            }
+            Bucket bucket = wheels[level][(int) ((tick >>> shift) & mask)];
+            Timeout timeout;
+            while ((timeout = bucket.poll()) != null) {
+                place(timeout);
+            }
+        }
+    }
+
+    /**
+     * 到期一个最低层的槽，槽中的任务都在当前 tick 到期
+     *
+     * @param bucket 槽
+     */
+    private void expire(Bucket bucket) {
+        Timeout timeout;
+        while ((timeout = bucket.poll()) != null) {
+            if (!STATUS.compareAndSet(timeout, TimerJobStatus.WAITING, TimerJobStatus.RUNNING)) {
+                continue;
+            }
+            pending.decrementAndGet();
+            try {
+                executor.execute(timeout::runTask);
+            } catch (RejectedExecutionException e) {
+                timeout.status = TimerJobStatus.STOP;
+                log.error("Timer task rejected by executor: {}", timeout.task, e);
+            }
+        }
+    }
+
+    /**
+     * 按到期 tick 把任务放入能容纳它的最低一层：该层当前槽与到期槽的编号差小于 wheelSize
+     *
+     * @param timeout 任务
+     */
+    private void place(Timeout timeout) {
+        long deadlineTick = Math.max(tick, ceilTick(timeout.deadline));
+        int top = wheels.length - 1;
+        for (int level = 0; level <= top; level++) {
+            int shift = wheelBits * level;
+            long slot = deadlineTick >>> shift;
+            if (slot - (tick >>> shift) <= mask) {
+                wheels[level][(int) (slot & mask)].add(timeout);
+                return;
+            }
+        }
+        // 超出最高层的范围，放入最高层最远的槽，下沉时重新计算
+        long farthest = (tick >>> (wheelBits * top)) + mask;
+        wheels[top][(int) (farthest & mask)].add(timeout);
+    }
+
+    private long ceilTick(long deadline) {
+        long ticks = deadline / tickNanos;
+        return ticks * tickNanos == deadline ? ticks : ticks + 1;
+    }
+
+    private void collectUnprocessed() {
+        synchronized (unprocessed) {
+            for (Bucket[] wheel : wheels) {
+                for (Bucket bucket : wheel) {
+                    Timeout timeout;
+                    while ((timeout = bucket.poll()) != null) {
+                        if (timeout.status == TimerJobStatus.WAITING) {
+                            unprocessed.add(timeout);
+                        }
+                    }
+                }
+            }
+            Timeout timeout;
+            while ((timeout = scheduled.poll()) != null) {
+                if (timeout.status == TimerJobStatus.WAITING) {
+                    unprocessed.add(timeout);
+                }
+            }
+            cancelled.clear();
+        }
+    }
+
+    /**
+     * 任务句柄
+     */
+    public final class Timeout {
+
+        private final Runnable task;
+
+        /**
+         * 到期时间，相对于定时器启动时间的纳秒数
+         */
+        private final long deadline;
+
+        private volatile TimerJobStatus status = TimerJobStatus.WAITING;
+
+        /**
+         * 所在的槽及槽内链表指针，只由后台线程读写
+         */
+        private Bucket bucket;
+
+        private Timeout prev;
+
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 调度的任务
+         *
+         * @return 任务
+         */
+        public Runnable task() {
+            return task;
+        }
+
+        /**
+         * 任务状态
+         *
+         * @return 状态
+         */
+        public TimerJobStatus status() {
+            return status;
+        }
+
+        /**
+         * 距离到期的剩余时间，已到期时小于等于0
+         *
+         * @param unit 时间单位
+         * @return 剩余时间
+         */
+        public long remaining(TimeUnit unit) {
+            return unit.convert(deadline - (System.nanoTime() - startTime), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * 是否已被取消
+         *
+         * @return 已取消时返回true
+         */
+        public boolean isCancelled() {
+            return status == TimerJobStatus.CANCELLED;
+        }
+
+        /**
+         * 是否已到期（正在执行或已执行完）
+         *
+         * @return 已到期时返回true
+         */
+        public boolean isExpired() {
+            TimerJobStatus current = status;
+            return current == TimerJobStatus.RUNNING || current == TimerJobStatus.STOP;
+        }
+
+        /**
+         * 取消任务，已到期或已取消时不做任何事
+         *
+         * @return 本次调用取消了任务时返回true
+         */
+        public boolean cancel() {
+            if (!STATUS.compareAndSet(this, TimerJobStatus.WAITING, TimerJobStatus.CANCELLED)) {
+                return false;
+            }
+            pending.decrementAndGet();
+            cancelled.add(this);
+            return true;
+        }
+
+        /**
+         * 由执行器调用，执行任务
+         */
+        private void runTask() {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("Timer task failed: {}", task, t);
+            } finally {
+                status = TimerJobStatus.STOP;
+            }
+        }
+    }
+
+    /**
+     * 时间轮的一个槽，任务组成的双向链表，只由后台线程访问
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        Timeout poll() {
+            Timeout timeout = head;
+            if (timeout != null) {
+                remove(timeout);
+            }
+            return timeout;
+        }
+    }
+
+    /**
+     * 定时器构建器
+     */
+    public static final class Builder {
+
+        private Duration tick = Duration.ofMillis(10);
+
+        private int wheelSize = 256;
+
+        private int levels = 4;
+
+        private Executor executor = Runnable::run;
+
+        private ThreadFactory threadFactory = ExecutorServiceUtil.getDefaultTreadFactory();
+
+        private long maxPending;
+
+        private Builder() {
+        }
+
+        /**
+         * 一个 tick 的长度，即定时精度，默认 10 毫秒
+         *
+         * @param tick tick 长度
+         * @return 构建器
+         */
+        public Builder tick(Duration tick) {
+            if (tick.isNegative() || tick.isZero()) {
+                throw new IllegalArgumentException("tick must be positive");
+            }
+            this.tick = tick;
+            return this;
+        }
+
+        /**
+         * 每层时间轮的槽数，向上取整为2的幂，默认 256
+         *
+         * @param wheelSize 槽数
+         * @return 构建器
+         */
+        public Builder wheelSize(int wheelSize) {
+            if (wheelSize < 2 || wheelSize > 1 << 30) {
+                throw new IllegalArgumentException("wheelSize must be between 2 and 2^30");
+            }
+            this.wheelSize = Integer.highestOneBit(wheelSize - 1) << 1;
+            return this;
+        }
+
+        /**
+         * 时间轮层数，默认 4 层，默认配置下最高层覆盖约 497 天
+         *
+         * @param levels 层数
+         * @return 构建器
+         */
+        public Builder levels(int levels) {
+            if (levels < 1) {
+                throw new IllegalArgumentException("levels must be positive");
+            }
+            this.levels = levels;
+            return this;
+        }
+
+        /**
+         * 执行到期任务的执行器，默认在后台线程上直接执行
+         *
+         * @param executor 执行器
+         * @return 构建器
+         */
+        public Builder executor(Executor executor) {
+            this.executor = Objects.requireNonNull(executor);
+            return this;
+        }
+
+        /**
+         * 创建后台线程的线程工厂，默认为 {@link ExecutorServiceUtil#getDefaultTreadFactory()}
+         *
+         * @param threadFactory 线程工厂
+         * @return 构建器
+         */
+        public Builder threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = Objects.requireNonNull(threadFactory);
+            return this;
+        }
+
+        /**
+         * 等待中的任务数上限，超过时 {@link #newTimeout} 抛出 {@link RejectedExecutionException}，默认不限制
+         *
+         * @param maxPending 任务数上限，小于等于0表示不限制
+         * @return 构建器
+         */
+        public Builder maxPending(long maxPending) {
+            this.maxPending = maxPending;
+            return this;
+        }
+
+        /**
+         * 创建定时器并启动后台线程
+         *
+         * @return 定时器
+         */
+        public HashedWheelTimer build() {
+            if ((long) Integer.numberOfTrailingZeros(wheelSize) * levels > 62) {
+                throw new IllegalArgumentException("wheelSize^levels must not exceed 2^62");
+            }
+            return new HashedWheelTimer(this);
+        }
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Description: [可增量修改的树]
+ * <p>
+ * 在 {@link TreeNode} / {@link TreeFunctionWrapper} 约定之上维护一份键索引（键 -> 节点、父节点、子节点列表），
+ * 单个节点的新增、删除、移动和替换只修改受影响的父子链接，不需要对整个列表重新调用 {@link TreeUtil#buildTree}：
+ * <ul>
+ *     <li>{@link #addNode}：O(1) 均摊；</li>
+ *     <li>{@link #updateNode}：O(1) 查找，加上在兄弟列表中定位的 O(兄弟数)；</li>
+ *     <li>{@link #moveSubtree}：O(depth) 环检查，加上从原兄弟列表摘除的 O(兄弟数)；</li>
+ *     <li>{@link #removeSubtree}：O(子树大小)，加上从兄弟列表摘除的 O(兄弟数)。</li>
+ * </ul>
+ * 节点上的子节点列表就是索引中维护的列表，节点对象始终反映最新的树结构。兄弟节点保持插入顺序，
+ * 从兄弟列表中摘除按引用比较，不依赖节点的 equals。
+ * <p>
+ * 每次修改完成后按注册顺序在当前线程同步发布 {@link TreeChangeEvent}，监听器抛出的异常会被记录但不会中断修改。
+ * 实例不是线程安全的，并发访问需要外部同步。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param <T> 树节点类型
+ * @param <I> 树节点键类型
+ */
+@Slf4j
+public final class MutableTree<T, I> {
+
+    private final TreeFunctionWrapper<T, I> treeFunctionWrapper;
+
+    private final I rootKey;
+
+    private final List<T> roots = new ArrayList<>();
+
+    private final List<Consumer<? super TreeChangeEvent<T, I>>> listeners = new CopyOnWriteArrayList<>();
+
+    private Map<I, Entry<T, I>> entries = new HashMap<>();
+
+    private BiConsumer<T, I> parentKeySetter;
+
+    private MutableTree(I rootKey, TreeFunctionWrapper<T, I> treeFunctionWrapper) {
+        this.rootKey = rootKey;
+        this.treeFunctionWrapper = Objects.requireNonNull(treeFunctionWrapper, "treeFunctionWrapper");
+    }
+
+    /**
+     * 创建空树
+     *
+     * @param rootKey             根键，父键等于根键的节点为一级节点
+     * @param treeFunctionWrapper 树相关方法包装器
+     * @param <T>                 树节点类型
+     * @param <I>                 树节点键类型
+     * @return 空树
+     */
+    public static <T, I> MutableTree<T, I> of(I rootKey, TreeFunctionWrapper<T, I> treeFunctionWrapper) {
+        return new MutableTree<>(rootKey, treeFunctionWrapper);
+    }
+
+    /**
+     * 创建 TreeNode 的空树
+     *
+     * @param rootKey 根键，父键等于根键的节点为一级节点
+     * @param <T>     TreeNode的子类
+     * @param <I>     TreeNodeId的类型
+     * @return 空树
+     */
+    public static <T extends TreeNode<I>, I> MutableTree<T, I> forTreeNode(I rootKey) {
+        return new MutableTree<>(rootKey, new TreeFunctionWrapper<>(TreeNode::getKey,
+                TreeNode::getParentKey, TreeNode::setChildren, TreeNode::getChildren));
+    }
+
+    /**
+     * 设置父键回写函数，移动子树时用新的父键回写节点自身的父键字段，默认不回写
+     *
+     * @param parentKeySetter 父键回写函数
+     * @return this
+     */
+    public MutableTree<T, I> parentKeySetter(BiConsumer<T, I> parentKeySetter) {
+        this.parentKeySetter = parentKeySetter;
+        return this;
+    }
+
+    /**
+     * 注册变更监听器
+     *
+     * @param listener 监听器
+     */
+    public void addListener(Consumer<? super TreeChangeEvent<T, I>> listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * 移除变更监听器
+     *
+     * @param listener 监听器
+     * @return true 表示移除成功
+     */
+    public boolean removeListener(Consumer<? super TreeChangeEvent<T, I>> listener) {
+        return listeners.remove(listener);
+    }
+
+    // ------------------------------------------------------------------------------------------------ 修改
+
+    /**
+     * 用节点集合整体重建，使用 {@link TreeBuilder} 非递归构建，孤儿、环和重复键节点不会进入树中
+     *
+     * @param nodes 节点集合
+     * @return 构建结果，可从中获取被排除的节点
+     */
+    public TreeBuilder.Result<T> load(Collection<? extends T> nodes) {
+        TreeBuilder.Result<T> result = TreeBuilder.of(treeFunctionWrapper).rootKey(rootKey).build(nodes);
+        int size = nodes == null ? 0 : nodes.size();
+        Map<I, Entry<T, I>> index = new HashMap<>((int) (size / 0.75f) + 1);
+        Deque<Entry<T, I>> stack = new ArrayDeque<>();
+        for (T root : result.roots()) {
+            stack.push(register(index, root, null));
+        }
+        while (!stack.isEmpty()) {
+            Entry<T, I> entry = stack.pop();
+            for (T child : entry.children) {
+                stack.push(register(index, child, entry));
+            }
+        }
+        entries = index;
+        roots.clear();
+        roots.addAll(result.roots());
+        fire(TreeChangeEvent.Type.RELOADED, null, null, null, Collections.emptyList());
+        return result;
+    }
+
+    /**
+     * 新增叶子节点，父节点由父键提取函数确定，节点原有的子节点会被替换为空列表
+     *
+     * @param node 新节点
+     * @throws IllegalArgumentException 键已存在或父节点不存在
+     */
+    public void addNode(T node) {
+        I key = treeFunctionWrapper.keyExtractor().apply(node);
+        if (entries.containsKey(key)) {
+            throw new IllegalArgumentException("duplicate tree node key: " + key);
+        }
+        I parentKey = treeFunctionWrapper.parentKeyExtractor().apply(node);
+        Entry<T, I> parent = resolveParent(parentKey);
+        List<T> children = new ArrayList<>();
+        treeFunctionWrapper.childrenSetter().accept(node, children);
+        entries.put(key, new Entry<>(key, node, parent, children));
+        siblings(parent).add(node);
+        fire(TreeChangeEvent.Type.ADDED, key, null, parentKey, List.of(node));
+    }
+
+    /**
+     * 删除节点及其整棵子树
+     *
+     * @param key 节点键
+     * @return 被删除的节点（先序），键不存在时返回空列表
+     */
+    public List<T> removeSubtree(I key) {
+        Entry<T, I> entry = entries.get(key);
+        if (entry == null) {
+            return new ArrayList<>();
+        }
+        I oldParentKey = parentKeyOf(entry);
+        detach(entry);
+        List<T> removed = new ArrayList<>();
+        Deque<Entry<T, I>> stack = new ArrayDeque<>();
+        stack.push(entry);
+        while (!stack.isEmpty()) {
+            Entry<T, I> e = stack.pop();
+            entries.remove(e.key);
+            removed.add(e.node);
+            for (int i = e.children.size() - 1; i >= 0; i--) {
+                stack.push(entries.get(treeFunctionWrapper.keyExtractor().apply(e.children.get(i))));
+            }
+        }
+        fire(TreeChangeEvent.Type.REMOVED, key, oldParentKey, null, removed);
+        return removed;
+    }
+
+    /**
+     * 把节点及其子树移动到新的父节点下，追加在新兄弟列表的末尾；新旧父节点相同时不做任何修改
+     *
+     * @param key          节点键
+     * @param newParentKey 新父键，等于根键表示移动为一级节点
+     * @throws IllegalArgumentException 节点或新父节点不存在，或新父节点位于该子树中
+     */
+    public void moveSubtree(I key, I newParentKey) {
+        Entry<T, I> entry = entries.get(key);
+        if (entry == null) {
+            throw new IllegalArgumentException("tree node not found: " + key);
+        }
+        Entry<T, I> parent = resolveParent(newParentKey);
+        if (parent == entry.parent) {
+            return;
+        }
+        checkNotInSubtree(parent, entry);
+        I oldParentKey = parentKeyOf(entry);
+        detach(entry);
+        entry.parent = parent;
+        siblings(parent).add(entry.node);
+        if (parentKeySetter != null) {
+            parentKeySetter.accept(entry.node, newParentKey);
+        }
+        fire(TreeChangeEvent.Type.MOVED, key, oldParentKey, newParentKey, List.of(entry.node));
+    }
+
+    /**
+     * 用键相同的新节点替换旧节点，保持位置和子树不变；新节点的父键与当前父节点不同时随后再移动子树
+     *
+     * @param node 新节点
+     * @return 被替换的旧节点
+     * @throws IllegalArgumentException 节点不存在，或父键变化且新父节点不合法
+     */
+    public T updateNode(T node) {
+        I key = treeFunctionWrapper.keyExtractor().apply(node);
+        Entry<T, I> entry = entries.get(key);
+        if (entry == null) {
+            throw new IllegalArgumentException("tree node not found: " + key);
+        }
+        I parentKey = parentKeyOf(entry);
+        I newParentKey = treeFunctionWrapper.parentKeyExtractor().apply(node);
+        boolean move = !Objects.equals(newParentKey, parentKey);
+        // 修改树和通知监听器之前先校验新父节点
+        if (move) {
+            checkNotInSubtree(resolveParent(newParentKey), entry);
+        }
+        T old = entry.node;
+        List<T> siblings = siblings(entry.parent);
+        siblings.set(indexOf(siblings, old), node);
+        entry.node = node;
+        treeFunctionWrapper.childrenSetter().accept(node, entry.children);
+        fire(TreeChangeEvent.Type.UPDATED, key, parentKey, parentKey, List.of(old, node));
+        if (move) {
+            moveSubtree(key, newParentKey);
+        }
+        return old;
+    }
+
+    // ------------------------------------------------------------------------------------------------ 查询
+
+    /**
+     * 节点总数
+     *
+     * @return 节点总数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 是否包含指定键的节点
+     *
+     * @param key 节点键
+     * @return true 表示包含
+     */
+    public boolean contains(I key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * 指定键的节点
+     *
+     * @param key 节点键
+     * @return 节点，不存在时返回 null
+     */
+    public T get(I key) {
+        Entry<T, I> entry = entries.get(key);
+        return entry == null ? null : entry.node;
+    }
+
+    /**
+     * 当前父键，以树中维护的链接为准，不读取节点字段
+     *
+     * @param key 节点键
+     * @return 父键，一级节点返回根键，不存在时返回 null
+     */
+    public I parentKey(I key) {
+        Entry<T, I> entry = entries.get(key);
+        return entry == null ? null : parentKeyOf(entry);
+    }
+
+    /**
+     * 子节点
+     *
+     * @param key 节点键
+     * @return 不可修改的子节点视图，不存在时返回空列表
+     */
+    public List<T> children(I key) {
+        Entry<T, I> entry = entries.get(key);
+        return entry == null ? Collections.emptyList() : Collections.unmodifiableList(entry.children);
+    }
+
+    /**
+     * 一级节点
+     *
+     * @return 不可修改的一级节点视图
+     */
+    public List<T> roots() {
+        return Collections.unmodifiableList(roots);
+    }
+
+    /**
+     * 对当前结构建立冻结索引
+     *
+     * @return 树索引快照
+     */
+    public TreeIndex<T, I> toIndex() {
+        return TreeIndex.of(roots, treeFunctionWrapper);
+    }
+
+    // ------------------------------------------------------------------------------------------------ 内部
+
+    private Entry<T, I> register(Map<I, Entry<T, I>> index, T node, Entry<T, I> parent) {
+        I key = treeFunctionWrapper.keyExtractor().apply(node);
+        Entry<T, I> entry = new Entry<>(key, node, parent, treeFunctionWrapper.childrenGetter().apply(node));
+        index.put(key, entry);
+        return entry;
+    }
+
+    private Entry<T, I> resolveParent(I parentKey) {
+        if (Objects.equals(parentKey, rootKey)) {
+            return null;
+        }
+        Entry<T, I> parent = entries.get(parentKey);
+        if (parent == null) {
+            throw new IllegalArgumentException("parent tree node not found: " + parentKey);
+        }
+        return parent;
+    }
+
+    private void checkNotInSubtree(Entry<T, I> parent, Entry<T, I> entry) {
+        for (Entry<T, I> a = parent; a != null; a = a.parent) {
+            if (a == entry) {
+                throw new IllegalArgumentException("cannot move tree node " + entry.key + " under its own subtree");
+            }
+        }
+    }
+
+    private I parentKeyOf(Entry<T, I> entry) {
+        return entry.parent == null ? rootKey : entry.parent.key;
+    }
+
+    private List<T> siblings(Entry<T, I> parent) {
+        return parent == null ? roots : parent.children;
+    }
+
+    private void detach(Entry<T, I> entry) {
+        List<T> siblings = siblings(entry.parent);
+        siblings.remove(indexOf(siblings, entry.node));
+    }
+
+    private static <T> int indexOf(List<T> list, T node) {
+        for (int i = 0, size = list.size(); i < size; i++) {
+            if (list.get(i) == node) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("tree node is not linked to its parent");
+    }
+
+    private void fire(TreeChangeEvent.Type type, I key, I oldParentKey, I newParentKey, List<T> nodes) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        TreeChangeEvent<T, I> event = new TreeChangeEvent<>(type, key, oldParentKey, newParentKey,
+                Collections.unmodifiableList(nodes));
+        for (Consumer<? super TreeChangeEvent<T, I>> listener : listeners) {
+            try {
+                listener.accept(event);
+            } catch (RuntimeException e) {
+                log.error("tree change listener failed, event: {}", type, e);
+            }
+        }
+    }
+
+    /**
+     * 索引项，children 与节点上设置的子节点列表是同一个对象
+     */
+    private static final class Entry<T, I> {
+
+        final I key;
+
+        final List<T> children;
+
+        T node;
+
+        Entry<T, I> parent;
+
+        Entry(I key, T node, Entry<T, I> parent, List<T> children) {
+            this.key = key;
+            this.node = node;
+            this.parent = parent;
+            this.children = children;
+        }
+    }
+}
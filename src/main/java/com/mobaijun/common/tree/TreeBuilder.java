@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Description: [非递归的树构建器]
+ * <p>
+ * 构建分两趟完成：第一趟按键建立预分配容量的索引（键 -> 下标），第二趟查找每个节点的父节点下标，
+ * 再按父节点计数排序出各自的子节点区间，最后一次性为每个节点设置子节点列表。整个过程不递归，
+ * 任意深度的链都不会栈溢出；叶子节点得到空列表而不是 null。
+ * <p>
+ * 数据异常不会抛出异常，而是记录在 {@link Result} 中：
+ * <ul>
+ *     <li>orphans：父键既不是根键、也找不到对应节点的节点，其子树仍然正常挂接；</li>
+ *     <li>cycles：从根节点和孤儿节点都无法到达的节点，即位于环上或挂在环下的节点，它们的子节点列表被置空以切断环；</li>
+ *     <li>duplicates：键重复的节点，只保留第一次出现的节点参与建树。</li>
+ * </ul>
+ * 节点数达到 {@link #parallelThreshold(int)} 时，父节点查找与子节点列表的设置在公共 ForkJoinPool 中并行执行，
+ * 此时父键提取函数和子节点设置函数会被多个线程同时调用（每个节点只会被一个线程处理），结果与串行构建完全相同。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param <T> 树节点类型
+ * @param <I> 树节点键类型
+ */
+public final class TreeBuilder<T, I> {
+
+    /**
+     * 默认的并行阈值
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * 并行时每段最少的节点个数
+     */
+    private static final int MIN_CHUNK = 1 << 12;
+
+    /**
+     * 父节点下标的特殊取值：一级节点、孤儿节点、重复键节点
+     */
+    private static final int ROOT = -1;
+
+    private static final int ORPHAN = -2;
+
+    private static final int SKIPPED = -3;
+
+    private final TreeFunctionWrapper<T, I> treeFunctionWrapper;
+
+    private I rootKey;
+
+    private Comparator<? super T> comparator;
+
+    private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    private TreeBuilder(TreeFunctionWrapper<T, I> treeFunctionWrapper) {
+        this.treeFunctionWrapper = Objects.requireNonNull(treeFunctionWrapper, "treeFunctionWrapper");
+    }
+
+    /**
+     * 使用树相关方法包装器创建构建器
+     *
+     * @param treeFunctionWrapper 树相关方法包装器
+     * @param <T>                 树节点类型
+     * @param <I>                 树节点键类型
+     * @return 构建器
+     */
+    public static <T, I> TreeBuilder<T, I> of(TreeFunctionWrapper<T, I> treeFunctionWrapper) {
+        return new TreeBuilder<>(treeFunctionWrapper);
+    }
+
+    /**
+     * 创建 TreeNode 的构建器
+     *
+     * @param <T> TreeNode的子类
+     * @param <I> TreeNodeId的类型
+     * @return 构建器
+     */
+    public static <T extends TreeNode<I>, I> TreeBuilder<T, I> forTreeNode() {
+        return new TreeBuilder<>(new TreeFunctionWrapper<>(TreeNode::getKey,
+                TreeNode::getParentKey, TreeNode::setChildren, TreeNode::getChildren));
+    }
+
+    /**
+     * 设置根键，父键等于根键的节点为一级节点，默认 null
+     *
+     * @param rootKey 根键
+     * @return this
+     */
+    public TreeBuilder<T, I> rootKey(I rootKey) {
+        this.rootKey = rootKey;
+        return this;
+    }
+
+    /**
+     * 设置同级节点的排序规则，默认保持输入顺序
+     *
+     * @param comparator 排序规则，可以为 null
+     * @return this
+     */
+    public TreeBuilder<T, I> comparator(Comparator<? super T> comparator) {
+        this.comparator = comparator;
+        return this;
+    }
+
+    /**
+     * 设置并行阈值，节点数达到该值时并行链接，默认 {@link #DEFAULT_PARALLEL_THRESHOLD}
+     *
+     * @param parallelThreshold 并行阈值，Integer.MAX_VALUE 表示始终串行
+     * @return this
+     */
+    public TreeBuilder<T, I> parallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 1) {
+            throw new IllegalArgumentException("parallelThreshold must be positive: " + parallelThreshold);
+        }
+        this.parallelThreshold = parallelThreshold;
+        return this;
+    }
+
+    /**
+     * 构建森林
+     *
+     * @param nodes 节点集合
+     * @return 构建结果
+     */
+    @SuppressWarnings("unchecked")
+    public Result<T> build(Collection<? extends T> nodes) {
+        if (nodes == null || nodes.isEmpty()) {
+            return new Result<>(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        }
+        T[] array = (T[]) nodes.toArray();
+        if (comparator != null) {
+            Arrays.sort(array, comparator);
+        }
+        int n = array.length;
+        Function<T, I> keyExtractor = treeFunctionWrapper.keyExtractor();
+        Function<T, I> parentKeyExtractor = treeFunctionWrapper.parentKeyExtractor();
+        BiConsumer<T, List<T>> childrenSetter = treeFunctionWrapper.childrenSetter();
+        boolean parallel = n >= parallelThreshold;
+
+        // 第一趟：键 -> 下标
+        Map<I, Integer> index = new HashMap<>((int) (n / 0.75f) + 1);
+        List<T> duplicates = new ArrayList<>();
+        boolean[] skipped = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            if (index.putIfAbsent(keyExtractor.apply(array[i]), i) != null) {
+                duplicates.add(array[i]);
+                skipped[i] = true;
+            }
+        }
+
+        // 第二趟：父节点下标，ROOT 表示一级节点，ORPHAN 表示找不到父节点
+        int[] parent = new int[n];
+        I root = rootKey;
+        forEachChunk(n, parallel, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                if (skipped[i]) {
+                    parent[i] = SKIPPED;
+                    continue;
+                }
+                I parentKey = parentKeyExtractor.apply(array[i]);
+                if (Objects.equals(parentKey, root)) {
+                    parent[i] = ROOT;
+                } else {
+                    Integer p = index.get(parentKey);
+                    parent[i] = p == null ? ORPHAN : p;
+                }
+            }
+        });
+
+        // 按父节点计数排序，children[start[p], start[p + 1]) 为 p 的子节点下标，保持输入顺序
+        int[] start = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            if (parent[i] >= 0) {
+                start[parent[i] + 1]++;
+            }
+        }
+        for (int p = 0; p < n; p++) {
+            start[p + 1] += start[p];
+        }
+        int[] children = new int[start[n]];
+        int[] cursor = new int[n];
+        List<T> roots = new ArrayList<>();
+        List<T> orphans = new ArrayList<>();
+        int[] queue = new int[n];
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            int p = parent[i];
+            if (p >= 0) {
+                children[start[p] + cursor[p]++] = i;
+            } else if (p == ROOT) {
+                roots.add(array[i]);
+                queue[tail++] = i;
+            } else if (p == ORPHAN) {
+                orphans.add(array[i]);
+                queue[tail++] = i;
+            }
+        }
+
+        // 从根节点和孤儿节点出发广度遍历，到达不了的节点都在环上或挂在环下
+        boolean[] reached = new boolean[n];
+        for (int head = 0; head < tail; head++) {
+            int p = queue[head];
+            reached[p] = true;
+            for (int k = start[p]; k < start[p + 1]; k++) {
+                queue[tail++] = children[k];
+            }
+        }
+        List<T> cycles = new ArrayList<>(n - tail - duplicates.size());
+        for (int i = 0; i < n; i++) {
+            if (!reached[i] && !skipped[i]) {
+                cycles.add(array[i]);
+            }
+        }
+
+        // 设置子节点列表，环上的节点置空以切断环
+        forEachChunk(n, parallel, (from, to) -> {
+            for (int p = from; p < to; p++) {
+                if (skipped[p]) {
+                    continue;
+                }
+                int size = reached[p] ? start[p + 1] - start[p] : 0;
+                List<T> list = new ArrayList<>(size);
+                for (int k = start[p], end = k + size; k < end; k++) {
+                    list.add(array[children[k]]);
+                }
+                childrenSetter.accept(array[p], list);
+            }
+        });
+        return new Result<>(roots, orphans, cycles, duplicates);
+    }
+
+    /**
+     * 把 [0, n) 切段执行，parallel 为 true 时在公共 ForkJoinPool 中并行
+     */
+    private static void forEachChunk(int n, boolean parallel, ChunkConsumer consumer) {
+        if (!parallel) {
+            consumer.accept(0, n);
+            return;
+        }
+        int chunks = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, n / MIN_CHUNK));
+        IntStream.range(0, chunks).parallel().forEach(c ->
+                consumer.accept((int) ((long) n * c / chunks), (int) ((long) n * (c + 1) / chunks)));
+    }
+
+    @FunctionalInterface
+    private interface ChunkConsumer {
+
+        void accept(int from, int to);
+    }
+
+    /**
+     * 构建结果
+     *
+     * @param roots      一级节点，按输入（或排序后）的顺序排列
+     * @param orphans    找不到父节点的节点
+     * @param cycles     位于环上或挂在环下的节点
+     * @param duplicates 键重复而被忽略的节点
+     * @param <T>        树节点类型
+     */
+    public record Result<T>(List<T> roots, List<T> orphans, List<T> cycles, List<T> duplicates) {
+
+        /**
+         * 数据是否完整，没有孤儿、环和重复键
+         *
+         * @return true 表示完整
+         */
+        public boolean isClean() {
+            return orphans.isEmpty() && cycles.isEmpty() && duplicates.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.tree;
+
+import java.util.List;
+
+/**
+ * Description: [树变更事件，由 {@link MutableTree} 在每次修改完成后发布]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param type         变更类型
+ * @param key          被修改的节点键，RELOADED 时为 null
+ * @param oldParentKey 修改前的父键，ADDED、RELOADED 时为 null
+ * @param newParentKey 修改后的父键，REMOVED、RELOADED 时为 null
+ * @param nodes        受影响的节点：REMOVED 为被删除子树的全部节点（先序），UPDATED 为 [旧节点, 新节点]，其余为被修改的节点
+ * @param <T>          树节点类型
+ * @param <I>          树节点键类型
+ */
+public record TreeChangeEvent<T, I>(Type type, I key, I oldParentKey, I newParentKey, List<T> nodes) {
+
+    /**
+     * 变更类型
+     */
+    public enum Type {
+
+        /**
+         * 新增节点
+         */
+        ADDED,
+
+        /**
+         * 删除子树
+         */
+        REMOVED,
+
+        /**
+         * 移动子树到新的父节点下
+         */
+        MOVED,
+
+        /**
+         * 替换节点内容，位置不变
+         */
+        UPDATED,
+
+        /**
+         * 整棵树重新加载
+         */
+        RELOADED
+    }
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.tree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Description: [冻结的树索引]
+ * <p>
+ * 按先序遍历给每个节点分配一个槽位，节点的所有后代恰好占据紧随其后的连续区间 [slot + 1, end)，
+ * 即欧拉序（嵌套集合）区间。槽位、深度、父节点和区间终点都保存在 int 数组中，键到槽位的映射使用 HashMap：
+ * <ul>
+ *     <li>{@link #isAncestor}：两次区间比较，O(1)；</li>
+ *     <li>{@link #descendants}：返回先序数组的子区间视图，O(1) 创建，遍历 O(k)；</li>
+ *     <li>{@link #ancestors}：沿父节点数组上溯，O(depth)；</li>
+ *     <li>{@link #kthAncestor}、{@link #lowestCommonAncestor}：倍增表，O(log n)，倍增表在第一次使用时构建。</li>
+ * </ul>
+ * 索引在构建时对树做一次非递归遍历，之后与原对象树无关，原树再修改不会反映到索引中。实例不可变，可以被多个线程共享。
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ *
+ * @param <T> 树节点类型
+ * @param <I> 树节点键类型
+ */
+public final class TreeIndex<T, I> {
+
+    /**
+     * 先序排列的节点
+     */
+    private final Object[] nodes;
+
+    /**
+     * 先序排列的节点键
+     */
+    private final Object[] keys;
+
+    /**
+     * 父节点槽位，一级节点为 -1
+     */
+    private final int[] parent;
+
+    /**
+     * 深度，一级节点为 0
+     */
+    private final int[] depth;
+
+    /**
+     * 子树区间终点（不含），子树为 [slot, end[slot])
+     */
+    private final int[] end;
+
+    private final Map<I, Integer> slots;
+
+    private final int roots;
+
+    private final int maxDepth;
+
+    /**
+     * 倍增表，up[j][slot] 为 slot 的第 2^j 个祖先，懒加载
+     */
+    private volatile int[][] up;
+
+    private TreeIndex(Object[] nodes, Object[] keys, int[] parent, int[] depth, int[] end, Map<I, Integer> slots,
+                      int roots, int maxDepth) {
+        this.nodes = nodes;
+        this.keys = keys;
+        this.parent = parent;
+        this.depth = depth;
+        this.end = end;
+        this.slots = slots;
+        this.roots = roots;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * 为 TreeNode 森林建立索引
+     *
+     * @param roots 一级节点
+     * @param <T>   TreeNode的子类
+     * @param <I>   TreeNodeId的类型
+     * @return 树索引
+     */
+    public static <T extends TreeNode<I>, I> TreeIndex<T, I> of(Collection<? extends T> roots) {
+        TreeFunctionWrapper<T, I> treeFunctionWrapper = new TreeFunctionWrapper<>(TreeNode::getKey,
+                TreeNode::getParentKey, TreeNode::setChildren, TreeNode::getChildren);
+        return of(roots, treeFunctionWrapper);
+    }
+
+    /**
+     * 为森林建立索引，只使用包装器中的键提取函数和子节点获取函数
+     *
+     * @param roots               一级节点
+     * @param treeFunctionWrapper 树相关方法包装器
+     * @param <T>                 树节点类型
+     * @param <I>                 树节点键类型
+     * @return 树索引
+     * @throws IllegalArgumentException 键重复或树中存在环
+     */
+    public static <T, I> TreeIndex<T, I> of(Collection<? extends T> roots,
+                                            TreeFunctionWrapper<T, I> treeFunctionWrapper) {
+        Function<T, I> keyExtractor = treeFunctionWrapper.keyExtractor();
+        Function<T, List<T>> childrenGetter = treeFunctionWrapper.childrenGetter();
+        List<Object> order = new ArrayList<>();
+        List<Object> keyOrder = new ArrayList<>();
+        Map<I, Integer> slots = new HashMap<>();
+        int[] parent = new int[16];
+        int[] depth = new int[16];
+        int maxDepth = 0;
+
+        // 显式栈做先序遍历，元素为 {节点, 父槽位}
+        Deque<Object[]> stack = new ArrayDeque<>();
+        List<? extends T> rootList = roots == null ? Collections.emptyList() : new ArrayList<>(roots);
+        for (int i = rootList.size() - 1; i >= 0; i--) {
+            stack.push(new Object[]{rootList.get(i), -1});
+        }
+        while (!stack.isEmpty()) {
+            Object[] frame = stack.pop();
+            @SuppressWarnings("unchecked")
+            T node = (T) frame[0];
+            int parentSlot = (Integer) frame[1];
+            int slot = order.size();
+            I key = keyExtractor.apply(node);
+            if (slots.putIfAbsent(key, slot) != null) {
+                throw new IllegalArgumentException("duplicate key or cycle in tree: " + key);
+            }
+            if (slot == parent.length) {
+                parent = Arrays.copyOf(parent, slot << 1);
+                depth = Arrays.copyOf(depth, slot << 1);
+            }
+            order.add(node);
+            keyOrder.add(key);
+            parent[slot] = parentSlot;
+            depth[slot] = parentSlot < 0 ? 0 : depth[parentSlot] + 1;
+            maxDepth = Math.max(maxDepth, depth[slot]);
+            List<T> children = childrenGetter.apply(node);
+            if (children != null) {
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(new Object[]{children.get(i), slot});
+                }
+            }
+        }
+
+        // 先序中子树连续，倒序累加子树大小即可得到区间终点
+        int n = order.size();
+        int[] end = new int[n];
+        for (int slot = 0; slot < n; slot++) {
+            end[slot] = slot + 1;
+        }
+        for (int slot = n - 1; slot >= 0; slot--) {
+            int p = parent[slot];
+            if (p >= 0 && end[slot] > end[p]) {
+                end[p] = end[slot];
+            }
+        }
+        return new TreeIndex<>(order.toArray(), keyOrder.toArray(), Arrays.copyOf(parent, n),
+                Arrays.copyOf(depth, n), end, slots, rootList.size(), maxDepth);
+    }
+
+    // ------------------------------------------------------------------------------------------------ 槽位
+
+    /**
+     * 节点总数
+     *
+     * @return 节点总数
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * 是否包含指定键的节点
+     *
+     * @param key 节点键
+     * @return true 表示包含
+     */
+    public boolean contains(I key) {
+        return slots.containsKey(key);
+    }
+
+    /**
+     * 节点键对应的先序槽位
+     *
+     * @param key 节点键
+     * @return 槽位，不存在时返回 -1
+     */
+    public int slot(I key) {
+        Integer slot = slots.get(key);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * 槽位上的节点
+     *
+     * @param slot 槽位
+     * @return 节点
+     */
+    @SuppressWarnings("unchecked")
+    public T node(int slot) {
+        return (T) nodes[slot];
+    }
+
+    /**
+     * 槽位上节点的键
+     *
+     * @param slot 槽位
+     * @return 节点键
+     */
+    @SuppressWarnings("unchecked")
+    public I key(int slot) {
+        return (I) keys[slot];
+    }
+
+    /**
+     * 指定键的节点
+     *
+     * @param key 节点键
+     * @return 节点，不存在时返回 null
+     */
+    public T get(I key) {
+        int slot = slot(key);
+        return slot < 0 ? null : node(slot);
+    }
+
+    /**
+     * 父节点槽位
+     *
+     * @param slot 槽位
+     * @return 父节点槽位，一级节点返回 -1
+     */
+    public int parentSlot(int slot) {
+        return parent[slot];
+    }
+
+    /**
+     * 子树区间终点（不含），slot 的后代为 [slot + 1, subtreeEnd(slot))
+     *
+     * @param slot 槽位
+     * @return 子树区间终点
+     */
+    public int subtreeEnd(int slot) {
+        return end[slot];
+    }
+
+    /**
+     * 树的最大深度，一级节点深度为 0
+     *
+     * @return 最大深度，空索引返回 0
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    // ------------------------------------------------------------------------------------------------ 查询
+
+    /**
+     * 所有节点，按先序排列
+     *
+     * @return 不可修改的节点列表
+     */
+    public List<T> nodes() {
+        return view(0, nodes.length);
+    }
+
+    /**
+     * 一级节点
+     *
+     * @return 一级节点
+     */
+    public List<T> roots() {
+        List<T> result = new ArrayList<>(roots);
+        for (int slot = 0; slot < nodes.length; slot = end[slot]) {
+            result.add(node(slot));
+        }
+        return result;
+    }
+
+    /**
+     * 节点深度
+     *
+     * @param key 节点键
+     * @return 深度，一级节点为 0，不存在时返回 -1
+     */
+    public int depth(I key) {
+        int slot = slot(key);
+        return slot < 0 ? -1 : depth[slot];
+    }
+
+    /**
+     * 父节点
+     *
+     * @param key 节点键
+     * @return 父节点，一级节点或不存在时返回 null
+     */
+    public T parent(I key) {
+        int slot = slot(key);
+        return slot < 0 || parent[slot] < 0 ? null : node(parent[slot]);
+    }
+
+    /**
+     * ancestor 是否为 descendant 的真祖先，O(1)
+     *
+     * @param ancestor   祖先节点键
+     * @param descendant 后代节点键
+     * @return true 表示是真祖先，节点自身或任一键不存在时返回 false
+     */
+    public boolean isAncestor(I ancestor, I descendant) {
+        int a = slot(ancestor);
+        int d = slot(descendant);
+        return a >= 0 && d >= 0 && isAncestorSlot(a, d);
+    }
+
+    /**
+     * 槽位 a 是否为槽位 d 的真祖先，O(1)
+     *
+     * @param a 祖先槽位
+     * @param d 后代槽位
+     * @return true 表示是真祖先
+     */
+    public boolean isAncestorSlot(int a, int d) {
+        return a < d && d < end[a];
+    }
+
+    /**
+     * 所有后代节点（不含自身），按先序排列，O(1) 创建
+     *
+     * @param key 节点键
+     * @return 不可修改的后代视图，不存在时返回空列表
+     */
+    public List<T> descendants(I key) {
+        int slot = slot(key);
+        return slot < 0 ? Collections.emptyList() : view(slot + 1, end[slot]);
+    }
+
+    /**
+     * 后代节点个数（不含自身）
+     *
+     * @param key 节点键
+     * @return 后代个数，不存在时返回 0
+     */
+    public int descendantCount(I key) {
+        int slot = slot(key);
+        return slot < 0 ? 0 : end[slot] - slot - 1;
+    }
+
+    /**
+     * 子树中的叶子节点，O(子树大小)
+     *
+     * @param key 节点键
+     * @return 叶子节点，节点本身是叶子时返回自身
+     */
+    public List<T> leaves(I key) {
+        int slot = slot(key);
+        if (slot < 0) {
+            return new ArrayList<>();
+        }
+        List<T> result = new ArrayList<>();
+        for (int s = slot; s < end[slot]; s++) {
+            if (end[s] == s + 1) {
+                result.add(node(s));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 从父节点到一级节点的祖先路径，O(depth)
+     *
+     * @param key 节点键
+     * @return 祖先列表，最近的祖先在前，不存在时返回空列表
+     */
+    public List<T> ancestors(I key) {
+        int slot = slot(key);
+        if (slot < 0) {
+            return new ArrayList<>();
+        }
+        List<T> result = new ArrayList<>(depth[slot]);
+        for (int p = parent[slot]; p >= 0; p = parent[p]) {
+            result.add(node(p));
+        }
+        return result;
+    }
+
+    /**
+     * 第 k 个祖先，使用倍增表，O(log n)
+     *
+     * @param key 节点键
+     * @param k   向上的层数，0 表示自身
+     * @return 祖先节点，层数超过深度或节点不存在时返回 null
+     */
+    public T kthAncestor(I key, int k) {
+        int slot = slot(key);
+        if (slot < 0 || k < 0 || k > depth[slot]) {
+            return null;
+        }
+        int[][] table = liftingTable();
+        for (int j = 0; k != 0; j++, k >>>= 1) {
+            if ((k & 1) != 0) {
+                slot = table[j][slot];
+            }
+        }
+        return node(slot);
+    }
+
+    /**
+     * 最近公共祖先（节点自身也算作自己的祖先），使用倍增表，O(log n)
+     *
+     * @param a 节点键
+     * @param b 节点键
+     * @return 最近公共祖先，两节点不在同一棵树或任一键不存在时返回 null
+     */
+    public T lowestCommonAncestor(I a, I b) {
+        int x = slot(a);
+        int y = slot(b);
+        if (x < 0 || y < 0) {
+            return null;
+        }
+        if (x == y || isAncestorSlot(x, y)) {
+            return node(x);
+        }
+        if (isAncestorSlot(y, x)) {
+            return node(y);
+        }
+        int[][] table = liftingTable();
+        for (int j = table.length - 1; j >= 0; j--) {
+            int u = table[j][x];
+            if (u >= 0 && !isAncestorSlot(u, y)) {
+                x = u;
+            }
+        }
+        return parent[x] < 0 ? null : node(parent[x]);
+    }
+
+    /**
+     * 按先序迭代子树（含自身）
+     *
+     * @param key 节点键
+     * @return 迭代器，不存在时为空迭代器
+     */
+    public Iterator<T> subtreeIterator(I key) {
+        int slot = slot(key);
+        return slot < 0 ? Collections.emptyIterator() : view(slot, end[slot]).iterator();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> view(int from, int to) {
+        return (List<T>) Collections.unmodifiableList(Arrays.asList(nodes).subList(from, to));
+    }
+
+    private int[][] liftingTable() {
+        int[][] table = up;
+        if (table == null) {
+            int n = nodes.length;
+            int levels = Math.max(1, 32 - Integer.numberOfLeadingZeros(maxDepth));
+            table = new int[levels][];
+            table[0] = parent;
+            for (int j = 1; j < levels; j++) {
+                int[] prev = table[j - 1];
+                int[] cur = new int[n];
+                for (int slot = 0; slot < n; slot++) {
+                    int mid = prev[slot];
+                    cur[slot] = mid < 0 ? -1 : prev[mid];
+                }
+                table[j] = cur;
+            }
+            up = table;
+        }
+        return table;
+    }
+
+    @Override
+    public String toString() {
+        return "TreeIndex{size=" + nodes.length + ", roots=" + roots + ", maxDepth=" + maxDepth + '}';
+    }
+}
@@ -16,19 +16,25 @@
 package com.mobaijun.common.tree;
 
 import com.mobaijun.common.assertions.Assert;
+import java.io.Serial;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Description: [树工具类]
@@ -38,6 +44,21 @@ import java.util.stream.Stream;
  */
 public class TreeUtil {
 
+    /**
+     * 并行剪枝、并行收集时，节点数超过该值才真正并行执行，同时也是每个剪枝任务串行处理的最大区间
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 10;
+
+    /**
+     * 并行转换时每个任务处理的节点个数
+     */
+    private static final int CONVERT_CHUNK = 1 << 8;
+
+    /**
+     * 剪枝任务的最大切分深度，超过后串行处理，避免畸形树让任务栈过深
+     */
+    private static final int MAX_SPLIT_DEPTH = 48;
+
     private TreeUtil() {
     }
 
@@ -176,21 +197,18 @@ public class TreeUtil {
         }
 
         // 转换为 TreeNode
-        Stream<T> tStream = list.stream().map(convertToTree);
-        // 如果需要排序，则在收集时进行排序处理
-        if (comparator != null) {
-            tStream = tStream.sorted(comparator);
+        List<T> nodes = new ArrayList<>(list.size());
+        for (R r : list) {
+            nodes.add(convertToTree.apply(r));
         }
-        // 根据 parentId 进行分组
-        Map<I, List<T>> childrenMap = tStream.collect(Collectors.groupingBy(
-                x -> treeFunctionWrapper.parentKeyExtractor().apply(x), LinkedHashMap::new, Collectors.toList()));
-
-        // 根据根节点ID拿到一级节点
-        List<T> treeList = childrenMap.get(rootId);
+        // 两趟非递归构建，叶子节点得到空列表，深链不会栈溢出
+        List<T> treeList = TreeBuilder.of(treeFunctionWrapper)
+                .rootKey(rootId)
+                .comparator(comparator)
+                .build(nodes)
+                .roots();
         // 异常数据校验
         Assert.notEmpty(treeList, "错误的数据，找不到根节点的子节点");
-        // 遍历所有一级节点，赋值其子节点
-        treeList.forEach(node -> setChildren(node, childrenMap, treeFunctionWrapper));
         return treeList;
     }
 
@@ -218,14 +236,20 @@ public class TreeUtil {
         Function<T, I> keyExtractor = treeFunctionWrapper.keyExtractor();
         BiConsumer<T, List<T>> childrenSetter = treeFunctionWrapper.childrenSetter();
 
-        I parentId = keyExtractor.apply(parent);
-        List<T> children = childrenMap.get(parentId);
-        // 如果有孩子节点则赋值，且给孩子节点的孩子节点赋值
-        if (!children.isEmpty()) {
-            childrenSetter.accept(parent, children);
-            children.forEach(node -> setChildren(node, childrenMap, treeFunctionWrapper));
-        } else {
-            childrenSetter.accept(parent, children);
+        // 用显式栈代替递归，叶子节点赋值为空列表
+        Deque<T> stack = new ArrayDeque<>();
+        stack.push(parent);
+        while (!stack.isEmpty()) {
+            T node = stack.pop();
+            List<T> children = childrenMap.get(keyExtractor.apply(node));
+            if (children == null) {
+                childrenSetter.accept(node, new ArrayList<>(0));
+                continue;
+            }
+            childrenSetter.accept(node, children);
+            for (T child : children) {
+                stack.push(child);
+            }
         }
     }
 
@@ -502,32 +526,77 @@ public class TreeUtil {
      */
     public static <T, I, R> List<R> collectNode(T treeNode, TreeFunctionWrapper<T, I> treeFunctionWrapper,
                                                 Function<T, R> converter, boolean clearChildrenReference) {
-        List<R> list = new ArrayList<>();
-
-        // 使用队列存储未处理的树节点
-        Queue<T> queue = new LinkedList<>();
-        queue.add(treeNode);
+        return collectNode(treeNode, treeFunctionWrapper, converter, clearChildrenReference, null);
+    }
 
-        while (!queue.isEmpty()) {
-            // 弹出一个树节点
-            T node = queue.poll();
-            if (node == null) {
-                continue;
-            }
+    /**
+     * 收集所有树节点的数据到一个 List 中，节点数超过 {@link #PARALLEL_THRESHOLD} 时在指定的 ForkJoinPool 中并行转换。
+     *
+     * @param treeNode               树节点
+     * @param converter              转换器，用于将树节点的类型进行转换，再存储到 list 中
+     * @param clearChildrenReference 收集过程中是否清除树节点的子节点引用
+     * @param pool                   执行并行转换的线程池，为 null 时串行执行
+     * @param <T>                    树节点的类型
+     * @param <I>                    树节点的 id 类型
+     * @param <R>                    转换器转换后的类型
+     * @return List<R>
+     */
+    public static <T extends TreeNode<I>, I, R> List<R> collectNode(T treeNode, Function<T, R> converter,
+                                                                    boolean clearChildrenReference,
+                                                                    ForkJoinPool pool) {
+        TreeFunctionWrapper<T, I> treeFunctionWrapper = new TreeFunctionWrapper<>(TreeNode::getKey,
+                TreeNode::getParentKey, TreeNode::setChildren, TreeNode::getChildren);
+        return collectNode(treeNode, treeFunctionWrapper, converter, clearChildrenReference, pool);
+    }
 
-            // 如果当前节点的含有子节点，则添加到队列中
-            List<T> children = treeFunctionWrapper.childrenGetter().apply(node);
-            if (!children.isEmpty()) {
-                queue.addAll(children);
+    /**
+     * 收集所有树节点的数据到一个 List 中，节点数超过 {@link #PARALLEL_THRESHOLD} 时在指定的 ForkJoinPool 中并行转换。
+     * 节点先按广度优先顺序收集，再按下标区间切分并行转换，结果顺序与串行完全相同，转换器会被多个线程同时调用。
+     *
+     * @param treeNode               树节点
+     * @param converter              转换器，用于将树节点的类型进行转换，再存储到 list 中
+     * @param clearChildrenReference 收集过程中是否清除树节点的子节点引用
+     * @param pool                   执行并行转换的线程池，为 null 时串行执行
+     * @param <T>                    树节点的类型
+     * @param <I>                    树节点的 id 类型
+     * @param <R>                    转换器转换后的类型
+     * @return List<R>
+     */
+    public static <T, I, R> List<R> collectNode(T treeNode, TreeFunctionWrapper<T, I> treeFunctionWrapper,
+                                                Function<T, R> converter, boolean clearChildrenReference,
+                                                ForkJoinPool pool) {
+        // 广度优先收集所有节点
+        List<T> nodes = new ArrayList<>();
+        if (treeNode != null) {
+            nodes.add(treeNode);
+        }
+        for (int head = 0; head < nodes.size(); head++) {
+            List<T> children = treeFunctionWrapper.childrenGetter().apply(nodes.get(head));
+            if (children != null) {
+                for (T child : children) {
+                    if (child != null) {
+                        nodes.add(child);
+                    }
+                }
             }
+        }
 
-            // 不再保留对子节点的引用
-            if (clearChildrenReference) {
+        // 不再保留对子节点的引用
+        if (clearChildrenReference) {
+            for (T node : nodes) {
                 treeFunctionWrapper.childrenSetter().accept(node, null);
             }
+        }
 
-            // 转换树节点，并将结果添加到 list 中
-            list.add(converter.apply(node));
+        // 转换树节点，并将结果添加到 list 中
+        int n = nodes.size();
+        List<R> list = new ArrayList<>(Collections.nCopies(n, null));
+        if (pool == null || n <= PARALLEL_THRESHOLD) {
+            for (int i = 0; i < n; i++) {
+                list.set(i, converter.apply(nodes.get(i)));
+            }
+        } else {
+            pool.invoke(new ConvertTask<>(nodes, list, converter, 0, n));
         }
         return list;
     }
@@ -556,24 +625,52 @@ public class TreeUtil {
      */
     public static <T, I> List<T> pruneTree(List<T> treeNodes, Predicate<T> matcher,
                                            TreeFunctionWrapper<T, I> treeFunctionWrapper) {
-        List<T> result = new ArrayList<>();
-        if (treeNodes.isEmpty()) {
-            return result;
+        return pruneTree(treeNodes, matcher, treeFunctionWrapper, null);
+    }
+
+    /**
+     * 根据指定规则进行树剪枝，节点数超过 {@link #PARALLEL_THRESHOLD} 时在指定的 ForkJoinPool 中并行执行
+     *
+     * @param treeNodes 待剪枝的树节点列表
+     * @param matcher   匹配规则
+     * @param pool      执行并行剪枝的线程池，为 null 时串行执行
+     * @param <T>       TreeNode
+     * @param <I>       TreeNodeId的类型
+     * @return 剪枝完成后的树节点列表
+     */
+    public static <T extends TreeNode<I>, I> List<T> pruneTree(List<T> treeNodes, Predicate<T> matcher,
+                                                               ForkJoinPool pool) {
+        TreeFunctionWrapper<T, I> treeFunctionWrapper = new TreeFunctionWrapper<>(TreeNode::getKey,
+                TreeNode::getParentKey, TreeNode::setChildren, TreeNode::getChildren);
+        return pruneTree(treeNodes, matcher, treeFunctionWrapper, pool);
+    }
+
+    /**
+     * 根据指定规则进行树剪枝：保留匹配的节点以及有匹配后代的节点，有匹配后代的节点只保留剪枝后的子节点，
+     * 没有匹配后代的匹配节点子节点置为 null。
+     * <p>
+     * 森林先被非递归地展开为先序数组，每棵子树对应一段连续区间。节点数超过 {@link #PARALLEL_THRESHOLD}
+     * 且指定了线程池时，按子树边界把区间一分为二交给 {@link RecursiveTask} 并行剪枝，区间不超过阈值时串行处理；
+     * 子节点顺序与串行结果完全相同，匹配规则会被多个线程同时调用。任意深度的树都不会栈溢出。
+     *
+     * @param treeNodes 待剪枝的树节点列表
+     * @param matcher   匹配规则
+     * @param pool      执行并行剪枝的线程池，为 null 时串行执行
+     * @param <T>       TreeNode
+     * @param <I>       TreeNodeId的类型
+     * @return 剪枝完成后的树节点列表
+     */
+    public static <T, I> List<T> pruneTree(List<T> treeNodes, Predicate<T> matcher,
+                                           TreeFunctionWrapper<T, I> treeFunctionWrapper, ForkJoinPool pool) {
+        if (treeNodes == null || treeNodes.isEmpty()) {
+            return new ArrayList<>();
         }
-        Function<T, List<T>> childrenGetter = treeFunctionWrapper.childrenGetter();
+        Forest<T> forest = Forest.of(treeNodes, treeFunctionWrapper.childrenGetter());
         BiConsumer<T, List<T>> childrenSetter = treeFunctionWrapper.childrenSetter();
-
-        for (T treeNode : treeNodes) {
-            List<T> children = pruneTree(childrenGetter.apply(treeNode), matcher, treeFunctionWrapper);
-            if (!children.isEmpty()) {
-                childrenSetter.accept(treeNode, children);
-                result.add(treeNode);
-            } else if (matcher.test(treeNode)) {
-                childrenSetter.accept(treeNode, null);
-                result.add(treeNode);
-            }
+        if (pool == null || forest.size <= PARALLEL_THRESHOLD) {
+            return pruneRange(forest, 0, forest.size, matcher, childrenSetter);
         }
-        return result;
+        return pool.invoke(new PruneTask<>(forest, 0, forest.size, 0, matcher, childrenSetter));
     }
 
     /**
@@ -655,4 +752,317 @@ public class TreeUtil {
             forEachDFS(children, treeNode, action, treeFunctionWrapper);
         }
     }
+
+    /**
+     * 深度优先（先序）遍历的惰性迭代器，只在取到节点时才读取其子节点，可随时停止遍历
+     *
+     * @param treeNodes 树节点列表
+     * @param <T>       TreeNode
+     * @param <I>       TreeNodeId的类型
+     * @return 迭代器
+     */
+    public static <T extends TreeNode<I>, I> Iterator<T> dfsIterator(List<T> treeNodes) {
+        TreeFunctionWrapper<T, I> treeFunctionWrapper = new TreeFunctionWrapper<>(TreeNode::getKey,
+                TreeNode::getParentKey, TreeNode::setChildren, TreeNode::getChildren);
+        return dfsIterator(treeNodes, treeFunctionWrapper);
+    }
+
+    /**
+     * 深度优先（先序）遍历的惰性迭代器，只在取到节点时才读取其子节点，可随时停止遍历，额外内存 O(depth)
+     *
+     * @param treeNodes 树节点列表
+     * @param <T>       树节点类型
+     * @param <I>       TreeNodeId的类型
+     * @return 迭代器
+     */
+    public static <T, I> Iterator<T> dfsIterator(List<T> treeNodes, TreeFunctionWrapper<T, I> treeFunctionWrapper) {
+        return new TraversalIterator<>(treeNodes, treeFunctionWrapper.childrenGetter(), true);
+    }
+
+    /**
+     * 广度优先遍历的惰性迭代器，只在取到节点时才读取其子节点，可随时停止遍历
+     *
+     * @param treeNodes 树节点列表
+     * @param <T>       TreeNode
+     * @param <I>       TreeNodeId的类型
+     * @return 迭代器
+     */
+    public static <T extends TreeNode<I>, I> Iterator<T> bfsIterator(List<T> treeNodes) {
+        TreeFunctionWrapper<T, I> treeFunctionWrapper = new TreeFunctionWrapper<>(TreeNode::getKey,
+                TreeNode::getParentKey, TreeNode::setChildren, TreeNode::getChildren);
+        return bfsIterator(treeNodes, treeFunctionWrapper);
+    }
+
+    /**
+     * 广度优先遍历的惰性迭代器，只在取到节点时才读取其子节点，可随时停止遍历，额外内存 O(已展开的兄弟列表数)
+     *
+     * @param treeNodes 树节点列表
+     * @param <T>       树节点类型
+     * @param <I>       TreeNodeId的类型
+     * @return 迭代器
+     */
+    public static <T, I> Iterator<T> bfsIterator(List<T> treeNodes, TreeFunctionWrapper<T, I> treeFunctionWrapper) {
+        return new TraversalIterator<>(treeNodes, treeFunctionWrapper.childrenGetter(), false);
+    }
+
+    // ------------------------------------------------------------------------------------------------ 并行与遍历实现
+
+    /**
+     * 串行剪枝先序区间 [from, to)，区间由若干棵完整子树组成，倒序处理保证子节点先于父节点，不递归
+     */
+    private static <T> List<T> pruneRange(Forest<T> forest, int from, int to, Predicate<T> matcher,
+                                          BiConsumer<T, List<T>> childrenSetter) {
+        List<T> result = new ArrayList<>();
+        @SuppressWarnings("unchecked")
+        List<T>[] kept = (List<T>[]) new List<?>[to - from];
+        for (int slot = to - 1; slot >= from; slot--) {
+            T node = forest.node(slot);
+            List<T> children = kept[slot - from];
+            if (children != null) {
+                // 倒序追加，恢复原顺序
+                Collections.reverse(children);
+                childrenSetter.accept(node, children);
+            } else if (matcher.test(node)) {
+                childrenSetter.accept(node, null);
+            } else {
+                continue;
+            }
+            int parent = forest.parent[slot];
+            if (parent >= from) {
+                if (kept[parent - from] == null) {
+                    kept[parent - from] = new ArrayList<>();
+                }
+                kept[parent - from].add(node);
+            } else {
+                result.add(node);
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * 先序展开的森林，子树 slot 占据区间 [slot, end[slot])
+     */
+    private static final class Forest<T> {
+
+        final Object[] nodes;
+
+        final int[] parent;
+
+        final int[] end;
+
+        final int size;
+
+        private Forest(Object[] nodes, int[] parent, int[] end) {
+            this.nodes = nodes;
+            this.parent = parent;
+            this.end = end;
+            this.size = nodes.length;
+        }
+
+        static <T> Forest<T> of(List<T> roots, Function<T, List<T>> childrenGetter) {
+            List<Object> order = new ArrayList<>();
+            int[] parent = new int[16];
+            Deque<Object[]> stack = new ArrayDeque<>();
+            for (int i = roots.size() - 1; i >= 0; i--) {
+                stack.push(new Object[]{roots.get(i), -1});
+            }
+            while (!stack.isEmpty()) {
+                Object[] frame = stack.pop();
+                @SuppressWarnings("unchecked")
+                T node = (T) frame[0];
+                int slot = order.size();
+                if (slot == parent.length) {
+                    parent = Arrays.copyOf(parent, slot << 1);
+                }
+                order.add(node);
+                parent[slot] = (Integer) frame[1];
+                List<T> children = childrenGetter.apply(node);
+                if (children != null) {
+                    for (int i = children.size() - 1; i >= 0; i--) {
+                        stack.push(new Object[]{children.get(i), slot});
+                    }
+                }
+            }
+            int n = order.size();
+            int[] end = new int[n];
+            for (int slot = n - 1; slot >= 0; slot--) {
+                end[slot] = Math.max(end[slot], slot + 1);
+                int p = parent[slot];
+                if (p >= 0 && end[slot] > end[p]) {
+                    end[p] = end[slot];
+                }
+            }
+            return new Forest<>(order.toArray(), Arrays.copyOf(parent, n), end);
+        }
+
+        @SuppressWarnings("unchecked")
+        T node(int slot) {
+            return (T) nodes[slot];
+        }
+    }
+
+    /**
+     * 按子树切分的并行剪枝任务，处理先序区间 [from, to)
+     */
+    private static final class PruneTask<T> extends RecursiveTask<List<T>> {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final Forest<T> forest;
+
+        private final int from;
+
+        private final int to;
+
+        private final int depth;
+
+        private final Predicate<T> matcher;
+
+        private final BiConsumer<T, List<T>> childrenSetter;
+
+        PruneTask(Forest<T> forest, int from, int to, int depth, Predicate<T> matcher,
+                  BiConsumer<T, List<T>> childrenSetter) {
+            this.forest = forest;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.matcher = matcher;
+            this.childrenSetter = childrenSetter;
+        }
+
+        @Override
+        protected List<T> compute() {
+            int[] end = forest.end;
+            // 区间只有一棵大子树时沿单链向下，循环代替递归，深链不会占用调用栈
+            int lo = from;
+            int[] chain = new int[8];
+            int chainSize = 0;
+            while (to - lo > PARALLEL_THRESHOLD && end[lo] == to) {
+                if (chainSize == chain.length) {
+                    chain = Arrays.copyOf(chain, chainSize << 1);
+                }
+                chain[chainSize++] = lo++;
+            }
+            List<T> kept;
+            if (to - lo <= PARALLEL_THRESHOLD || depth >= MAX_SPLIT_DEPTH) {
+                kept = pruneRange(forest, lo, to, matcher, childrenSetter);
+            } else {
+                // 在最靠近中点的子树边界处一分为二
+                int mid = lo + ((to - lo) >>> 1);
+                int split = lo;
+                while (end[split] <= mid) {
+                    split = end[split];
+                }
+                int boundary = split == lo ? end[lo] : split;
+                PruneTask<T> right = new PruneTask<>(forest, boundary, to, depth + 1, matcher, childrenSetter);
+                right.fork();
+                kept = new PruneTask<>(forest, lo, boundary, depth + 1, matcher, childrenSetter).compute();
+                kept.addAll(right.join());
+            }
+            for (int k = chainSize - 1; k >= 0; k--) {
+                T node = forest.node(chain[k]);
+                if (!kept.isEmpty()) {
+                    childrenSetter.accept(node, kept);
+                } else if (matcher.test(node)) {
+                    childrenSetter.accept(node, null);
+                } else {
+                    continue;
+                }
+                kept = new ArrayList<>(1);
+                kept.add(node);
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * 按下标区间切分的并行转换任务
+     */
+    private static final class ConvertTask<T, R> extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> nodes;
+
+        private final List<R> out;
+
+        private final Function<T, R> converter;
+
+        private final int from;
+
+        private final int to;
+
+        ConvertTask(List<T> nodes, List<R> out, Function<T, R> converter, int from, int to) {
+            this.nodes = nodes;
+            this.out = out;
+            this.converter = converter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CONVERT_CHUNK) {
+                for (int i = from; i < to; i++) {
+                    out.set(i, converter.apply(nodes.get(i)));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ConvertTask<>(nodes, out, converter, from, mid),
+                    new ConvertTask<>(nodes, out, converter, mid, to));
+        }
+    }
+
+    /**
+     * 深度优先或广度优先的惰性迭代器，容器中保存的是尚未遍历完的兄弟列表迭代器
+     */
+    private static final class TraversalIterator<T> implements Iterator<T> {
+
+        private final Deque<Iterator<T>> pending = new ArrayDeque<>();
+
+        private final Function<T, List<T>> childrenGetter;
+
+        private final boolean depthFirst;
+
+        TraversalIterator(List<T> roots, Function<T, List<T>> childrenGetter, boolean depthFirst) {
+            this.childrenGetter = childrenGetter;
+            this.depthFirst = depthFirst;
+            if (roots != null && !roots.isEmpty()) {
+                pending.add(roots.iterator());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!pending.isEmpty()) {
+                if (pending.peekFirst().hasNext()) {
+                    return true;
+                }
+                pending.pollFirst();
+            }
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T node = pending.peekFirst().next();
+            List<T> children = childrenGetter.apply(node);
+            if (children != null && !children.isEmpty()) {
+                if (depthFirst) {
+                    pending.addFirst(children.iterator());
+                } else {
+                    pending.addLast(children.iterator());
+                }
+            }
+            return node;
+        }
+    }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.cache;
+
+import com.mobaijun.common.enums.cache.CacheType;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [LocalCacheTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class LocalCacheTest {
+
+    /**
+     * Test for size bound and frequency based admission.
+     */
+    @Test
+    public void testEviction() {
+        LocalCache<Integer, Integer> cache = LocalCache.<Integer, Integer>builder().maximumSize(100).build();
+        // 热点键被反复访问
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 50; key++) {
+                if (cache.get(key) == null) {
+                    cache.put(key, key);
+                }
+            }
+        }
+        // 一次性扫描大量冷键
+        for (int key = 1000; key < 11_000; key++) {
+            cache.put(key, key);
+        }
+        cache.cleanUp();
+        Assert.assertTrue(cache.size() <= 100);
+        Assert.assertEquals(cache.size(), cache.weightedSize());
+        int hotHits = 0;
+        for (int key = 0; key < 50; key++) {
+            hotHits += cache.get(key) != null ? 1 : 0;
+        }
+        Assert.assertTrue("hot keys kept: " + hotHits, hotHits >= 45);
+        Assert.assertTrue(cache.stats().evictionCount() >= 10_000 - 100);
+
+        LocalCache<String, String> weighted = LocalCache.<String, String>builder()
+                .maximumWeight(100, (key, value) -> value.length()).build();
+        for (int i = 0; i < 100; i++) {
+            weighted.put("k" + i, "0123456789");
+        }
+        Assert.assertTrue(weighted.weightedSize() <= 100);
+
+        // 按字节限制的缓存：频率草图按条目个数扩大，而不是按总权重一次性分配
+        LocalCache<Integer, byte[]> bytes = LocalCache.<Integer, byte[]>builder()
+                .maximumWeight(1L << 30, (key, value) -> value.length).build();
+        Assert.assertTrue(bytes.frequencySketch().capacity() <= 16);
+        for (int i = 0; i < 1000; i++) {
+            bytes.put(i, new byte[1024]);
+        }
+        Assert.assertEquals(1000, bytes.size());
+        Assert.assertEquals(1000 * 1024, bytes.weightedSize());
+        Assert.assertTrue(bytes.frequencySketch().capacity() >= 1000);
+        Assert.assertTrue(bytes.frequencySketch().capacity() <= 2048);
+    }
+
+    /**
+     * Test for expireAfterWrite and expireAfterAccess.
+     */
+    @Test
+    public void testExpiry() {
+        AtomicLong now = new AtomicLong();
+        LocalCache<String, String> ttl = LocalCache.<String, String>builder()
+                .expireAfterWrite(Duration.ofSeconds(10)).ticker(now::get).build();
+        ttl.put("a", "1");
+        now.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        Assert.assertEquals("1", ttl.get("a"));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assert.assertNull(ttl.get("a"));
+        ttl.cleanUp();
+        Assert.assertEquals(0, ttl.size());
+
+        LocalCache<String, String> tti = LocalCache.<String, String>builder()
+                .expireAfterAccess(Duration.ofSeconds(10)).ticker(now::get).build();
+        tti.put("a", "1");
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(8));
+            Assert.assertEquals("1", tti.get("a"));
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        Assert.assertNull(tti.get("a"));
+        Assert.assertEquals(5, tti.stats().hitCount());
+        Assert.assertEquals(1, tti.stats().missCount());
+    }
+
+    /**
+     * Test for getOrLoad single flight.
+     */
+    @Test
+    public void testGetOrLoad() throws Exception {
+        LocalCache<String, Integer> cache = LocalCache.<String, Integer>builder().maximumSize(10).build();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    return cache.getOrLoad("key", key -> {
+                        loads.incrementAndGet();
+                        try {
+                            Thread.sleep(50);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return 42;
+                    });
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                Assert.assertEquals(42, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, cache.stats().loadSuccessCount());
+        Assert.assertThrows(IllegalStateException.class, () -> cache.getOrLoad("bad", key -> {
+            throw new IllegalStateException(key);
+        }));
+        Assert.assertNull(cache.get("bad"));
+
+        // loader 递归加载同一个键时报错而不是死锁
+        IllegalStateException recursive = Assert.assertThrows(IllegalStateException.class,
+                () -> cache.getOrLoad("self", key -> cache.getOrLoad(key, k -> 1)));
+        Assert.assertEquals("recursive load", recursive.getMessage());
+        Assert.assertEquals(7, cache.getOrLoad("self", key -> 7).intValue());
+
+        LocalCacheManager.configure(CacheType.SYS_DICT_KEY, LocalCache.<String, Object>builder().maximumSize(1));
+        LocalCache<String, String> dict = CacheType.SYS_DICT_KEY.localCache();
+        dict.put("a", "1");
+        dict.put("b", "2");
+        dict.cleanUp();
+        Assert.assertEquals(1, dict.size());
+        Assert.assertSame(dict, CacheType.SYS_DICT_KEY.localCache());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [ByteCodecTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class ByteCodecTest {
+
+    /**
+     * Test for single values in both byte orders.
+     */
+    @Test
+    public void testSingleValues() {
+        byte[] b = new byte[9];
+        ByteCodec.putIntLE(b, 1, 0x01020304);
+        Assert.assertArrayEquals(new byte[]{0, 4, 3, 2, 1, 0, 0, 0, 0}, b);
+        Assert.assertEquals(0x01020304, ByteCodec.getIntLE(b, 1));
+        Assert.assertEquals(0x04030201, ByteCodec.getIntBE(b, 1));
+        ByteCodec.putLongBE(b, 1, 0x0102030405060708L);
+        Assert.assertEquals(0x0102030405060708L, ByteBuffer.wrap(b, 1, 8).getLong());
+        Assert.assertEquals(0x0807060504030201L, ByteCodec.getLongLE(b, 1));
+        ByteCodec.putShortBE(b, 0, (short) -2);
+        Assert.assertEquals((short) -2, ByteCodec.getShortBE(b, 0));
+        Assert.assertEquals((short) 0xFEFF, ByteCodec.getShortLE(b, 0));
+        ByteCodec.putFloatLE(b, 3, 3.5f);
+        Assert.assertEquals(3.5f, ByteCodec.getFloatLE(b, 3), 0f);
+        ByteCodec.putDoubleBE(b, 1, -0.25);
+        Assert.assertEquals(-0.25, ByteCodec.getDoubleBE(b, 1), 0d);
+
+        // ArrayUtil 的小端读取
+        byte[] le = {(byte) 0xF1, (byte) 0xF2, (byte) 0xF3, (byte) 0xF4};
+        Assert.assertEquals(0xF2F1, ArrayUtil.getInt2(le, 0));
+        Assert.assertEquals(0xF3F2F1, ArrayUtil.getInt3(le, 0));
+        Assert.assertEquals(0xF4F3F2F1L, ArrayUtil.getIntLong(le, 0));
+        ArrayUtil.writeIntLong(le, 0, 0x0A0B0C0DL);
+        Assert.assertArrayEquals(new byte[]{0x0D, 0x0C, 0x0B, 0x0A}, le);
+    }
+
+    /**
+     * Test for bulk encode and decode.
+     */
+    @Test
+    public void testBulk() {
+        long[] longs = new Random(1).longs(1001).toArray();
+        int[] ints = new Random(2).ints(1001).toArray();
+        for (ByteOrder order : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            byte[] bytes = ByteCodec.encode(longs, order);
+            Assert.assertEquals(longs[7], ByteBuffer.wrap(bytes).order(order).getLong(56));
+            Assert.assertArrayEquals(longs, ByteCodec.decodeLongs(bytes, order));
+            Assert.assertArrayEquals(ints, ByteCodec.decodeInts(ByteCodec.encode(ints, order), order));
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(3 + longs.length * 8 + ints.length * 4).order(order);
+            buffer.position(3);
+            ByteCodec.encode(longs, buffer);
+            ByteCodec.encode(ints, buffer);
+            Assert.assertFalse(buffer.hasRemaining());
+            buffer.position(3);
+            long[] longCopy = new long[longs.length];
+            int[] intCopy = new int[ints.length];
+            ByteCodec.decode(buffer, longCopy);
+            ByteCodec.decode(buffer, intCopy);
+            Assert.assertArrayEquals(longs, longCopy);
+            Assert.assertArrayEquals(ints, intCopy);
+        }
+        Assert.assertThrows(IllegalArgumentException.class, () -> ByteCodec.decodeLongs(new byte[12], ByteOrder.BIG_ENDIAN));
+    }
+
+    /**
+     * Test for varint and zigzag.
+     */
+    @Test
+    public void testVarint() {
+        byte[] b = new byte[ByteCodec.MAX_VAR_LONG_SIZE + 1];
+        ByteBuffer buffer = ByteBuffer.allocate(b.length);
+        for (int bits = 0; bits <= 64; bits++) {
+            long base = bits == 0 ? 0 : 1L << (bits - 1);
+            for (long v : new long[]{base, base - 1, base + 1, -base}) {
+                int end = ByteCodec.putVarLong(b, 1, v);
+                Assert.assertEquals(ByteCodec.varLongSize(v), end - 1);
+                Assert.assertEquals(v, ByteCodec.getVarLong(b, 1));
+                buffer.clear();
+                ByteCodec.putVarLong(buffer, v);
+                Assert.assertEquals(end - 1, buffer.position());
+                buffer.flip();
+                Assert.assertEquals(v, ByteCodec.getVarLong(buffer));
+
+                int i = (int) v;
+                end = ByteCodec.putVarInt(b, 0, i);
+                Assert.assertEquals(ByteCodec.varIntSize(i), end);
+                Assert.assertEquals(i, ByteCodec.getVarInt(b, 0));
+                buffer.clear();
+                ByteCodec.putVarInt(buffer, i);
+                buffer.flip();
+                Assert.assertEquals(i, ByteCodec.getVarInt(buffer));
+
+                Assert.assertEquals(v, ByteCodec.zigZagDecode(ByteCodec.zigZagEncode(v)));
+                Assert.assertEquals(i, ByteCodec.zigZagDecode(ByteCodec.zigZagEncode(i)));
+            }
+        }
+        Assert.assertEquals(3, ByteCodec.zigZagEncode(-2L));
+        Assert.assertEquals(1, ByteCodec.varLongSize(ByteCodec.zigZagEncode(-64L)));
+        Assert.assertEquals(5, ByteCodec.varIntSize(-1));
+        Assert.assertEquals(10, ByteCodec.varLongSize(-1L));
+
+        byte[] malformed = new byte[11];
+        Arrays.fill(malformed, (byte) 0x80);
+        Assert.assertThrows(IllegalArgumentException.class, () -> ByteCodec.getVarLong(malformed, 0));
+        Assert.assertThrows(IllegalArgumentException.class, () -> ByteCodec.getVarInt(malformed, 0));
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection;
+
+import com.mobaijun.common.exception.UtilException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [DeepClonerTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class DeepClonerTest {
+
+    /**
+     * 只有私有无参构造器、未实现 Serializable 的节点
+     */
+    static class Node {
+        final String name;
+        int weight;
+        Node parent;
+        List<Node> children = new ArrayList<>();
+        int[] scores;
+        Date createTime;
+
+        private Node() {
+            this(null);
+        }
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * 构造器拒绝 null 参数的类型
+     */
+    static class Strict {
+        final String name;
+
+        Strict(String name) {
+            this.name = Objects.requireNonNull(name);
+        }
+    }
+
+    /**
+     * 没有无参构造器、实现了 Serializable 的类型
+     */
+    static class Point implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final int x;
+
+        Point(int x) {
+            if (x < 0) {
+                throw new IllegalArgumentException("x");
+            }
+            this.x = x;
+        }
+    }
+
+    /**
+     * 包含可变组件的 record
+     */
+    record Tree(Node root, Map<String, Integer> index) {
+    }
+
+    /**
+     * Test for clone.
+     */
+    @Test
+    public void testClone() {
+        Node root = new Node("root");
+        Node child = new Node("child");
+        child.parent = root;
+        child.weight = 3;
+        child.scores = new int[]{1, 2, 3};
+        child.createTime = new Date(1000L);
+        root.children.add(child);
+
+        Node copy = StreamUtil.clone(root);
+        Assert.assertNotSame(root, copy);
+        Assert.assertEquals("root", copy.name);
+        Node copiedChild = copy.children.get(0);
+        Assert.assertNotSame(child, copiedChild);
+        // 循环引用指向副本本身
+        Assert.assertSame(copy, copiedChild.parent);
+        Assert.assertEquals(3, copiedChild.weight);
+        Assert.assertNotSame(child.scores, copiedChild.scores);
+        Assert.assertArrayEquals(child.scores, copiedChild.scores);
+        Assert.assertNotSame(child.createTime, copiedChild.createTime);
+        Assert.assertEquals(child.createTime, copiedChild.createTime);
+
+        TreeMap<String, Integer> index = new TreeMap<>(Comparator.reverseOrder());
+        index.put("a", 1);
+        index.put("b", 2);
+        Tree tree = new Tree(root, index);
+        Tree treeCopy = DeepCloner.clone(tree);
+        Assert.assertNotSame(tree.root(), treeCopy.root());
+        Assert.assertNotSame(tree.index(), treeCopy.index());
+        Assert.assertEquals("b", ((TreeMap<String, Integer>) treeCopy.index()).firstKey());
+        Assert.assertNull(DeepCloner.clone(null));
+        // 没有无参构造器时不以伪造的参数调用其他构造器
+        UtilException e = Assert.assertThrows(UtilException.class, () -> DeepCloner.clone(new Strict("x")));
+        Assert.assertTrue(e.getMessage(), e.getMessage().contains(Strict.class.getName()));
+        Assert.assertTrue(e.getMessage(), e.getMessage().contains("无参构造器"));
+        Point point = new Point(3);
+        Point pointCopy = DeepCloner.clone(point);
+        Assert.assertNotSame(point, pointCopy);
+        Assert.assertEquals(3, pointCopy.x);
+    }
+
+    /**
+     * Test that priority queues keep their comparator and LRU maps keep access order.
+     */
+    @Test
+    public void testOrderedContainers() {
+        // 元素不可比较，只能依赖比较器
+        PriorityQueue<int[]> queue = new PriorityQueue<>(Comparator.comparingInt((int[] a) -> a[0]).reversed());
+        for (int i = 0; i < 10; i++) {
+            queue.add(new int[]{(i * 7) % 10});
+        }
+        PriorityQueue<int[]> queueCopy = DeepCloner.clone(queue);
+        Assert.assertSame(queue.comparator(), queueCopy.comparator());
+        for (int expected = 9; expected >= 0; expected--) {
+            Assert.assertEquals(expected, queueCopy.poll()[0]);
+        }
+
+        PriorityBlockingQueue<String> blocking = new PriorityBlockingQueue<>(4, Comparator.reverseOrder());
+        blocking.addAll(List.of("a", "c", "b"));
+        PriorityBlockingQueue<String> blockingCopy = DeepCloner.clone(blocking);
+        Assert.assertEquals("c", blockingCopy.poll());
+        Assert.assertEquals("b", blockingCopy.poll());
+
+        LinkedHashMap<String, List<Integer>> lru = new LinkedHashMap<>(16, 0.75f, true);
+        lru.put("a", new ArrayList<>(List.of(1)));
+        lru.put("b", new ArrayList<>(List.of(2)));
+        lru.put("c", new ArrayList<>(List.of(3)));
+        lru.get("a");
+        LinkedHashMap<String, List<Integer>> lruCopy = DeepCloner.clone(lru);
+        Assert.assertEquals(List.of("b", "c", "a"), new ArrayList<>(lruCopy.keySet()));
+        Assert.assertNotSame(lru.get("b"), lruCopy.get("b"));
+        Assert.assertEquals(List.of("c", "a", "b"), new ArrayList<>(lruCopy.keySet()));
+        Assert.assertEquals(List.of("c", "a", "b"), new ArrayList<>(lru.keySet()));
+
+        LinkedHashMap<String, Integer> insertion = new LinkedHashMap<>(Map.of("x", 1));
+        insertion.put("y", 2);
+        LinkedHashMap<String, Integer> insertionCopy = DeepCloner.clone(insertion);
+        insertionCopy.get("x");
+        Assert.assertEquals(List.of("x", "y"), new ArrayList<>(insertionCopy.keySet()));
+    }
+
+    /**
+     * Test that JDK views and wrappers keep the mutability of the source.
+     */
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void testJdkContainers() {
+        List<String> asList = DeepCloner.clone(Arrays.asList("a", "b"));
+        asList.set(0, "x");
+        Assert.assertEquals(List.of("x", "b"), asList);
+        Assert.assertThrows(UnsupportedOperationException.class, () -> asList.add("c"));
+
+        List<Date> synchronizedList = Collections.synchronizedList(new ArrayList<>(List.of(new Date(1L))));
+        List<Date> synchronizedCopy = DeepCloner.clone(synchronizedList);
+        Assert.assertSame(synchronizedList.getClass(), synchronizedCopy.getClass());
+        Assert.assertNotSame(synchronizedList.get(0), synchronizedCopy.get(0));
+        synchronizedCopy.add(new Date(2L));
+        Assert.assertEquals(2, synchronizedCopy.size());
+        Assert.assertEquals(1, synchronizedList.size());
+
+        // 比较器不可序列化时重新包装
+        SortedMap<String, Integer> sortedMap = Collections.synchronizedSortedMap(
+                new TreeMap<>((String a, String b) -> b.compareTo(a)));
+        sortedMap.put("a", 1);
+        sortedMap.put("b", 2);
+        SortedMap<String, Integer> sortedCopy = DeepCloner.clone(sortedMap);
+        Assert.assertSame(sortedMap.getClass(), sortedCopy.getClass());
+        sortedCopy.put("c", 3);
+        Assert.assertEquals("c", sortedCopy.firstKey());
+
+        List checked = DeepCloner.clone(Collections.checkedList(new ArrayList<>(List.of("a")), String.class));
+        checked.add("b");
+        Assert.assertThrows(ClassCastException.class, () -> checked.add(1));
+        Assert.assertEquals(List.of("a", "b"), checked);
+
+        List<Integer> subList = DeepCloner.clone(new ArrayList<>(List.of(1, 2, 3, 4)).subList(1, 3));
+        subList.add(5);
+        Assert.assertEquals(List.of(2, 3, 5), subList);
+
+        List<Integer> immutable = DeepCloner.clone(List.of(1, 2));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> immutable.add(3));
+        Map<String, Integer> unmodifiable = DeepCloner.clone(
+                Collections.unmodifiableMap(new TreeMap<>(Map.of("a", 1))));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> unmodifiable.put("b", 2));
+    }
+}
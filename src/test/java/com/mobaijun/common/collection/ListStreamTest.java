@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection;
+
+import com.mobaijun.common.collection.functional.Try;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [ListStreamTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class ListStreamTest {
+
+    /**
+     * 生成测试数据
+     *
+     * @param size 元素个数
+     * @return 随机整数列表
+     */
+    private static List<Integer> randomList(int size) {
+        Random random = new Random(1);
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(random.nextInt(5000));
+        }
+        return list;
+    }
+
+    /**
+     * Test for parallel.
+     */
+    @Test
+    public void testParallel() {
+        List<Integer> source = randomList(100_000);
+        ListStream<Integer> sequential = ListStream.of(source).filter(e -> e % 3 != 0).map(e -> e * 2);
+        ListStream<Integer> parallel = ListStream.of(source).parallel().filter(e -> e % 3 != 0).map(e -> e * 2);
+
+        Assert.assertTrue(parallel.isParallel());
+        Assert.assertEquals(sequential.toList(), parallel.toList());
+        Assert.assertEquals(sequential.count(), parallel.count());
+        Assert.assertEquals(sequential.sumLong(e -> e), parallel.sumLong(e -> e));
+        Assert.assertEquals(sequential.toMap(e -> e % 100), parallel.toMap(e -> e % 100));
+        Assert.assertEquals(sequential.groupBy(e -> e % 100).toMap(), parallel.groupBy(e -> e % 100).toMap());
+        Assert.assertEquals(sequential.distinct().toList(), parallel.distinct().toList());
+        Assert.assertEquals(sequential.distinct().count(), parallel.parallel(false).distinct().count());
+        Assert.assertFalse(parallel.sequential().isParallel());
+    }
+
+    /**
+     * Test for fusion.
+     */
+    @Test
+    public void testFusion() {
+        List<Integer> source = randomList(10_000);
+        Assert.assertEquals(source.stream().filter(e -> e % 3 != 0).map(e -> e * 2).skip(5).limit(100).toList(),
+                ListStream.of(source).filter(e -> e % 3 != 0).map(e -> e * 2).sub(5, 105).toList());
+        Assert.assertEquals(source.stream().flatMap(e -> List.of(e, -e).stream()).distinct().count(),
+                ListStream.of(source).flatMap(e -> List.of(e, -e)).distinct().count());
+
+        // limit、findFirst、anyMatch 命中后不再继续拉取上游元素
+        int[] visited = new int[1];
+        ListStream<Integer> counted = ListStream.of(source).peek(e -> visited[0]++);
+        Assert.assertEquals(3, counted.limit(3).toList().size());
+        Assert.assertEquals(3, visited[0]);
+
+        visited[0] = 0;
+        Assert.assertEquals(source.get(0), counted.findFirst());
+        Assert.assertEquals(1, visited[0]);
+
+        visited[0] = 0;
+        Assert.assertTrue(counted.anyMatch(e -> e.equals(source.get(9))));
+        Assert.assertTrue(visited[0] <= 10);
+
+        // 可变参数创建的流可以继续添加元素
+        List<Integer> varargs = ListStream.of(1, 2, 3).toList();
+        varargs.add(4);
+        Assert.assertEquals(List.of(1, 2, 3, 4), varargs);
+        Assert.assertEquals(List.of(1, 2, 3, 4, 5), ListStream.of(1, 2, 3).add(4).concat(List.of(5)).toList());
+    }
+
+    /**
+     * Test for mapToInt, mapToLong and mapToDouble.
+     */
+    @Test
+    public void testPrimitive() {
+        List<Integer> source = randomList(100_000);
+        Assert.assertEquals(source.stream().mapToLong(e -> e).sum(), ListStream.of(source).mapToInt(e -> e).sum());
+        Assert.assertEquals(source.stream().mapToLong(e -> e).sum(),
+                ListStream.of(source).parallel().mapToLong(e -> e).sum());
+        Assert.assertEquals(source.stream().mapToInt(e -> e).summaryStatistics().toString(),
+                ListStream.of(source).mapToInt(e -> e).summaryStatistics().toString());
+        Assert.assertArrayEquals(source.stream().mapToInt(e -> e).distinct().toArray(),
+                ListStream.of(source).parallel().mapToInt(e -> e).distinct().toArray());
+        Assert.assertArrayEquals(source.stream().mapToLong(e -> e).sorted().toArray(),
+                ListStream.of(source).mapToLong(e -> e).sorted().toArray());
+        Assert.assertEquals(source.stream().mapToDouble(e -> e).max(), ListStream.of(source).mapToDouble(e -> e).max());
+        Assert.assertEquals(source.stream().mapToDouble(e -> e / 3.0).average().getAsDouble(),
+                ListStream.of(source).mapToDouble(e -> e / 3.0).average().getAsDouble(), 1e-9);
+        Assert.assertFalse(ListStream.of(source).filter(e -> e < 0).mapToInt(e -> e).min().isPresent());
+
+        // 按大小提示预分配缓冲区：只有上界、确切大小以及空数据源
+        Assert.assertArrayEquals(source.stream().filter(e -> e % 2 == 0).mapToInt(e -> e).toArray(),
+                ListStream.of(source).filter(e -> e % 2 == 0).mapToInt(e -> e).toArray());
+        Assert.assertArrayEquals(source.stream().limit(10).mapToLong(e -> e).toArray(),
+                ListStream.of(source).limit(10).mapToLong(e -> e).toArray());
+        Assert.assertEquals(0, ListStream.of(new ArrayList<Integer>()).mapToDouble(e -> e).toArray().length);
+    }
+
+    /**
+     * Test for split and splitParallel.
+     */
+    @Test
+    public void testSplit() throws Exception {
+        List<Integer> source = randomList(10_005);
+        List<Integer> sizes = new ArrayList<>();
+        List<Integer> joined = new ArrayList<>();
+        ListStream.of(source).split(1000, batch -> {
+            sizes.add(batch.size());
+            joined.addAll(batch);
+        });
+        Assert.assertEquals(11, sizes.size());
+        Assert.assertEquals(5, (int) sizes.get(10));
+        Assert.assertEquals(source, joined);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            AtomicInteger inFlight = new AtomicInteger();
+            AtomicInteger maxInFlight = new AtomicInteger();
+            AtomicLong sum = new AtomicLong();
+            ListStream.of(source).splitParallel(100, 2, executor, batch -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                batch.forEach(sum::addAndGet);
+                inFlight.decrementAndGet();
+            });
+            Assert.assertEquals(source.stream().mapToLong(e -> e).sum(), sum.get());
+            Assert.assertTrue(maxInFlight.get() <= 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test for topK and sortExternal.
+     */
+    @Test
+    public void testSort() throws IOException {
+        List<Integer> source = randomList(10_000);
+        Comparator<Integer> byLastDigit = Comparator.comparing(e -> e % 10);
+        Assert.assertEquals(source.stream().sorted(byLastDigit).limit(50).toList(),
+                ListStream.of(source).topK(50, byLastDigit).toList());
+
+        ExternalSorter.Serializer<Integer> serializer = new ExternalSorter.Serializer<>() {
+            @Override
+            public void write(DataOutput out, Integer value) throws IOException {
+                out.writeInt(value);
+            }
+
+            @Override
+            public Integer read(DataInput in) throws IOException {
+                return in.readInt();
+            }
+        };
+        List<Integer> sorted = new ArrayList<>();
+        ListStream.of(source).sortExternal(byLastDigit, 999, serializer, stream -> sorted.addAll(stream.toList()));
+        Assert.assertEquals(source.stream().sorted(byLastDigit).toList(), sorted);
+
+        // 全部在内存中排序时，回调中取得的列表在排序器关闭后仍然有效
+        List<List<Integer>> kept = new ArrayList<>();
+        ListStream.of(source).sortExternal(byLastDigit, source.size() + 1, serializer, stream -> kept.add(stream.toList()));
+        Assert.assertEquals(source.stream().sorted(byLastDigit).toList(), kept.get(0));
+
+        // 临时文件在 close 时删除
+        long before = countRunFiles();
+        try (ExternalSorter<Integer> sorter = new ExternalSorter<>(byLastDigit, 999, serializer)) {
+            source.forEach(sorter::add);
+            Assert.assertEquals(10, sorter.runCount());
+            Assert.assertEquals(before + 10, countRunFiles());
+        }
+        Assert.assertEquals(before, countRunFiles());
+    }
+
+    private static long countRunFiles() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("list-stream-")).count();
+        }
+    }
+
+    /**
+     * Test for groupCount, groupSumLong, groupReduce and groupStats.
+     */
+    @Test
+    public void testGroupAggregate() {
+        List<Integer> source = randomList(100_000);
+        Map<Integer, Long> counts = source.stream().collect(Collectors.groupingBy(e -> e % 100, Collectors.counting()));
+        Map<Integer, Long> sums = source.stream().collect(Collectors.groupingBy(e -> e % 100, Collectors.summingLong(e -> e)));
+        Assert.assertEquals(counts, ListStream.of(source).groupCount(e -> e % 100).toMap());
+        Assert.assertEquals(sums, ListStream.of(source).parallel().groupSumLong(e -> e % 100, e -> e).toMap());
+        Assert.assertEquals(source.stream().collect(Collectors.toMap(e -> e % 100, e -> e, Math::max)),
+                ListStream.of(source).parallel().groupReduce(e -> e % 100, e -> e, Math::max).toMap());
+        Map<Integer, LongSummaryStatistics> stats = ListStream.of(source).parallel()
+                .groupStats(e -> e % 100, e -> e).toMap();
+        Assert.assertEquals(counts.get(7).longValue(), stats.get(7).getCount());
+        Assert.assertEquals(sums.get(7).longValue(), stats.get(7).getSum());
+    }
+
+    /**
+     * Test for size propagation.
+     */
+    @Test
+    public void testSizeHint() {
+        List<Integer> source = randomList(1_000);
+        int[] visited = new int[1];
+        ListStream<Integer> counted = ListStream.of(source).peek(e -> visited[0]++).map(e -> e + 1);
+        Assert.assertEquals(90, counted.sub(10, 100).count());
+        Assert.assertEquals(0, counted.skip(2000).count());
+        Assert.assertEquals(0, visited[0]);
+        Assert.assertEquals(source.size(), counted.toList().size());
+        Assert.assertEquals(source.stream().filter(e -> e > 100).count(), counted.filter(e -> e > 101).count());
+        Assert.assertEquals(source.stream().distinct().count(), ListStream.of(source).limit(5000).toSet().size());
+    }
+
+    /**
+     * Test for cache and materialize.
+     */
+    @Test
+    public void testCache() {
+        List<Integer> source = randomList(5_000);
+        AtomicInteger calls = new AtomicInteger();
+        ListStream<Integer> cached = ListStream.of(source).filter(e -> e % 2 == 0).map(e -> {
+            calls.incrementAndGet();
+            return e + 1;
+        }).cache(true);
+        Assert.assertEquals(0, calls.get());
+        Assert.assertFalse(cached.isEmpty());
+        List<Integer> expected = source.stream().filter(e -> e % 2 == 0).map(e -> e + 1).toList();
+        Assert.assertEquals(expected, cached.toList());
+        Assert.assertEquals(expected.size(), cached.count());
+        Assert.assertEquals(expected.size(), cached.parallel().toList().size());
+        Assert.assertEquals(expected.size(), calls.get());
+
+        calls.set(0);
+        ListStream<Integer> materialized = ListStream.of(source).peek(e -> calls.incrementAndGet()).materialize();
+        Assert.assertEquals(source.size(), calls.get());
+        materialized.toList().add(1);
+        Assert.assertEquals(source.size(), materialized.count());
+        Assert.assertEquals(source.size(), calls.get());
+    }
+
+    /**
+     * Test for mapAsync and flatMapAsync.
+     */
+    @Test
+    public void testMapAsync() {
+        List<Integer> source = randomList(500);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<Try<Integer>> results = ListStream.of(source).mapAsync(e -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                if (e % 7 == 0) {
+                    throw new IllegalStateException("bad " + e);
+                }
+                return e * 2;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }, 8).toList();
+        Assert.assertTrue(maxInFlight.get() <= 8);
+        Assert.assertEquals(source.size(), results.size());
+        for (int i = 0; i < source.size(); i++) {
+            Assert.assertEquals(source.get(i) % 7 == 0, results.get(i).isFailure());
+            if (results.get(i).isSuccess()) {
+                Assert.assertEquals(source.get(i) * 2, (int) results.get(i).get());
+            }
+        }
+
+        List<Try<Integer>> flat = ListStream.of(1, 2, 3).flatMapAsync(e -> List.of(e, e), 2, false, null).toList();
+        Assert.assertEquals(6, flat.size());
+        Assert.assertEquals(12L, ListStream.of(flat).sumLong(Try::get));
+    }
+}
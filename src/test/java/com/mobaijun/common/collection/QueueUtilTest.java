@@ -15,6 +15,15 @@
  */
 package com.mobaijun.common.collection;
 
+import com.mobaijun.common.collection.queue.RingQueue;
+import com.mobaijun.common.collection.queue.SpscRingQueue;
+import com.mobaijun.common.collection.queue.WaitStrategy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -98,4 +107,81 @@ public class QueueUtilTest {
         // Perform the method call
     }
 
-}
\ No newline at end of file
+    /**
+     * Test for createSpscQueue, createMpscQueue and createMpmcQueue.
+     */
+    @Test
+    public void testRingQueues() throws Exception {
+        SpscRingQueue<Integer> spsc = QueueUtil.createSpscQueue(5);
+        Assert.assertEquals(8, spsc.capacity());
+        int[] next = new int[1];
+        Assert.assertEquals(8, spsc.fill(() -> next[0]++, 100));
+        Assert.assertFalse(spsc.offer(100));
+        Assert.assertEquals(8, spsc.size());
+        List<Integer> drained = new ArrayList<>();
+        Assert.assertEquals(3, spsc.drain(drained::add, 3));
+        Assert.assertEquals(List.of(0, 1, 2), drained);
+        Assert.assertEquals(Integer.valueOf(3), spsc.poll());
+
+        // 继承自 AbstractQueue 的方法依赖迭代器
+        Assert.assertEquals("[4, 5, 6, 7]", spsc.toString());
+        Assert.assertTrue(spsc.contains(6));
+        Assert.assertFalse(spsc.contains(3));
+        Assert.assertArrayEquals(new Object[]{4, 5, 6, 7}, spsc.toArray());
+        Assert.assertEquals(22, spsc.stream().mapToInt(Integer::intValue).sum());
+        Iterator<Integer> it = spsc.iterator();
+        Assert.assertEquals(Integer.valueOf(4), it.next());
+        Assert.assertEquals(Integer.valueOf(4), spsc.poll());
+        // 迭代期间取出元素不会抛出异常
+        Assert.assertEquals(Integer.valueOf(5), it.next());
+        Assert.assertEquals("[]", QueueUtil.createMpmcQueue(4).toString());
+
+        verifyConcurrent(QueueUtil.createSpscQueue(64), 1, 1);
+        verifyConcurrent(QueueUtil.createMpscQueue(64), 4, 1);
+        verifyConcurrent(QueueUtil.createMpmcQueue(64), 4, 3);
+    }
+
+    /**
+     * 多个生产者各写入 100000 个元素，多个消费者取出，校验总数与总和
+     */
+    private static void verifyConcurrent(RingQueue<Long> queue, int producers, int consumers) throws Exception {
+        int perProducer = 100_000;
+        long total = (long) producers * perProducer;
+        AtomicLong consumed = new AtomicLong();
+        AtomicLong sum = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        WaitStrategy wait = WaitStrategy.parking(Duration.ofNanos(1000));
+        for (int p = 0; p < producers; p++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (long i = 1; i <= perProducer; i++) {
+                        queue.put(i, wait);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads.add(new Thread(() -> {
+                int attempts = 0;
+                while (consumed.get() < total) {
+                    int n = queue.drain(e -> sum.addAndGet(e), 32);
+                    if (n == 0) {
+                        wait.idle(attempts++);
+                    } else {
+                        attempts = 0;
+                        consumed.addAndGet(n);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(60_000);
+        }
+        Assert.assertEquals(total, consumed.get());
+        Assert.assertEquals(producers * ((long) perProducer * (perProducer + 1) / 2), sum.get());
+        Assert.assertTrue(queue.isEmpty());
+    }
+}
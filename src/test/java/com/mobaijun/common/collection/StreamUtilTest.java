@@ -15,6 +15,7 @@
  */
 package com.mobaijun.common.collection;
 
+import com.mobaijun.common.collection.diff.Diff;
 import com.mobaijun.common.collection.diff.Diff2;
 import com.mobaijun.common.collection.util.Op;
 import com.mobaijun.common.enums.comm.Sort;
@@ -22,10 +23,13 @@ import com.mobaijun.common.model.Role;
 import com.mobaijun.common.model.User;
 import com.mobaijun.common.tool.Console;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.junit.Assert;
 import org.junit.Test;
 
 /**
@@ -598,4 +602,48 @@ public class StreamUtilTest {
                 .valueStream(e -> e.map(User::getName).toList())
                 .toMap();
     }
-}
\ No newline at end of file
+
+    /**
+     * Test for getDiff by key.
+     */
+    @Test
+    public void testGetDiffByKey() {
+        List<User> oldList = StreamUtil.asList(new User("Alice", 1, 160), new User("Bob", 2, 170),
+                new User("Carol", 3, 165), new User("Bob", 4, 180));
+        List<User> newList = StreamUtil.asList(new User("Bob", 5, 170), new User("Dave", 6, 175),
+                new User("Alice", 7, 160));
+
+        Diff<User> expected = StreamUtil.getDiff(oldList, newList, (o, n) -> o.getName().equals(n.getName()));
+        Diff<User> hashed = StreamUtil.getDiff(oldList, newList, User::getName);
+        Diff<User> parallel = StreamUtil.getDiff(oldList, newList, User::getName, true);
+        Assert.assertEquals(expected.getAddList(), hashed.getAddList());
+        Assert.assertEquals(expected.getDelList(), hashed.getDelList());
+        Assert.assertEquals(expected.getUpdateMap(), hashed.getUpdateMap());
+        Assert.assertEquals(expected.getUpdateMap(), parallel.getUpdateMap());
+
+        Comparator<User> byName = Comparator.comparing(User::getName);
+        List<User> sortedOld = StreamUtil.list(oldList).sort(byName).toList();
+        List<User> sortedNew = StreamUtil.list(newList).sort(byName).toList();
+        Diff<User> merged = StreamUtil.getSortedDiff(sortedOld, sortedNew, User::getName, Comparator.naturalOrder());
+        Assert.assertEquals(1, merged.getAddList().size());
+        Assert.assertEquals(1, merged.getDelList().size());
+        Assert.assertEquals(3, merged.getUpdateMap().size());
+
+        Diff2<Role, User> diff2 = StreamUtil.getDiff2(StreamUtil.asList(new Role("Alice", 1), new Role("root", 2)),
+                newList, Role::getRoleName, User::getName);
+        Assert.assertEquals(2, diff2.getAddList().size());
+        Assert.assertEquals(1, diff2.getDelList().size());
+
+        // 顺序和并行对 null 元素的处理一致
+        List<String> withNull = Arrays.asList("a", null, "b");
+        Function<String, String> nullSafeKey = e -> e == null ? "" : e;
+        for (boolean useParallel : new boolean[]{false, true}) {
+            Diff<String> nullDiff = StreamUtil.getDiff(Arrays.asList("a", null, "c"), withNull, nullSafeKey,
+                    useParallel);
+            Assert.assertEquals(List.of("b"), nullDiff.getAddList());
+            Assert.assertEquals(List.of("c"), nullDiff.getDelList());
+            Assert.assertTrue(nullDiff.getUpdateMap().containsKey(null));
+            Assert.assertNull(nullDiff.getUpdateMap().get(null));
+        }
+    }
+}
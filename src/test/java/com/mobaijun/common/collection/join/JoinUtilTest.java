@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.join;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [JoinUtilTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class JoinUtilTest {
+
+    /**
+     * 嵌套循环实现的参考结果，右连接按右侧顺序输出
+     */
+    private static List<String> nestedLoop(List<Integer> left, List<Integer> right, JoinType type) {
+        List<String> result = new ArrayList<>();
+        if (type == JoinType.RIGHT) {
+            for (Integer r : right) {
+                boolean hit = false;
+                for (Integer l : left) {
+                    if (l.equals(r)) {
+                        hit = true;
+                        result.add(l + ":" + r);
+                    }
+                }
+                if (!hit) {
+                    result.add("null:" + r);
+                }
+            }
+            return result;
+        }
+        boolean[] matched = new boolean[right.size()];
+        for (Integer l : left) {
+            boolean hit = false;
+            for (int j = 0; j < right.size(); j++) {
+                if (l.equals(right.get(j))) {
+                    matched[j] = true;
+                    if (type == JoinType.SEMI && !hit) {
+                        result.add(l + ":" + right.get(j));
+                    } else if (type != JoinType.SEMI && type != JoinType.ANTI) {
+                        result.add(l + ":" + right.get(j));
+                    }
+                    hit = true;
+                }
+            }
+            if (!hit && (type == JoinType.LEFT || type == JoinType.FULL || type == JoinType.ANTI)) {
+                result.add(l + ":null");
+            }
+        }
+        if (type == JoinType.FULL) {
+            for (int j = 0; j < right.size(); j++) {
+                if (!matched[j]) {
+                    result.add("null:" + right.get(j));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> randomList(Random random, int size, int bound) {
+        List<Integer> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(random.nextInt(bound));
+        }
+        return list;
+    }
+
+    /**
+     * Test for hashJoin.
+     */
+    @Test
+    public void testHashJoin() {
+        Random random = new Random(1);
+        List<Integer> left = randomList(random, 300, 200);
+        List<Integer> right = randomList(random, 200, 200);
+        for (JoinType type : JoinType.values()) {
+            Assert.assertEquals(type.name(), nestedLoop(left, right, type),
+                    JoinUtil.hashJoin(left, right, l -> l, r -> r, type, (l, r) -> l + ":" + r));
+        }
+
+        // 并行结果与串行一致
+        List<Integer> bigLeft = randomList(random, 100_000, 50_000);
+        List<Integer> bigRight = randomList(random, 80_000, 50_000);
+        for (JoinType type : JoinType.values()) {
+            Assert.assertEquals(type.name(),
+                    JoinUtil.hashJoin(bigLeft, bigRight, l -> l, r -> r, type, (l, r) -> l + ":" + r),
+                    JoinUtil.hashJoin(bigLeft, bigRight, l -> l, r -> r, type, (l, r) -> l + ":" + r, true));
+        }
+        Assert.assertEquals(List.of(2, 3), JoinUtil.semiJoin(List.of(1, 2, 3), List.of(3, 2, 2), l -> l, r -> r));
+        Assert.assertEquals(List.of(1), JoinUtil.antiJoin(List.of(1, 2, 3), List.of(3, 2, 2), l -> l, r -> r));
+    }
+
+    /**
+     * Test for sortMergeJoin.
+     */
+    @Test
+    public void testSortMergeJoin() {
+        Random random = new Random(2);
+        List<Integer> left = randomList(random, 300, 200);
+        List<Integer> right = randomList(random, 200, 200);
+        left.sort(null);
+        right.sort(null);
+        for (JoinType type : JoinType.values()) {
+            List<String> expected = new ArrayList<>(JoinUtil.hashJoin(left, right, l -> l, r -> r, type, (l, r) -> l + ":" + r));
+            List<String> actual = new ArrayList<>(JoinUtil.sortMergeJoin(left, right, l -> l, r -> r,
+                    Comparator.naturalOrder(), type, (l, r) -> l + ":" + r));
+            expected.sort(null);
+            actual.sort(null);
+            Assert.assertEquals(type.name(), expected, actual);
+        }
+        Assert.assertThrows(IllegalArgumentException.class, () -> JoinUtil.sortMergeJoin(List.of(1, 3, 2), List.of(2, 3, 4),
+                l -> l, r -> r, Comparator.naturalOrder(), JoinType.INNER, (l, r) -> l));
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.primitive;
+
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [IntArrayListTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class IntArrayListTest {
+
+    /**
+     * Test for add, remove, removeIf and stream bridges.
+     */
+    @Test
+    public void testList() {
+        IntArrayList list = new IntArrayList();
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+        }
+        list.add(0, -1);
+        Assert.assertEquals(101, list.size());
+        Assert.assertEquals(-1, list.removeAt(0));
+        Assert.assertTrue(list.removeIf(value -> value % 2 == 1));
+        Assert.assertEquals(50, list.size());
+        Assert.assertEquals(98, list.get(49));
+        Assert.assertEquals(49, list.indexOf(98));
+        Assert.assertEquals(2450L, list.stream().sum());
+        Assert.assertEquals(List.of(0, 2, 4), list.boxed().limit(3).toList());
+        Assert.assertEquals(IntArrayList.of(3, 1, 2), IntArrayList.of(3, 1, 2));
+        IntArrayList sorted = IntArrayList.of(3, 1, 2);
+        sorted.sort();
+        Assert.assertArrayEquals(new int[]{1, 2, 3}, sorted.toArray());
+        Assert.assertEquals("[1, 2, 3]", sorted.toString());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.primitive;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [Long2ObjectHashMapTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class Long2ObjectHashMapTest {
+
+    /**
+     * Test for put, get, remove and removeIf against HashMap.
+     */
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(1);
+        Long2ObjectHashMap<String> map = new Long2ObjectHashMap<>();
+        Long2LongHashMap counts = new Long2LongHashMap(16, 0.5f, -1);
+        Map<Long, String> expected = new HashMap<>();
+        Map<Long, Long> expectedCounts = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+                Assert.assertEquals((long) expectedCounts.getOrDefault(key, -1L), counts.remove(key));
+                expectedCounts.remove(key);
+            } else {
+                Assert.assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+                expectedCounts.merge(key, 1L, Long::sum);
+                counts.addTo(key, 1);
+            }
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        Assert.assertEquals(expectedCounts.size(), counts.size());
+        for (long key = -200; key < 5_000; key++) {
+            Assert.assertEquals(expected.get(key), map.get(key));
+            Assert.assertEquals((long) expectedCounts.getOrDefault(key, -1L), counts.get(key));
+        }
+
+        map.removeIf((key, value) -> key % 2 == 0);
+        expected.keySet().removeIf(key -> key % 2 == 0);
+        Assert.assertEquals(expected.size(), map.size());
+        map.forEach((key, value) -> Assert.assertEquals(expected.get(key), value));
+        Assert.assertEquals(expected.size(), map.values().count());
+        Assert.assertEquals("x", map.computeIfAbsent(100_001L, key -> "x"));
+        Assert.assertEquals("x", map.computeIfAbsent(100_001L, key -> "y"));
+        Assert.assertEquals(expectedCounts.values().stream().mapToLong(Long::longValue).sum(), counts.values().sum());
+    }
+}
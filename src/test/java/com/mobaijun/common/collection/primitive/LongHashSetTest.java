@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.primitive;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [LongHashSetTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class LongHashSetTest {
+
+    /**
+     * Test for add, remove and removeIf against HashSet.
+     */
+    @Test
+    public void testAgainstHashSet() {
+        Random random = new Random(1);
+        LongHashSet set = new LongHashSet(4);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            long value = random.nextInt(5_000) - 100;
+            if (random.nextInt(3) == 0) {
+                Assert.assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                Assert.assertEquals(expected.add(value), set.add(value));
+            }
+        }
+        Assert.assertEquals(expected.size(), set.size());
+        for (long value = -200; value < 5_000; value++) {
+            Assert.assertEquals(expected.contains(value), set.contains(value));
+        }
+
+        int[] tested = new int[1];
+        int before = set.size();
+        Assert.assertTrue(set.removeIf(value -> {
+            tested[0]++;
+            return value % 3 == 0;
+        }));
+        expected.removeIf(value -> value % 3 == 0);
+        Assert.assertEquals(before, tested[0]);
+        Assert.assertEquals(expected.size(), set.size());
+        set.forEach(value -> Assert.assertTrue(expected.contains(value)));
+        Assert.assertEquals(expected.stream().mapToLong(Long::longValue).sum(), set.stream().sum());
+        Assert.assertEquals(LongHashSet.of(1, 2, 0), LongHashSet.of(0, 2, 1));
+    }
+}
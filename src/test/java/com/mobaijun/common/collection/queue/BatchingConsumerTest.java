@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.collection.queue;
+
+import com.mobaijun.common.collection.QueueUtil;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [BatchingConsumerTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class BatchingConsumerTest {
+
+    /**
+     * Test for flushing on max batch size and on close.
+     */
+    @Test
+    public void testFlushOnSize() throws Exception {
+        List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        BatchingConsumer<Integer> consumer = BatchingConsumer.<Integer>builder(batch -> sizes.add(batch.size()))
+                .queue(QueueUtil.createLinkedBlockingQueue(1000))
+                .maxBatchSize(10)
+                .maxLatency(Duration.ofSeconds(30))
+                .start();
+        for (int i = 0; i < 95; i++) {
+            consumer.submit(i);
+        }
+        Assert.assertTrue(consumer.close(Duration.ofSeconds(10)));
+        Assert.assertEquals(95, sizes.stream().mapToInt(Integer::intValue).sum());
+        Assert.assertTrue(sizes.stream().allMatch(size -> size <= 10));
+        Assert.assertEquals(95, consumer.elementCount());
+        Assert.assertThrows(IllegalStateException.class, () -> consumer.submit(1));
+    }
+
+    /**
+     * Test for flushing on max latency.
+     */
+    @Test
+    public void testFlushOnLatency() throws Exception {
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        try (BatchingConsumer<String> consumer = BatchingConsumer.<String>builder(batches::add)
+                .maxBatchSize(1000)
+                .maxLatency(Duration.ofMillis(20))
+                .start()) {
+            consumer.submit("a");
+            consumer.submit("b");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (consumer.batchCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            Assert.assertEquals(1, consumer.batchCount());
+            Assert.assertEquals(List.of("a", "b"), batches.get(0));
+        }
+    }
+
+    /**
+     * Test for several workers over a ring queue.
+     */
+    @Test
+    public void testWorkers() throws Exception {
+        AtomicLong sum = new AtomicLong();
+        BatchingConsumer<Long> consumer = BatchingConsumer.<Long>builder(batch -> batch.forEach(sum::addAndGet))
+                .queue(QueueUtil.createMpmcQueue(256), WaitStrategy.parking(Duration.ofMillis(1)))
+                .maxBatchSize(64)
+                .workers(3)
+                .start();
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            producers.add(new Thread(() -> {
+                try {
+                    for (long i = 1; i <= 10_000; i++) {
+                        consumer.submit(i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        Assert.assertTrue(consumer.close(Duration.ofSeconds(10)));
+        Assert.assertEquals(4 * (10_000L * 10_001 / 2), sum.get());
+        Assert.assertThrows(IllegalArgumentException.class, () -> BatchingConsumer.<Long>builder(batch -> {
+        }).queue(QueueUtil.createMpscQueue(16), WaitStrategy.spin()).workers(2).start());
+        Assert.assertThrows(IllegalArgumentException.class, () -> BatchingConsumer.<Long>builder(batch -> {
+        }).queue(QueueUtil.createSpscQueue(16), WaitStrategy.spin()));
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.concurrent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [CompletableFutureUtilTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class CompletableFutureUtilTest {
+
+    /**
+     * Test that stages really run on the executor.
+     */
+    @Test
+    public void testSupplyAsync() {
+        Thread caller = Thread.currentThread();
+        String result = CompletableFutureUtil.supplyAsync(() -> {
+                    Assert.assertNotSame(caller, Thread.currentThread());
+                    return 20;
+                })
+                .thenApply(v -> v + 1)
+                .thenApply(v -> "v" + v)
+                .join();
+        Assert.assertEquals("v21", result);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "custom-executor"));
+        try {
+            String name = CompletableFutureUtil.supplyAsync(() -> Thread.currentThread().getName(), executor)
+                    .thenApply(first -> first + "|" + Thread.currentThread().getName())
+                    .join();
+            Assert.assertEquals("custom-executor|custom-executor", name);
+        } finally {
+            executor.shutdown();
+        }
+
+        int recovered = CompletableFutureUtil.<Integer>supplyAsync(() -> {
+            throw new IllegalStateException("boom");
+        }).recover(e -> e instanceof IllegalStateException ? -1 : 0).join();
+        Assert.assertEquals(-1, recovered);
+    }
+
+    /**
+     * Test for per-stage timeouts.
+     */
+    @Test
+    public void testTimeout() {
+        CompletableFutureUtil<String> slow = CompletableFutureUtil.supplyAsync(() -> sleep(2_000, "slow"));
+        CompletionException e = Assert.assertThrows(CompletionException.class,
+                () -> slow.orTimeout(Duration.ofMillis(50)).join());
+        Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        Assert.assertEquals("fallback", slow.completeOnTimeout("fallback", Duration.ofMillis(50)).join());
+        Assert.assertFalse(slow.toCompletableFuture().isDone());
+    }
+
+    /**
+     * Test for typed allOf and cancelling anyOf.
+     */
+    @Test
+    public void testAllOfAnyOf() {
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            futures.add(CompletableFuture.supplyAsync(() -> sleep(10 * (10 - value), value)));
+        }
+        Assert.assertEquals(IntStream.range(0, 10).boxed().collect(Collectors.toList()),
+                CompletableFutureUtil.allOf(futures).join());
+        Assert.assertTrue(CompletableFutureUtil.allOf(new ArrayList<CompletableFuture<Integer>>()).join().isEmpty());
+
+        CompletableFuture<Integer> never = new CompletableFuture<>();
+        CompletableFuture<Integer> failed = CompletableFuture.failedFuture(new IllegalStateException("x"));
+        CompletionException error = Assert.assertThrows(CompletionException.class,
+                () -> CompletableFutureUtil.allOf(List.of(never, failed)).join());
+        Assert.assertTrue(error.getCause() instanceof IllegalStateException);
+        Assert.assertTrue(never.isCancelled());
+
+        CompletableFuture<Integer> slow = new CompletableFuture<>();
+        CompletableFuture<Integer> fast = CompletableFuture.supplyAsync(() -> sleep(20, 7));
+        CompletableFuture<Integer> broken = CompletableFuture.failedFuture(new IllegalStateException("y"));
+        Assert.assertEquals(7, CompletableFutureUtil.anyOf(List.of(broken, slow, fast)).join().intValue());
+        Assert.assertTrue(slow.isCancelled());
+        Assert.assertThrows(CompletionException.class, () -> CompletableFutureUtil.anyOf(List.of(broken)).join());
+    }
+
+    /**
+     * Test that fan-out respects the concurrency cap and keeps input order.
+     */
+    @Test
+    public void testFanOut() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> inputs = IntStream.range(0, 40).boxed().collect(Collectors.toList());
+        List<Integer> result = CompletableFutureUtil.fanOut(inputs, input -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(5 + (input * 7) % 20, null);
+            running.decrementAndGet();
+            return input * 2;
+        }, 5, Duration.ofSeconds(5)).join();
+        Assert.assertEquals(inputs.stream().map(i -> i * 2).collect(Collectors.toList()), result);
+        Assert.assertTrue("max running " + maxRunning.get(), maxRunning.get() <= 5);
+
+        // 同步完成的调用不会递归
+        List<Integer> many = IntStream.range(0, 200_000).boxed().collect(Collectors.toList());
+        List<Integer> echoed = CompletableFutureUtil.fanOutAsync(many, CompletableFuture::completedFuture, 3, null)
+                .join();
+        Assert.assertEquals(many, echoed);
+
+        // 单个调用超时使整体失败，未发起的调用不再执行
+        AtomicInteger started = new AtomicInteger();
+        CompletionException error = Assert.assertThrows(CompletionException.class,
+                () -> CompletableFutureUtil.fanOut(inputs, input -> {
+                    started.incrementAndGet();
+                    return sleep(input == 3 ? 1_000 : 10, input);
+                }, 2, Duration.ofMillis(100)).join());
+        Assert.assertTrue(error.getCause() instanceof TimeoutException);
+        Assert.assertTrue("started " + started.get(), started.get() < inputs.size());
+
+        // 超时的调用本身被取消
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        CompletionException timedOut = Assert.assertThrows(CompletionException.class,
+                () -> CompletableFutureUtil.fanOutAsync(inputs, input -> {
+                    CompletableFuture<Integer> call = input == 3
+                            ? new CompletableFuture<>() : CompletableFuture.completedFuture(input);
+                    synchronized (calls) {
+                        calls.add(call);
+                    }
+                    return call;
+                }, 2, Duration.ofMillis(50)).join());
+        Assert.assertTrue(timedOut.getCause() instanceof TimeoutException);
+        synchronized (calls) {
+            Assert.assertTrue(calls.get(3).isCancelled());
+        }
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> CompletableFutureUtil.fanOutAsync(inputs, CompletableFuture::completedFuture, 0, null));
+    }
+
+    private static <T> T sleep(long millis, T value) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return value;
+    }
+}
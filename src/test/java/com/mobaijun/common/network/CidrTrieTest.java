@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.network;
+
+import com.mobaijun.common.collection.ArrayUtil;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [CidrTrieTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class CidrTrieTest {
+
+    /**
+     * Test for parseIpv6.
+     */
+    @Test
+    public void testParseIpv6() throws Exception {
+        String[] valid = {"::", "::1", "1::", "2001:db8::8a2e:370:7334", "2001:0DB8:0000:0000:0000:FF00:0042:8329",
+                "fe80::1:2:3:4:5:6", "::ffff:192.168.0.1", "1:2:3:4:5:6:7::", "1:2:3:4:5:6:1.2.3.4"};
+        long[] out = new long[2];
+        for (String ip : valid) {
+            Assert.assertTrue(ip, ArrayUtil.parseIpv6(ip, 0, ip.length(), out));
+            byte[] bytes = InetAddress.getByName(ip).getAddress();
+            if (bytes.length == 4) {
+                // ::ffff:a.b.c.d 被 InetAddress 转成了 IPv4
+                Assert.assertEquals(0L, out[0]);
+                Assert.assertEquals(0xFFFF00000000L | ArrayUtil.ip2long(ip.substring(7)), out[1]);
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                Assert.assertEquals(ip, buffer.getLong(), out[0]);
+                Assert.assertEquals(ip, buffer.getLong(), out[1]);
+            }
+        }
+        String[] invalid = {"", ":", ":::", "1:::2", "1::2::3", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7", "12345::",
+                "g::", "1:", ":1", "::1.2.3", "1.2.3.4::", "fe80::1%eth0", "1:2:3:4:5:6:7:1.2.3.4"};
+        for (String ip : invalid) {
+            Assert.assertFalse(ip, ArrayUtil.parseIpv6(ip, 0, ip.length(), out));
+        }
+    }
+
+    /**
+     * Test for longest-prefix match.
+     */
+    @Test
+    public void testMatch() {
+        CidrTrie<String> trie = new CidrTrie<>();
+        trie.put("10.0.0.0/8", "a");
+        trie.put("10.1.0.0/16", "b");
+        trie.put("10.1.2.3", "c");
+        trie.put("2001:db8::/32", "v6");
+        trie.put("2001:db8:1::/48", "v6-48");
+        Assert.assertEquals("a", trie.put("10.9.9.9/8", "a2"));
+        Assert.assertEquals(5, trie.size());
+        Assert.assertEquals("a2", trie.match("10.200.0.1"));
+        Assert.assertEquals("b", trie.match("10.1.255.255"));
+        Assert.assertEquals("c", trie.match("10.1.2.3"));
+        Assert.assertNull(trie.match("11.0.0.0"));
+        Assert.assertEquals("v6", trie.match("2001:db8:2::1"));
+        Assert.assertEquals("v6-48", trie.match("2001:db8:1:ffff::"));
+        Assert.assertNull(trie.match("2001:db9::"));
+        // IPv4 与 IPv6 互不影响
+        Assert.assertNull(trie.match("::ffff:10.0.0.1"));
+        Assert.assertNull(trie.match("bad"));
+        trie.put("0.0.0.0/0", "any");
+        Assert.assertEquals("any", trie.match("8.8.8.8"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> trie.put("10.0.0.0/33", "x"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> trie.put("::/129", "x"));
+
+        CidrTrie<Boolean> denied = CidrTrie.of(List.of("192.168.0.0/16", "fc00::/7"), Boolean.TRUE);
+        Assert.assertTrue(denied.contains("192.168.3.4"));
+        Assert.assertTrue(denied.contains("fd12::1"));
+        Assert.assertFalse(denied.contains("fe00::1"));
+    }
+
+    /**
+     * Test for random prefixes against a linear scan.
+     */
+    @Test
+    public void testRandom() {
+        verifyRandom(false);
+        verifyRandom(true);
+    }
+
+    /**
+     * 随机前缀的最长匹配结果与线性扫描比较，前缀数超过跳转表的启用阈值
+     *
+     * @param ipv6 是否为 IPv6
+     */
+    private static void verifyRandom(boolean ipv6) {
+        Random random = new Random(3);
+        int count = 5000;
+        int bits = ipv6 ? 128 : 32;
+        long[][] prefixes = new long[count][];
+        CidrTrie<Integer> trie = new CidrTrie<>();
+        for (int i = 0; i < count; i++) {
+            // 集中在少数高位上，制造大量嵌套前缀
+            int length = random.nextInt(bits + 1);
+            long hi = ipv6 ? (random.nextLong() & 0xFFFF00000000000FL) | 0x2001L << 48 : random.nextLong() & 0xFF0FF00F00000000L;
+            long lo = ipv6 ? random.nextLong() : 0;
+            hi &= mask(length);
+            lo &= mask(length - 64);
+            prefixes[i] = new long[]{hi, lo, length};
+            if (ipv6) {
+                trie.putIpv6(hi, lo, length, i);
+            } else {
+                trie.putIpv4(hi >>> 32, length, i);
+            }
+        }
+        for (int probe = 0; probe < 5000; probe++) {
+            long[] base = prefixes[random.nextInt(count)];
+            long hi = base[0] | (random.nextLong() & random.nextLong() & 0x0000FFFFFFFFFFF0L);
+            long lo = ipv6 ? base[1] | random.nextLong() : 0;
+            if (!ipv6) {
+                hi &= 0xFFFFFFFF00000000L;
+            }
+            int best = -1;
+            int bestLength = -1;
+            for (int i = 0; i < count; i++) {
+                int length = (int) prefixes[i][2];
+                if ((hi & mask(length)) == prefixes[i][0] && (lo & mask(length - 64)) == prefixes[i][1] && length > bestLength) {
+                    best = i;
+                    bestLength = length;
+                }
+            }
+            Integer actual = ipv6 ? trie.matchIpv6(hi, lo) : trie.matchIpv4(hi >>> 32);
+            if (best < 0) {
+                Assert.assertNull(actual);
+            } else {
+                // 相同前缀以最后写入的为准
+                Assert.assertArrayEquals(prefixes[best], prefixes[actual]);
+            }
+        }
+    }
+
+    /**
+     * 高 length 位为1的掩码
+     */
+    private static long mask(int length) {
+        return length <= 0 ? 0 : length >= 64 ? -1L : -1L << (64 - length);
+    }
+}
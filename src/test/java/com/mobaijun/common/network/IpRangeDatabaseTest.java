@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.network;
+
+import com.mobaijun.common.collection.ArrayUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [IpRangeDatabaseTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class IpRangeDatabaseTest {
+
+    /**
+     * Test for ip2long parsing.
+     */
+    @Test
+    public void testParseIpv4() {
+        Assert.assertEquals(0xC0A80001L, ArrayUtil.ip2long("192.168.0.1"));
+        Assert.assertEquals(0xFFFFFFFFL, ArrayUtil.ip2long("255.255.255.255"));
+        Assert.assertEquals(0x0A000001L, ArrayUtil.parseIpv4("ip=10.0.0.1;", 3, 11));
+        for (String invalid : new String[]{"", "1.2.3", "1.2.3.4.5", "256.0.0.1", "1..2.3", "1.2.3.", "a.b.c.d", "1.2.3.0004"}) {
+            Assert.assertEquals(invalid, -1, ArrayUtil.parseIpv4(invalid, 0, invalid.length()));
+            Assert.assertEquals(invalid, 0, ArrayUtil.ip2long(invalid));
+        }
+    }
+
+    /**
+     * Test for open and find.
+     */
+    @Test
+    public void testLookup() throws IOException {
+        Path file = Files.createTempFile("ip-range-", ".db");
+        try {
+            IpRangeDatabase.builder()
+                    .add("10.0.0.0", "10.255.255.255", "内网|A")
+                    .add("0.0.0.0", "0.255.255.255", "保留")
+                    .add("1.255.0.0", "3.0.0.5", "跨段")
+                    .add("192.168.0.0", "192.168.255.255", "内网|C")
+                    .add("255.255.255.255", "255.255.255.255", "广播")
+                    .add("172.16.0.0", "172.31.255.255", "内网|B")
+                    .write(file);
+            IpRangeDatabase db = IpRangeDatabase.open(file);
+            Assert.assertEquals(6, db.size());
+            Assert.assertEquals("保留", db.lookup("0.0.0.0"));
+            Assert.assertEquals("跨段", db.lookup("2.10.0.1"));
+            Assert.assertEquals("跨段", db.lookup("3.0.0.5"));
+            Assert.assertNull(db.lookup("3.0.0.6"));
+            Assert.assertNull(db.lookup("1.254.255.255"));
+            Assert.assertEquals("内网|C", db.lookup("192.168.1.1"));
+            Assert.assertEquals("广播", db.lookup(0xFFFFFFFFL));
+            Assert.assertNull(db.lookup("255.255.255.254"));
+            Assert.assertNull(db.lookup("not an ip"));
+            Assert.assertEquals(-1, db.find(1L << 32));
+
+            int record = db.find("172.20.1.1");
+            Assert.assertEquals("172.16.0.0", ArrayUtil.long2ip(db.startIp(record)));
+            Assert.assertEquals("172.31.255.255", ArrayUtil.long2ip(db.endIp(record)));
+            Assert.assertSame(db.payload(record), db.lookup("172.16.0.0"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Test for random ranges against a TreeMap.
+     */
+    @Test
+    public void testRandom() throws IOException {
+        Random random = new Random(7);
+        TreeMap<Long, long[]> expected = new TreeMap<>();
+        IpRangeDatabase.Builder builder = IpRangeDatabase.builder();
+        long ip = 0;
+        for (int i = 0; i < 20_000; i++) {
+            long start = ip + random.nextInt(200_000);
+            long end = start + random.nextInt(300_000);
+            if (end > 0xFFFFFFFFL) {
+                break;
+            }
+            builder.add(start, end, "region-" + (i % 500));
+            expected.put(start, new long[]{end, i % 500});
+            ip = end + 1;
+        }
+        Path file = Files.createTempFile("ip-range-", ".db");
+        try {
+            builder.write(file);
+            IpRangeDatabase db = IpRangeDatabase.open(file);
+            for (int i = 0; i < 100_000; i++) {
+                long probe = random.nextLong() & 0xFFFFFFFFL;
+                Map.Entry<Long, long[]> floor = expected.floorEntry(probe);
+                String want = floor != null && floor.getValue()[0] >= probe ? "region-" + floor.getValue()[1] : null;
+                Assert.assertEquals(want, db.lookup(probe));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        Assert.assertThrows(IllegalArgumentException.class, () -> IpRangeDatabase.builder()
+                .add(1, 10, "a").add(10, 20, "b").write(file));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.thread;
+
+import com.mobaijun.common.enums.job.TimerJobStatus;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [HashedWheelTimerTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class HashedWheelTimerTest {
+
+    /**
+     * Test for expiry across levels.
+     */
+    @Test
+    public void testExpire() throws InterruptedException {
+        // 3 层、每层 4 个槽，最高层覆盖 64 个 tick，更远的任务需要多次下沉
+        try (HashedWheelTimer timer = HashedWheelTimer.builder()
+                .tick(Duration.ofMillis(2)).wheelSize(4).levels(3).build()) {
+            int[] delays = {0, 1, 5, 9, 17, 33, 70, 150, 260};
+            CountDownLatch latch = new CountDownLatch(delays.length);
+            long[] late = new long[delays.length];
+            List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>();
+            for (int i = 0; i < delays.length; i++) {
+                int index = i;
+                long expected = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delays[i]);
+                timeouts.add(timer.newTimeout(() -> {
+                    late[index] = System.nanoTime() - expected;
+                    latch.countDown();
+                }, delays[i], TimeUnit.MILLISECONDS));
+            }
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < delays.length; i++) {
+                Assert.assertTrue("delay " + delays[i] + " fired early", late[i] >= 0);
+                // 任务体返回后状态才变为 STOP
+                long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+                while (timeouts.get(i).status() != TimerJobStatus.STOP && System.nanoTime() < until) {
+                    Thread.yield();
+                }
+                Assert.assertEquals(TimerJobStatus.STOP, timeouts.get(i).status());
+                Assert.assertTrue(timeouts.get(i).isExpired());
+            }
+            Assert.assertEquals(0, timer.pendingTimeouts());
+        }
+    }
+
+    /**
+     * Test for cancel and stop.
+     */
+    @Test
+    public void testCancel() {
+        HashedWheelTimer timer = ExecutorServiceUtil.newHashedWheelTimer(Duration.ofMillis(1), 64, Runnable::run);
+        AtomicInteger fired = new AtomicInteger();
+        List<HashedWheelTimer.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            timeouts.add(timer.newTimeout(fired::incrementAndGet, Duration.ofMillis(300 + i % 100)));
+        }
+        for (int i = 0; i < timeouts.size(); i += 2) {
+            Assert.assertTrue(timeouts.get(i).cancel());
+            Assert.assertFalse(timeouts.get(i).cancel());
+            Assert.assertEquals(TimerJobStatus.CANCELLED, timeouts.get(i).status());
+        }
+        Assert.assertEquals(5_000, timer.pendingTimeouts());
+        HashedWheelTimer.Timeout far = timer.newTimeout(fired::incrementAndGet, Duration.ofHours(1));
+        Threads.sleep(800);
+        Assert.assertEquals(5_000, fired.get());
+        Assert.assertEquals(TimerJobStatus.WAITING, far.status());
+
+        List<HashedWheelTimer.Timeout> unprocessed = timer.stop();
+        Assert.assertEquals(List.of(far), unprocessed);
+        Assert.assertEquals(TimerJobStatus.STOP, timer.status());
+        Assert.assertThrows(IllegalStateException.class, () -> timer.newTimeout(() -> {
+        }, Duration.ZERO));
+    }
+
+    /**
+     * Test that timeouts scheduled while stopping are either returned by stop or rejected.
+     */
+    @Test
+    public void testScheduleWhileStopping() throws InterruptedException {
+        for (int round = 0; round < 20; round++) {
+            HashedWheelTimer timer = ExecutorServiceUtil.newHashedWheelTimer(Duration.ofMillis(1), 64, Runnable::run);
+            List<HashedWheelTimer.Timeout> accepted = new ArrayList<>();
+            CountDownLatch started = new CountDownLatch(1);
+            Thread producer = new Thread(() -> {
+                started.countDown();
+                try {
+                    while (true) {
+                        accepted.add(timer.newTimeout(() -> {
+                        }, Duration.ofHours(1)));
+                    }
+                } catch (IllegalStateException e) {
+                    // 定时器已停止
+                }
+            });
+            producer.start();
+            started.await();
+            Threads.sleep(round % 5);
+            List<HashedWheelTimer.Timeout> unprocessed = timer.stop();
+            producer.join();
+            // stop 按槽收集，顺序与调度顺序无关
+            Assert.assertEquals(accepted.size(), unprocessed.size());
+            Assert.assertEquals(new HashSet<>(accepted), new HashSet<>(unprocessed));
+            Assert.assertEquals(accepted.size(), timer.pendingTimeouts());
+        }
+    }
+}
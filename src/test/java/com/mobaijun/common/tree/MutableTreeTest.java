@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.tree;
+
+import com.mobaijun.common.tree.TreeBuilderTest.Node;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [MutableTreeTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class MutableTreeTest {
+
+    /**
+     * Test for add, move, update and remove with events.
+     */
+    @Test
+    public void testOperations() {
+        MutableTree<Node, Integer> tree = MutableTree.forTreeNode(0);
+        List<TreeChangeEvent<Node, Integer>> events = new ArrayList<>();
+        tree.addListener(events::add);
+        tree.addListener(e -> {
+            throw new IllegalStateException("ignored");
+        });
+        tree.load(List.of(new Node(1, 0), new Node(2, 1), new Node(3, 1), new Node(4, 2), new Node(9, 99)));
+        Assert.assertEquals(4, tree.size());
+        Assert.assertEquals(TreeChangeEvent.Type.RELOADED, events.get(0).type());
+
+        tree.addNode(new Node(5, 3));
+        Assert.assertEquals(List.of(5), keys(tree.get(3).getChildren()));
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.addNode(new Node(5, 1)));
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.addNode(new Node(6, 42)));
+
+        // 2 移到 3 下面
+        tree.moveSubtree(2, 3);
+        Assert.assertEquals(List.of(3), keys(tree.get(1).getChildren()));
+        Assert.assertEquals(List.of(5, 2), keys(tree.get(3).getChildren()));
+        Assert.assertEquals(3, tree.parentKey(2).intValue());
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.moveSubtree(1, 4));
+        TreeChangeEvent<Node, Integer> moved = events.get(events.size() - 1);
+        Assert.assertEquals(TreeChangeEvent.Type.MOVED, moved.type());
+        Assert.assertEquals(1, moved.oldParentKey().intValue());
+        Assert.assertEquals(3, moved.newParentKey().intValue());
+
+        // 替换节点 3，子树保持不变
+        Node renamed = new Node(3, 1);
+        Node old = tree.updateNode(renamed);
+        Assert.assertSame(renamed, tree.get(1).getChildren().get(0));
+        Assert.assertEquals(List.of(5, 2), keys(renamed.getChildren()));
+        Assert.assertEquals(TreeChangeEvent.Type.UPDATED, events.get(events.size() - 1).type());
+        Assert.assertSame(old, events.get(events.size() - 1).nodes().get(0));
+
+        // 新父节点不合法时树和监听器都不受影响
+        int eventCount = events.size();
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.updateNode(new Node(3, 42)));
+        Assert.assertThrows(IllegalArgumentException.class, () -> tree.updateNode(new Node(3, 2)));
+        Assert.assertSame(renamed, tree.get(3));
+        Assert.assertSame(renamed, tree.get(1).getChildren().get(0));
+        Assert.assertEquals(eventCount, events.size());
+
+        // 父键变化的替换会移动子树
+        tree.updateNode(new Node(5, 0));
+        Assert.assertEquals(List.of(1, 5), keys(tree.roots()));
+
+        List<Node> removed = tree.removeSubtree(1);
+        Assert.assertEquals(List.of(1, 3, 2, 4), keys(removed));
+        Assert.assertEquals(1, tree.size());
+        Assert.assertFalse(tree.contains(4));
+        Assert.assertEquals(List.of(5), keys(tree.roots()));
+        Assert.assertEquals(removed, events.get(events.size() - 1).nodes());
+        Assert.assertTrue(tree.removeSubtree(1).isEmpty());
+    }
+
+    /**
+     * Test random operations against a full rebuild.
+     */
+    @Test
+    public void testRandomAgainstRebuild() {
+        Random random = new Random(5);
+        MutableTree<Node, Integer> tree = MutableTree.forTreeNode(0);
+        List<Integer> keys = new ArrayList<>();
+        int next = 1;
+        for (int step = 0; step < 20_000; step++) {
+            int op = random.nextInt(10);
+            if (keys.isEmpty() || op < 6) {
+                int parent = keys.isEmpty() || random.nextInt(5) == 0 ? 0 : keys.get(random.nextInt(keys.size()));
+                tree.addNode(new Node(next, parent));
+                keys.add(next++);
+            } else if (op < 9) {
+                int key = keys.get(random.nextInt(keys.size()));
+                int parent = random.nextInt(5) == 0 ? 0 : keys.get(random.nextInt(keys.size()));
+                if (!underSubtree(tree, parent, key)) {
+                    tree.moveSubtree(key, parent);
+                } else {
+                    Assert.assertThrows(IllegalArgumentException.class, () -> tree.moveSubtree(key, parent));
+                }
+            } else {
+                for (Node removed : tree.removeSubtree(keys.get(random.nextInt(keys.size())))) {
+                    keys.remove(removed.getKey());
+                }
+            }
+            if (step % 1000 == 0) {
+                assertConsistent(tree, keys);
+            }
+        }
+        assertConsistent(tree, keys);
+    }
+
+    private static boolean underSubtree(MutableTree<Node, Integer> tree, int node, int root) {
+        for (Integer p = node; p != null && p != 0; p = tree.parentKey(p)) {
+            if (p == root) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertConsistent(MutableTree<Node, Integer> tree, List<Integer> keys) {
+        Assert.assertEquals(keys.size(), tree.size());
+        // 按维护的父键重新构建，结构应当完全一致
+        List<Node> copies = new ArrayList<>();
+        for (Node node : tree.toIndex().nodes()) {
+            copies.add(new Node(node.getKey(), tree.parentKey(node.getKey())));
+        }
+        TreeIndex<Node, Integer> expected = TreeIndex.of(TreeUtil.buildTree(copies, 0));
+        TreeIndex<Node, Integer> actual = tree.toIndex();
+        Assert.assertEquals(keys(expected.nodes()), keys(actual.nodes()));
+        for (Integer key : keys) {
+            Assert.assertEquals(expected.depth(key), actual.depth(key));
+        }
+    }
+
+    private static List<Integer> keys(List<Node> nodes) {
+        List<Integer> keys = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            keys.add(node.getKey());
+        }
+        return keys;
+    }
+}
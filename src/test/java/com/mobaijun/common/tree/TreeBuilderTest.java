@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.tree;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [TreeBuilderTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class TreeBuilderTest {
+
+    /**
+     * Test for a deep chain which used to overflow the stack.
+     */
+    @Test
+    public void testDeepChain() {
+        int depth = 100_000;
+        List<Node> nodes = new ArrayList<>();
+        for (int i = depth; i >= 1; i--) {
+            nodes.add(new Node(i, i - 1));
+        }
+        List<Node> roots = TreeUtil.buildTree(nodes, 0);
+        Assert.assertEquals(1, roots.size());
+        Node node = roots.get(0);
+        for (int i = 1; i < depth; i++) {
+            Assert.assertEquals(i, node.getKey().intValue());
+            Assert.assertEquals(1, node.getChildren().size());
+            node = node.<Node>getChildren().get(0);
+        }
+        Assert.assertEquals(depth, node.getKey().intValue());
+        Assert.assertTrue(node.getChildren().isEmpty());
+    }
+
+    /**
+     * Test for orphans, cycles, duplicates and ordering.
+     */
+    @Test
+    public void testBrokenData() {
+        List<Node> nodes = List.of(
+                new Node(3, 1), new Node(2, 1), new Node(1, 0),
+                // 孤儿及其子树
+                new Node(10, 99), new Node(11, 10),
+                // 环 20 -> 21 -> 20，以及挂在环下的 22
+                new Node(20, 21), new Node(21, 20), new Node(22, 21),
+                // 自环与重复键
+                new Node(30, 30), new Node(2, 0));
+        TreeBuilder.Result<Node> result = TreeBuilder.<Node, Integer>forTreeNode()
+                .rootKey(0)
+                .comparator(Comparator.comparing(Node::getKey))
+                .build(nodes);
+        Assert.assertFalse(result.isClean());
+        Assert.assertEquals(List.of(1), keys(result.roots()));
+        Assert.assertEquals(List.of(2, 3), keys(result.roots().get(0).getChildren()));
+        Assert.assertEquals(List.of(10), keys(result.orphans()));
+        Assert.assertEquals(List.of(11), keys(result.orphans().get(0).getChildren()));
+        Assert.assertEquals(List.of(20, 21, 22, 30), keys(result.cycles()));
+        for (Node cycle : result.cycles()) {
+            Assert.assertTrue(cycle.getChildren().isEmpty());
+        }
+        Assert.assertEquals(1, result.duplicates().size());
+        Assert.assertSame(nodes.get(9), result.duplicates().get(0));
+    }
+
+    /**
+     * Test that parallel linking gives the same forest as sequential linking.
+     */
+    @Test
+    public void testParallel() {
+        Random random = new Random(3);
+        int n = 200_000;
+        List<Node> sequential = new ArrayList<>(n);
+        List<Node> parallel = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            // 父键可能越界形成孤儿，也可能指向后面的节点形成环
+            int parentKey = i == 1 ? 0 : random.nextInt(i + 10);
+            sequential.add(new Node(i, parentKey));
+            parallel.add(new Node(i, parentKey));
+        }
+        TreeBuilder.Result<Node> expected = TreeBuilder.<Node, Integer>forTreeNode().rootKey(0)
+                .parallelThreshold(Integer.MAX_VALUE).build(sequential);
+        TreeBuilder.Result<Node> actual = TreeBuilder.<Node, Integer>forTreeNode().rootKey(0)
+                .parallelThreshold(1).build(parallel);
+        Assert.assertEquals(keys(expected.roots()), keys(actual.roots()));
+        Assert.assertEquals(keys(expected.orphans()), keys(actual.orphans()));
+        Assert.assertEquals(keys(expected.cycles()), keys(actual.cycles()));
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(keys(sequential.get(i).getChildren()), keys(parallel.get(i).getChildren()));
+        }
+    }
+
+    private static List<Integer> keys(List<Node> nodes) {
+        List<Integer> keys = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            keys.add(node.getKey());
+        }
+        return keys;
+    }
+
+    /**
+     * 测试用树节点
+     */
+    static final class Node implements TreeNode<Integer> {
+
+        private final Integer key;
+
+        private final Integer parentKey;
+
+        private List<? extends TreeNode<Integer>> children;
+
+        Node(Integer key, Integer parentKey) {
+            this.key = key;
+            this.parentKey = parentKey;
+        }
+
+        @Override
+        public Integer getKey() {
+            return key;
+        }
+
+        @Override
+        public Integer getParentKey() {
+            return parentKey;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends TreeNode<Integer>> List<T> getChildren() {
+            return (List<T>) children;
+        }
+
+        @Override
+        public <T extends TreeNode<Integer>> void setChildren(List<T> children) {
+            this.children = children;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.tree;
+
+import com.mobaijun.common.tree.TreeBuilderTest.Node;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [TreeIndexTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class TreeIndexTest {
+
+    /**
+     * Test for queries on a small forest.
+     */
+    @Test
+    public void testQueries() {
+        // 1 -> (2 -> (4, 5), 3)，6 -> 7
+        List<Node> nodes = List.of(new Node(1, 0), new Node(2, 1), new Node(3, 1), new Node(4, 2),
+                new Node(5, 2), new Node(6, 0), new Node(7, 6));
+        TreeIndex<Node, Integer> index = TreeIndex.of(TreeUtil.buildTree(nodes, 0));
+        Assert.assertEquals(7, index.size());
+        Assert.assertEquals(List.of(1, 2, 4, 5, 3, 6, 7), keys(index.nodes()));
+        Assert.assertEquals(List.of(1, 6), keys(index.roots()));
+        Assert.assertTrue(index.isAncestor(1, 5));
+        Assert.assertTrue(index.isAncestor(2, 4));
+        Assert.assertFalse(index.isAncestor(2, 3));
+        Assert.assertFalse(index.isAncestor(4, 4));
+        Assert.assertFalse(index.isAncestor(1, 7));
+        Assert.assertFalse(index.isAncestor(1, 42));
+        Assert.assertEquals(List.of(2, 4, 5, 3), keys(index.descendants(1)));
+        Assert.assertEquals(4, index.descendantCount(1));
+        Assert.assertTrue(index.descendants(42).isEmpty());
+        Assert.assertEquals(List.of(4, 5, 3), keys(index.leaves(1)));
+        Assert.assertEquals(List.of(2, 1), keys(index.ancestors(5)));
+        Assert.assertEquals(2, index.depth(4));
+        Assert.assertEquals(-1, index.depth(42));
+        Assert.assertEquals(2, index.maxDepth());
+        Assert.assertEquals(1, index.parent(2).getKey().intValue());
+        Assert.assertNull(index.parent(6));
+        Assert.assertEquals(1, index.kthAncestor(4, 2).getKey().intValue());
+        Assert.assertEquals(4, index.kthAncestor(4, 0).getKey().intValue());
+        Assert.assertNull(index.kthAncestor(4, 3));
+        Assert.assertEquals(2, index.lowestCommonAncestor(4, 5).getKey().intValue());
+        Assert.assertEquals(1, index.lowestCommonAncestor(4, 3).getKey().intValue());
+        Assert.assertEquals(2, index.lowestCommonAncestor(2, 5).getKey().intValue());
+        Assert.assertNull(index.lowestCommonAncestor(4, 7));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> index.descendants(1).clear());
+
+        Node dup = new Node(1, 0);
+        dup.setChildren(List.of(new Node(1, 1)));
+        Assert.assertThrows(IllegalArgumentException.class, () -> TreeIndex.of(List.of(dup)));
+    }
+
+    /**
+     * Test for random forests against parent-pointer walks.
+     */
+    @Test
+    public void testRandom() {
+        Random random = new Random(11);
+        int n = 20_000;
+        int[] parentOf = new int[n + 1];
+        List<Node> nodes = new ArrayList<>(n);
+        for (int i = 1; i <= n; i++) {
+            // 偏向最近的节点，制造较深的链
+            parentOf[i] = random.nextInt(8) == 0 ? 0 : Math.max(0, i - 1 - random.nextInt(3));
+            nodes.add(new Node(i, parentOf[i]));
+        }
+        TreeIndex<Node, Integer> index = TreeIndex.of(TreeUtil.buildTree(nodes, 0));
+        for (int q = 0; q < 20_000; q++) {
+            int a = 1 + random.nextInt(n);
+            int b = 1 + random.nextInt(n);
+            List<Integer> path = new ArrayList<>();
+            for (int p = parentOf[b]; p != 0; p = parentOf[p]) {
+                path.add(p);
+            }
+            Assert.assertEquals(path.contains(a), index.isAncestor(a, b));
+            Assert.assertEquals(path, keys(index.ancestors(b)));
+            Assert.assertEquals(path.size(), index.depth(b));
+            int k = random.nextInt(path.size() + 2);
+            Integer expected = k == 0 ? Integer.valueOf(b) : k <= path.size() ? path.get(k - 1) : null;
+            Node kth = index.kthAncestor(b, k);
+            Assert.assertEquals(expected, kth == null ? null : kth.getKey());
+
+            Set<Integer> aPath = new HashSet<>();
+            for (int p = a; p != 0; p = parentOf[p]) {
+                aPath.add(p);
+            }
+            Integer lca = null;
+            for (int p = b; p != 0; p = parentOf[p]) {
+                if (aPath.contains(p)) {
+                    lca = p;
+                    break;
+                }
+            }
+            Node actual = index.lowestCommonAncestor(a, b);
+            Assert.assertEquals(lca, actual == null ? null : actual.getKey());
+        }
+    }
+
+    private static List<Integer> keys(List<Node> nodes) {
+        List<Integer> keys = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            keys.add(node.getKey());
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2022 [www.mobaijun.com]
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.mobaijun.common.tree;
+
+import com.mobaijun.common.tree.TreeBuilderTest.Node;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Description: [TreeUtilTest测试类]
+ * Author: [mobaijun]
+ * Date: [2024/12/3 15:21]
+ * IntelliJ IDEA Version: [IntelliJ IDEA 2023.1.4]
+ */
+public class TreeUtilTest {
+
+    /**
+     * Test that parallel pruning equals sequential pruning.
+     */
+    @Test
+    public void testParallelPrune() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(17);
+            for (int round = 0; round < 5; round++) {
+                int[] parentOf = randomParents(random, 30_000 + random.nextInt(20_000));
+                int remainder = round;
+                Predicate<Node> matcher = node -> node.getKey() % 37 == remainder;
+                String expected = shape(referencePrune(forest(parentOf), matcher));
+                Assert.assertEquals(expected, shape(TreeUtil.pruneTree(forest(parentOf), matcher)));
+                Assert.assertEquals(expected, shape(TreeUtil.pruneTree(forest(parentOf), matcher, pool)));
+            }
+
+            // 深链：只有最底层匹配，整条链都应保留
+            int depth = 100_000;
+            int[] chain = new int[depth + 1];
+            for (int i = 1; i <= depth; i++) {
+                chain[i] = i - 1;
+            }
+            List<Node> pruned = TreeUtil.pruneTree(forest(chain), node -> node.getKey() == depth, pool);
+            Assert.assertEquals(1, pruned.size());
+            Iterator<Node> it = TreeUtil.dfsIterator(pruned);
+            int count = 0;
+            while (it.hasNext()) {
+                Node node = it.next();
+                count++;
+                Assert.assertEquals(count, node.getKey().intValue());
+            }
+            Assert.assertEquals(depth, count);
+            Assert.assertTrue(TreeUtil.pruneTree(forest(chain), node -> false, pool).isEmpty());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test that parallel collection keeps breadth-first order.
+     */
+    @Test
+    public void testParallelCollect() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            int[] parentOf = randomParents(new Random(19), 20_000);
+            List<Node> first = forest(parentOf);
+            Node root = new Node(0, -1);
+            root.setChildren(first);
+            List<Integer> expected = TreeUtil.collectNode(root, Node::getKey, false);
+            List<Integer> actual = TreeUtil.collectNode(root, Node::getKey, true, pool);
+            Assert.assertEquals(expected, actual);
+            Assert.assertNull(first.get(0).getChildren());
+
+            List<Integer> bfs = new ArrayList<>();
+            TreeUtil.bfsIterator(forest(parentOf)).forEachRemaining(node -> bfs.add(node.getKey()));
+            Assert.assertEquals(expected.subList(1, expected.size()), bfs);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test for lazy iterators on a small forest.
+     */
+    @Test
+    public void testIterators() {
+        // 1 -> (2 -> (4), 3)，5
+        List<Node> roots = TreeUtil.buildTree(List.of(new Node(1, 0), new Node(2, 1), new Node(3, 1),
+                new Node(4, 2), new Node(5, 0)), 0);
+        Assert.assertEquals(List.of(1, 2, 4, 3, 5), keys(TreeUtil.dfsIterator(roots)));
+        Assert.assertEquals(List.of(1, 5, 2, 3, 4), keys(TreeUtil.bfsIterator(roots)));
+        Iterator<Node> empty = TreeUtil.dfsIterator(new ArrayList<Node>());
+        Assert.assertFalse(empty.hasNext());
+        Assert.assertThrows(NoSuchElementException.class, empty::next);
+    }
+
+    /**
+     * 原递归剪枝实现，作为对照
+     */
+    private static List<Node> referencePrune(List<Node> treeNodes, Predicate<Node> matcher) {
+        List<Node> result = new ArrayList<>();
+        for (Node treeNode : treeNodes) {
+            List<Node> children = referencePrune(treeNode.getChildren(), matcher);
+            if (!children.isEmpty()) {
+                treeNode.setChildren(children);
+                result.add(treeNode);
+            } else if (matcher.test(treeNode)) {
+                treeNode.setChildren(null);
+                result.add(treeNode);
+            }
+        }
+        return result;
+    }
+
+    private static int[] randomParents(Random random, int n) {
+        int[] parentOf = new int[n + 1];
+        for (int i = 1; i <= n; i++) {
+            parentOf[i] = random.nextInt(10) == 0 ? 0 : Math.max(0, i - 1 - random.nextInt(Math.min(i, 50)));
+        }
+        return parentOf;
+    }
+
+    private static List<Node> forest(int[] parentOf) {
+        List<Node> nodes = new ArrayList<>(parentOf.length);
+        for (int i = 1; i < parentOf.length; i++) {
+            nodes.add(new Node(i, parentOf[i]));
+        }
+        return TreeUtil.buildTree(nodes, 0);
+    }
+
+    /**
+     * 以 key(子节点...) 的形式描述树结构，null 子节点记为 key!
+     */
+    private static String shape(List<Node> roots) {
+        StringBuilder sb = new StringBuilder();
+        List<Object> stack = new ArrayList<>();
+        for (int i = roots.size() - 1; i >= 0; i--) {
+            stack.add(roots.get(i));
+        }
+        while (!stack.isEmpty()) {
+            Object top = stack.remove(stack.size() - 1);
+            if (top instanceof String) {
+                sb.append(top);
+                continue;
+            }
+            Node node = (Node) top;
+            sb.append(node.getKey());
+            List<Node> children = node.getChildren();
+            if (children == null) {
+                sb.append('!');
+                continue;
+            }
+            sb.append('(');
+            stack.add(")");
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.add(children.get(i));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static List<Integer> keys(Iterator<Node> iterator) {
+        List<Integer> keys = new ArrayList<>();
+        iterator.forEachRemaining(node -> keys.add(node.getKey()));
+        return keys;
+    }
+}